@@ -18,6 +18,7 @@ import cli.clt.sieve.SieveBedgraph;
 import cli.clt.sieve.SubtractByAnchorOverlap;
 import cli.clt.stripes.Slash;
 import cli.clt.stripes.SlashLocalize;
+import cli.utils.general.NpyWriter;
 import jargs.gnu.CmdLineParser;
 
 public class Main {
@@ -31,6 +32,7 @@ public class Main {
         System.out.println("\t" + "-h, --help print help");
         System.out.println("\t" + "-v, --verbose verbose mode");
         System.out.println("\t" + "-V, --version print version");
+        System.out.println("\t" + "--text-npy save .npy outputs in the older text format");
         System.out.println("Commands:");
         if (cUsage == null || cUsage.length() < 1) {
             for (String usage : new String[]{APA2.usage, APA3.usage, ATA.usage, Cleaner.usage, Fusion.usage,
@@ -64,6 +66,7 @@ public class Main {
         boolean help = parser.getHelpOption();
         boolean version = parser.getVersionOption();
         printVerboseComments = printVerboseComments || parser.getVerboseOption();
+        NpyWriter.saveAsText = parser.getTextNpyOption();
 
         String[] args = parser.getRemainingArgs();
         if(help || version){
@@ -94,7 +97,7 @@ public class Main {
             new MergeBedFiles(args, parser, command);
         } else if (command.startsWith("intersect-bed-bedgraph")) {
             new IntersectBedWithBedgraph(args, parser, command);
-        } else if (command.equals("enhance") || command.equals("amplifi") || command.equals("amplify")) {
+        } else if (command.startsWith("enhance") || command.startsWith("amplif")) {
             Enhance.run(args, parser);
         } else if (command.equals("pinpoint")) {
             Pinpoint.run(args, parser);
@@ -113,7 +116,7 @@ public class Main {
         } else if (command.startsWith("prob")) {
             Probability.run(args, parser);
         } else if (command.startsWith("expand")) {
-            Expand.run(args, command);
+            Expand.run(args, command, parser);
         } else if (command.startsWith("unwrap")) {
             UnWrap.run(args, parser, command);
         } else if (command.startsWith("subtract") && command.contains("anchors")) {
@@ -160,11 +163,11 @@ public class Main {
         } else if (command.startsWith("fuse") || command.startsWith("fusion") || command.startsWith("join") || command.startsWith("union")) {
             Fusion.run(args, command, parser);
         } else if (command.startsWith("filter")) {
-            FilterBedpe.run(args, command);
+            FilterBedpe.run(args, command, parser);
         } else if (command.startsWith("subtract") || command.startsWith("intersect")) {
             IntersectBedpe.run(args, command, parser);
         } else if (command.startsWith("split")) {
-            Split.run(args, command);
+            Split.run(args, command, parser);
         } else if (command.startsWith("fimo")) {
             Fimo.run(args, command);
         } else if (command.startsWith("seer")) {
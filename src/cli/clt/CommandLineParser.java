@@ -60,6 +60,10 @@ public class CommandLineParser extends CmdLineParser {
     private final Option numThreadsOption = addIntegerOption("threads");
     private final Option roundingOption = addIntegerOption("round");
     private final Option chromosomeOption = addStringOption('c', "chrom");
+    private final Option prefetchOption = addIntegerOption("prefetch-mb");
+    private final Option streamOption = addBooleanOption("stream");
+    private final Option textNpyOption = addBooleanOption("text-npy");
+    private final Option npzOption = addBooleanOption("npz");
 
     private boolean optionToBoolean(Option option) {
         Object opt = getOptionValue(option);
@@ -190,4 +194,20 @@ public class CommandLineParser extends CmdLineParser {
     public String getChromosomeOption() {
         return optionToString(chromosomeOption);
     }
-}
\ No newline at end of file
+
+    public int getPrefetchBudgetOption(int defaultValue) {
+        return optionToInteger(prefetchOption, defaultValue);
+    }
+
+    public boolean getStreamOption() {
+        return optionToBoolean(streamOption);
+    }
+
+    public boolean getTextNpyOption() {
+        return optionToBoolean(textNpyOption);
+    }
+
+    public boolean getNpzOption() {
+        return optionToBoolean(npzOption);
+    }
+}
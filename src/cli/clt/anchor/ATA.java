@@ -3,10 +3,10 @@ package cli.clt.anchor;
 import cli.Main;
 import cli.clt.CommandLineParser;
 import cli.utils.general.IGVTools;
+import cli.utils.general.NpyWriter;
 import javastraw.reader.basics.Chromosome;
 import javastraw.reader.basics.ChromosomeHandler;
 import javastraw.reader.basics.ChromosomeTools;
-import javastraw.tools.MatrixTools;
 import javastraw.tools.ParallelizationTools;
 import org.broad.igv.feature.IGVFeature;
 import org.broad.igv.feature.LocusScore;
@@ -132,7 +132,7 @@ public class ATA {
         });
 
         normalizeInPlace(totalAccumulation, totalNumber[0]);
-        MatrixTools.saveMatrixTextNumpy(outFile + ".npy", totalAccumulation);
+        NpyWriter.save(outFile + ".npy", totalAccumulation);
     }
 
     public void run() {
@@ -139,6 +139,10 @@ public class AnchorAPA {
                                 MultiAPAManager manager = new MultiAPAManager(loops, window, resolution,
                                         matrixWidthL, scm, vector, useAgNorm, dontUseOrientation);
 
+                                System.out.println(chr1.getName() + ": " + loops.size() + " loops, contacts " +
+                                        (scm.getMemoryInBytes() >> 20) + " MB, anchor matrices " +
+                                        (manager.getMemoryInBytes() >> 20) + " MB");
+
                                 List<AnchorAPAScore> threadScores = manager.getAnchorAPAScores(chr1, resolution,
                                         dontUseOrientation);
                                 synchronized (scores) {
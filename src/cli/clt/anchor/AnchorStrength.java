@@ -26,6 +26,7 @@ package cli.clt.anchor;
 
 import cli.clt.CommandLineParser;
 import cli.utils.StrawUtils;
+import cli.utils.expected.ExpectedModelCache;
 import cli.utils.general.ArrayTools;
 import cli.utils.general.MapNMS;
 import cli.utils.general.QuadContactRecord;
@@ -58,6 +59,7 @@ public class AnchorStrength {
             "[--min-dist val] [--max-dist val] [-r resolution] <input.hic> <output.stem>\n" +
             "calculate localized row sums near loops";
     private final String outputPath;
+    private final String hicPath;
     private final Dataset ds;
     private final int minPeakDist, maxPeakDist; // distance between two bins, can be changed in opts
     private final int resolution;
@@ -77,7 +79,8 @@ public class AnchorStrength {
         useExperimentalVersion = name.contains("dev");
 
         resolution = parser.getResolutionOption(2000);
-        ds = HiCFileTools.extractDatasetForCLT(args[1], true, false, resolution > 50);
+        hicPath = args[1];
+        ds = HiCFileTools.extractDatasetForCLT(hicPath, true, false, resolution > 50);
         outputPath = args[2];
         chrom = parser.getChromosomeOption();
 
@@ -131,7 +134,7 @@ public class AnchorStrength {
                             float[][] downMatrix = new float[MapNMS.NUM_ROWS][numEntries];
                             MapNMS.initOERows(upMatrix, downMatrix);
 
-                            LogExpectedZscoreSpline poly = new LogExpectedZscoreSpline(zd, norm, chrom, resolution);
+                            LogExpectedZscoreSpline poly = ExpectedModelCache.getLogExpectedZscoreSpline(hicPath, zd, norm, chrom, resolution);
 
                             double[] vector = ArrayTools.copy(ds.getNormalizationVector(chrom.getIndex(), zoom,
                                     NormalizationHandler.VC).getData().getValues().get(0));
@@ -201,6 +204,7 @@ public class AnchorStrength {
         } catch (Exception e) {
             e.printStackTrace();
         }
+        ExpectedModelCache.printStats();
         System.out.println("Anchor strengths complete");
     }
 
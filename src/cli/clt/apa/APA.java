@@ -26,10 +26,10 @@ package cli.clt.apa;
 
 import cli.clt.CommandLineParser;
 import cli.utils.apa.APADataExporter;
+import cli.utils.apa.APAStreamingEngine;
 import cli.utils.apa.APAUtils;
 import cli.utils.flags.RegionConfiguration;
 import cli.utils.general.HiCUtils;
-import cli.utils.general.Utils;
 import javastraw.feature2D.Feature2D;
 import javastraw.feature2D.Feature2DList;
 import javastraw.feature2D.Feature2DParser;
@@ -218,14 +218,16 @@ public class APA {
     }
 
     protected void processLoopsForRegion(MatrixZoomData zd, List<Feature2D> loops, float[][] output, AtomicInteger currNumLoops, int numTotalLoops) {
-        for (Feature2D loop : loops) {
-            int binXStart = (int) ((loop.getMidPt1() / resolution) - window);
-            int binYStart = (int) ((loop.getMidPt2() / resolution) - window);
-            Utils.addLocalBoundedRegion(output, zd, binXStart, binYStart, matrixWidthL, norm);
-            if (currNumLoops.incrementAndGet() % 100 == 0) {
-                System.out.print(((int) Math.floor((100.0 * currNumLoops.get()) / numTotalLoops)) + "% ");
-            }
-        }
+        Feature2D first = loops.get(0);
+        boolean isIntra = first.getChr1().equals(first.getChr2());
+
+        long start = System.nanoTime();
+        APAStreamingEngine engine = new APAStreamingEngine(resolution, window, matrixWidthL, norm);
+        boolean streamed = engine.addLoops(output, zd, loops, isIntra, currNumLoops, numTotalLoops);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println(first.getChr1() + "_" + first.getChr2() + ": " + loops.size() + " loops via "
+                + (streamed ? "full scan" : "block fetch") + " in " + String.format("%.2f", seconds) + "s");
     }
 
     private Feature2DList loadLoopsAPAStyle(AtomicInteger[] gwPeakNumbers, ChromosomeHandler handler) {
@@ -28,7 +28,7 @@ import cli.clt.CommandLineParser;
 import cli.utils.apa.APADataExporter;
 import cli.utils.apa.APAUtils;
 import cli.utils.apa.DistanceBoundCalculator;
-import cli.utils.data.Bounds2DInfo;
+import cli.utils.data.LoopBucketIndex;
 import cli.utils.flags.RegionConfiguration;
 import cli.utils.general.HiCUtils;
 import javastraw.expected.ExpectedUtils;
@@ -258,7 +258,8 @@ public class APA3 {
 
     protected void processLoopsForRegion(MatrixZoomData zd, List<List<Feature2D>> allLoops,
                                          List<float[][]> outputs, DistanceBoundCalculator distanceBoundCalculator) {
-        RegionsOfInterest roi = new RegionsOfInterest(resolution, window, matrixWidthL, allLoops);
+        LoopBucketIndex index = new LoopBucketIndex(allLoops, resolution, window, matrixWidthL);
+        int[] hits = new int[index.getMaxHits()];
         int counter = 0;
 
         Iterator<ContactRecord> it = ExpectedUtils.getIterator(zd, norm);
@@ -266,11 +267,13 @@ public class APA3 {
             ContactRecord cr = it.next();
             if (cr.getCounts() > 0) {
                 if (distanceBoundCalculator.inDistanceRange(cr)) {
-                    if (roi.probablyContainsRecord(cr)) {
-                        for (int i = 0; i < allLoops.size(); i++) {
-                            if (roi.containsRecord(cr, i)) {
-                                populateMatrixIfApplicable(outputs.get(i), cr, roi.getBoundsInfo(cr, i));
-                            }
+                    int binX = cr.getBinX();
+                    int binY = cr.getBinY();
+                    if (index.probablyContains(binX, binY)) {
+                        int numHits = index.getHits(binX, binY, hits);
+                        for (int h = 0; h < numHits; h++) {
+                            int k = hits[h];
+                            outputs.get(index.getListIndex(k))[binX - index.getBinXStart(k)][binY - index.getBinYStart(k)] += cr.getCounts();
                         }
                         if (counter++ % 10000 == 0) {
                             System.out.print(".");
@@ -279,22 +282,8 @@ public class APA3 {
                 }
             }
         }
-
-        roi.clear();
     }
 
-    private void populateMatrixIfApplicable(float[][] matrix, ContactRecord cr,
-                                            List<Bounds2DInfo> allBounds) {
-        for (Bounds2DInfo bound : allBounds) {
-            if (bound.contains(cr.getBinX(), cr.getBinY())) {
-                int relativeX = cr.getBinX() - bound.getBinXStart();
-                int relativeY = cr.getBinY() - bound.getBinYStart();
-                matrix[relativeX][relativeY] += cr.getCounts();
-            }
-        }
-    }
-
-
     private Feature2DList[] loadLoopsAPAStyle(String[] loopListPath, ChromosomeHandler handler) {
         Feature2DList[] loopLists = new Feature2DList[loopListPath.length];
         for (int i = 0; i < loopListPath.length; i++) {
@@ -1,6 +1,10 @@
 package cli.clt.bedpe;
 
 import cli.Main;
+import cli.clt.CommandLineParser;
+import cli.utils.general.BedpeRow;
+import cli.utils.general.BedpeStream;
+import cli.utils.general.BedpeWriter;
 import javastraw.feature2D.Feature2D;
 import javastraw.feature2D.Feature2DList;
 import javastraw.feature2D.Feature2DParser;
@@ -8,18 +12,20 @@ import javastraw.reader.basics.ChromosomeHandler;
 import javastraw.reader.basics.ChromosomeTools;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 public class Expand {
-    public static String usage = "expand[-exact][-clean] <genomeID> <anchor_size> <input.bedpe> <output.bedpe>\n" +
+    public static String usage = "expand[-exact][-clean] [--stream] <genomeID> <anchor_size> <input.bedpe> <output.bedpe>\n" +
             "\t\tdefault behavior expands the size of anchors for each loop to be anchor_size\n" +
             "unless the loop's width is already bigger than anchor_size; expansion is in both \n" +
             "directions, so the midpoint is preserved\n" +
             "\t\texact will explicitly set the size to anchor_size even if the anchor was bigger\n" +
-            "\t\tclean avoids saving old attributes";
+            "\t\tclean avoids saving old attributes\n" +
+            "\t\t--stream processes one row at a time in bounded memory; other columns are kept as in the input";
 
-    public static void run(String[] args, String command) {
+    public static void run(String[] args, String command, CommandLineParser parser) {
         if (args.length != 5) {
             Main.printGeneralUsageAndExit(5, usage);
         }
@@ -27,8 +33,13 @@ public class Expand {
         int newSize = Integer.parseInt(args[2]);
         String inFile = args[3];
         String outFile = args[4];
-        setAnchorSize(inFile, genomeID, outFile, newSize,
-                command.contains("clean"), command.contains("exact"));
+        if (parser.getStreamOption()) {
+            streamAnchorSize(inFile, genomeID, outFile, newSize,
+                    command.contains("clean"), command.contains("exact"));
+        } else {
+            setAnchorSize(inFile, genomeID, outFile, newSize,
+                    command.contains("clean"), command.contains("exact"));
+        }
         System.out.println("anchor expansion complete");
     }
 
@@ -49,27 +60,42 @@ public class Expand {
         loopList.exportFeatureList(new File(outFile), false, Feature2DList.ListFormat.NA);
     }
 
-    private static Feature2D getUpdatedLoop(Feature2D feature, int newAnchorSize, boolean setExactSize) {
-        long mid1 = feature.getMidPt1();
-        long mid2 = feature.getMidPt2();
-        long start1 = mid1 - (newAnchorSize / 2);
-        long start2 = mid2 - (newAnchorSize / 2);
-        long end1 = start1 + newAnchorSize;
-        long end2 = start2 + newAnchorSize;
-
-        if (!setExactSize) {
-            if (feature.getWidth1() > newAnchorSize) {
-                start1 = feature.getStart1();
-                end1 = feature.getEnd1();
-            }
-            if (feature.getWidth2() > newAnchorSize) {
-                start2 = feature.getStart2();
-                end2 = feature.getEnd2();
+    private static void streamAnchorSize(String inputBedpe, String genomeID, String outFile,
+                                         int newAnchorSize, boolean noAttributes, boolean setExactSize) {
+        ChromosomeHandler handler = ChromosomeTools.loadChromosomes(genomeID);
+        try (BedpeStream stream = new BedpeStream(inputBedpe, handler);
+             BedpeWriter writer = new BedpeWriter(outFile)) {
+            writer.writeHeader(stream.getHeader().getOutputLine(!noAttributes));
+            BedpeRow row;
+            while ((row = stream.next()) != null) {
+                long[] bounds1 = getUpdatedAnchor(row.getStart1(), row.getEnd1(), row.getMidPt1(),
+                        newAnchorSize, setExactSize);
+                long[] bounds2 = getUpdatedAnchor(row.getStart2(), row.getEnd2(), row.getMidPt2(),
+                        newAnchorSize, setExactSize);
+                writer.write(row, bounds1[0], bounds1[1], bounds2[0], bounds2[1], !noAttributes);
             }
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(6);
         }
+    }
+
+    private static Feature2D getUpdatedLoop(Feature2D feature, int newAnchorSize, boolean setExactSize) {
+        long[] bounds1 = getUpdatedAnchor(feature.getStart1(), feature.getEnd1(), feature.getMidPt1(),
+                newAnchorSize, setExactSize);
+        long[] bounds2 = getUpdatedAnchor(feature.getStart2(), feature.getEnd2(), feature.getMidPt2(),
+                newAnchorSize, setExactSize);
         return new Feature2D(feature.getFeatureType(),
-                feature.getChr1(), start1, end1,
-                feature.getChr2(), start2, end2,
+                feature.getChr1(), bounds1[0], bounds1[1],
+                feature.getChr2(), bounds2[0], bounds2[1],
                 feature.getColor(), feature.getAttributes());
     }
+
+    private static long[] getUpdatedAnchor(long start, long end, long mid, int newAnchorSize, boolean setExactSize) {
+        if (!setExactSize && end - start > newAnchorSize) {
+            return new long[]{start, end};
+        }
+        long newStart = mid - (newAnchorSize / 2);
+        return new long[]{newStart, newStart + newAnchorSize};
+    }
 }
@@ -1,6 +1,10 @@
 package cli.clt.bedpe;
 
 import cli.Main;
+import cli.clt.CommandLineParser;
+import cli.utils.general.BedpeRow;
+import cli.utils.general.BedpeStream;
+import cli.utils.general.BedpeWriter;
 import javastraw.feature2D.Feature2D;
 import javastraw.feature2D.Feature2DList;
 import javastraw.feature2D.Feature2DParser;
@@ -8,6 +12,7 @@ import javastraw.reader.basics.ChromosomeHandler;
 import javastraw.reader.basics.ChromosomeTools;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,11 +20,12 @@ public class FilterBedpe {
 
     // overlap can be adjusted; exact means exact indices; default will use any overlap
     //
-    public static String usage = "filter-contain[-clean] <genomeID> <input.bedpe> <output.bedpe>\n" +
+    public static String usage = "filter-contain[-clean] [--stream] <genomeID> <input.bedpe> <output.bedpe>\n" +
             "\t\tcontain checks if localX and localY are within the bounds of the feature\n" +
-            "\t\tclean means don't save attributes";
+            "\t\tclean means don't save attributes\n" +
+            "\t\t--stream processes one row at a time in bounded memory; other columns are kept as in the input";
 
-    public static void run(String[] args, String command) {
+    public static void run(String[] args, String command, CommandLineParser parser) {
 
         boolean doCheckContain = checkForContainment(command);
 
@@ -28,6 +34,11 @@ public class FilterBedpe {
         }
         ChromosomeHandler handler = ChromosomeTools.loadChromosomes(args[1]);
         boolean noAttributes = command.contains("clean");
+        if (parser.getStreamOption()) {
+            streamFilter(args[2], handler, args[3], noAttributes);
+            System.out.println("filtering complete");
+            return;
+        }
         Feature2DList features = Feature2DParser.loadFeatures(args[2], handler, !noAttributes, null, false);
 
         Feature2DList output = filter(features, doCheckContain);
@@ -36,6 +47,24 @@ public class FilterBedpe {
 
     }
 
+    private static void streamFilter(String inputBedpe, ChromosomeHandler handler, String outFile,
+                                     boolean noAttributes) {
+        try (BedpeStream stream = new BedpeStream(inputBedpe, handler);
+             BedpeWriter writer = new BedpeWriter(outFile)) {
+            writer.writeHeader(stream.getHeader().getOutputLine(!noAttributes));
+            BedpeRow row;
+            while ((row = stream.next()) != null) {
+                if (localizationContained(row.getStart1(), row.getEnd1(), row.getAttribute("localX"))
+                        && localizationContained(row.getStart2(), row.getEnd2(), row.getAttribute("localY"))) {
+                    writer.write(row, !noAttributes);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(16);
+        }
+    }
+
     private static Feature2DList filter(Feature2DList features, boolean checkContain) {
         features.filterLists((s, list) -> filterForContainment(list, checkContain));
 
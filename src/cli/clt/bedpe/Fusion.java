@@ -13,7 +13,7 @@ import java.io.File;
 import java.util.*;
 
 public class Fusion {
-    public static String usage = "fuse[-nms][-clean][-exact][-file-id] [--round val] " +
+    public static String usage = "fuse[-nms][-clean][-exact][-file-id] [--round val] [--stream] " +
             "[--attributes a,b,c,...] <genomeID> <output.bedpe> <file1.bedpe> " +
             "<file2.bedpe> [...files.bedpe]\n" +
             "\t\tdefault behavior combines and coalesces overlapping features into a bounding box\n" +
@@ -22,7 +22,8 @@ public class Fusion {
             "\t\texact uses precise bounds and requires exact matches, essentially a duplicate remover\n" +
             "\t\tfile-id saves an index for each input file\n" +
             "\t\t--attributes allows for the saving of specific attributes in the final list\\n\" +\n" +
-            "\t\t--round rounds down to the nearest multiple of val";
+            "\t\t--round rounds down to the nearest multiple of val\n" +
+            "\t\t--stream only loads one chromosome pair at a time";
 
     public static void run(String[] args, String command, CommandLineParser parser) {
         if (args.length < 4) {
@@ -35,12 +36,22 @@ public class Fusion {
         System.arraycopy(args, 3, bedpeFiles, 0, bedpeFiles.length);
         String[] attributes = parser.getAttributesOption();
         int val = parser.getRoundOption();
+        boolean useStreaming = parser.getStreamOption();
 
         if (command.contains("clean") && command.contains("exact")
                 && (!command.contains("nms")) && (!command.contains("file-id"))) {
 
-            simpleDedup(bedpeFiles, genomeID, outFile);
+            if (useStreaming) {
+                FusionTools.processByChromosome(bedpeFiles, genomeID, outFile, false, false,
+                        features -> new ArrayList<>(new HashSet<>(features)));
+            } else {
+                simpleDedup(bedpeFiles, genomeID, outFile);
+            }
 
+        } else if (useStreaming) {
+            FusionTools.coalesceFeaturesByChromosome(bedpeFiles, genomeID, outFile,
+                    command.contains("nms"), command.contains("clean"), command.contains("exact"),
+                    command.contains("file-id"), attributes, val);
         } else {
             FusionTools.coalesceFeatures(bedpeFiles, genomeID, outFile,
                     command.contains("nms"), command.contains("clean"), command.contains("exact"),
@@ -14,8 +14,10 @@ import java.io.File;
 
 public class Grind {
 
-    public static String usage = "grind [-k NORM] [-r resolution] [--window half-width] <hic file> <bedpe> <directory>\n" +
-            "\t\tsplit up the bedpe into multiple lists; number < 2 splits by chromosome";
+    public static String usage = "grind[-stack] [-k NORM] [-r resolution] [--window half-width] [--threads num] " +
+            "<hic file> <bedpe> <directory>\n" +
+            "\t\tsave the local matrix around each loop as its own .npy file\n" +
+            "\t\tstack saves all of them in one binary loops.npy (loops x width x width) with a loops.index.txt";
     private final boolean useObservedOverExpected = false;
     private final Dataset ds;
     private final File outputDirectory;
@@ -25,12 +27,16 @@ public class Grind {
     private int matrixHalfWidth = 10;
     private Integer resolution = 1000;
     private NormalizationType norm;
+    private final boolean stack;
+    private final int numThreads;
 
     public Grind(String[] args, CommandLineParser parser) {
         if (args.length != 4) {
             printUsageAndExit();
         }
 
+        stack = args[0].contains("stack");
+        numThreads = parser.getNumThreads(10);
         resolution = parser.getResolutionOption(5000);
         boolean useBI = resolution >= 50;
 
@@ -62,8 +68,13 @@ public class Grind {
     }
 
     public void run() {
-        LoopDumper.dump(ds, loopList, outputDirectory, handler, norm,
-                useObservedOverExpected, resolution, matrixHalfWidth);
+        if (stack) {
+            LoopDumper.dumpStack(ds, loopList, outputDirectory, handler, norm,
+                    resolution, matrixHalfWidth, numThreads);
+        } else {
+            LoopDumper.dump(ds, loopList, outputDirectory, handler, norm,
+                    useObservedOverExpected, resolution, matrixHalfWidth, numThreads);
+        }
     }
 
     private void printUsageAndExit() {
@@ -2,10 +2,8 @@ package cli.clt.bedpe;
 
 import cli.Main;
 import cli.clt.CommandLineParser;
+import cli.utils.general.Feature2DIndex;
 import cli.utils.general.FusionTools;
-import cli.utils.general.OverlapTools;
-import cli.utils.general.QuickGrouping;
-import cli.utils.sift.SimpleLocation;
 import javastraw.feature2D.Feature2D;
 import javastraw.feature2D.Feature2DList;
 import javastraw.feature2D.Feature2DParser;
@@ -20,6 +18,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 public class IntersectBedpe {
 
+    private static final int GROUPING_SIZE = 1000000;
+
     // overlap can be adjusted; exact means exact indices; default will use any overlap
     // clean means don't save attributes
     public static String usage = "intersect[-subtract][-clean][-exact][-bounding-box] [-w window] <genomeID> " +
@@ -72,13 +72,15 @@ public class IntersectBedpe {
         return result;
     }
 
-    private static List<Feature2D> intersect(List<Feature2D> listA, List<Feature2D> listB,
-                                             boolean doSubtraction, boolean useExactMatch, int window,
+    public static List<Feature2D> intersect(List<Feature2D> listA, List<Feature2D> listB,
+                                            boolean doSubtraction, boolean useExactMatch, int window,
                                              boolean doBoundingBox) {
-        Map<SimpleLocation, List<Feature2D>> mapA = QuickGrouping.groupNearbyRecords(listA, 1000000);
-        Map<SimpleLocation, List<Feature2D>> mapB = QuickGrouping.groupNearbyRecordsWithOverlap(listB, 1000000);
+        if (useExactMatch) {
+            return exactIntersect(listA, listB, doSubtraction);
+        }
 
-        List<SimpleLocation> keys = new ArrayList<>(mapA.keySet());
+        List<Feature2D> featuresA = new ArrayList<>(new HashSet<>(listA));
+        Feature2DIndex indexB = new Feature2DIndex(listB);
         Set<Feature2D> allCoalesced = new HashSet<>();
 
         AtomicInteger index = new AtomicInteger(0);
@@ -86,17 +88,8 @@ public class IntersectBedpe {
 
             Set<Feature2D> coalesced = new HashSet<>();
             int i = index.getAndIncrement();
-            while (i < keys.size()) {
-
-                SimpleLocation location = keys.get(i);
-                List<Feature2D> featuresA = mapA.get(location);
-                List<Feature2D> featuresB = new ArrayList<>();
-                if (mapB.containsKey(location)) {
-                    featuresB = mapB.get(location);
-                }
-
-                processFeatures(coalesced, featuresA, featuresB, doSubtraction, useExactMatch, window, doBoundingBox);
-
+            while (i < featuresA.size()) {
+                processFeature(coalesced, featuresA.get(i), indexB, doSubtraction, window, doBoundingBox);
                 i = index.getAndIncrement();
             }
 
@@ -105,43 +98,48 @@ public class IntersectBedpe {
             }
         });
 
-        mapA.clear();
-        mapB.clear();
-
         return new ArrayList<>(allCoalesced);
     }
 
-    private static void processFeatures(Set<Feature2D> coalesced, List<Feature2D> featuresA, List<Feature2D> featuresB,
-                                        boolean doSubtraction, boolean useExactMatch, int window,
-                                        boolean doBoundingBox) {
-        if (useExactMatch) {
-            Set<Feature2D> setA = new HashSet<>(featuresA);
-            if (doSubtraction) {
-                featuresB.forEach(setA::remove);
-            } else {
-                setA.retainAll(featuresB);
+    private static List<Feature2D> exactIntersect(List<Feature2D> listA, List<Feature2D> listB, boolean doSubtraction) {
+        Set<Feature2D> setA = new HashSet<>(listA);
+        if (doSubtraction) {
+            listB.forEach(setA::remove);
+        } else {
+            setA.retainAll(new HashSet<>(listB));
+        }
+        return new ArrayList<>(setA);
+    }
+
+    private static void processFeature(Set<Feature2D> coalesced, Feature2D pixelA, Feature2DIndex indexB,
+                                       boolean doSubtraction, int window, boolean doBoundingBox) {
+        List<Feature2D> pixelList = new ArrayList<>();
+        int cellA1 = getCell(pixelA.getMidPt1());
+        int cellA2 = getCell(pixelA.getMidPt2());
+        for (int id : indexB.getIdsWithOverlap(pixelA, window)) {
+            Feature2D pixelB = indexB.get(id);
+            // only features in B centered within one neighboring cell of A are compared
+            if (Math.abs(getCell(pixelB.getMidPt1()) - cellA1) < 2 && Math.abs(getCell(pixelB.getMidPt2()) - cellA2) < 2) {
+                pixelList.add(pixelB);
             }
-            coalesced.addAll(setA);
-            setA.clear();
-            return;
         }
 
-        for (Feature2D pixelA : featuresA) {
-            List<Feature2D> pixelList = OverlapTools.getMatchesWithOverlap(pixelA, featuresB, window);
-
-            if (doSubtraction) {
-                if (pixelList.isEmpty()) coalesced.add(pixelA);
-            } else if (pixelList.size() > 0) {
-                if (doBoundingBox) {
-                    pixelList.add(pixelA);
-                    coalesced.add(FusionTools.getFeatureFromBounds(pixelList));
-                } else {
-                    coalesced.add(pixelA);
-                }
+        if (doSubtraction) {
+            if (pixelList.isEmpty()) coalesced.add(pixelA);
+        } else if (pixelList.size() > 0) {
+            if (doBoundingBox) {
+                pixelList.add(pixelA);
+                coalesced.add(FusionTools.getFeatureFromBounds(pixelList));
+            } else {
+                coalesced.add(pixelA);
             }
         }
     }
 
+    private static int getCell(long midPoint) {
+        return (int) (midPoint / GROUPING_SIZE);
+    }
+
     private static boolean checkForSubtraction(String command) {
         if (command.contains("subtract")) {
             if (Main.printVerboseComments) System.out.println("Doing subtraction");
@@ -2,6 +2,8 @@ package cli.clt.bedpe;
 
 import cli.utils.apa.MultiAPAManager;
 import cli.utils.data.SparseContactMatrixWithMasking;
+import cli.utils.general.NpyStackWriter;
+import cli.utils.general.NpyWriter;
 import javastraw.feature2D.Feature2D;
 import javastraw.feature2D.Feature2DList;
 import javastraw.reader.Dataset;
@@ -11,19 +13,107 @@ import javastraw.reader.mzd.Matrix;
 import javastraw.reader.mzd.MatrixZoomData;
 import javastraw.reader.type.HiCZoom;
 import javastraw.reader.type.NormalizationType;
-import javastraw.tools.MatrixTools;
 import javastraw.tools.ParallelizationTools;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class LoopDumper {
+
+    /**
+     * writes one .npy file per loop
+     */
     public static void dump(Dataset ds, Feature2DList loopList, File outputDirectory,
                             ChromosomeHandler handler, NormalizationType norm,
                             boolean useObservedOverExpected, int resolution,
-                            int window) {
+                            int window, int numThreads) {
+        File folder = getFolder(outputDirectory, resolution);
+        int matrixWidth = 2 * window + 1;
+
+        try {
+            loopList.processLists((chr, feature2DList) -> {
+                SparseContactMatrixWithMasking scm = loadContacts(ds, handler, chr, feature2DList, norm,
+                        resolution, window, matrixWidth);
+                if (scm == null) return;
+
+                AtomicInteger index = new AtomicInteger(0);
+                ParallelizationTools.launchParallelizedCode(numThreads, () -> {
+                    int currIndex = index.getAndIncrement();
+                    while (currIndex < feature2DList.size()) {
+                        Feature2D loop = feature2DList.get(currIndex);
+                        float[][] output = new float[matrixWidth][matrixWidth];
+                        MultiAPAManager.addToMatrix(output, scm, loop, window, resolution, matrixWidth);
+                        String name = loop.getChr1() + "_" + loop.getStart1() + "_" + loop.getEnd1() + "_" +
+                                loop.getChr2() + "_" + loop.getStart2() + "_" + loop.getEnd2();
+                        String path = new File(folder, name + ".npy").getAbsolutePath();
+                        NpyWriter.save(path, output);
+                        currIndex = index.getAndIncrement();
+                    }
+                });
+            });
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * writes all loops into one binary float32 loops.npy of shape (N, width, width), and loops.index.txt
+     * with the row and coordinates of each loop
+     */
+    public static void dumpStack(Dataset ds, Feature2DList loopList, File outputDirectory,
+                                 ChromosomeHandler handler, NormalizationType norm,
+                                 int resolution, int window, int numThreads) {
+        File folder = getFolder(outputDirectory, resolution);
+        int matrixWidth = 2 * window + 1;
+        AtomicInteger numRows = new AtomicInteger(0);
+
+        try (NpyStackWriter writer = new NpyStackWriter(new File(folder, "loops.npy"), matrixWidth, matrixWidth);
+             BufferedWriter index = new BufferedWriter(new FileWriter(new File(folder, "loops.index.txt")))) {
+            index.write("row\tchr1\tx1\tx2\tchr2\ty1\ty2");
+            index.newLine();
 
+            loopList.processLists((chr, feature2DList) -> {
+                SparseContactMatrixWithMasking scm = loadContacts(ds, handler, chr, feature2DList, norm,
+                        resolution, window, matrixWidth);
+                if (scm == null) return;
+
+                int firstRow = numRows.getAndAdd(feature2DList.size());
+                try {
+                    writeIndex(index, feature2DList, firstRow);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    System.exit(23);
+                }
+
+                AtomicInteger currentIndex = new AtomicInteger(0);
+                ParallelizationTools.launchParallelizedCode(numThreads, () -> {
+                    int currIndex = currentIndex.getAndIncrement();
+                    while (currIndex < feature2DList.size()) {
+                        float[][] output = new float[matrixWidth][matrixWidth];
+                        MultiAPAManager.addToMatrix(output, scm, feature2DList.get(currIndex), window,
+                                resolution, matrixWidth);
+                        try {
+                            writer.write(firstRow + currIndex, output);
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                            System.exit(23);
+                        }
+                        currIndex = currentIndex.getAndIncrement();
+                    }
+                });
+            });
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            System.exit(23);
+        }
+        System.out.println(numRows.get() + " loops saved to " + new File(folder, "loops.npy").getAbsolutePath());
+    }
 
+    private static File getFolder(File outputDirectory, int resolution) {
         if (!outputDirectory.isDirectory()) {
             outputDirectory.mkdir();
         }
@@ -32,58 +122,39 @@ public class LoopDumper {
         if (!folder.exists()) {
             folder.mkdir();
         }
+        return folder;
+    }
 
-        try {
-
-            loopList.processLists((chr, feature2DList) -> {
-
-                System.out.println("Currently on: " + chr);
-
-                Chromosome chrom = handler.getChromosomeFromName(feature2DList.get(0).getChr1());
-
-                Matrix matrix = ds.getMatrix(chrom, chrom);
-                if (matrix == null) return;
-
-                HiCZoom zoom = ds.getZoomForBPResolution(resolution);
-                final MatrixZoomData zd = matrix.getZoomData(zoom);
-
-                if (zd == null) return;
-
-                int matrixWidth = 2 * window + 1;
-
-                try {
-                    SparseContactMatrixWithMasking scm = new SparseContactMatrixWithMasking(zd,
-                            feature2DList, resolution, window, matrixWidth, norm);
-
+    private static SparseContactMatrixWithMasking loadContacts(Dataset ds, ChromosomeHandler handler, String chr,
+                                                               List<Feature2D> feature2DList, NormalizationType norm,
+                                                               int resolution, int window, int matrixWidth) {
+        System.out.println("Currently on: " + chr);
 
-                    AtomicInteger index = new AtomicInteger(0);
+        Chromosome chrom = handler.getChromosomeFromName(feature2DList.get(0).getChr1());
 
-                    ParallelizationTools.launchParallelizedCode(10, new Runnable() {
-                        @Override
-                        public void run() {
-                            int currIndex = index.getAndIncrement();
+        Matrix matrix = ds.getMatrix(chrom, chrom);
+        if (matrix == null) return null;
 
-                            while (currIndex < feature2DList.size()) {
+        HiCZoom zoom = ds.getZoomForBPResolution(resolution);
+        final MatrixZoomData zd = matrix.getZoomData(zoom);
 
-                                Feature2D loop = feature2DList.get(currIndex);
-                                float[][] output = new float[matrixWidth][matrixWidth];
-                                MultiAPAManager.addToMatrix(output, scm, loop, window, resolution, matrixWidth);
-                                String name = loop.getChr1() + "_" + loop.getStart1() + "_" + loop.getEnd1() + "_" +
-                                        loop.getChr2() + "_" + loop.getStart2() + "_" + loop.getEnd2();
-                                String path = new File(folder, name + ".npy").getAbsolutePath();
-                                MatrixTools.saveMatrixTextNumpy(path, output);
-                                currIndex = index.getAndIncrement();
-                            }
-                        }
-                    });
-                } catch (Exception ex) {
-                    System.err.println("Error processing: " + chr);
-                    ex.printStackTrace();
-                }
+        if (zd == null) return null;
 
-            });
+        try {
+            return new SparseContactMatrixWithMasking(zd, feature2DList, resolution, window, matrixWidth, norm);
         } catch (Exception ex) {
+            System.err.println("Error processing: " + chr);
             ex.printStackTrace();
         }
+        return null;
+    }
+
+    private static void writeIndex(BufferedWriter index, List<Feature2D> loops, int firstRow) throws IOException {
+        for (int k = 0; k < loops.size(); k++) {
+            Feature2D loop = loops.get(k);
+            index.write((firstRow + k) + "\t" + loop.getChr1() + "\t" + loop.getStart1() + "\t" + loop.getEnd1() +
+                    "\t" + loop.getChr2() + "\t" + loop.getStart2() + "\t" + loop.getEnd2());
+            index.newLine();
+        }
     }
 }
@@ -1,6 +1,10 @@
 package cli.clt.bedpe;
 
 import cli.Main;
+import cli.clt.CommandLineParser;
+import cli.utils.general.BedpeRow;
+import cli.utils.general.BedpeStream;
+import cli.utils.general.BedpeWriter;
 import javastraw.feature2D.Feature2D;
 import javastraw.feature2D.Feature2DList;
 import javastraw.feature2D.Feature2DParser;
@@ -8,14 +12,16 @@ import javastraw.reader.basics.ChromosomeHandler;
 import javastraw.reader.basics.ChromosomeTools;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.util.*;
 
 public class Split {
-    public static String usage = "split[-clean] <genomeID> <number> <input.bedpe> <output_>\n" +
-            "\t\tsplit up the bedpe into multiple lists; number < 2 splits by chromosome";
+    private static final int MAX_OPEN_WRITERS = 64;
+    public static String usage = "split[-clean] [--stream] <genomeID> <number> <input.bedpe> <output_>\n" +
+            "\t\tsplit up the bedpe into multiple lists; number < 2 splits by chromosome\n" +
+            "\t\t--stream processes one row at a time in bounded memory; other columns are kept as in the input";
 
-    public static void run(String[] args, String command) {
+    public static void run(String[] args, String command, CommandLineParser parser) {
         if (args.length < 5) {
             Main.printGeneralUsageAndExit(5, usage);
         }
@@ -27,6 +33,11 @@ public class Split {
         int numberOfSplits = Integer.parseInt(args[2]);
 
         String path = args[3];
+        if (parser.getStreamOption()) {
+            streamSplit(path, handler, args[4], numberOfSplits, noAttributes);
+            System.out.println("split complete");
+            return;
+        }
         Feature2DList loopList = Feature2DParser.loadFeatures(path, handler, !noAttributes, null, false);
 
         String outStem = args[4];
@@ -41,6 +52,77 @@ public class Split {
         System.out.println("split complete");
     }
 
+    /**
+     * same assignment as split: one output per chromosome pair (numbered in order of first appearance),
+     * or round-robin within each chromosome pair
+     */
+    private static void streamSplit(String path, ChromosomeHandler handler, String outStem,
+                                    int numberOfSplits, boolean noAttributes) {
+        Map<String, BedpeWriter> writers = new LinkedHashMap<>(16, 0.75f, true);
+        Map<String, String> paths = new HashMap<>();
+        Map<String, Integer> counters = new HashMap<>();
+        try (BedpeStream stream = new BedpeStream(path, handler)) {
+            String header = stream.getHeader().getOutputLine(!noAttributes);
+            BedpeRow row;
+            while ((row = stream.next()) != null) {
+                String name;
+                String newPath;
+                if (numberOfSplits < 2) {
+                    name = row.getKey();
+                    newPath = outStem + "split" + paths.size() + ".bedpe";
+                } else {
+                    int counter = counters.getOrDefault(row.getKey(), 0);
+                    counters.put(row.getKey(), (counter + 1) % numberOfSplits);
+                    name = String.valueOf(counter);
+                    newPath = outStem + "split" + counter + ".bedpe";
+                }
+                getWriter(writers, paths, name, newPath, header).write(row, !noAttributes);
+            }
+            for (int z = 0; numberOfSplits > 1 && z < numberOfSplits; z++) {
+                if (!paths.containsKey(String.valueOf(z))) {
+                    getWriter(writers, paths, String.valueOf(z), outStem + "split" + z + ".bedpe", header);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(6);
+        } finally {
+            for (BedpeWriter writer : writers.values()) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * At most 64 outputs are open at a time; the least recently written one is closed and reopened
+     * for appending when needed.
+     */
+    private static BedpeWriter getWriter(Map<String, BedpeWriter> writers, Map<String, String> paths, String name,
+                                         String newPath, String header) throws IOException {
+        BedpeWriter writer = writers.get(name);
+        if (writer != null) return writer;
+
+        if (writers.size() >= MAX_OPEN_WRITERS) {
+            Iterator<BedpeWriter> eldest = writers.values().iterator();
+            eldest.next().close();
+            eldest.remove();
+        }
+        String path = paths.get(name);
+        if (path == null) {
+            paths.put(name, newPath);
+            writer = new BedpeWriter(newPath);
+            writer.writeHeader(header);
+        } else {
+            writer = new BedpeWriter(path, true);
+        }
+        writers.put(name, writer);
+        return writer;
+    }
+
     private static Feature2DList[] split(Feature2DList loopList, int numberOfSplits) {
         if (numberOfSplits < 2) {
             return splitListByChromosomes(loopList);
@@ -3,6 +3,9 @@ package cli.clt.bedpe;
 import cli.Main;
 import cli.clt.CommandLineParser;
 import cli.utils.clean.LoopTools;
+import cli.utils.general.BedpeRow;
+import cli.utils.general.BedpeStream;
+import cli.utils.general.BedpeWriter;
 import javastraw.feature2D.Feature2D;
 import javastraw.feature2D.Feature2DList;
 import javastraw.feature2D.Feature2DParser;
@@ -11,6 +14,7 @@ import javastraw.reader.basics.ChromosomeTools;
 
 import java.awt.*;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -18,9 +22,10 @@ import java.util.Map;
 
 public class UnWrap {
 // [-filter]
-public static String usage = "unwrap2[-legacy] [-r resolution] <genomeID> <loops.bedpe> <output_stem_>\n" +
+public static String usage = "unwrap2[-legacy] [-r resolution] [--stream] <genomeID> <loops.bedpe> <output_stem_>\n" +
         "\t\tunwrap localizer output to proper hi-res inverted bounds list\n" +
-        "\t\tlegacy mode will use the old method of unwrapping the combined anchors\n";
+        "\t\tlegacy mode will use the old method of unwrapping the combined anchors\n" +
+        "\t\t--stream processes one row at a time in bounded memory\n";
     private static final int numLists = 6;
     private static int resolution = 10;
 
@@ -32,12 +37,17 @@ public static String usage = "unwrap2[-legacy] [-r resolution] <genomeID> <loops
         resolution = parser.getResolutionOption(10);
 
         ChromosomeHandler handler = ChromosomeTools.loadChromosomes(args[1]);
-
-        Feature2DList loopList = Feature2DParser.loadFeatures(args[2], handler, true, null, false);
         String outFile = args[3];
         boolean doFilter = command.contains("filter");
         boolean useLegacy = command.contains("legacy");
 
+        if (parser.getStreamOption()) {
+            streamUnwrap(args[2], handler, outFile, command.contains("2"), doFilter, useLegacy);
+            return;
+        }
+
+        Feature2DList loopList = Feature2DParser.loadFeatures(args[2], handler, true, null, false);
+
         if (command.contains("2")) {
             Feature2DList invertedList = unwrap2(loopList);
             invertedList.exportFeatureList(new File(outFile + "unwrapped2.local.bedpe"), false, Feature2DList.ListFormat.NA);
@@ -55,6 +65,72 @@ public static String usage = "unwrap2[-legacy] [-r resolution] <genomeID> <loops
         }
     }
 
+    private static void streamUnwrap(String inputBedpe, ChromosomeHandler handler, String outFile,
+                                     boolean useUnwrap2, boolean doFilter, boolean useLegacy) {
+        String[] names;
+        if (useUnwrap2) {
+            names = new String[]{"unwrapped2.local.bedpe"};
+        } else if (doFilter) {
+            names = new String[]{"unwrapped.anchors.bedpe", "unwrapped.best.anchors.bedpe", "unwrapped.local.bedpe",
+                    "optimal.bedpe", "suboptimal.anchor.bedpe", "suboptimal.local.bedpe"};
+        } else {
+            names = new String[]{"unwrapped.anchors.bedpe", "unwrapped.best.anchors.bedpe", "unwrapped.local.bedpe"};
+        }
+        BedpeWriter[] writers = new BedpeWriter[names.length];
+        try (BedpeStream stream = new BedpeStream(inputBedpe, handler)) {
+            for (int k = 0; k < names.length; k++) {
+                writers[k] = new BedpeWriter(outFile + names[k]);
+            }
+            BedpeRow row;
+            while ((row = stream.next()) != null) {
+                Feature2D feature2D = row.toFeature2D(true);
+                if (useUnwrap2) {
+                    Feature2D inv = unwrapLocal(feature2D);
+                    if (inv != null && localXYNotNearDiagonal(inv, 5000)) {
+                        writers[0].write(inv);
+                    }
+                    continue;
+                }
+
+                Feature2D inv = unwrap(feature2D, useLegacy, true);
+                Feature2D local = unwrapLocal(feature2D);
+                int dist = getDistanceBetweenAnchorsAndLocal(inv);
+                inv.addIntAttribute("local_vs_mid_anchor_offset", dist);
+                writers[0].write(inv);
+                if (containsLocalAndNotOnDiagonal(inv)) {
+                    writers[1].write(inv);
+                }
+                writeIfPresent(writers[2], local);
+                if (doFilter) {
+                    if (dist < 10) {
+                        writers[3].write(inv);
+                    } else if (dist > 400) {
+                        writers[4].write(inv);
+                        writeIfPresent(writers[5], unwrapLocal(inv));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(6);
+        } finally {
+            for (BedpeWriter writer : writers) {
+                if (writer == null) continue;
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static void writeIfPresent(BedpeWriter writer, Feature2D feature) throws IOException {
+        if (feature != null) {
+            writer.write(feature);
+        }
+    }
+
     private static Feature2DList unwrap2(Feature2DList loopList) {
         Feature2DList unwrapped = new Feature2DList();
 
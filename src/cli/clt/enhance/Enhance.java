@@ -2,10 +2,13 @@ package cli.clt.enhance;
 
 import cli.Main;
 import cli.clt.CommandLineParser;
+import cli.utils.data.LoopWindowUnion;
+import cli.utils.data.PackedContactStore;
 import cli.utils.flags.RegionConfiguration;
 import cli.utils.general.HiCUtils;
-import cli.utils.general.Utils;
+import cli.utils.general.NpyWriter;
 import cli.utils.general.WritingTools;
+import cli.utils.seer.MndWriter;
 import javastraw.feature2D.Feature2D;
 import javastraw.feature2D.Feature2DList;
 import javastraw.feature2D.Feature2DParser;
@@ -17,17 +20,12 @@ import javastraw.reader.mzd.MatrixZoomData;
 import javastraw.reader.type.HiCZoom;
 import javastraw.reader.type.NormalizationHandler;
 import javastraw.tools.HiCFileTools;
-import javastraw.tools.MatrixTools;
 import javastraw.tools.ParallelizationTools;
 import javastraw.tools.UNIXTools;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.OutputStreamWriter;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -35,7 +33,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 public class Enhance {
 
-    // "enhance [--res int] [--norm string] <out_folder> <loops.bedpe> <hic_files>\n" +
+    // "enhance[-text][-binary] [--res int] <out_folder> <loops.bedpe> <hic_files>\n" +
 
     public static void run(String[] args, CommandLineParser parser) {
         if (args.length < 4) {
@@ -50,11 +48,9 @@ public class Enhance {
         int resolution = parser.getResolutionOption(1000);
         boolean exportNPY = parser.getNpyOption();
 
-        final Object[] keys = new Object[hicFiles.length];
         Dataset[] datasets = new Dataset[hicFiles.length];
         for (int q = 0; q < hicFiles.length; q++) {
             datasets[q] = HiCFileTools.extractDatasetForCLT(hicFiles[q], false, true, true);
-            keys[q] = new Object();
         }
 
         ChromosomeHandler handler = datasets[0].getChromosomeHandler();
@@ -65,32 +61,28 @@ public class Enhance {
 
         UNIXTools.makeDir(outFolder);
 
-        amplifyLoops(datasets, loopList, handler, resolution, outFolder, keys, exportNPY);
+        amplifyLoops(datasets, loopList, handler, resolution, outFolder, exportNPY, getFormat(args[0]));
     }
 
     private static void amplifyLoops(final Dataset[] datasets, Feature2DList loopList, ChromosomeHandler handler,
-                                     int resolution, String outFolder, Object[] keys,
-                                     boolean exportNPY) {
+                                     int resolution, String outFolder, boolean exportNPY, MndWriter.Format format) {
 
         if (Main.printVerboseComments) {
             System.out.println("Processing AMPLIFI for resolution " + resolution);
         }
         HiCZoom zoom = new HiCZoom(HiCZoom.HiCUnit.BP, resolution);
 
-        final AtomicInteger currentProgressStatus = new AtomicInteger(0);
-
         Map<Integer, RegionConfiguration> chromosomePairs = new ConcurrentHashMap<>();
         int pairCounter = HiCUtils.populateChromosomePairs(chromosomePairs,
                 handler.getChromosomeArrayWithoutAllByAll(), true);
 
         final int chromosomePairCounter = pairCounter;
-        final AtomicInteger maxProgressStatus = new AtomicInteger(pairCounter);
         final AtomicInteger chromosomePair = new AtomicInteger(0);
-
-        final Object mndKey = new Object();
-        List<String> filePaths = Collections.synchronizedList(new ArrayList<>());
+        final File[] parts = new File[chromosomePairCounter];
 
         ParallelizationTools.launchParallelizedCode(() -> {
+            // reused for every chromosome pair this thread handles
+            PackedContactStore store = new PackedContactStore();
 
             int threadPair = chromosomePair.getAndIncrement();
             while (threadPair < chromosomePairCounter) {
@@ -99,54 +91,53 @@ public class Enhance {
                 Chromosome chr2 = config.getChr2();
 
                 List<Feature2D> loops = loopList.get(chr1.getIndex(), chr2.getIndex());
-                if(loops.size() > 0) {
-                    String newMND = (new File(outFolder, config.getPairKey() + ".mnd")).getAbsolutePath();
-                    try {
-                        BufferedWriter bwMND = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(Paths.get(newMND))));
-                        for (Feature2D loop : loops) {
-                            int window = (int) (Math.max(loop.getWidth1(), loop.getWidth2()) / resolution + 1);
-                            window = Math.max(window, 10000 / resolution);
-                            int binXStart = (int) ((loop.getMidPt1() / resolution) - window);
-                            int binYStart = (int) ((loop.getMidPt2() / resolution) - window);
-
-                            int matrixWidth = 2 * window + 1;
-                            float[][] output = new float[matrixWidth][matrixWidth];
-
-                            for (int di = 0; di < datasets.length; di++) {
-                                final Dataset ds = datasets[di];
-                                MatrixZoomData zd = HiCFileTools.getMatrixZoomData(ds, chr1, chr2, zoom);
-                                if (zd != null) {
-                                    try {
-                                        Utils.addLocalBoundedRegion(output, zd,
-                                                binXStart, binYStart, matrixWidth,
-                                                NormalizationHandler.NONE);
-                                    } catch (Exception e) {
-                                        System.err.println(e.getMessage());
-                                        System.err.println("Unable to find data for loop: " + loop);
-                                    }
-                                }
+                if (loops.size() > 0) {
+                    int[][] windows = new int[loops.size()][];
+                    for (int k = 0; k < loops.size(); k++) {
+                        windows[k] = getWindow(loops.get(k), resolution);
+                    }
+                    LoopWindowUnion union = new LoopWindowUnion(windows);
+
+                    for (final Dataset ds : datasets) {
+                        MatrixZoomData zd = HiCFileTools.getMatrixZoomData(ds, chr1, chr2, zoom);
+                        if (zd != null) {
+                            try {
+                                union.addTo(store, zd, NormalizationHandler.NONE);
+                            } catch (Exception e) {
+                                System.err.println(e.getMessage());
+                                System.err.println("Unable to find data for " + config.getPairKey());
                             }
+                        }
+                    }
 
-                            String saveString = loop.simpleString();
-                            String[] saveStrings = saveString.split("\\s+");
-                            saveString = String.join("_", saveStrings);
+                    if (exportNPY) {
+                        for (int k = 0; k < loops.size(); k++) {
+                            int matrixWidth = windows[k][1] - windows[k][0] + 1;
+                            float[][] output = new float[matrixWidth][matrixWidth];
+                            store.addLocalBoundedRegion(output, windows[k][0], windows[k][2], matrixWidth);
+                            String saveString = String.join("_", loops.get(k).simpleString().split("\\s+"));
+                            NpyWriter.save((new File(outFolder, saveString + ".npy")).getAbsolutePath(),
+                                    output);
+                        }
+                    }
 
-                            if (exportNPY) {
-                                MatrixTools.saveMatrixTextNumpy((new File(outFolder, saveString + ".npy")).getAbsolutePath(),
-                                        output);
+                    File part = new File(outFolder, config.getPairKey() + ".part" + MndWriter.getExtension(format));
+                    try (MndWriter writer = new MndWriter(part, format)) {
+                        writer.setChromosomes(chr1.getName(), chr1.getIndex(), chr2.getName(), chr2.getIndex());
+                        for (long key : store.getSortedKeys()) {
+                            int binX = PackedContactStore.getBinX(key);
+                            int binY = PackedContactStore.getBinY(key);
+                            int val = Math.round(store.get(binX, binY));
+                            if (val > 0) {
+                                writer.write(binX * resolution, binY * resolution, val);
                             }
-                            WritingTools.writeToMND(output, resolution, chr1.getName(), chr2.getName(),
-                                    binXStart, binYStart, bwMND);
-                            output = null;
                         }
-                        bwMND.close();
-                    } catch (Exception e){
+                    } catch (IOException e) {
                         e.printStackTrace();
                         System.exit(9);
                     }
-                    synchronized (mndKey) {
-                        filePaths.add(newMND);
-                    }
+                    parts[threadPair] = part;
+                    store.clear();
                 }
 
                 for (final Dataset ds : datasets) {
@@ -156,25 +147,50 @@ public class Enhance {
                     }
                 }
 
-                //System.out.print(((int) Math.floor((100.0 * currentProgressStatus.incrementAndGet()) / maxProgressStatus.get())) + "% ");
                 threadPair = chromosomePair.getAndIncrement();
             }
         });
 
-        System.out.println("MND lists complete");
+        List<File> filePaths = new ArrayList<>();
+        for (File part : parts) {
+            if (part != null) {
+                filePaths.add(part);
+            }
+        }
+        File mndFile = new File(outFolder, "enhance" + MndWriter.getExtension(format));
+        WritingTools.concatenateFiles(filePaths, mndFile);
+        System.out.println("Merged contacts saved to " + mndFile.getAbsolutePath());
+
+        if (format == MndWriter.Format.BINARY) {
+            System.out.println("Each contact is five big-endian int32 values (chr1 index, x, chr2 index, y, count), " +
+                    "which pre cannot read; run enhance or enhance-text to get a file for HiCTools Pre");
+            return;
+        }
 
-        String mndPath = WritingTools.buildCatScript(filePaths, outFolder);
         String genomeID = WritingTools.cleanGenome(datasets[0].getGenomeId());
         String newHiCFile = new File(outFolder, "enhance.hic").getAbsolutePath();
         String resolutionsToBuild = WritingTools.getResolutionsToBuild(resolution);
-        try {
-            System.out.println("Run HiCTools Pre: \n   pre -n -r" + resolutionsToBuild + " " +
-                    mndPath + " " + newHiCFile + " " + genomeID);
-        } catch (Exception e){
-            e.printStackTrace();
-            System.exit(31);
-        }
+        System.out.println("Run HiCTools Pre: \n   pre -n -r" + resolutionsToBuild + " " +
+                mndFile.getAbsolutePath() + " " + newHiCFile + " " + genomeID);
+    }
+
+    /**
+     * @return the loop's window as {rowStart, rowEnd, colStart, colEnd}, inclusive
+     */
+    private static int[] getWindow(Feature2D loop, int resolution) {
+        int window = (int) (Math.max(loop.getWidth1(), loop.getWidth2()) / resolution + 1);
+        window = Math.max(window, 10000 / resolution);
+        int binXStart = (int) ((loop.getMidPt1() / resolution) - window);
+        int binYStart = (int) ((loop.getMidPt2() / resolution) - window);
+        return new int[]{binXStart, binXStart + 2 * window, binYStart, binYStart + 2 * window};
+    }
 
-        //if no data return null
+    private static MndWriter.Format getFormat(String command) {
+        if (command.contains("binary")) {
+            return MndWriter.Format.BINARY;
+        } else if (command.contains("text")) {
+            return MndWriter.Format.TEXT;
+        }
+        return MndWriter.Format.GZIP;
     }
 }
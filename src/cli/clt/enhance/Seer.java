@@ -1,9 +1,10 @@
 package cli.clt.enhance;
 
 import cli.clt.CommandLineParser;
+import cli.utils.seer.AliasTable;
 import cli.utils.seer.CumulativeDistributionFunction;
+import cli.utils.seer.MndWriter;
 import cli.utils.seer.SeerUtils;
-import cli.utils.sift.SimpleLocation;
 import javastraw.reader.Dataset;
 import javastraw.reader.basics.Chromosome;
 import javastraw.reader.block.ContactRecord;
@@ -15,15 +16,13 @@ import javastraw.tools.HiCFileTools;
 import javastraw.tools.ParallelizationTools;
 import javastraw.tools.UNIXTools;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class Seer {
 
-    // "seer [--res int] [--low-res int] [-k norm] [--seed seed] <file> <out_folder> <num_contacts>\n" +
+    // "seer[-gz][-binary] [--res int] [--low-res int] [-k norm] [--seed seed] <file> <out_folder> <num_contacts>\n" +
 
 
     /* takes in one file currently (for ease of testing: can change later to a list of files and easily iterate over).
@@ -31,7 +30,8 @@ public class Seer {
     */
 
     public static void generateNewReads(String filename, int lowResolution, int highResolution,
-                                        String outFolderPath, String possibleNorm, long seed, long numberOfContacts) {
+                                        String outFolderPath, String possibleNorm, long seed, long numberOfContacts,
+                                        MndWriter.Format format, int numThreads) {
         Dataset ds = HiCFileTools.extractDatasetForCLT(filename, false, false, false);
         NormalizationType norm = ds.getNormalizationHandler().getNormTypeFromString(possibleNorm);
 
@@ -40,21 +40,30 @@ public class Seer {
         Map<Chromosome, Long> countsToGeneratePerChr = generateCountsToMake(numberOfContacts, contactsPerChromosome);
 
         contactsPerChromosome.clear();
-        Random rand = new Random(seed);
-        Random rand2 = new Random(seed * 3 + 5);
 
-        AtomicInteger index0 = new AtomicInteger(0);
+        // each chromosome gets its own random stream, so the output does not depend on thread scheduling
         Chromosome[] chromosomes = ds.getChromosomeHandler().getChromosomeArrayWithoutAllByAll();
-        ParallelizationTools.launchParallelizedCode(() -> {
+        SplittableRandom root = new SplittableRandom(seed);
+        Map<Chromosome, SplittableRandom> streams = new HashMap<>();
+        for (Chromosome chromosome : chromosomes) {
+            streams.put(chromosome, root.split());
+        }
+        // biggest chromosomes first for better load balance
+        Chromosome[] jobs = chromosomes.clone();
+        Arrays.sort(jobs, (o1, o2) -> Long.compare(countsToGeneratePerChr.getOrDefault(o2, 0L),
+                countsToGeneratePerChr.getOrDefault(o1, 0L)));
+
+        AtomicInteger index0 = new AtomicInteger(0);
+        ParallelizationTools.launchParallelizedCode(numThreads, () -> {
             int indexForJob = index0.getAndIncrement();
-            while (indexForJob < chromosomes.length) {
-                Chromosome chromosome = chromosomes[indexForJob];
+            while (indexForJob < jobs.length) {
+                Chromosome chromosome = jobs[indexForJob];
                 Matrix matrix = ds.getMatrix(chromosome, chromosome);
                 if (matrix != null) {
                     MatrixZoomData zdHigh = matrix.getZoomData(new HiCZoom(highResolution));
                     if (zdHigh != null) {
-                        double[] rowSums = SeerUtils.convertToCDF(SeerUtils.getRowSumsForZD(chromosome, highResolution,
-                                zdHigh.getDirectIterator()));
+                        AliasTable rowSampler = SeerUtils.createRowSampler(SeerUtils.getRowSumsForZD(chromosome,
+                                highResolution, zdHigh.getDirectIterator()), lowResolution, highResolution);
                         matrix.clearCacheForZoom(new HiCZoom(highResolution));
 
                         MatrixZoomData zdLow = matrix.getZoomData(new HiCZoom(lowResolution));
@@ -65,22 +74,20 @@ public class Seer {
                             String name = chromosome.getName();
                             matrix.clearCacheForZoom(new HiCZoom(lowResolution));
 
-                            try {
-                                File outputFileName = new File(outFolderPath, name + ".generated.contacts.mnd.txt");
-                                outputFileName.createNewFile();
-                                FileWriter fw = new FileWriter(outputFileName);
-                                BufferedWriter bw = new BufferedWriter(fw);
-
+                            File outputFileName = new File(outFolderPath, name + ".generated.contacts"
+                                    + MndWriter.getExtension(format));
+                            try (MndWriter writer = new MndWriter(outputFileName, name, format)) {
+                                SplittableRandom random = streams.get(chromosome);
                                 // generate points at random
-                                long numPointsToGenerate = countsToGeneratePerChr.get(chromosome);
+                                long numPointsToGenerate = countsToGeneratePerChr.getOrDefault(chromosome, 0L);
                                 for (long i = 0; i < numPointsToGenerate; i++) {
-                                    SimpleLocation position = cdf.createRandomPoint(rand);
-                                    position = SeerUtils.updateToHigherResPosition(position, rowSums, lowResolution,
-                                            highResolution, rand2);
-                                    bw.write(name + " " + position.getBinX() + " " + name + " " + position.getBinY());
-                                    bw.newLine();
+                                    long pixel = cdf.sampleIndex(random.nextDouble());
+                                    int genomeX = SeerUtils.getHigherResPosition(cdf.getGenomeX(pixel), rowSampler,
+                                            lowResolution, highResolution, random.nextDouble());
+                                    int genomeY = SeerUtils.getHigherResPosition(cdf.getGenomeY(pixel), rowSampler,
+                                            lowResolution, highResolution, random.nextDouble());
+                                    writer.write(genomeX, genomeY);
                                 }
-                                bw.close();
                             } catch (Exception e) {
                                 e.printStackTrace();
                                 System.exit(9);
@@ -150,13 +157,25 @@ public class Seer {
         long seed = parser.getSeedOption(0);
         UNIXTools.makeDir(args[2]);
         long numContactsToGenerate = Long.parseLong(args[3]);
-        generateNewReads(args[1], lowResolution, highResolution, args[2], possibleNorm, seed, numContactsToGenerate);
+        int numThreads = parser.getNumThreads(Runtime.getRuntime().availableProcessors());
+        generateNewReads(args[1], lowResolution, highResolution, args[2], possibleNorm, seed, numContactsToGenerate,
+                getFormat(args[0]), numThreads);
+    }
+
+    private static MndWriter.Format getFormat(String command) {
+        if (command.contains("binary")) {
+            return MndWriter.Format.BINARY;
+        } else if (command.contains("gz")) {
+            return MndWriter.Format.GZIP;
+        }
+        return MndWriter.Format.TEXT;
     }
 
     private static void printUsageAndExit() {
-        System.out.println("seer [-r 50 (high res)] [--low-res 5000 (low res)] [-k SCALE (normalization)] " +
-                "[--seed 0 (seed for random number generator)] " +
-                "<input.hic> <output_folder> <number of contacts to generate>");
+        System.out.println("seer[-gz][-binary] [-r 50 (high res)] [--low-res 5000 (low res)] [-k SCALE (normalization)] " +
+                "[--seed 0 (seed for random number generator)] [--threads int] " +
+                "<input.hic> <output_folder> <number of contacts to generate>\n" +
+                "\t\tgz writes gzipped text; binary writes big-endian int32 x,y pairs per contact");
         System.exit(19);
     }
 }
\ No newline at end of file
@@ -1,12 +1,11 @@
 package cli.clt.loops;
 
 import cli.clt.CommandLineParser;
+import cli.utils.expected.ExpectedModelCache;
 import cli.utils.hotspot.HotSpotUtils;
-import cli.utils.sift.SimpleLocation;
+import cli.utils.hotspot.ShardedWelfordMap;
 import javastraw.expected.ExpectedModel;
 import javastraw.expected.ExpectedUtils;
-import javastraw.expected.LogExpectedSpline;
-import javastraw.expected.Welford;
 import javastraw.feature2D.Feature2D;
 import javastraw.feature2D.Feature2DList;
 import javastraw.reader.Dataset;
@@ -67,49 +66,51 @@ public class HotSpot {
 
         NormalizationType norm = datasets[0].getNormalizationHandler().getNormTypeFromString(normString);
         Chromosome[] chromosomes = datasets[0].getChromosomeHandler().getAutosomalChromosomesArray();
-        AtomicInteger cIndex = new AtomicInteger(0);
-
-        ParallelizationTools.launchParallelizedCode(() -> {
-            int currIndex = cIndex.getAndIncrement();
-            while (currIndex < chromosomes.length) {
-                Chromosome chrom = chromosomes[currIndex];
-                List<Feature2D> hotspots = findTheHotspots(chrom, datasets, resolution, norm, countThreshold);
-                if (hotspots.size() > 0) {
-                    synchronized (result) {
-                        result.addByKey(Feature2DList.getKey(chrom, chrom), hotspots);
-                    }
-                }
-                currIndex = cIndex.getAndIncrement();
+        // chromosomes are processed one at a time so only one accumulator map is held in memory;
+        // the datasets for each chromosome are read in parallel
+        for (Chromosome chrom : chromosomes) {
+            List<Feature2D> hotspots = findTheHotspots(chrom, datasets, files, resolution, norm, countThreshold);
+            if (hotspots.size() > 0) {
+                result.addByKey(Feature2DList.getKey(chrom, chrom), hotspots);
             }
-        });
+        }
 
         result.exportFeatureList(new File(outputFileName + ".hotspot.bedpe"), false, Feature2DList.ListFormat.NA);
+        ExpectedModelCache.printStats();
         System.out.println("hotspot complete");
     }
 
-    private static List<Feature2D> findTheHotspots(Chromosome chrom, Dataset[] datasets, int resolution,
+    private static List<Feature2D> findTheHotspots(Chromosome chrom, Dataset[] datasets, String[] files, int resolution,
                                                    NormalizationType norm, int countThreshold) {
-        Map<SimpleLocation, Welford> results = new HashMap<>();
+        ShardedWelfordMap results = new ShardedWelfordMap();
         int minBin = MIN_DIST / resolution;
         int maxBin = MAX_DIST / resolution;
 
-        for (Dataset ds : datasets) {
-            Matrix matrix = ds.getMatrix(chrom, chrom, resolution);
-            if (matrix != null) {
-                MatrixZoomData zd = matrix.getZoomData(new HiCZoom(resolution));
-                if (zd != null) {
-                    // iterating through chrom using type 1 iteration
-                    NormalizationType scaleNorm = ds.getNormalizationHandler().getNormTypeFromString("SCALE");
-                    NormalizationType vcNorm = ds.getNormalizationHandler().getNormTypeFromString("VC");
-
-                    double[] vector1 = ds.getNormalizationVector(chrom.getIndex(), new HiCZoom(resolution), scaleNorm).getData().getValues().get(0);
-                    double[] vector2 = ds.getNormalizationVector(chrom.getIndex(), new HiCZoom(resolution), vcNorm).getData().getValues().get(0);
-
-                    iterateThruAndGrabPercentContact(zd, maxBin, minBin, norm, results, vector1, vector2, chrom, resolution);
+        AtomicInteger dIndex = new AtomicInteger(0);
+        ParallelizationTools.launchParallelizedCode(() -> {
+            ShardedWelfordMap.Appender appender = results.getAppender();
+            int k = dIndex.getAndIncrement();
+            while (k < datasets.length) {
+                Dataset ds = datasets[k];
+                Matrix matrix = ds.getMatrix(chrom, chrom, resolution);
+                if (matrix != null) {
+                    MatrixZoomData zd = matrix.getZoomData(new HiCZoom(resolution));
+                    if (zd != null) {
+                        // iterating through chrom using type 1 iteration
+                        NormalizationType scaleNorm = ds.getNormalizationHandler().getNormTypeFromString("SCALE");
+                        NormalizationType vcNorm = ds.getNormalizationHandler().getNormTypeFromString("VC");
+
+                        double[] vector1 = ds.getNormalizationVector(chrom.getIndex(), new HiCZoom(resolution), scaleNorm).getData().getValues().get(0);
+                        double[] vector2 = ds.getNormalizationVector(chrom.getIndex(), new HiCZoom(resolution), vcNorm).getData().getValues().get(0);
+
+                        iterateThruAndGrabPercentContact(zd, files[k], maxBin, minBin, norm, appender, vector1, vector2, chrom, resolution);
+                    }
+                    matrix.clearCache();
                 }
-                matrix.clearCache();
+                k = dIndex.getAndIncrement();
             }
-        }
+            appender.flush();
+        });
 
         initialHighIntensityFilter(results, countThreshold);
 
@@ -126,12 +127,10 @@ public class HotSpot {
         List<Feature2D> hotspots = new ArrayList<>();
         if (records.size() > 1) {
             for (ContactRecord record : records) {
-                SimpleLocation location = new SimpleLocation(record.getBinX(), record.getBinY());
-                Welford welford = results.get(location);
-                Map<String, String> attributes = getStats(welford);
-                long startX = (long) location.getBinX() * resolution;
+                Map<String, String> attributes = getStats(results, record.getBinX(), record.getBinY());
+                long startX = (long) record.getBinX() * resolution;
                 long endX = startX + resolution;
-                long startY = (long) location.getBinY() * resolution;
+                long startY = (long) record.getBinY() * resolution;
                 long endY = startY + resolution;
                 Feature2D feature = new Feature2D(Feature2D.FeatureType.PEAK, chrom.getName(), startX, endX, chrom.getName(), startY, endY, Color.BLACK, attributes);
                 hotspots.add(feature);
@@ -140,84 +139,34 @@ public class HotSpot {
         return hotspots;
     }
 
-    private static Set<ContactRecord> findUbiquitousLoops(Map<SimpleLocation, Welford> results) {
-        Set<ContactRecord> ubiquitousLoopsSet = new HashSet<>();
-        for (SimpleLocation key : results.keySet()) {
-            double range = results.get(key).getRange();
-            double min = results.get(key).getMin();
-            if (range < .05 && min > .05) {
-                ubiquitousLoopsSet.add(new ContactRecord(key.getBinX(), key.getBinY(),
-                        (float) results.get(key).getMax()));
-            }
-        }
-        return ubiquitousLoopsSet;
-    }
-
-    private static Set<ContactRecord> secondPassLowRangeFilter(Map<SimpleLocation, Welford> results) {
-        Set<ContactRecord> candidateRecordsSet = new HashSet<>();
-        for (SimpleLocation key : results.keySet()) {
-            double range = results.get(key).getRange();
-            double min = results.get(key).getMin();
-            if (range > .05 && min < .05) {
-                candidateRecordsSet.add(new ContactRecord(key.getBinX(), key.getBinY(),
-                        (float) results.get(key).getMax()));
-            }
-
-            /*
-            if (range < .05 || min > .05) {
-                results.remove(key);
-                removeList.add(key);
-            }
-            */
-        }
-        return candidateRecordsSet;
+    private static Set<ContactRecord> findUbiquitousLoops(ShardedWelfordMap results) {
+        return new HashSet<>(results.getStableRecords(.05));
     }
 
-    private static void initialHighIntensityFilter(Map<SimpleLocation, Welford> results, int countThreshold) {
-        List<SimpleLocation> removeList = new ArrayList<>();
-        for (SimpleLocation key : results.keySet()) {
-            double range = results.get(key).getRange();
-            int counts = (int) results.get(key).getCounts();
-            double max = results.get(key).getMax();
-            if (range > 0.35 || counts < countThreshold || max > 0.35) {
-                removeList.add(key);
-            }
-        }
-        removeAllAndClear(results, removeList);
-    }
-
-    private static Set<ContactRecord> convert(Set<SimpleLocation> locations, Map<SimpleLocation, Welford> results) {
-        Set<ContactRecord> records = new HashSet<>();
-        for (SimpleLocation location : locations) {
-            records.add(new ContactRecord(location.getBinX(), location.getBinY(),
-                    (float) results.get(location).getMax()));
-        }
-        return records;
+    private static Set<ContactRecord> secondPassLowRangeFilter(ShardedWelfordMap results) {
+        return new HashSet<>(results.getVariableRecords(.05));
     }
 
-    private static void removeAllAndClear(Map<SimpleLocation, Welford> results, List<SimpleLocation> removeList) {
-        for (SimpleLocation key : removeList) {
-            results.remove(key);
-        }
-        removeList.clear();
+    private static void initialHighIntensityFilter(ShardedWelfordMap results, int countThreshold) {
+        results.removeIf(0.35, 0.35, countThreshold);
     }
 
-    private static Map<String, String> getStats(Welford welford) {
+    private static Map<String, String> getStats(ShardedWelfordMap results, int binX, int binY) {
         Map<String, String> attributes = new HashMap<>();
-        attributes.put("sigma", "" + welford.getStdDev());
-        attributes.put("range", "" + welford.getRange());
-        attributes.put("min", "" + welford.getMin());
-        attributes.put("max", "" + welford.getMax());
+        attributes.put("sigma", "" + results.getStdDev(binX, binY));
+        attributes.put("range", "" + results.getRange(binX, binY));
+        attributes.put("min", "" + results.getMin(binX, binY));
+        attributes.put("max", "" + results.getMax(binX, binY));
         return attributes;
     }
 
-    private static void iterateThruAndGrabPercentContact(MatrixZoomData zd, int maxBin, int minBin,
+    private static void iterateThruAndGrabPercentContact(MatrixZoomData zd, String hicPath, int maxBin, int minBin,
                                                          NormalizationType norm,
-                                                         Map<SimpleLocation, Welford> results,
+                                                         ShardedWelfordMap.Appender appender,
                                                          double[] vector1, double[] vector2,
                                                          Chromosome chrom, int resolution) {
 
-        ExpectedModel poly = new LogExpectedSpline(zd, norm, chrom, resolution);
+        ExpectedModel poly = ExpectedModelCache.getLogExpectedSpline(hicPath, zd, norm, chrom, resolution);
 
         Iterator<ContactRecord> iterator = zd.getNormalizedIterator(norm);
         while (iterator.hasNext()) {
@@ -230,9 +179,7 @@ public class HotSpot {
                         percentContact = Math.min(1, Math.max(0, percentContact));
                         //percentContact2 = Math.exp(percentContact0 - 1);
 
-                        SimpleLocation location = new SimpleLocation(cr);
-                        results.putIfAbsent(location, new Welford());
-                        results.get(location).addValue(percentContact);
+                        appender.add(cr.getBinX(), cr.getBinY(), percentContact);
                     }
                 }
             }
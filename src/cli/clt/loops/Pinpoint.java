@@ -7,7 +7,6 @@ import cli.utils.flags.RegionConfiguration;
 import cli.utils.general.HiCUtils;
 import cli.utils.general.QuickGrouping;
 import cli.utils.general.Utils;
-import cli.utils.pinpoint.Convolution2DTools;
 import cli.utils.pinpoint.LandScape;
 import javastraw.feature2D.Feature2D;
 import javastraw.feature2D.Feature2DList;
@@ -100,8 +99,6 @@ public class Pinpoint {
         int matrixWidth = 2 * halfMatrixWidth + 1;
 
         //GPUController gpuController = Circe.buildGPUController(kernelSize, matrixWidth, kernelSize / 2 + 1);
-        final float[][] kernel = Convolution2DTools.getManhattanKernel(kernelSize);
-        final float[][] compressedKernel = Convolution2DTools.getManhattanKernel(compressedKernelSize);
 
         HiCZoom zoom = new HiCZoom(resolution);
 
@@ -149,7 +146,7 @@ public class Pinpoint {
 
                                     LandScape.extractMaxima(records, minR, minC, resolution,
                                             pinpointedLoops, pinpointedBounds, loop, saveString,
-                                            onlyGetOne, matrixWidth, kernel, compressedKernel);
+                                            onlyGetOne, matrixWidth, kernelSize, compressedKernelSize);
                                     if (currNumLoops.addAndGet(group.size()) % 100 == 0) {
                                         System.out.print(((int) Math.floor((100.0 * currNumLoops.get()) / numTotalLoops)) + "% ");
                                     }
@@ -3,6 +3,7 @@ package cli.clt.loops;
 import cli.Main;
 import cli.clt.CommandLineParser;
 import cli.utils.general.HiCValue;
+import cli.utils.general.NpyWriter;
 import javastraw.expected.ExpectedUtils;
 import javastraw.feature2D.Feature2D;
 import javastraw.feature2D.Feature2DList;
@@ -17,7 +18,6 @@ import javastraw.reader.norm.NormalizationPicker;
 import javastraw.reader.type.HiCZoom;
 import javastraw.reader.type.NormalizationType;
 import javastraw.tools.HiCFileTools;
-import javastraw.tools.MatrixTools;
 import javastraw.tools.UNIXTools;
 
 import java.io.File;
@@ -67,10 +67,10 @@ public class Probability {
             if (zd == null) continue;
 
             double[] expected = ExpectedUtils.calculateExpected(zd, norm, DEFAULT_MAX_DIST / resolution, useLog);
-            MatrixTools.saveMatrixTextNumpy((new File(outFolder, "expected.npy")).getAbsolutePath(),
+            NpyWriter.save((new File(outFolder, "expected.npy")).getAbsolutePath(),
                     expected);
             QuickMedian.doRollingMedian(expected, DEFAULT_WINDOW/resolution);
-            MatrixTools.saveMatrixTextNumpy((new File(outFolder, "smooth_expected.npy")).getAbsolutePath(),
+            NpyWriter.save((new File(outFolder, "smooth_expected.npy")).getAbsolutePath(),
                     expected);
             getPercentages(expected, loopList.get(chromosome.getIndex(), chromosome.getIndex()),
                     zd, resolution, norm);
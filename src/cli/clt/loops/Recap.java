@@ -2,12 +2,13 @@ package cli.clt.loops;
 
 import cli.Main;
 import cli.clt.CommandLineParser;
+import cli.utils.expected.ExpectedModelCache;
 import cli.utils.flags.RegionConfiguration;
 import cli.utils.general.HiCUtils;
 import cli.utils.general.Utils;
+import cli.utils.recap.RecapTable;
 import cli.utils.recap.RecapTools;
 import javastraw.expected.ExpectedModel;
-import javastraw.expected.LogExpectedSpline;
 import javastraw.feature2D.Feature2D;
 import javastraw.feature2D.Feature2DList;
 import javastraw.feature2D.Feature2DParser;
@@ -24,10 +25,13 @@ import javastraw.tools.ParallelizationTools;
 import javastraw.tools.UNIXTools;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Recap {
 
@@ -88,17 +92,19 @@ public class Recap {
             }
         }
 
-        Feature2DList refinedLoops = recapStats(filepaths, names, loopList, handler, resolution, window, norm, isDeepLoopAnalysis);
-        refinedLoops.exportFeatureList(new File(outFolder, "recap.bedpe"), false, Feature2DList.ListFormat.NA);
+        RecapTable table = recapStats(filepaths, names, loopList, handler, resolution, window, norm, isDeepLoopAnalysis);
+        table.writeAttributes();
+        loopList.exportFeatureList(new File(outFolder, "recap.bedpe"), false, Feature2DList.ListFormat.NA);
         if (Main.printVerboseComments) {
-            RecapTools.exportAllMatrices(handler.getChromosomeArrayWithoutAllByAll(), refinedLoops, names, outFolder, isDeepLoopAnalysis, window);
+            RecapTools.exportAllMatrices(handler.getChromosomeArrayWithoutAllByAll(), loopList, table, outFolder);
         }
+        ExpectedModelCache.printStats();
         System.out.println("recap complete");
     }
 
-    private static Feature2DList recapStats(String[] filepaths, String[] names, Feature2DList loopList,
-                                            ChromosomeHandler handler, int resolution, int window,
-                                            NormalizationType norm, boolean isDeepLoopAnalysis) {
+    private static RecapTable recapStats(String[] filepaths, String[] names, Feature2DList loopList,
+                                         ChromosomeHandler handler, int resolution, int window,
+                                         NormalizationType norm, boolean isDeepLoopAnalysis) {
 
         if (Main.printVerboseComments) {
             System.out.println("Start Recap/Compile process");
@@ -111,84 +117,98 @@ public class Recap {
         final int chromosomePairCounter = HiCUtils.populateChromosomePairs(chromosomePairs,
                 handler.getChromosomeArrayWithoutAllByAll(), false);
 
-        int numTotalLoops = loopList.getNumTotalFeatures();
+        List<Feature2D> allLoops = new ArrayList<>();
+        for (int p = 0; p < chromosomePairCounter; p++) {
+            RegionConfiguration config = chromosomePairs.get(p);
+            List<Feature2D> loops = loopList.get(config.getChr1().getIndex(), config.getChr2().getIndex());
+            if (loops != null) {
+                allLoops.addAll(loops);
+            }
+        }
+        RecapTable table = new RecapTable(RecapTools.getCategories(isDeepLoopAnalysis), names, allLoops, window);
 
+        final Dataset[] datasets = new Dataset[filepaths.length];
         for (int di = 0; di < filepaths.length; di++) {
-
             System.out.println("File (" + (di + 1) + "/" + filepaths.length + "): " + filepaths[di]);
-
-            final Dataset ds = HiCFileTools.extractDatasetForCLT(filepaths[di], false, false,
+            datasets[di] = HiCFileTools.extractDatasetForCLT(filepaths[di], false, false,
                     true);
-            String prefix = names[di] + "_";
-
-            final AtomicInteger currChromPair = new AtomicInteger(0);
-            final AtomicInteger currNumLoops = new AtomicInteger(0);
-
-            ParallelizationTools.launchParallelizedCode(() -> {
-
-                int threadPair = currChromPair.getAndIncrement();
-                while (threadPair < chromosomePairCounter) {
-                    RegionConfiguration config = chromosomePairs.get(threadPair);
-                    Chromosome chrom1 = config.getChr1();
-                    Chromosome chrom2 = config.getChr2();
-                    
-                    List<Feature2D> loops = loopList.get(chrom1.getIndex(), chrom2.getIndex());
-                    if (loops != null && loops.size() > 0) {
-                        Matrix matrix = ds.getMatrix(chrom1, chrom2, resolution);
-                        if (matrix == null) {
-                            System.err.println("Matrix is null " + chrom1.getName() + "_" + chrom2.getName());
-                            System.exit(9);
-                        }
-
-                        MatrixZoomData zd = matrix.getZoomData(zoom);
+        }
 
-                        if (zd == null) {
-                            System.err.println("ZD is null " + chrom1.getName() + "_" + chrom2.getName());
-                            System.exit(9);
-                        }
+        // work items interleave all datasets for a chromosome pair, so every file is read at once
+        final int numItems = chromosomePairCounter * datasets.length;
+        final long numTotalLoops = (long) allLoops.size() * datasets.length;
+        final AtomicInteger currItem = new AtomicInteger(0);
+        final AtomicLong currNumLoops = new AtomicLong(0);
+
+        ParallelizationTools.launchParallelizedCode(() -> {
+
+            float[][] obsMatrix = new float[matrixWidth][matrixWidth];
+            float[][] eMatrix = new float[matrixWidth][matrixWidth];
+            float[][] oeMatrix = new float[matrixWidth][matrixWidth];
+
+            int item = currItem.getAndIncrement();
+            while (item < numItems) {
+                int di = item % datasets.length;
+                RegionConfiguration config = chromosomePairs.get(item / datasets.length);
+                Chromosome chrom1 = config.getChr1();
+                Chromosome chrom2 = config.getChr2();
+
+                List<Feature2D> loops = loopList.get(chrom1.getIndex(), chrom2.getIndex());
+                if (loops != null && loops.size() > 0) {
+                    Matrix matrix = datasets[di].getMatrix(chrom1, chrom2, resolution);
+                    if (matrix == null) {
+                        System.err.println("Matrix is null " + chrom1.getName() + "_" + chrom2.getName());
+                        System.exit(9);
+                    }
 
-                        int maxBinDist = Math.max(getMaxDistance(loops, resolution, window), 9000000 / resolution);
-                        ExpectedModel poly = new LogExpectedSpline(zd, norm, chrom1, resolution);
+                    MatrixZoomData zd = matrix.getZoomData(zoom);
 
-                        float pseudoCount = getMedianExpectedAt(maxBinDist - 2 * window, poly);
+                    if (zd == null) {
+                        System.err.println("ZD is null " + chrom1.getName() + "_" + chrom2.getName());
+                        System.exit(9);
+                    }
 
-                        try {
-                            for (Feature2D loop : loops) {
+                    int maxBinDist = Math.max(getMaxDistance(loops, resolution, window), 9000000 / resolution);
+                    ExpectedModel poly = ExpectedModelCache.getLogExpectedSpline(filepaths[di], zd, norm, chrom1, resolution);
 
-                                int binXStart = (int) ((loop.getMidPt1() / resolution) - window);
-                                int binYStart = (int) ((loop.getMidPt2() / resolution) - window);
+                    float pseudoCount = getMedianExpectedAt(maxBinDist - 2 * window, poly);
 
-                                float[][] obsMatrix = new float[matrixWidth][matrixWidth];
-                                Utils.addLocalBoundedRegion(obsMatrix, zd, binXStart, binYStart, matrixWidth, norm);
-                                // MatrixTools.saveMatrixTextNumpy((new File(outFolder, saveString + "_raw.npy")).getAbsolutePath(), output);
+                    try {
+                        for (Feature2D loop : loops) {
 
-                                Map<String, String> attributes = RecapTools.getStats(obsMatrix,
-                                        window, pseudoCount, isDeepLoopAnalysis, poly,
-                                        loop, resolution, binXStart, binYStart);
-                                for (String akey : attributes.keySet()) {
-                                    loop.addStringAttribute(prefix + akey, attributes.get(akey));
-                                }
+                            int binXStart = (int) ((loop.getMidPt1() / resolution) - window);
+                            int binYStart = (int) ((loop.getMidPt2() / resolution) - window);
 
-                                if (currNumLoops.incrementAndGet() % 1000 == 0) {
-                                    System.out.print(((int) Math.floor((100.0 * currNumLoops.get()) / numTotalLoops)) + "% ");
-                                }
+                            for (float[] row : obsMatrix) {
+                                Arrays.fill(row, 0);
                             }
+                            Utils.addLocalBoundedRegion(obsMatrix, zd, binXStart, binYStart, matrixWidth, norm);
 
-                            System.out.println(((int) Math.floor((100.0 * currNumLoops.get()) / numTotalLoops)) + "% ");
+                            RecapTools.fillStats(table, di, table.getRow(loop), obsMatrix, eMatrix, oeMatrix,
+                                    window, pseudoCount, isDeepLoopAnalysis, poly,
+                                    loop, resolution, binXStart, binYStart);
 
-                        } catch (Exception e) {
-                            e.printStackTrace();
-                            System.exit(76);
+                            if (currNumLoops.incrementAndGet() % 1000 == 0) {
+                                System.out.print(((int) Math.floor((100.0 * currNumLoops.get()) / numTotalLoops)) + "% ");
+                            }
                         }
-                        matrix.clearCache();
+
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                        System.exit(76);
                     }
-                    threadPair = currChromPair.getAndIncrement();
+                    matrix.clearCache();
                 }
-            });
+                item = currItem.getAndIncrement();
+            }
+        });
+        System.out.println("100% ");
+
+        for (Dataset ds : datasets) {
             ds.clearCache(false);
         }
 
-        return loopList;
+        return table;
     }
 
     private static int getMaxDistance(List<Feature2D> loops, int resolution, int window) {
@@ -2,13 +2,13 @@ package cli.clt.loops;
 
 import cli.Main;
 import cli.clt.CommandLineParser;
+import cli.utils.expected.ExpectedModelCache;
 import cli.utils.sift.ContactRecordBox;
 import cli.utils.sift.ExtremePixels;
 import cli.utils.sift.FeatureUtils;
 import cli.utils.sift.SimpleLocation;
 import cli.utils.sift.collapse.MultiResCentroidCollapser;
 import javastraw.expected.ExpectedModel;
-import javastraw.expected.LogExpectedSpline;
 import javastraw.feature2D.Feature2D;
 import javastraw.feature2D.Feature2DList;
 import javastraw.reader.Dataset;
@@ -24,6 +24,9 @@ import javastraw.tools.HiCFileTools;
 import javastraw.tools.ParallelizationTools;
 
 import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -50,8 +53,10 @@ public class Sift {
 
 
     private static final int[] resolutions = new int[]{100, 200, 500, 1000, 2000, 5000, 10000}; //  10000
-    public static String usage = "sift [--window int] [--min double] [--max double] [--res int] [--low-res int] <file.hic> <outfile>";
+    public static String usage = "sift [--window int] [--min double] [--max double] [--res int] [--low-res int] [--threads int] <file.hic> <outfile>";
     private NormalizationType norm = NormalizationHandler.NONE;
+    private final String hicPath;
+    private int numThreads = Runtime.getRuntime().availableProcessors();
     private static final int MAX_DIST = 10000000;
     private static final int MIN_DIST = 10000;
 
@@ -60,16 +65,19 @@ public class Sift {
             Main.printGeneralUsageAndExit(5, usage);
         }
 
-        Dataset ds = HiCFileTools.extractDatasetForCLT(args[1], false, false, false);
+        hicPath = args[1];
+        Dataset ds = HiCFileTools.extractDatasetForCLT(hicPath, false, false, false);
 
         String normString = parser.getNormalizationStringOption();
         if (normString != null && normString.length() > 1) {
             norm = ds.getNormalizationHandler().getNormTypeFromString(normString);
         }
         System.out.println("Using norm: " + norm.getLabel());
+        numThreads = parser.getNumThreads(numThreads);
 
         Feature2DList refinedLoops = siftThroughCalls(ds, args[2]);
         refinedLoops.exportFeatureList(new File(args[2] + ".sift.bedpe"), false, Feature2DList.ListFormat.NA);
+        ExpectedModelCache.printStats();
         System.out.println("sift complete");
     }
 
@@ -79,63 +87,92 @@ public class Sift {
 
         Chromosome[] chromosomes = handler.getChromosomeArrayWithoutAllByAll();
 
-        AtomicInteger cIndex = new AtomicInteger(0);
-        ParallelizationTools.launchParallelizedCode(() -> {
-            int currIndex = cIndex.getAndIncrement();
-            while (currIndex < chromosomes.length) {
-                Chromosome chromosome = chromosomes[currIndex];
-                List<Feature2D> sharpLoops = findSiftedFeatures(chromosome, ds, outname);
-                if (sharpLoops.size() > 0) {
-                    synchronized (output) {
-                        output.addByKey(Feature2DList.getKey(chromosome, chromosome), sharpLoops);
+        // one queue of (chromosome x resolution) tasks under a single thread budget;
+        // chromosome-major order keeps only a few chromosomes' pixels in memory at a time,
+        // and whichever task finishes a chromosome last collapses it across resolutions
+        final int numTasks = chromosomes.length * resolutions.length;
+        final List<Map<Integer, Set<ContactRecord>>> pixelsForChromosomes = new ArrayList<>();
+        final AtomicInteger[] remainingTasks = new AtomicInteger[chromosomes.length];
+        for (int i = 0; i < chromosomes.length; i++) {
+            pixelsForChromosomes.add(new HashMap<>());
+            remainingTasks[i] = new AtomicInteger(resolutions.length);
+        }
+        final String[] taskReports = new String[numTasks];
+
+        AtomicInteger currTask = new AtomicInteger(0);
+        ParallelizationTools.launchParallelizedCode(numThreads, () -> {
+            int t = currTask.getAndIncrement();
+            while (t < numTasks) {
+                int ci = t / resolutions.length;
+                Chromosome chromosome = chromosomes[ci];
+                int lowRes = resolutions[t % resolutions.length];
+                Map<Integer, Set<ContactRecord>> pixelsForResolutions = pixelsForChromosomes.get(ci);
+                long start = System.nanoTime();
+                int numFound = 0;
+
+                Matrix matrix = ds.getMatrix(chromosome, chromosome);
+                if (matrix != null) {
+                    MatrixZoomData zd = matrix.getZoomData(new HiCZoom(lowRes));
+                    if (zd != null) {
+                        ExpectedModel poly = ExpectedModelCache.getLogExpectedSpline(hicPath, zd, norm, chromosome, lowRes);
+                        Set<ContactRecord> points = ExtremePixels.getExtremePixelsForResolution(ds, zd,
+                                chromosome, lowRes, norm, MAX_DIST / lowRes, MIN_DIST / lowRes, poly);
+                        matrix.clearCacheForZoom(new HiCZoom(lowRes));
+                        numFound = points.size();
+
+                        synchronized (pixelsForResolutions) {
+                            pixelsForResolutions.put(lowRes, points);
+                            System.out.println(chromosome.getName() + " " + lowRes + " found (" + points.size() + ")");
+                        }
                     }
                 }
-                currIndex = cIndex.getAndIncrement();
-            }
-        });
-
-        return output;
-    }
-
-    private List<Feature2D> findSiftedFeatures(Chromosome chromosome, Dataset ds, String outname) {
-        Matrix matrix = ds.getMatrix(chromosome, chromosome);
-        if (matrix == null) return new ArrayList<>();
-
-        final Map<Integer, Set<ContactRecord>> pixelsForResolutions = new HashMap<>();
-
-        AtomicInteger rIndex = new AtomicInteger(0);
-        ParallelizationTools.launchParallelizedCode(() -> {
-            int currResIndex = rIndex.getAndIncrement();
-            while (currResIndex < resolutions.length) {
-                int lowRes = resolutions[currResIndex];
-
-                MatrixZoomData zd = matrix.getZoomData(new HiCZoom(lowRes));
-                if (zd != null) {
-                    ExpectedModel poly = new LogExpectedSpline(zd, norm, chromosome, lowRes);
-                    Set<ContactRecord> points = ExtremePixels.getExtremePixelsForResolution(ds, zd,
-                            chromosome, lowRes, norm, MAX_DIST / lowRes, MIN_DIST / lowRes, poly);
-                    matrix.clearCacheForZoom(new HiCZoom(lowRes));
-
-                    synchronized (pixelsForResolutions) {
-                        pixelsForResolutions.put(lowRes, points);
-                        System.out.println(lowRes + " found (" + points.size() + ")");
+                taskReports[t] = chromosome.getName() + "\t" + lowRes + "\t" + numFound + "\t"
+                        + (System.nanoTime() - start) / 1000000;
+
+                if (remainingTasks[ci].decrementAndGet() == 0 && matrix != null) {
+                    matrix.clearCache();
+                    List<Feature2D> sharpLoops = findSiftedFeatures(chromosome, pixelsForResolutions);
+                    if (sharpLoops.size() > 0) {
+                        synchronized (output) {
+                            output.addByKey(Feature2DList.getKey(chromosome, chromosome), sharpLoops);
+                        }
                     }
                 }
-                currResIndex = rIndex.getAndIncrement();
+                t = currTask.getAndIncrement();
             }
         });
 
-        matrix.clearCache();
+        printTaskReport(taskReports);
+        return output;
+    }
 
+    private List<Feature2D> findSiftedFeatures(Chromosome chromosome, Map<Integer, Set<ContactRecord>> pixelsForResolutions) {
         Set<ContactRecordBox> allRecords = collapse(pixelsForResolutions);
         pixelsForResolutions.clear();
 
+        long start = System.nanoTime();
         Set<ContactRecordBox> finalBoxes = MultiResCentroidCollapser.coalesce(allRecords, NUM_RES_TO_PASS);
+        System.out.println(chromosome.getName() + " - multi-resolution collapse of " + allRecords.size() + " to "
+                + finalBoxes.size() + " in " + (System.nanoTime() - start) / 1000000 + " ms");
         allRecords.clear();
 
         return FeatureUtils.convertToFeature2Ds(finalBoxes, chromosome);
     }
 
+    private static void printTaskReport(String[] taskReports) {
+        System.out.println("chromosome\tresolution\tcollapsed_pixels\twall_ms");
+        for (String report : taskReports) {
+            System.out.println(report);
+        }
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+        System.out.println("Peak heap: " + (peakHeap >> 20) + " MB");
+    }
+
     private Set<ContactRecordBox> collapse(Map<Integer, Set<ContactRecord>> recordMap) {
         HashSet<ContactRecordBox> records = new HashSet<>();
         for (Integer res : recordMap.keySet()) {
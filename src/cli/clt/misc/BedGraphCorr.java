@@ -2,16 +2,13 @@ package cli.clt.misc;
 
 import cli.Main;
 import cli.clt.CommandLineParser;
+import cli.utils.data.GenomeTrackMatrix;
 import cli.utils.general.BedGraphParser;
+import cli.utils.general.NpyWriter;
 import javastraw.reader.basics.ChromosomeHandler;
 import javastraw.reader.basics.ChromosomeTools;
-import javastraw.tools.MatrixTools;
-import javastraw.tools.ParallelizationTools;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public class BedGraphCorr {
 
@@ -31,178 +28,60 @@ public class BedGraphCorr {
 
         ChromosomeHandler handler = ChromosomeTools.loadChromosomes(args[1]);
         String outputName = args[2];
-        List<Map<String, float[]>> files = new ArrayList<>();
-        for (int k = 3; k < args.length; k++) {
-            files.add(BedGraphParser.parse(handler, args[k], resolution));
-        }
-
-        if (doLog) {
-            applyLog(files);
-        } else {
-            subtractFromAll(files, 1);
-        }
-
-        removeNegatives(files);
-
-        process(files, outputName, useCosine);
-    }
-
-    private static void removeNegatives(List<Map<String, float[]>> files) {
+        GenomeTrackMatrix tracks = new GenomeTrackMatrix(handler, resolution, args.length - 3);
         boolean somethingChanged = false;
-        for (Map<String, float[]> file : files) {
-            for (float[] values : file.values()) {
-                for (int i = 0; i < values.length; i++) {
-                    if (values[i] < 0) {
-                        values[i] = 0;
-                        somethingChanged = true;
-                    }
-                }
+        for (int k = 3; k < args.length; k++) {
+            Map<String, float[]> file = BedGraphParser.parse(handler, args[k], resolution);
+            if (doLog) {
+                applyLog(file);
+            } else {
+                subtractFromAll(file, 1);
             }
+            somethingChanged |= removeNegatives(file);
+            tracks.addTrack(k - 3, file);
         }
         if (somethingChanged) {
             System.out.println("WARNING: negative values were encountered and set to 0");
         }
-    }
 
-    private static void subtractFromAll(List<Map<String, float[]>> files, int value) {
-        for (Map<String, float[]> file : files) {
-            for (float[] values : file.values()) {
-                for (int i = 0; i < values.length; i++) {
-                    values[i] -= value;
-                }
-            }
-        }
+        process(tracks, outputName, useCosine);
     }
 
-    private static void applyLog(List<Map<String, float[]>> files) {
-        for (Map<String, float[]> file : files) {
-            for (float[] values : file.values()) {
-                for (int i = 0; i < values.length; i++) {
-                    values[i] = (float) Math.log(values[i]);
+    private static boolean removeNegatives(Map<String, float[]> file) {
+        boolean somethingChanged = false;
+        for (float[] values : file.values()) {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] < 0) {
+                    values[i] = 0;
+                    somethingChanged = true;
                 }
             }
         }
+        return somethingChanged;
     }
 
-    private static void process(List<Map<String, float[]>> files, String outputName,
-                                boolean useCosine) {
-
-        if (files.size() == 2) {
-            double accuracy = getCorrelation(files.get(0), files.get(1), useCosine);
-            System.out.println("Correlation " + accuracy);
-        } else {
-            double[][] result = new double[files.size()][files.size()];
-            AtomicInteger currIndex = new AtomicInteger(0);
-            ParallelizationTools.launchParallelizedCode(() -> {
-
-                int i = currIndex.getAndIncrement();
-                while (i < result.length) {
-                    result[i][i] = 1;
-                    for (int j = i + 1; j < result.length; j++) {
-                        result[i][j] = getCorrelation(files.get(i), files.get(j), useCosine);
-                        result[j][i] = result[i][j];
-                    }
-                    i = currIndex.getAndIncrement();
-                }
-            });
-            MatrixTools.saveMatrixTextNumpy(outputName, result);
-        }
-    }
-
-    private static double getCosineSimilarity(Map<String, float[]> file1, Map<String, float[]> file2) {
-        double dotProduct = 0.0;
-        double normX = 0;
-        double normY = 0;
-
-        for (String key : file1.keySet()) {
-            if (file2.containsKey(key)) {
-                float[] x = file1.get(key);
-                float[] y = file2.get(key);
-                if (x == null || y == null) {
-                    continue;
-                }
-
-                for (int i = 0; i < x.length; ++i) {
-                    if (isValidComparison(x[i], y[i])) {
-                        dotProduct += x[i] * y[i];
-                        normX += x[i] * x[i];
-                        normY += y[i] * y[i];
-                    }
-                }
+    private static void subtractFromAll(Map<String, float[]> file, int value) {
+        for (float[] values : file.values()) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] -= value;
             }
         }
-
-        return dotProduct / Math.sqrt(normX * normY);
     }
 
-    private static double getCorrelation(Map<String, float[]> file1, Map<String, float[]> file2,
-                                         boolean useCosine) {
-        if (useCosine) {
-            return getCosineSimilarity(file1, file2);
-        }
-        double sumX = 0.0;
-        double sumY = 0.0;
-        int count = 0;
-
-        for (String key : file1.keySet()) {
-            if (file2.containsKey(key)) {
-                float[] x = file1.get(key);
-                float[] y = file2.get(key);
-                if (x == null || y == null) {
-                    continue;
-                }
-
-                for (int i = 0; i < x.length; ++i) {
-                    if (isValidComparison(x[i], y[i])) {
-                        sumX += x[i];
-                        sumY += y[i];
-                        count++;
-                    }
-                }
+    private static void applyLog(Map<String, float[]> file) {
+        for (float[] values : file.values()) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = (float) Math.log(values[i]);
             }
         }
-
-        double muX = sumX / (double) count;
-        double muY = sumY / (double) count;
-        double dotProduct = 0.0;
-        double normX = 0.0;
-        double normY = 0.0;
-
-        for (String key : file1.keySet()) {
-            if (file2.containsKey(key)) {
-                float[] x = file1.get(key);
-                float[] y = file2.get(key);
-                if (x == null || y == null) {
-                    continue;
-                }
-
-                for (int i = 0; i < x.length; ++i) {
-                    if (isValidComparison(x[i], y[i])) {
-                        double nX = x[i] - muX;
-                        double nY = y[i] - muY;
-                        dotProduct += nX * nY;
-                        normX += nX * nX;
-                        normY += nY * nY;
-                    }
-                }
-            }
-        }
-
-        return dotProduct / Math.sqrt(normX * normY);
     }
 
-    private static boolean isValidComparison(float x, float v) {
-        if (bothAreZero(x, v)) {
-            return false;
+    private static void process(GenomeTrackMatrix tracks, String outputName, boolean useCosine) {
+        double[][] result = tracks.getCorrelations(useCosine);
+        if (tracks.getNumTracks() == 2) {
+            System.out.println("Correlation " + result[0][1]);
+        } else {
+            NpyWriter.save(outputName, result);
         }
-        return notZero(x) || notZero(v);
-    }
-
-    private static boolean bothAreZero(float x, float v) {
-        return Math.abs(x) < 1e-10 && Math.abs(v) < 1e-10;
-    }
-
-    private static boolean notZero(float x) {
-        return !(Math.abs(x) < 1e-10);
     }
 }
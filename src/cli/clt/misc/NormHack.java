@@ -1,9 +1,16 @@
 package cli.clt.misc;
 
 import cli.clt.CommandLineParser;
+import cli.utils.bigarray.BigContactArrayCreator;
+import cli.utils.bigarray.MappedBigContactArray;
+import cli.utils.general.NpyWriter;
+import cli.utils.general.NpzWriter;
 import javastraw.reader.Dataset;
 import javastraw.reader.basics.Chromosome;
 import javastraw.reader.basics.ChromosomeHandler;
+import javastraw.reader.datastructures.ListOfFloatArrays;
+import javastraw.reader.datastructures.ListOfIntArrays;
+import javastraw.reader.mzd.MatrixZoomData;
 import javastraw.reader.norm.NormalizationVector;
 import javastraw.reader.type.HiCZoom;
 import javastraw.reader.type.NormalizationType;
@@ -12,11 +19,18 @@ import javastraw.tools.MatrixTools;
 import javastraw.tools.UNIXTools;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Collects the norm vectors of several .hic files into one matrix. If --norm is VC or VC_SQRT and a file
+ * does not store that vector for a chromosome, it is computed from the contacts, which are spilled to
+ * memory-mapped files in the output folder so chromosomes larger than the heap still work.
+ */
 public class NormHack {
-    public static String usage = "hack [--res int] <out_folder> <file1.hic,file2.hic,...> <name1,name2,...>";
+    public static String usage = "hack [--res int] [--norm VC|VC_SQRT|...] [--npz] <out_folder> " +
+            "<file1.hic,file2.hic,...> <name1,name2,...>";
 
     public static void run(String[] args, CommandLineParser parser) {
         File outFolder = UNIXTools.makeDir(new File(args[1]));
@@ -39,20 +53,27 @@ public class NormHack {
 
         System.out.println("Using resolution: " + resolution);
 
-        float[][] result1 = getAllTheNorms(filepaths, names, handler, resolution, norm);
-        MatrixTools.saveMatrixTextNumpy((new File(outFolder, "full_norms.npy")).getAbsolutePath(),
-                result1);
-
+        float[][] result1 = getAllTheNorms(filepaths, names, handler, resolution, norm, outFolder);
         float[][] result2 = cleanupNorms(result1);
-        result1 = null;
-        MatrixTools.saveMatrixTextNumpy((new File(outFolder, "clean_log_norms.npy")).getAbsolutePath(),
-                result2);
+
+        if (parser.getNpzOption()) {
+            try (NpzWriter writer = new NpzWriter((new File(outFolder, "norms.npz")).getAbsolutePath())) {
+                writer.add("full_norms", result1);
+                writer.add("clean_log_norms", result2);
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.exit(9);
+            }
+        } else {
+            NpyWriter.save((new File(outFolder, "full_norms.npy")).getAbsolutePath(), result1);
+            NpyWriter.save((new File(outFolder, "clean_log_norms.npy")).getAbsolutePath(), result2);
+        }
 
         System.out.println("norm hack complete");
     }
 
     private static float[][] getAllTheNorms(String[] filepaths, String[] names, ChromosomeHandler handler, int resolution,
-                                            NormalizationType norm) {
+                                            NormalizationType norm, File tempFolder) {
         Chromosome[] chromosomes = handler.getAutosomalChromosomesArray();
         int[] breakdowns = getBreakdowns(chromosomes, resolution);
         int numColumns = breakdowns[breakdowns.length - 1];
@@ -63,7 +84,7 @@ public class NormHack {
                     true);
             String prefix = names[p];
             for (int c = 0; c < chromosomes.length; c++) {
-                populateNormVector(data[p], breakdowns[c], chromosomes[c], resolution, norm, ds, prefix);
+                populateNormVector(data[p], breakdowns[c], chromosomes[c], resolution, norm, ds, prefix, tempFolder);
             }
             ds.clearCache(false);
         }
@@ -72,18 +93,65 @@ public class NormHack {
     }
 
     private static void populateNormVector(float[] normValues, int offset, Chromosome chromosome,
-                                           int resolution, NormalizationType norm, Dataset ds, String prefix) {
+                                           int resolution, NormalizationType norm, Dataset ds, String prefix,
+                                           File tempFolder) {
+        int width = (int) ((chromosome.getLength() / resolution) + 1);
         NormalizationVector nv1 = ds.getNormalizationVector(chromosome.getIndex(), new HiCZoom(resolution), norm);
         if (nv1 != null && nv1.getData() != null && nv1.getData().getValues().size() == 1) {
-            int width = (int) ((chromosome.getLength() / resolution) + 1);
             float[] row = toFloats(nv1.getData().getValues().get(0));
             System.arraycopy(row, 0, normValues, offset, Math.min(row.length, width));
+        } else if (isCoverageNorm(norm)) {
+            MatrixZoomData zd = HiCFileTools.getMatrixZoomData(ds, chromosome, chromosome, new HiCZoom(resolution));
+            if (zd == null) {
+                System.err.println("No contacts for " + prefix + " at chromosome: " + chromosome.getName() +
+                        " resolution: " + resolution);
+                return;
+            }
+            try {
+                ListOfFloatArrays vector = computeCoverageNorm(zd, norm.getLabel().endsWith("SQRT"), tempFolder);
+                for (int k = 0; k < Math.min(vector.getLength(), width); k++) {
+                    normValues[offset + k] = vector.get(k);
+                }
+            } catch (IOException e) {
+                System.err.println("Unable to compute " + norm.getLabel() + " for " + prefix +
+                        " at chromosome: " + chromosome.getName() + " resolution: " + resolution);
+                e.printStackTrace();
+            }
         } else {
             System.err.println("Error with " + norm.getLabel() + " for " + prefix +
                     " at chromosome: " + chromosome.getName() + " resolution: " + resolution);
         }
     }
 
+    private static boolean isCoverageNorm(NormalizationType norm) {
+        return norm.getLabel().equals("VC") || norm.getLabel().equals("VC_SQRT");
+    }
+
+    /**
+     * coverage (or its square root) of every row, scaled so the normalized matrix keeps the raw total;
+     * empty rows are NaN
+     */
+    private static ListOfFloatArrays computeCoverageNorm(MatrixZoomData zd, boolean useSqrt,
+                                                         File tempFolder) throws IOException {
+        MappedBigContactArray contacts = BigContactArrayCreator.createMappedFromZD(zd, tempFolder);
+        try {
+            ListOfIntArrays numNonZero = contacts.getNumNonZeroInRows();
+            ListOfFloatArrays coverage = contacts.getRowSums();
+            // normalizeVectorByScaleFactor takes the reciprocal of the norm vector
+            for (long k = 0; k < coverage.getLength(); k++) {
+                if (numNonZero.get(k) > 0) {
+                    double value = useSqrt ? Math.sqrt(coverage.get(k)) : coverage.get(k);
+                    coverage.set(k, (float) (1 / value));
+                } else {
+                    coverage.set(k, 0);
+                }
+            }
+            return contacts.normalizeVectorByScaleFactor(coverage);
+        } finally {
+            contacts.clear();
+        }
+    }
+
     private static float[] toFloats(double[] doubles) {
         float[] floats = new float[doubles.length];
         for (int k = 0; k < floats.length; k++) {
@@ -3,7 +3,9 @@ package cli.clt.sieve;
 import cli.Main;
 import cli.clt.CommandLineParser;
 import cli.utils.FeatureStats;
+import cli.utils.data.FeatureAttributeTable;
 import cli.utils.data.SparseContactMatrixWithMasking;
+import cli.utils.expected.ExpectedModelCache;
 import cli.utils.flags.RegionConfiguration;
 import cli.utils.general.HiCUtils;
 import cli.utils.general.QuickGrouping;
@@ -28,8 +30,9 @@ import javastraw.tools.ParallelizationTools;
 
 import java.io.File;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Sieve {
 
@@ -37,8 +40,9 @@ public class Sieve {
     private static final float oeHighCutoff = (float) Math.log(2);
     // [-strict][-peek]
     // ; peek just saves values\n\t\tstrict requires each resolution to meet the criteria
-    public static String usage = "sieve[-easy][-skip-global] [--threads num_threads] [-k NORM] <loops.bedpe> <out.stem> <file.hic> [res1,...]\n" +
+    public static String usage = "sieve[-easy][-skip-global][-pipelined] [--threads num_threads] [--prefetch-mb budget] [-k NORM] <loops.bedpe> <out.stem> <file.hic> [res1,...]\n" +
             "\t\tretain loop if at a loop-y location\n" +
+            "\t\tpipelined reads the next resolution while the current one is scored\n" +
             "\t\tsieve-post-filter <loops.bedpe> <out.stem> <genomeID>";
     private static int zLowCutoff = 1;
     public static String GLOBAL_OE = "_sieve_obs_over_global_expected";
@@ -51,6 +55,13 @@ public class Sieve {
 
     public int[] resolutions = new int[]{1000, 2000, 5000, 10000};
     private static boolean skipGlobal = false;
+    private static boolean usePipeline = false;
+    private static int prefetchBudgetMB = 2048;
+    private static final AtomicLong loadNanos = new AtomicLong(0);
+    private static final AtomicLong scoreNanos = new AtomicLong(0);
+    private static final AtomicLong waitNanos = new AtomicLong(0);
+    private static final AtomicInteger numPrefetched = new AtomicInteger(0);
+    private static final AtomicInteger numStages = new AtomicInteger(0);
 
     public Sieve(String[] args, CommandLineParser parser, String command) {
         // sieve <loops.bedpe> <output.bedpe> <file1.hic> <res1,res2,...>
@@ -70,13 +81,19 @@ public class Sieve {
             skipGlobal = true;
         }
 
+        if (command.contains("pipe")) {
+            usePipeline = true;
+        }
+
         numThreads = parser.getNumThreads(numThreads);
+        prefetchBudgetMB = parser.getPrefetchBudgetOption(prefetchBudgetMB);
 
         if (command.contains("post")) {
             // just filter using values in list
             ChromosomeHandler handler = ChromosomeTools.loadChromosomes(hicPath);
             Feature2DList result = Feature2DParser.loadFeatures(loopListPath, handler, true, null, false);
-            Feature2DList[] goodAndBad = filterByScore(result);
+            FeatureAttributeTable scores = FeatureAttributeTable.fromAttributes(result, getAttributeNames(resolutions));
+            Feature2DList[] goodAndBad = filterByScore(result, scores);
             goodAndBad[0].exportFeatureList(new File(outStem + ".good.loops.bedpe"), false, Feature2DList.ListFormat.NA);
             goodAndBad[1].exportFeatureList(new File(outStem + ".weak.loops.bedpe"), false, Feature2DList.ListFormat.NA);
             goodAndBad[2].exportFeatureList(new File(outStem + ".not.loops.bedpe"), false, Feature2DList.ListFormat.NA);
@@ -106,18 +123,42 @@ public class Sieve {
                 window = 10;
             }
 
-            Feature2DList result = sieveFilter(ds, loopList, handler, resolutions, window, norm);
-            result.exportFeatureList(new File(outStem + ".attributes.bedpe"), false, Feature2DList.ListFormat.NA);
+            FeatureAttributeTable scores = new FeatureAttributeTable(loopList);
+            for (String name : getAttributeNames(resolutions)) {
+                scores.register(name);
+            }
+            Feature2DList result = sieveFilter(ds, hicPath, loopList, scores, handler, resolutions, window, norm);
 
+            Feature2DList goodCalls = null;
             if (command.contains("easy")) {
-                Feature2DList goodCalls = filterBySimpleScore(result);
+                goodCalls = filterBySimpleScore(result, scores);
+            }
+            scores.writeAttributes();
+            result.exportFeatureList(new File(outStem + ".attributes.bedpe"), false, Feature2DList.ListFormat.NA);
+            if (goodCalls != null) {
                 goodCalls.exportFeatureList(new File(outStem + ".minimal.loops.bedpe"), false, Feature2DList.ListFormat.NA);
             }
         }
+        ExpectedModelCache.printStats();
         System.out.println("sieve complete");
     }
 
-    private static Feature2DList sieveFilter(Dataset ds, Feature2DList loopList,
+    private static List<String> getAttributeNames(int[] resolutions) {
+        Set<Integer> allResolutions = new TreeSet<>(Arrays.asList(1000, 2000, 5000));
+        for (int res : resolutions) {
+            allResolutions.add(res);
+        }
+        List<String> names = new ArrayList<>();
+        for (int res : allResolutions) {
+            for (String stem : new String[]{LOCAL_OE, LOCAL_Z, GLOBAL_OE, GLOBAL_Z, GLOBAL_PERCENT}) {
+                names.add(res + stem);
+            }
+        }
+        return names;
+    }
+
+    private static Feature2DList sieveFilter(Dataset ds, String hicPath, Feature2DList loopList,
+                                             FeatureAttributeTable scores,
                                              ChromosomeHandler handler, int[] resolutions, int window,
                                              NormalizationType norm) {
 
@@ -134,6 +175,8 @@ public class Sieve {
 
         final AtomicInteger currChromPair = new AtomicInteger(0);
         final AtomicInteger numLoopsDone = new AtomicInteger(0);
+        final ExecutorService prefetcher = usePipeline ? Executors.newFixedThreadPool(numThreads) : null;
+        final Semaphore prefetchBudget = new Semaphore(prefetchBudgetMB);
 
         ParallelizationTools.launchParallelizedCode(numThreads, () -> {
             int threadPair = currChromPair.getAndIncrement();
@@ -146,71 +189,48 @@ public class Sieve {
                 Matrix matrix = ds.getMatrix(chrom1, chrom2);
                 int numLoopsForThisChromosome = loopsToAssessGlobal.size();
 
-                boolean thisChromHadData = true;
-
                 if (matrix != null) {
-                    for (int resolution : resolutions) {
-                        HiCZoom zoom = new HiCZoom(resolution);
-                        MatrixZoomData zd = matrix.getZoomData(zoom);
-                        if (zd != null) {
-
-                            NormalizationVector nv1 = ds.getNormalizationVector(chrom1.getIndex(), zoom, norm);
-                            NormalizationVector nv2 = ds.getNormalizationVector(chrom2.getIndex(), zoom, norm);
-
-                            if (nv1 == null) {
-                                System.err.println("Error getting normalization " + norm.getLabel() + " for " + chrom1.getName() + " at " + resolution);
-                                thisChromHadData = false;
-                            } else if (nv2 == null) {
-                                System.err.println("Error getting normalization " + norm.getLabel() + " for " + chrom2.getName() + " at " + resolution);
-                                thisChromHadData = false;
-                            } else if (loopsToAssessGlobal.size() > 0) {
-                                setDefaultAttributes(loopsToAssessGlobal, resolution);
-                                Collection<List<Feature2D>> loopGroups = QuickGrouping.groupNearbyRecords(
-                                        loopsToAssessGlobal, 500 * resolution).values();
-
-                                LogExpectedZscoreSpline poly = null;
-                                if (!skipGlobal) {
-                                    poly = new LogExpectedZscoreSpline(zd, norm, chrom1, resolution);
-                                }
-                                SparseContactMatrixWithMasking sparseMatrix = new SparseContactMatrixWithMasking(zd,
-                                        loopsToAssessGlobal, resolution, buffer, 2 * buffer + 1, norm);
-
-                                for (List<Feature2D> group : loopGroups) {
-                                    int minR = (int) ((FeatureStats.minStart1(group) / resolution) - buffer);
-                                    int minC = (int) ((FeatureStats.minStart2(group) / resolution) - buffer);
-                                    int maxR = (int) ((FeatureStats.maxEnd1(group) / resolution) + buffer);
-                                    int maxC = (int) ((FeatureStats.maxEnd2(group) / resolution) + buffer);
-                                    float[][] regionMatrix = sparseMatrix.getRegion(minR, minC, maxR, maxC);
-                                    for (Feature2D loop : group) {
-                                        int absCoordBinX = (int) (loop.getMidPt1() / resolution);
-                                        int absCoordBinY = (int) (loop.getMidPt2() / resolution);
-                                        int dist = Math.abs(absCoordBinX - absCoordBinY);
-                                        int midX = absCoordBinX - minR;
-                                        int midY = absCoordBinY - minC;
-
-                                        float observed = regionMatrix[midX][midY];
-
-                                        Welford localWelford = ZscoreTools.getLocalWelford(regionMatrix, midX, midY, window);
-                                        float localOE = (float) (observed / localWelford.getMean());
-                                        float localZScore = (float) localWelford.getZscore().getZscore(observed);
-                                        loop.addStringAttribute(resolution + LOCAL_Z, "" + localZScore);
-                                        loop.addStringAttribute(resolution + LOCAL_OE, "" + localOE);
-
-                                        if (poly != null) {
-                                            float globalOE = (float) (observed / poly.getExpectedFromUncompressedBin(dist));
-                                            float globalZScore = (float) poly.getZscoreForObservedUncompressedBin(dist, observed);
-                                            loop.addStringAttribute(resolution + GLOBAL_Z, "" + globalZScore);
-                                            loop.addStringAttribute(resolution + GLOBAL_OE, "" + globalOE);
-
-                                            loop.addStringAttribute(resolution + GLOBAL_PERCENT, "" + poly.getPercentContact(dist, observed));
-                                        }
-                                    }
-                                    regionMatrix = null;
+                    boolean thisChromHadData = true;
+
+                    // while resolution r is scored, resolution r+1 is read on the prefetch pool
+                    // if its estimated size fits in the remaining prefetch budget
+                    ResolutionStage current = loadStage(ds, hicPath, matrix, chrom1, chrom2,
+                            loopsToAssessGlobal, resolutions[0], buffer, norm);
+                    for (int r = 0; r < resolutions.length; r++) {
+                        Future<ResolutionStage> next = null;
+                        int reservedMB = 0;
+                        if (prefetcher != null && r + 1 < resolutions.length) {
+                            int estimateMB = current.getSizeInMB();
+                            if (estimateMB <= prefetchBudgetMB && prefetchBudget.tryAcquire(estimateMB)) {
+                                reservedMB = estimateMB;
+                                final int nextResolution = resolutions[r + 1];
+                                next = prefetcher.submit(() -> loadStage(ds, hicPath, matrix, chrom1, chrom2,
+                                        loopsToAssessGlobal, nextResolution, buffer, norm));
+                            }
+                        }
+
+                        scoreStage(current, loopsToAssessGlobal, scores, window, buffer);
+                        thisChromHadData &= current.hasData;
+                        prefetchBudget.release(current.reservedMB);
+                        current = null;
+
+                        if (r + 1 < resolutions.length) {
+                            if (next != null) {
+                                long waitStart = System.nanoTime();
+                                try {
+                                    current = next.get();
+                                } catch (InterruptedException | ExecutionException e) {
+                                    e.printStackTrace();
+                                    System.exit(78);
                                 }
-                                System.out.print(".");
+                                waitNanos.addAndGet(System.nanoTime() - waitStart);
+                                current.reservedMB = reservedMB;
+                                numPrefetched.incrementAndGet();
+                            } else {
+                                current = loadStage(ds, hicPath, matrix, chrom1, chrom2,
+                                        loopsToAssessGlobal, resolutions[r + 1], buffer, norm);
                             }
                         }
-                        matrix.clearCacheForZoom(zoom);
                     }
                     matrix.clearCache();
 
@@ -232,26 +252,146 @@ public class Sieve {
             }
         });
 
+        if (prefetcher != null) {
+            prefetcher.shutdown();
+        }
+        if (usePipeline || Main.printVerboseComments) {
+            System.out.printf("Sieve stage time (summed over threads): load %.1fs, score %.1fs, " +
+                            "waiting on prefetch %.1fs; %d of %d resolutions prefetched%n",
+                    loadNanos.get() * 1e-9, scoreNanos.get() * 1e-9, waitNanos.get() * 1e-9,
+                    numPrefetched.get(), numStages.get());
+        }
+
         return newLoopList;
     }
 
-    private static void setDefaultAttributes(Set<Feature2D> loops, int resolution) {
+    private static class ResolutionStage {
+        private final int resolution;
+        private LogExpectedZscoreSpline poly = null;
+        private SparseContactMatrixWithMasking sparseMatrix = null;
+        private boolean hasData = true;
+        private int reservedMB = 0;
+
+        ResolutionStage(int resolution) {
+            this.resolution = resolution;
+        }
+
+        int getSizeInMB() {
+            if (sparseMatrix == null) return 0;
+            return (int) Math.min(Integer.MAX_VALUE, (sparseMatrix.getMemoryInBytes() >> 20) + 1);
+        }
+    }
+
+    /**
+     * Reads everything needed to score one resolution: the expected model and the masked contacts around the loops
+     */
+    private static ResolutionStage loadStage(Dataset ds, String hicPath, Matrix matrix, Chromosome chrom1,
+                                             Chromosome chrom2, Set<Feature2D> loops, int resolution,
+                                             int buffer, NormalizationType norm) {
+        long start = System.nanoTime();
+        ResolutionStage stage = new ResolutionStage(resolution);
+        HiCZoom zoom = new HiCZoom(resolution);
+        MatrixZoomData zd = matrix.getZoomData(zoom);
+        if (zd != null) {
+
+            NormalizationVector nv1 = ds.getNormalizationVector(chrom1.getIndex(), zoom, norm);
+            NormalizationVector nv2 = ds.getNormalizationVector(chrom2.getIndex(), zoom, norm);
+
+            if (nv1 == null) {
+                System.err.println("Error getting normalization " + norm.getLabel() + " for " + chrom1.getName() + " at " + resolution);
+                stage.hasData = false;
+            } else if (nv2 == null) {
+                System.err.println("Error getting normalization " + norm.getLabel() + " for " + chrom2.getName() + " at " + resolution);
+                stage.hasData = false;
+            } else if (loops.size() > 0) {
+                if (!skipGlobal) {
+                    stage.poly = ExpectedModelCache.getLogExpectedZscoreSpline(hicPath, zd, norm, chrom1, resolution);
+                }
+                stage.sparseMatrix = new SparseContactMatrixWithMasking(zd,
+                        loops, resolution, buffer, 2 * buffer + 1, norm);
+            }
+            matrix.clearCacheForZoom(zoom);
+        }
+        numStages.incrementAndGet();
+        loadNanos.addAndGet(System.nanoTime() - start);
+        return stage;
+    }
+
+    private static void scoreStage(ResolutionStage stage, Set<Feature2D> loopsToAssessGlobal,
+                                   FeatureAttributeTable scores, int window, int buffer) {
+        if (stage.sparseMatrix == null) return;
+        long start = System.nanoTime();
+
+        int resolution = stage.resolution;
+        LogExpectedZscoreSpline poly = stage.poly;
+        SparseContactMatrixWithMasking sparseMatrix = stage.sparseMatrix;
+
+        setDefaultAttributes(loopsToAssessGlobal, resolution, scores);
+        int localZ = scores.getId(resolution + LOCAL_Z);
+        int localOEId = scores.getId(resolution + LOCAL_OE);
+        int globalZ = scores.getId(resolution + GLOBAL_Z);
+        int globalOEId = scores.getId(resolution + GLOBAL_OE);
+        int globalPercent = scores.getId(resolution + GLOBAL_PERCENT);
+        Collection<List<Feature2D>> loopGroups = QuickGrouping.groupNearbyRecords(
+                loopsToAssessGlobal, 500 * resolution).values();
+
+        for (List<Feature2D> group : loopGroups) {
+            int minR = (int) ((FeatureStats.minStart1(group) / resolution) - buffer);
+            int minC = (int) ((FeatureStats.minStart2(group) / resolution) - buffer);
+            int maxR = (int) ((FeatureStats.maxEnd1(group) / resolution) + buffer);
+            int maxC = (int) ((FeatureStats.maxEnd2(group) / resolution) + buffer);
+            float[][] regionMatrix = sparseMatrix.getRegion(minR, minC, maxR, maxC);
+            for (Feature2D loop : group) {
+                int absCoordBinX = (int) (loop.getMidPt1() / resolution);
+                int absCoordBinY = (int) (loop.getMidPt2() / resolution);
+                int dist = Math.abs(absCoordBinX - absCoordBinY);
+                int midX = absCoordBinX - minR;
+                int midY = absCoordBinY - minC;
+
+                float observed = regionMatrix[midX][midY];
+
+                Welford localWelford = ZscoreTools.getLocalWelford(regionMatrix, midX, midY, window);
+                float localOE = (float) (observed / localWelford.getMean());
+                float localZScore = (float) localWelford.getZscore().getZscore(observed);
+                scores.set(loop, localZ, localZScore);
+                scores.set(loop, localOEId, localOE);
+
+                if (poly != null) {
+                    float globalOE = (float) (observed / poly.getExpectedFromUncompressedBin(dist));
+                    float globalZScore = (float) poly.getZscoreForObservedUncompressedBin(dist, observed);
+                    scores.set(loop, globalZ, globalZScore);
+                    scores.set(loop, globalOEId, globalOE);
+
+                    scores.set(loop, globalPercent, poly.getPercentContact(dist, observed));
+                }
+            }
+            regionMatrix = null;
+        }
+        System.out.print(".");
+        scoreNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    private static void setDefaultAttributes(Set<Feature2D> loops, int resolution, FeatureAttributeTable scores) {
+        int localOE = scores.getId(resolution + LOCAL_OE);
+        int localZ = scores.getId(resolution + LOCAL_Z);
+        int globalOE = scores.getId(resolution + GLOBAL_OE);
+        int globalZ = scores.getId(resolution + GLOBAL_Z);
         for (Feature2D loop : loops) {
-            loop.addStringAttribute(resolution + LOCAL_OE, "NaN");
-            loop.addStringAttribute(resolution + LOCAL_Z, "NaN");
+            scores.set(loop, localOE, Float.NaN);
+            scores.set(loop, localZ, Float.NaN);
             if (!skipGlobal) {
-                loop.addStringAttribute(resolution + GLOBAL_OE, "NaN");
-                loop.addStringAttribute(resolution + GLOBAL_Z, "NaN");
+                scores.set(loop, globalOE, Float.NaN);
+                scores.set(loop, globalZ, Float.NaN);
             }
         }
     }
 
-    private Feature2DList filterBySimpleScore(Feature2DList result) {
+    private Feature2DList filterBySimpleScore(Feature2DList result, FeatureAttributeTable scores) {
         Feature2DList good = new Feature2DList();
         result.processLists((s, list) -> {
             List<Feature2D> goodLoops = new ArrayList<>();
             for (Feature2D feature : list) {
-                if (isSimpleEnrichedLikelyLoop(feature, resolutions)) {
+                if (isSimpleEnrichedLikelyLoop(feature, resolutions, scores)) {
                     goodLoops.add(feature);
                 }
             }
@@ -260,7 +400,7 @@ public class Sieve {
         return good;
     }
 
-    private Feature2DList[] filterByScore(Feature2DList result) {
+    private Feature2DList[] filterByScore(Feature2DList result, FeatureAttributeTable scores) {
         Feature2DList good = new Feature2DList();
         Feature2DList weak = new Feature2DList();
         Feature2DList bad = new Feature2DList();
@@ -269,9 +409,9 @@ public class Sieve {
             List<Feature2D> weakLoops = new ArrayList<>();
             List<Feature2D> badLoops = new ArrayList<>();
             for (Feature2D feature : list) {
-                if (isEnrichedLikelyLoop(feature)) {
+                if (isEnrichedLikelyLoop(feature, scores)) {
                     goodLoops.add(feature);
-                } else if (isWeaklyEnrichedMaybeLoopish(feature)) {
+                } else if (isWeaklyEnrichedMaybeLoopish(feature, scores)) {
                     weakLoops.add(feature);
                 } else {
                     badLoops.add(feature);
@@ -284,19 +424,19 @@ public class Sieve {
         return new Feature2DList[]{good, weak, bad};
     }
 
-    private boolean isEnrichedLikelyLoop(Feature2D feature) {
+    private boolean isEnrichedLikelyLoop(Feature2D feature, FeatureAttributeTable scores) {
 
-        double localZ1K = getAttribute(feature, 1000 + LOCAL_Z, -10);
-        double localZ2K = getAttribute(feature, 2000 + LOCAL_Z, -10);
-        double localZ5K = getAttribute(feature, 5000 + LOCAL_Z, -10);
+        double localZ1K = getAttribute(scores, feature, 1000 + LOCAL_Z, -10);
+        double localZ2K = getAttribute(scores, feature, 2000 + LOCAL_Z, -10);
+        double localZ5K = getAttribute(scores, feature, 5000 + LOCAL_Z, -10);
 
-        double localOE1K = Math.log(getAttribute(feature, 1000 + LOCAL_OE, .1f));
-        double localOE2K = Math.log(getAttribute(feature, 2000 + LOCAL_OE, .1f));
-        double localOE5K = Math.log(getAttribute(feature, 5000 + LOCAL_OE, .1f));
+        double localOE1K = Math.log(getAttribute(scores, feature, 1000 + LOCAL_OE, .1f));
+        double localOE2K = Math.log(getAttribute(scores, feature, 2000 + LOCAL_OE, .1f));
+        double localOE5K = Math.log(getAttribute(scores, feature, 5000 + LOCAL_OE, .1f));
 
-        double globalOE1K = Math.log(getAttribute(feature, 1000 + GLOBAL_OE, .1f));
-        double globalOE2K = Math.log(getAttribute(feature, 2000 + GLOBAL_OE, .1f));
-        double globalOE5K = Math.log(getAttribute(feature, 5000 + GLOBAL_OE, .1f));
+        double globalOE1K = Math.log(getAttribute(scores, feature, 1000 + GLOBAL_OE, .1f));
+        double globalOE2K = Math.log(getAttribute(scores, feature, 2000 + GLOBAL_OE, .1f));
+        double globalOE5K = Math.log(getAttribute(scores, feature, 5000 + GLOBAL_OE, .1f));
 
         boolean weak1 = (localZ1K > zLowCutoff) && (localOE1K > oeLowCutoff);
         boolean weak2 = (localZ2K > zLowCutoff) && (localOE2K > oeLowCutoff);
@@ -320,23 +460,23 @@ public class Sieve {
                 || (hasAverageEnrichment && ((medium1 && medium2) || (weak2 && weak5) || (weak1 && weak5)));
     }
 
-    private boolean isSimpleEnrichedLikelyLoop(Feature2D feature, int[] resolutions) {
+    private boolean isSimpleEnrichedLikelyLoop(Feature2D feature, int[] resolutions, FeatureAttributeTable scores) {
         boolean isEnriched = true;
         for (int res : resolutions) {
-            double localZ = getAttribute(feature, res + LOCAL_Z, -10);
-            double localOE = Math.log(getAttribute(feature, res + LOCAL_OE, .1f));
+            double localZ = getAttribute(scores, feature, res + LOCAL_Z, -10);
+            double localOE = Math.log(getAttribute(scores, feature, res + LOCAL_OE, .1f));
             boolean weak = (localZ > zLowCutoff) && (localOE > oeLowCutoff);
             isEnriched = isEnriched && weak;
         }
         return isEnriched;
     }
 
-    private boolean isWeaklyEnrichedMaybeLoopish(Feature2D feature) {
+    private boolean isWeaklyEnrichedMaybeLoopish(Feature2D feature, FeatureAttributeTable scores) {
         for (int res : resolutions) {
-            //float zScore = getAttribute(feature, res + LOCAL_Z, 0);
-            double oe1 = Math.log(getAttribute(feature, res + GLOBAL_OE, 0.1f));
-            double oe2 = Math.log(getAttribute(feature, res + LOCAL_OE, 0.1f));
-            double zVal = getAttribute(feature, res + LOCAL_Z, -10);
+            //float zScore = getAttribute(scores, feature, res + LOCAL_Z, 0);
+            double oe1 = Math.log(getAttribute(scores, feature, res + GLOBAL_OE, 0.1f));
+            double oe2 = Math.log(getAttribute(scores, feature, res + LOCAL_OE, 0.1f));
+            double zVal = getAttribute(scores, feature, res + LOCAL_Z, -10);
             if (oe1 > 1.25 || oe2 > 1.1 || zVal > 0.5) {
                 return true;
             }
@@ -344,14 +484,8 @@ public class Sieve {
         return false;
     }
 
-    private float getAttribute(Feature2D feature, String key, float defaultValue) {
-        if (feature.hasAttributeKey(key)) {
-            try {
-                return Float.parseFloat(feature.getAttribute(key));
-            } catch (Exception ignored) {
-            }
-        }
-        return defaultValue;
+    private float getAttribute(FeatureAttributeTable scores, Feature2D feature, String key, float defaultValue) {
+        return scores.get(feature, scores.getId(key), defaultValue);
     }
 
     private int[] parseInts(String input) {
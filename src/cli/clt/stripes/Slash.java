@@ -29,6 +29,7 @@ import cli.clt.CommandLineParser;
 import cli.utils.StrawUtils;
 import cli.utils.data.SparseFilteredOEMap;
 import cli.utils.data.StripeFinder;
+import cli.utils.expected.ExpectedModelCache;
 import cli.utils.seer.SeerUtils;
 import cli.utils.stripes.StripeUtils;
 import javastraw.feature2D.Feature2D;
@@ -60,6 +61,7 @@ public class Slash {
             "[--min-dist val] [--max-dist val] [-r resolution] <input.hic> <outfile.bedpe>\n" +
             "find stripes in a Hi-C map";
     private final String outputFile;
+    private final String hicPath;
     private final Dataset ds;
     private final int minPeakDist, maxPeakDist; // distance between two bins, can be changed in opts
     private final int resolution;
@@ -81,7 +83,8 @@ public class Slash {
         }
 
         resolution = parser.getResolutionOption(2000);
-        ds = HiCFileTools.extractDatasetForCLT(args[1], true, false, resolution > 50);
+        hicPath = args[1];
+        ds = HiCFileTools.extractDatasetForCLT(hicPath, true, false, resolution > 50);
         outputFile = args[2];
         chrom = parser.getChromosomeOption();
         numThreads = parser.getNumThreads(numThreads);
@@ -134,7 +137,7 @@ public class Slash {
                         try {
                             if (Main.printVerboseComments)
                                 System.out.println("creating dataset for " + chrom.getName());
-                            SparseFilteredOEMap map = new SparseFilteredOEMap(ds, zd, norm, chrom, resolution,
+                            SparseFilteredOEMap map = new SparseFilteredOEMap(ds, hicPath, zd, norm, chrom, resolution,
                                     minPeakDist, maxPeakDist, zoom);
 
                             StripeFinder finder = new StripeFinder(map, chrom, resolution,
@@ -192,6 +195,7 @@ public class Slash {
         stripes.exportFeatureList(new File(outputFile), false, Feature2DList.ListFormat.NA);
         horizontalStripes.exportFeatureList(new File(outputFile.replace(".bedpe", ".horizontal.bedpe")), false, Feature2DList.ListFormat.NA);
         verticalStripes.exportFeatureList(new File(outputFile.replace(".bedpe", ".vertical.bedpe")), false, Feature2DList.ListFormat.NA);
+        ExpectedModelCache.printStats();
         if (Main.printVerboseComments) System.out.println("SLASH complete");
     }
 }
\ No newline at end of file
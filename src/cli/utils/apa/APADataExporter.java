@@ -25,7 +25,7 @@
 package cli.utils.apa;
 
 
-import javastraw.tools.MatrixTools;
+import cli.utils.general.NpyWriter;
 
 import java.io.File;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -46,7 +46,7 @@ public class APADataExporter {
         } else {
             finalResult = globalOutput;
         }
-        MatrixTools.saveMatrixTextNumpy(outpath, finalResult);
+        NpyWriter.save(outpath, finalResult);
     }
 
     public static void exportGenomeWideData(AtomicInteger[] gwPeakNumbers, File dataDirectory,
@@ -66,7 +66,7 @@ public class APADataExporter {
         } else {
             finalResult = globalOutput;
         }
-        MatrixTools.saveMatrixTextNumpy((new File(dataDirectory, "apa.npy")).getAbsolutePath(),
+        NpyWriter.save((new File(dataDirectory, "apa.npy")).getAbsolutePath(),
                 finalResult);
     }
 
@@ -0,0 +1,154 @@
+package cli.utils.apa;
+
+import cli.utils.general.Utils;
+import javastraw.expected.ExpectedUtils;
+import javastraw.feature2D.Feature2D;
+import javastraw.reader.block.ContactRecord;
+import javastraw.reader.mzd.MatrixZoomData;
+import javastraw.reader.type.NormalizationType;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Accumulates APA windows for all loops on a chromosome pair, either by fetching the blocks
+ * overlapping each loop or by streaming the whole matrix once.
+ * The cheaper path is picked per chromosome pair based on how many blocks each approach touches.
+ */
+public class APAStreamingEngine {
+
+    // streaming also walks records that fall outside every window, so penalize it slightly
+    private static final double SCAN_PENALTY = 1.5;
+
+    private final int resolution;
+    private final int window;
+    private final int matrixWidth;
+    private final NormalizationType norm;
+
+    public APAStreamingEngine(int resolution, int window, int matrixWidth, NormalizationType norm) {
+        this.resolution = resolution;
+        this.window = window;
+        this.matrixWidth = matrixWidth;
+        this.norm = norm;
+    }
+
+    public static double getBlockFetchCost(MatrixZoomData zd, int numLoops, int matrixWidth) {
+        double blocksPerLoop = 1.0 + (double) (matrixWidth + 1) / zd.getBlockBinCount();
+        return numLoops * blocksPerLoop * blocksPerLoop;
+    }
+
+    public static double getFullScanCost(MatrixZoomData zd, boolean isIntra) {
+        double numColumns = zd.getBlockColumnCount();
+        double numBlocks = isIntra ? numColumns * (numColumns + 1) / 2 : numColumns * numColumns;
+        return SCAN_PENALTY * numBlocks;
+    }
+
+    public static boolean shouldStream(MatrixZoomData zd, int numLoops, int matrixWidth, boolean isIntra) {
+        return getBlockFetchCost(zd, numLoops, matrixWidth) > getFullScanCost(zd, isIntra);
+    }
+
+    /**
+     * @return true if the matrix was streamed, false if blocks were fetched per loop
+     */
+    public boolean addLoops(float[][] output, MatrixZoomData zd, List<Feature2D> loops, boolean isIntra,
+                            AtomicInteger currNumLoops, int numTotalLoops) {
+        if (shouldStream(zd, loops.size(), matrixWidth, isIntra)) {
+            addLoopsByStreaming(output, zd, loops);
+            updateProgress(currNumLoops, loops.size(), numTotalLoops);
+            return true;
+        } else {
+            addLoopsByBlockFetch(output, zd, loops, currNumLoops, numTotalLoops);
+            return false;
+        }
+    }
+
+    public void addLoopsByBlockFetch(float[][] output, MatrixZoomData zd, List<Feature2D> loops,
+                                     AtomicInteger currNumLoops, int numTotalLoops) {
+        for (Feature2D loop : loops) {
+            Utils.addLocalBoundedRegion(output, zd, getBinXStart(loop), getBinYStart(loop), matrixWidth, norm);
+            updateProgress(currNumLoops, 1, numTotalLoops);
+        }
+    }
+
+    /**
+     * prints the percentage done every time another 100 loops are finished
+     */
+    private static void updateProgress(AtomicInteger currNumLoops, int numDone, int numTotalLoops) {
+        int before = currNumLoops.getAndAdd(numDone);
+        int after = before + numDone;
+        if (after / 100 > before / 100) {
+            System.out.print(((int) Math.floor((100.0 * after) / numTotalLoops)) + "% ");
+        }
+    }
+
+    public void addLoopsByStreaming(float[][] output, MatrixZoomData zd, List<Feature2D> loops) {
+        int numLoops = loops.size();
+        if (numLoops == 0) return;
+
+        int[] xStarts = new int[numLoops];
+        int[] yStarts = new int[numLoops];
+        int minRow = Integer.MAX_VALUE;
+        int maxRow = Integer.MIN_VALUE;
+        int minDist = Integer.MAX_VALUE;
+        int maxDist = Integer.MIN_VALUE;
+        for (int k = 0; k < numLoops; k++) {
+            Feature2D loop = loops.get(k);
+            xStarts[k] = getBinXStart(loop);
+            yStarts[k] = getBinYStart(loop);
+            minRow = Math.min(minRow, xStarts[k]);
+            maxRow = Math.max(maxRow, xStarts[k] + matrixWidth);
+            int dist = yStarts[k] - xStarts[k];
+            minDist = Math.min(minDist, dist - matrixWidth);
+            maxDist = Math.max(maxDist, dist + matrixWidth);
+        }
+
+        // CSR index: for every row, the loops whose window covers that row
+        int numRows = maxRow - minRow;
+        int[] rowOffsets = new int[numRows + 1];
+        for (int k = 0; k < numLoops; k++) {
+            for (int r = xStarts[k]; r < xStarts[k] + matrixWidth; r++) {
+                rowOffsets[r - minRow + 1]++;
+            }
+        }
+        for (int r = 0; r < numRows; r++) {
+            rowOffsets[r + 1] += rowOffsets[r];
+        }
+        int[] rowLoops = new int[rowOffsets[numRows]];
+        int[] fill = new int[numRows];
+        for (int k = 0; k < numLoops; k++) {
+            for (int r = xStarts[k]; r < xStarts[k] + matrixWidth; r++) {
+                int idx = r - minRow;
+                rowLoops[rowOffsets[idx] + fill[idx]++] = k;
+            }
+        }
+
+        Iterator<ContactRecord> it = ExpectedUtils.getIterator(zd, norm);
+        while (it.hasNext()) {
+            ContactRecord cr = it.next();
+            if (cr.getCounts() > 0) {
+                int x = cr.getBinX();
+                int y = cr.getBinY();
+                int dist = y - x;
+                if (x >= minRow && x < maxRow && dist >= minDist && dist <= maxDist) {
+                    int idx = x - minRow;
+                    for (int p = rowOffsets[idx]; p < rowOffsets[idx + 1]; p++) {
+                        int k = rowLoops[p];
+                        int relativeY = y - yStarts[k];
+                        if (relativeY >= 0 && relativeY < matrixWidth) {
+                            output[x - xStarts[k]][relativeY] += cr.getCounts();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private int getBinXStart(Feature2D loop) {
+        return (int) ((loop.getMidPt1() / resolution) - window);
+    }
+
+    private int getBinYStart(Feature2D loop) {
+        return (int) ((loop.getMidPt2() / resolution) - window);
+    }
+}
@@ -0,0 +1,183 @@
+package cli.utils.apa;
+
+import java.util.Arrays;
+
+/**
+ * APA matrices, row sums and column sums for a set of anchor bins, stored in contiguous float buffers.
+ * Anchors get dense ids in ascending bin order. The buffers are split into chunks of consecutive ids, each
+ * holding at most about 2^26 floats, so there is no cap on anchors x width^2; the matrix of anchor id
+ * occupies getMatrices(id)[getMatrixOffset(id), getMatrixOffset(id) + width * width) in row-major order.
+ */
+public class AnchorSlab {
+
+    private static final int MAX_FLOATS_PER_CHUNK = 1 << 26;
+
+    private final int[] bins;
+    private final int width;
+    private final int anchorsPerChunk;
+    private final float[][] matrices;
+    private final float[][] rowSums;
+    private final float[][] colSums;
+
+    /**
+     * @param bins anchor bins, in any order and possibly repeated
+     */
+    public AnchorSlab(int[] bins, int width) {
+        this.bins = unique(bins);
+        this.width = width;
+        anchorsPerChunk = Math.max(1, MAX_FLOATS_PER_CHUNK / (width * width));
+        int numChunks = (this.bins.length + anchorsPerChunk - 1) / anchorsPerChunk;
+        matrices = new float[numChunks][];
+        rowSums = new float[numChunks][];
+        colSums = new float[numChunks][];
+        for (int c = 0; c < numChunks; c++) {
+            int numAnchors = Math.min(anchorsPerChunk, this.bins.length - c * anchorsPerChunk);
+            matrices[c] = new float[numAnchors * width * width];
+            rowSums[c] = new float[numAnchors * width];
+            colSums[c] = new float[numAnchors * width];
+        }
+    }
+
+    private static int[] unique(int[] values) {
+        int[] sorted = Arrays.copyOf(values, values.length);
+        Arrays.sort(sorted);
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[n++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, n);
+    }
+
+    public int getNumAnchors() {
+        return bins.length;
+    }
+
+    public int getId(int bin) {
+        return Arrays.binarySearch(bins, bin);
+    }
+
+    public int getBin(int id) {
+        return bins[id];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the chunk holding the matrix of anchor id
+     */
+    public float[] getMatrices(int id) {
+        return matrices[id / anchorsPerChunk];
+    }
+
+    public int getMatrixOffset(int id) {
+        return (id % anchorsPerChunk) * width * width;
+    }
+
+    private int getSumOffset(int id) {
+        return (id % anchorsPerChunk) * width;
+    }
+
+    public void addLocalSums(int id, double[] vector, int rowStart, int colStart) {
+        addLocalSums(rowSums[id / anchorsPerChunk], getSumOffset(id), vector, rowStart);
+        addLocalSums(colSums[id / anchorsPerChunk], getSumOffset(id), vector, colStart);
+    }
+
+    private void addLocalSums(float[] sums, int offset, double[] vector, int binStart) {
+        for (int i = 0; i < width; i++) {
+            float val = (float) vector[binStart + i];
+            if (val > 0) {
+                sums[offset + i] += val;
+            }
+        }
+    }
+
+    /**
+     * aggregate normalization of every matrix by its own row and column sums, in place
+     */
+    public void normalizeBySums() {
+        for (int id = 0; id < bins.length; id++) {
+            float[] matrices = getMatrices(id);
+            float[] rowSums = this.rowSums[id / anchorsPerChunk];
+            float[] colSums = this.colSums[id / anchorsPerChunk];
+            int sumOffset = getSumOffset(id);
+            normalizeBySum(rowSums, sumOffset);
+            normalizeBySum(colSums, sumOffset);
+            int offset = getMatrixOffset(id);
+            for (int r = 0; r < width; r++) {
+                for (int c = 0; c < width; c++) {
+                    double normVal = (rowSums[sumOffset + r] * colSums[sumOffset + c]);
+                    int k = offset + r * width + c;
+                    if (normVal > 0.0) {
+                        matrices[k] = (float) (matrices[k] / normVal);
+                    } else {
+                        matrices[k] = 0.0F;
+                    }
+                }
+            }
+        }
+    }
+
+    private void normalizeBySum(float[] sums, int offset) {
+        double total = 0;
+        for (int i = 0; i < width; i++) {
+            total += sums[offset + i];
+        }
+        double average = total / width;
+        if (average > 0) {
+            for (int i = 0; i < width; i++) {
+                sums[offset + i] /= average;
+            }
+        }
+    }
+
+    /**
+     * (center + 1) / (lower left corner + 1), with the center widened to about 50 bp at finer resolutions
+     */
+    public float getAPAScore(int id, int resolution) {
+        float numerator;
+        int n = width;
+        if (resolution < 50) {
+            int halfWidth = 50 / resolution;
+            numerator = mean(id, n / 2 - halfWidth, n / 2 + halfWidth + 1, n / 2 - halfWidth, n / 2 + halfWidth + 1);
+        } else {
+            numerator = getMatrices(id)[getMatrixOffset(id) + (n / 2) * n + n / 2];
+        }
+
+        float denom = mean(id, 3 * n / 4, n, 0, n / 4);
+
+        return (numerator + 1) / (denom + 1);
+    }
+
+    private float mean(int id, int r0, int r1, int c0, int c1) {
+        float[] matrices = getMatrices(id);
+        int offset = getMatrixOffset(id);
+        float sum = 0;
+        int count = 0;
+        for (int r = r0; r < r1; r++) {
+            for (int c = c0; c < c1; c++) {
+                float value = matrices[offset + r * width + c];
+                if (value > 0) {
+                    sum += value;
+                    count++;
+                }
+            }
+        }
+        if (count > 0) {
+            return sum / count;
+        } else {
+            return 0;
+        }
+    }
+
+    public long getMemoryInBytes() {
+        long numFloats = 0;
+        for (int c = 0; c < matrices.length; c++) {
+            numFloats += matrices[c].length + rowSums[c].length + colSums[c].length;
+        }
+        return Float.BYTES * numFloats + (long) Integer.BYTES * bins.length;
+    }
+}
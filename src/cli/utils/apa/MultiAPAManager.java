@@ -5,80 +5,59 @@ import javastraw.feature2D.Feature2D;
 import javastraw.reader.basics.Chromosome;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 public class MultiAPAManager {
 
-    private final Map<Integer, float[][]> upStreamAPAMatrices = new HashMap<>();
-    private final Map<Integer, float[][]> downStreamAPAMatrices;
+    private final AnchorSlab upStreamSlab;
+    private final AnchorSlab downStreamSlab;
 
     public MultiAPAManager(List<Feature2D> loops, int window, int resolution, int matrixWidth,
                            SparseContactMatrixWithMasking scm, double[] vector, boolean isAggNorm, boolean dontUseOrientation) {
 
-        Map<Integer, float[]> upStreamRowSums = new HashMap<>();
-        Map<Integer, float[]> upStreamColSums = new HashMap<>();
-        Map<Integer, float[]> downStreamRowSums;
-        Map<Integer, float[]> downStreamColSums;
+        int[] upStreamBins = new int[loops.size()];
+        int[] downStreamBins = new int[loops.size()];
+        for (int k = 0; k < loops.size(); k++) {
+            upStreamBins[k] = (int) (loops.get(k).getMidPt1() / resolution);
+            downStreamBins[k] = (int) (loops.get(k).getMidPt2() / resolution);
+        }
+
         if (dontUseOrientation) {
-            downStreamAPAMatrices = upStreamAPAMatrices;
-            downStreamRowSums = upStreamRowSums;
-            downStreamColSums = upStreamColSums;
+            int[] allBins = Arrays.copyOf(upStreamBins, 2 * loops.size());
+            System.arraycopy(downStreamBins, 0, allBins, loops.size(), loops.size());
+            upStreamSlab = new AnchorSlab(allBins, matrixWidth);
+            downStreamSlab = upStreamSlab;
         } else {
-            downStreamAPAMatrices = new HashMap<>();
-            downStreamRowSums = new HashMap<>();
-            downStreamColSums = new HashMap<>();
+            upStreamSlab = new AnchorSlab(upStreamBins, matrixWidth);
+            downStreamSlab = new AnchorSlab(downStreamBins, matrixWidth);
         }
 
-        for (Feature2D loop : loops) {
-            int upStreamBin = (int) (loop.getMidPt1() / resolution);
-            int downStreamBin = (int) (loop.getMidPt2() / resolution);
-
-            initialize(upStreamBin, upStreamAPAMatrices, upStreamRowSums, upStreamColSums, matrixWidth);
-            initialize(downStreamBin, downStreamAPAMatrices, downStreamRowSums, downStreamColSums, matrixWidth);
+        for (int k = 0; k < loops.size(); k++) {
+            int binXStart = upStreamBins[k] - window;
+            int binYStart = downStreamBins[k] - window;
+            int upStreamID = upStreamSlab.getId(upStreamBins[k]);
+            int downStreamID = downStreamSlab.getId(downStreamBins[k]);
 
-            addToMatrix(upStreamAPAMatrices.get(upStreamBin), scm, loop, window, resolution, matrixWidth);
-            addToMatrix(downStreamAPAMatrices.get(downStreamBin), scm, loop, window, resolution, matrixWidth);
+            scm.addLocalBoundedRegion(upStreamSlab.getMatrices(upStreamID), upStreamSlab.getMatrixOffset(upStreamID),
+                    binXStart, binYStart, matrixWidth);
+            scm.addLocalBoundedRegion(downStreamSlab.getMatrices(downStreamID), downStreamSlab.getMatrixOffset(downStreamID),
+                    binXStart, binYStart, matrixWidth);
 
             if (isAggNorm) {
-                doAggregateNormalization(loop,
-                        upStreamRowSums.get(upStreamBin),
-                        upStreamColSums.get(upStreamBin), vector, resolution, window);
-                doAggregateNormalization(loop,
-                        downStreamRowSums.get(downStreamBin),
-                        downStreamColSums.get(downStreamBin), vector, resolution, window);
+                upStreamSlab.addLocalSums(upStreamID, vector, binXStart, binYStart);
+                downStreamSlab.addLocalSums(downStreamID, vector, binXStart, binYStart);
             }
         }
 
         if (isAggNorm) {
-            finalAggregateNormalization(upStreamAPAMatrices, upStreamRowSums, upStreamColSums);
+            upStreamSlab.normalizeBySums();
             if (!dontUseOrientation) {
-                finalAggregateNormalization(downStreamAPAMatrices, downStreamRowSums, downStreamColSums);
+                downStreamSlab.normalizeBySums();
             }
         }
     }
 
-    private void finalAggregateNormalization(Map<Integer, float[][]> matrices, Map<Integer, float[]> rowSums,
-                                             Map<Integer, float[]> colSums) {
-        for (int key : matrices.keySet()) {
-            APADataExporter.normalizeBySum(rowSums.get(key));
-            APADataExporter.normalizeBySum(colSums.get(key));
-            float[][] matrix = APADataExporter.normedCopyFloats(matrices.get(key),
-                    rowSums.get(key), colSums.get(key));
-            matrices.put(key, matrix);
-        }
-    }
-
-    private void initialize(int bin, Map<Integer, float[][]> matrices,
-                            Map<Integer, float[]> rowSums, Map<Integer, float[]> colSums, int matrixWidth) {
-        if (!matrices.containsKey(bin)) {
-            matrices.put(bin, new float[matrixWidth][matrixWidth]);
-            rowSums.put(bin, new float[matrixWidth]);
-            colSums.put(bin, new float[matrixWidth]);
-        }
-    }
-
     public static void addToMatrix(float[][] output, SparseContactMatrixWithMasking scm,
                                    Feature2D loop, int window, int resolution, int matrixWidth) {
         int binXStart = (int) ((loop.getMidPt1() / resolution) - window);
@@ -86,64 +65,33 @@ public class MultiAPAManager {
         scm.addLocalBoundedRegion(output, binXStart, binYStart, matrixWidth);
     }
 
-    private void doAggregateNormalization(Feature2D loop, float[] rowSums, float[] colSums,
-                                          double[] nv, int resolution, int window) {
-        int binXStart = (int) ((loop.getMidPt1() / resolution) - window);
-        int binYStart = (int) ((loop.getMidPt2() / resolution) - window);
-        APAUtils.addLocalSums(rowSums, nv, binXStart);
-        APAUtils.addLocalSums(colSums, nv, binYStart);
-    }
-
     public List<AnchorAPAScore> getAnchorAPAScores(Chromosome chromosome, int resolution, boolean dontUseOrientation) {
         List<AnchorAPAScore> scores = new ArrayList<>();
         int width = 100;
-        for (int bin : upStreamAPAMatrices.keySet()) {
+        for (int id = 0; id < upStreamSlab.getNumAnchors(); id++) {
+            int bin = upStreamSlab.getBin(id);
             scores.add(new AnchorAPAScore(chromosome, resolution,
                     bin, width, "Forward_" + bin,
-                    getAPAScore(upStreamAPAMatrices.get(bin), resolution),
+                    upStreamSlab.getAPAScore(id, resolution),
                     true));
         }
         if (!dontUseOrientation) {
-            for (int bin : downStreamAPAMatrices.keySet()) {
+            for (int id = 0; id < downStreamSlab.getNumAnchors(); id++) {
+                int bin = downStreamSlab.getBin(id);
                 scores.add(new AnchorAPAScore(chromosome, resolution,
                         bin, width, "Reverse_" + bin,
-                        getAPAScore(downStreamAPAMatrices.get(bin), resolution),
+                        downStreamSlab.getAPAScore(id, resolution),
                         false));
             }
         }
         return scores;
     }
 
-    private float getAPAScore(float[][] data, int resolution) {
-        float numerator;
-        int n = data.length;
-        if (resolution < 50) {
-            int width = 50 / resolution;
-            numerator = mean(data, n / 2 - width, n / 2 + width + 1, n / 2 - width, n / 2 + width + 1);
-        } else {
-            numerator = data[n / 2][n / 2];
-        }
-
-        float denom = mean(data, 3 * n / 4, n, 0, n / 4);
-
-        return (numerator + 1) / (denom + 1);
-    }
-
-    private float mean(float[][] data, int r0, int r1, int c0, int c1) {
-        float sum = 0;
-        int count = 0;
-        for (int r = r0; r < r1; r++) {
-            for (int c = c0; c < c1; c++) {
-                if (data[r][c] > 0) {
-                    sum += data[r][c];
-                    count++;
-                }
-            }
-        }
-        if (count > 0) {
-            return sum / count;
-        } else {
-            return 0;
+    public long getMemoryInBytes() {
+        long memory = upStreamSlab.getMemoryInBytes();
+        if (downStreamSlab != upStreamSlab) {
+            memory += downStreamSlab.getMemoryInBytes();
         }
+        return memory;
     }
 }
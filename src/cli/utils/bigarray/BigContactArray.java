@@ -26,9 +26,13 @@ package cli.utils.bigarray;
 
 import javastraw.reader.datastructures.ListOfFloatArrays;
 import javastraw.reader.datastructures.ListOfIntArrays;
+import javastraw.tools.ParallelizationTools;
 
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class BigContactArray {
 
@@ -70,8 +74,20 @@ public class BigContactArray {
         binVals.clear();
     }
 
+    protected int getNumSegments() {
+        return binXs.size();
+    }
+
+    /**
+     * @return the x, y and value columns of a segment, in that order
+     */
+    protected Segment getSegment(int index) {
+        return new Segment(IntBuffer.wrap(binXs.get(index)), IntBuffer.wrap(binYs.get(index)),
+                FloatBuffer.wrap(binVals.get(index)));
+    }
+
     private int getNumThreads() {
-        return Math.min(8, binXs.size()); // todo
+        return Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), getNumSegments()));
     }
 
     public long getMatrixSize() {
@@ -88,52 +104,173 @@ public class BigContactArray {
             }
         }
 
-        double normalizedSumTotal = 0, sumTotal = 0;
-
-        for (int sIndx = 0; sIndx < binXs.size(); sIndx++) {
-            int[] subBinXs = binXs.get(sIndx);
-            int[] subBinYs = binYs.get(sIndx);
-            float[] subBinVals = binVals.get(sIndx);
-
-            for (int z = 0; z < subBinXs.length; z++) {
-                int x = subBinXs[z];
-                int y = subBinYs[z];
-                float counts = subBinVals[z];
+        double[] totals = new double[2];
+        AtomicInteger index = new AtomicInteger(0);
+        ParallelizationTools.launchParallelizedCode(getNumThreads(), () -> {
+            double normalizedSumTotal = 0, sumTotal = 0;
+            int sIndx = index.getAndIncrement();
+            while (sIndx < getNumSegments()) {
+                Segment segment = getSegment(sIndx);
+                int n = segment.x.limit();
+                for (int z = 0; z < n; z++) {
+                    int x = segment.x.get(z);
+                    int y = segment.y.get(z);
+                    float counts = segment.values.get(z);
 
-                double valX = newNormVector.get(x);
-                double valY = newNormVector.get(y);
+                    double valX = newNormVector.get(x);
+                    double valY = newNormVector.get(y);
 
-                if (!Double.isNaN(valX) && !Double.isNaN(valY)) {
-                    double normalizedValue = counts / (valX * valY);
-                    normalizedSumTotal += normalizedValue;
-                    sumTotal += counts;
-                    if (x != y) {
+                    if (!Double.isNaN(valX) && !Double.isNaN(valY)) {
+                        double normalizedValue = counts / (valX * valY);
                         normalizedSumTotal += normalizedValue;
                         sumTotal += counts;
+                        if (x != y) {
+                            normalizedSumTotal += normalizedValue;
+                            sumTotal += counts;
+                        }
                     }
                 }
+                sIndx = index.getAndIncrement();
             }
-        }
+            synchronized (totals) {
+                totals[0] += normalizedSumTotal;
+                totals[1] += sumTotal;
+            }
+        });
 
-        double scaleFactor = Math.sqrt(normalizedSumTotal / sumTotal);
+        double scaleFactor = Math.sqrt(totals[0] / totals[1]);
         newNormVector.multiplyEverythingBy(scaleFactor);
         return newNormVector;
     }
 
     public ListOfIntArrays getNumNonZeroInRows() {
         ListOfIntArrays numNonZero = new ListOfIntArrays(matrixSize, 0);
-        for (int sIndx = 0; sIndx < binXs.size(); sIndx++) {
-            int[] subBinXs = binXs.get(sIndx);
-            int[] subBinYs = binYs.get(sIndx);
-            for (int z = 0; z < subBinXs.length; z++) {
-                int x = subBinXs[z];
-                int y = subBinYs[z];
-                numNonZero.addTo(x, 1);
-                if (x != y) {
-                    numNonZero.addTo(y, 1);
+        int numThreads = getNumThreadsForRowCopies(Integer.BYTES);
+        if (numThreads < 2) {
+            for (int sIndx = 0; sIndx < getNumSegments(); sIndx++) {
+                Segment segment = getSegment(sIndx);
+                int n = segment.x.limit();
+                for (int z = 0; z < n; z++) {
+                    int x = segment.x.get(z);
+                    int y = segment.y.get(z);
+                    numNonZero.addTo(x, 1);
+                    if (x != y) {
+                        numNonZero.addTo(y, 1);
+                    }
                 }
             }
+            return numNonZero;
+        }
+
+        int size = (int) matrixSize;
+        int[] counts = new int[size];
+        AtomicInteger index = new AtomicInteger(0);
+        ParallelizationTools.launchParallelizedCode(numThreads, () -> {
+            int[] localCounts = new int[size];
+            int sIndx = index.getAndIncrement();
+            while (sIndx < getNumSegments()) {
+                Segment segment = getSegment(sIndx);
+                int n = segment.x.limit();
+                for (int z = 0; z < n; z++) {
+                    int x = segment.x.get(z);
+                    int y = segment.y.get(z);
+                    localCounts[x]++;
+                    if (x != y) {
+                        localCounts[y]++;
+                    }
+                }
+                sIndx = index.getAndIncrement();
+            }
+            synchronized (counts) {
+                for (int k = 0; k < size; k++) {
+                    counts[k] += localCounts[k];
+                }
+            }
+        });
+
+        for (int k = 0; k < size; k++) {
+            numNonZero.addTo(k, counts[k]);
         }
         return numNonZero;
     }
+
+    /**
+     * @return the sum of each row of the symmetric matrix, i.e. its coverage vector
+     */
+    public ListOfFloatArrays getRowSums() {
+        ListOfFloatArrays rowSums = new ListOfFloatArrays(matrixSize, 0);
+        int numThreads = getNumThreadsForRowCopies(Double.BYTES);
+        if (numThreads < 2) {
+            for (int sIndx = 0; sIndx < getNumSegments(); sIndx++) {
+                Segment segment = getSegment(sIndx);
+                int n = segment.x.limit();
+                for (int z = 0; z < n; z++) {
+                    int x = segment.x.get(z);
+                    int y = segment.y.get(z);
+                    float counts = segment.values.get(z);
+                    rowSums.set(x, rowSums.get(x) + counts);
+                    if (x != y) {
+                        rowSums.set(y, rowSums.get(y) + counts);
+                    }
+                }
+            }
+            return rowSums;
+        }
+
+        int size = (int) matrixSize;
+        double[] sums = new double[size];
+        AtomicInteger index = new AtomicInteger(0);
+        ParallelizationTools.launchParallelizedCode(numThreads, () -> {
+            double[] localSums = new double[size];
+            int sIndx = index.getAndIncrement();
+            while (sIndx < getNumSegments()) {
+                Segment segment = getSegment(sIndx);
+                int n = segment.x.limit();
+                for (int z = 0; z < n; z++) {
+                    int x = segment.x.get(z);
+                    int y = segment.y.get(z);
+                    float counts = segment.values.get(z);
+                    localSums[x] += counts;
+                    if (x != y) {
+                        localSums[y] += counts;
+                    }
+                }
+                sIndx = index.getAndIncrement();
+            }
+            synchronized (sums) {
+                for (int k = 0; k < size; k++) {
+                    sums[k] += localSums[k];
+                }
+            }
+        });
+
+        for (int k = 0; k < size; k++) {
+            rowSums.set(k, (float) sums[k]);
+        }
+        return rowSums;
+    }
+
+    /**
+     * Row passes give each thread its own array of per-row totals, capped so these copies take at most
+     * a quarter of the heap. Matrices too large for an int-indexed array are done in a single thread
+     * straight into the long-indexed result.
+     */
+    private int getNumThreadsForRowCopies(int bytesPerRow) {
+        if (matrixSize > Integer.MAX_VALUE - 8) return 1;
+        long bytesPerThread = Math.max(1, matrixSize * bytesPerRow);
+        return (int) Math.max(1, Math.min(getNumThreads(),
+                Runtime.getRuntime().maxMemory() / 4 / bytesPerThread));
+    }
+
+    protected static class Segment {
+        final IntBuffer x;
+        final IntBuffer y;
+        final FloatBuffer values;
+
+        Segment(IntBuffer x, IntBuffer y, FloatBuffer values) {
+            this.x = x;
+            this.y = y;
+            this.values = values;
+        }
+    }
 }
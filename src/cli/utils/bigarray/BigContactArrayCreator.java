@@ -27,6 +27,8 @@ package cli.utils.bigarray;
 import javastraw.reader.block.ContactRecord;
 import javastraw.reader.mzd.MatrixZoomData;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Iterator;
 
 public class BigContactArrayCreator {
@@ -34,6 +36,17 @@ public class BigContactArrayCreator {
         return populateBigArrayFromSingleIterator(zd.getDirectIterator(), 10000000, zd.getMatrixSize());
     }
 
+    public static MappedBigContactArray createMappedFromZD(MatrixZoomData zd, File directory) throws IOException {
+        MappedBigContactArray allRecords = new MappedBigContactArray(zd.getMatrixSize(), directory);
+        Iterator<ContactRecord> iterator = zd.getDirectIterator();
+        while (iterator.hasNext()) {
+            ContactRecord cr = iterator.next();
+            allRecords.add(cr.getBinX(), cr.getBinY(), cr.getCounts());
+        }
+        allRecords.flush();
+        return allRecords;
+    }
+
     public static BigContactArray populateBigArrayFromSingleIterator(Iterator<ContactRecord> iterator, int limit,
                                                                      long matrixSize) {
         BigContactArray allRecords = new BigContactArray(matrixSize);
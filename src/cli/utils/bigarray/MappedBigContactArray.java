@@ -0,0 +1,138 @@
+package cli.utils.bigarray;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * BigContactArray whose x, y and value columns live in files on disk and are read back
+ * through memory-mapped segments, so the matrix does not need to fit on the heap.
+ * The backing files are deleted when the array is cleared.
+ */
+public class MappedBigContactArray extends BigContactArray {
+
+    public static final int RECORDS_PER_SEGMENT = 1 << 26;
+    private static final int WRITE_BUFFER_RECORDS = 1 << 18;
+
+    private final File[] files;
+    private final FileChannel[] channels = new FileChannel[3];
+    private final ByteBuffer[] writeBuffers = new ByteBuffer[3];
+    private long numRecords = 0;
+    private long numFlushed = 0;
+
+    public MappedBigContactArray(long matrixSize, File directory) throws IOException {
+        super(matrixSize);
+        String prefix = "contacts_" + System.nanoTime();
+        files = new File[]{new File(directory, prefix + ".x.bin"),
+                new File(directory, prefix + ".y.bin"),
+                new File(directory, prefix + ".v.bin")};
+        for (int i = 0; i < 3; i++) {
+            files[i].deleteOnExit();
+            channels[i] = new RandomAccessFile(files[i], "rw").getChannel();
+            writeBuffers[i] = ByteBuffer.allocateDirect(WRITE_BUFFER_RECORDS * 4).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    public void add(int x, int y, float c) {
+        if (!writeBuffers[0].hasRemaining()) {
+            flush();
+        }
+        writeBuffers[0].putInt(x);
+        writeBuffers[1].putInt(y);
+        writeBuffers[2].putFloat(c);
+        numRecords++;
+    }
+
+    @Override
+    public void addSubList(int[] x, int[] y, float[] c) {
+        addSubList(x, y, c, x.length);
+    }
+
+    @Override
+    public void addSubList(int[] x, int[] y, float[] c, int counter) {
+        for (int z = 0; z < counter; z++) {
+            add(x[z], y[z], c[z]);
+        }
+    }
+
+    @Override
+    public void addAllSubLists(BigContactArray other) {
+        for (int s = 0; s < other.getNumSegments(); s++) {
+            Segment segment = other.getSegment(s);
+            for (int z = 0; z < segment.x.limit(); z++) {
+                add(segment.x.get(z), segment.y.get(z), segment.values.get(z));
+            }
+        }
+    }
+
+    public synchronized void flush() {
+        try {
+            for (int i = 0; i < 3; i++) {
+                writeBuffers[i].flip();
+                while (writeBuffers[i].hasRemaining()) {
+                    channels[i].write(writeBuffers[i]);
+                }
+                writeBuffers[i].clear();
+            }
+            numFlushed = numRecords;
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write contacts to " + files[0].getParent(), e);
+        }
+    }
+
+    public long getNumRecords() {
+        return numRecords;
+    }
+
+    // records still in the write buffers are not in the files yet, so flush them before mapping
+    private synchronized void flushIfBehind() {
+        if (numFlushed < numRecords) {
+            flush();
+        }
+    }
+
+    @Override
+    protected int getNumSegments() {
+        flushIfBehind();
+        return (int) ((numRecords + RECORDS_PER_SEGMENT - 1) / RECORDS_PER_SEGMENT);
+    }
+
+    @Override
+    protected Segment getSegment(int index) {
+        flushIfBehind();
+        long start = (long) index * RECORDS_PER_SEGMENT;
+        long length = Math.min(RECORDS_PER_SEGMENT, numRecords - start);
+        try {
+            return new Segment(map(0, start, length).asIntBuffer(),
+                    map(1, start, length).asIntBuffer(),
+                    map(2, start, length).asFloatBuffer());
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to map contacts from " + files[0].getParent(), e);
+        }
+    }
+
+    private ByteBuffer map(int column, long start, long length) throws IOException {
+        return channels[column].map(FileChannel.MapMode.READ_ONLY, start * 4, length * 4)
+                .order(ByteOrder.nativeOrder());
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        numRecords = 0;
+        numFlushed = 0;
+        for (int i = 0; i < 3; i++) {
+            try {
+                channels[i].close();
+            } catch (IOException e) {
+                System.err.println("Unable to close " + files[i].getAbsolutePath());
+            }
+            if (!files[i].delete()) {
+                System.err.println("Unable to delete " + files[i].getAbsolutePath());
+            }
+        }
+    }
+}
@@ -1,34 +1,41 @@
 package cli.utils.clean;
 
+import cli.utils.data.FeatureAttributeTable;
 import javastraw.feature2D.Feature2D;
 import javastraw.feature2D.Feature2DList;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 public class OracleScorer {
+    private static final String[] ORACLE_KEYS = new String[]{"score_oracle_1000", "score_oracle_2000",
+            "score_oracle_5000", "score_oracle_10000"};
+
     public static Feature2DList filter(Feature2DList loopList, boolean beStrict) {
-        loopList.filterLists((chr, feature2DList) -> filterByOracleParams(feature2DList, beStrict));
+        FeatureAttributeTable scores = FeatureAttributeTable.fromAttributes(loopList, Arrays.asList(ORACLE_KEYS));
+        loopList.filterLists((chr, feature2DList) -> filterByOracleParams(feature2DList, scores, beStrict));
         return loopList;
     }
 
-    private static List<Feature2D> filterByOracleParams(List<Feature2D> loops, boolean beStrict) {
+    private static List<Feature2D> filterByOracleParams(List<Feature2D> loops, FeatureAttributeTable scores,
+                                                        boolean beStrict) {
         Set<Feature2D> goodLoops = new HashSet<>();
         for (Feature2D loop : loops) {
-            if (passesOracleCriteria(loop, beStrict)) {
+            if (passesOracleCriteria(loop, scores, beStrict)) {
                 goodLoops.add(loop);
             }
         }
         return new ArrayList<>(goodLoops);
     }
 
-    private static boolean passesOracleCriteria(Feature2D loop, boolean beStrict) {
-        float r1k = Float.parseFloat(loop.getAttribute("score_oracle_1000"));
-        float r2k = Float.parseFloat(loop.getAttribute("score_oracle_2000"));
-        float r5k = Float.parseFloat(loop.getAttribute("score_oracle_5000"));
-        float r10k = Float.parseFloat(loop.getAttribute("score_oracle_10000"));
+    private static boolean passesOracleCriteria(Feature2D loop, FeatureAttributeTable scores, boolean beStrict) {
+        float r1k = scores.get(loop, scores.getId(ORACLE_KEYS[0]), Float.NaN);
+        float r2k = scores.get(loop, scores.getId(ORACLE_KEYS[1]), Float.NaN);
+        float r5k = scores.get(loop, scores.getId(ORACLE_KEYS[2]), Float.NaN);
+        float r10k = scores.get(loop, scores.getId(ORACLE_KEYS[3]), Float.NaN);
 
         int dist = LoopTools.dist(loop);
         if (dist > 1000000) {
@@ -7,7 +7,7 @@ import java.util.List;
 import java.util.Map;
 
 public class ConnectedComponents {
-    public static List<Feature2D> processClique(float[][] adjMatrix, Map<Integer, Node> idToNodeMapping,
+    public static List<Feature2D> processClique(SparseAdjacency adjacency, Map<Integer, Node> idToNodeMapping,
                                                 int index, String chrom, int resolution) {
         List<Feature2D> clique = new ArrayList<>();
         return clique;
@@ -2,40 +2,57 @@ package cli.utils.clique;
 
 import javastraw.tools.ParallelizationTools;
 
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class MatrixUtils {
 
-    public static float[][] cube(float[][] a) {
-        return multiply(a, multiply(a, a));
-    }
-
-    public static float[][] multiply(float[][] a, float[][] b) {
-        int numARows = a.length;
-        int numACols = a[0].length;
-        int numBCols = b[0].length;
-
-        float[][] result = new float[numARows][numBCols];
+    /**
+     * Sparse equivalent of the upper triangle of A^3 > 0: for each node i, the nodes j > i that can be
+     * reached by a walk of exactly three edges (repeated nodes allowed), in ascending order.
+     */
+    public static int[][] getUpperWalksOfLengthThree(SparseAdjacency adjacency) {
+        int n = adjacency.getNumNodes();
+        int[][] result = new int[n][];
         AtomicInteger currRowIndex = new AtomicInteger(0);
         ParallelizationTools.launchParallelizedCode(() -> {
+            int[] seenAtTwo = new int[n];
+            int[] seenAtThree = new int[n];
+            Arrays.fill(seenAtTwo, -1);
+            Arrays.fill(seenAtThree, -1);
+            int[] frontier = new int[n];
+            int[] reached = new int[n];
+
             int i = currRowIndex.getAndIncrement();
-            while (i < numARows) {
-                for (int j = 0; j < numBCols; j++) {
-                    for (int k = 0; k < numACols; k++) {
-                        result[i][j] += a[i][k] * b[k][j];
+            while (i < n) {
+                int numFrontier = 0;
+                for (int a = adjacency.getStart(i); a < adjacency.getEnd(i); a++) {
+                    int k = adjacency.getNeighbor(a);
+                    for (int b = adjacency.getStart(k); b < adjacency.getEnd(k); b++) {
+                        int l = adjacency.getNeighbor(b);
+                        if (seenAtTwo[l] != i) {
+                            seenAtTwo[l] = i;
+                            frontier[numFrontier++] = l;
+                        }
+                    }
+                }
+
+                int numReached = 0;
+                for (int f = 0; f < numFrontier; f++) {
+                    int l = frontier[f];
+                    for (int c = adjacency.getStart(l); c < adjacency.getEnd(l); c++) {
+                        int j = adjacency.getNeighbor(c);
+                        if (j > i && seenAtThree[j] != i) {
+                            seenAtThree[j] = i;
+                            reached[numReached++] = j;
+                        }
                     }
                 }
+                result[i] = Arrays.copyOf(reached, numReached);
+                Arrays.sort(result[i]);
                 i = currRowIndex.getAndIncrement();
             }
         });
         return result;
     }
-
-    public static void setEverythingBelowDiagonalToZero(float[][] matrix) {
-        for (int i = 0; i < matrix.length; i++) {
-            for (int j = 0; j <= i; j++) {
-                matrix[i][j] = 0;
-            }
-        }
-    }
 }
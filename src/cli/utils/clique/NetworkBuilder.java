@@ -7,43 +7,29 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 public class NetworkBuilder {
 
+    /**
+     * groups the sorted positions into nodes; positions in the same or in adjacent bins share a node
+     */
     public static List<Node> getNodes(List<Long> genomePositions, AtomicInteger nodeCount, int resolution) {
         Collections.sort(genomePositions);
-        int maxBin = (int) ((genomePositions.get(genomePositions.size() - 1) / resolution) + 1);
-
-        Map<Integer, List<Long>> counts = buildBinToPositionsMapping(genomePositions, resolution);
-
         List<Node> nodes = new ArrayList<>(genomePositions.size() / 2);
 
         Node current = null;
-        for (int i = 0; i < maxBin; i++) {
-            if (counts.containsKey(i)) {
-                if (current == null) {
-                    current = new Node(nodeCount.getAndIncrement(), i, counts.get(i));
-                    nodes.add(current);
-                } else {
-                    current.add(i, counts.get(i));
-                }
+        int previousBin = -2;
+        for (long position : genomePositions) {
+            int bin = (int) (position / resolution);
+            if (current != null && bin <= previousBin + 1) {
+                current.add(bin, Collections.singletonList(position));
             } else {
-                current = null;
+                current = new Node(nodeCount.getAndIncrement(), bin, Collections.singletonList(position));
+                nodes.add(current);
             }
+            previousBin = bin;
         }
 
         return nodes;
     }
 
-    public static Map<Integer, List<Long>> buildBinToPositionsMapping(List<Long> genomePositions, int resolution) {
-        Map<Integer, List<Long>> mapping = new HashMap<>();
-        for (long val : genomePositions) {
-            int bin = (int) (val / resolution);
-            if (!mapping.containsKey(bin)) {
-                mapping.put(bin, new LinkedList<>());
-            }
-            mapping.get(bin).add(val);
-        }
-        return mapping;
-    }
-
     public static Map<Integer, Node> buildIndexToNodeMapping(List<Node> nodes) {
         Map<Integer, Node> mapping = new HashMap<>();
         for (Node node : nodes) {
@@ -54,23 +40,37 @@ public class NetworkBuilder {
         return mapping;
     }
 
-    public static float[][] buildAdjacencyMatrix(int maxN, List<Feature2D> list,
-                                                 Map<Integer, Node> upStreamBinToNode,
-                                                 Map<Integer, Node> downStreamBinToNode,
-                                                 int resolution) {
-        float[][] matrix = new float[maxN][maxN];
-        for (Feature2D feature : list) {
+    /**
+     * @return for each loop, {upstream node id, downstream node id}, or null if either anchor has no node
+     */
+    public static int[][] getLoopEdges(List<Feature2D> list,
+                                       Map<Integer, Node> upStreamBinToNode,
+                                       Map<Integer, Node> downStreamBinToNode,
+                                       int resolution) {
+        int[][] edges = new int[list.size()][];
+        for (int k = 0; k < list.size(); k++) {
+            Feature2D feature = list.get(k);
             int upStreamBin = (int) (feature.getMidPt1() / resolution);
             int downStreamBin = (int) (feature.getMidPt2() / resolution);
             if (upStreamBinToNode.containsKey(upStreamBin) && downStreamBinToNode.containsKey(downStreamBin)) {
-                int upStreamID = upStreamBinToNode.get(upStreamBin).getId();
-                int downStreamID = downStreamBinToNode.get(downStreamBin).getId();
-                if (upStreamID != downStreamID) {
-                    matrix[upStreamID][downStreamID] = 1;
-                    matrix[downStreamID][upStreamID] = 1;
-                }
+                edges[k] = new int[]{upStreamBinToNode.get(upStreamBin).getId(),
+                        downStreamBinToNode.get(downStreamBin).getId()};
+            }
+        }
+        return edges;
+    }
+
+    public static SparseAdjacency buildAdjacency(int maxN, int[][] loopEdges) {
+        int[] from = new int[loopEdges.length];
+        int[] to = new int[loopEdges.length];
+        int numEdges = 0;
+        for (int[] edge : loopEdges) {
+            if (edge != null) {
+                from[numEdges] = edge[0];
+                to[numEdges] = edge[1];
+                numEdges++;
             }
         }
-        return matrix;
+        return new SparseAdjacency(maxN, from, to, numEdges);
     }
 }
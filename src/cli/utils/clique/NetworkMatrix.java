@@ -8,8 +8,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Anchor graph of a loop list: nodes are runs of adjacent bins holding upstream (or downstream) anchor
+ * midpoints, and each loop is an edge between its upstream and downstream node.
+ */
 public class NetworkMatrix {
-    private final float[][] adjacencyMatrix;
+    private final SparseAdjacency adjacency;
+    private final int[][] loopEdges;
     private final List<Node> upStreamNodes;
     private final List<Node> downStreamNodes;
     private final Map<Integer, Node> idToNode;
@@ -30,8 +35,8 @@ public class NetworkMatrix {
         Map<Integer, Node> upStreamBinToNode = NetworkBuilder.buildIndexToNodeMapping(upStreamNodes);
         Map<Integer, Node> downStreamBinToNode = NetworkBuilder.buildIndexToNodeMapping(downStreamNodes);
 
-        this.adjacencyMatrix = NetworkBuilder.buildAdjacencyMatrix(maxN, loops,
-                upStreamBinToNode, downStreamBinToNode, resolution);
+        this.loopEdges = NetworkBuilder.getLoopEdges(loops, upStreamBinToNode, downStreamBinToNode, resolution);
+        this.adjacency = NetworkBuilder.buildAdjacency(maxN, loopEdges);
 
         this.idToNode = buildIDToNodeMapping(upStreamNodes, downStreamNodes);
 
@@ -48,8 +53,15 @@ public class NetworkMatrix {
         return idToNode;
     }
 
-    public float[][] getAdjMatrix() {
-        return adjacencyMatrix;
+    public SparseAdjacency getAdjacency() {
+        return adjacency;
+    }
+
+    /**
+     * @return for each loop, {upstream node id, downstream node id}, or null if it has no edge
+     */
+    public int[][] getLoopEdges() {
+        return loopEdges;
     }
 
     public Map<Integer, Node> getIDToNodeMapping() {
@@ -1,16 +1,13 @@
 package cli.utils.clique;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 public class SimpleClustering {
     public static List<List<Long>> cluster(List<Long> genomePositions, int resolution) {
         Collections.sort(genomePositions);
         int maxBin = (int) ((genomePositions.get(genomePositions.size() - 1) / resolution) + 1);
 
-        Map<Integer, List<Long>> counts = NetworkBuilder.buildBinToPositionsMapping(genomePositions, resolution);
+        Map<Integer, List<Long>> counts = buildBinToPositionsMapping(genomePositions, resolution);
 
         List<List<Long>> nodes = new ArrayList<>(genomePositions.size() / 2);
 
@@ -30,4 +27,16 @@ public class SimpleClustering {
 
         return nodes;
     }
+
+    private static Map<Integer, List<Long>> buildBinToPositionsMapping(List<Long> genomePositions, int resolution) {
+        Map<Integer, List<Long>> mapping = new HashMap<>();
+        for (long val : genomePositions) {
+            int bin = (int) (val / resolution);
+            if (!mapping.containsKey(bin)) {
+                mapping.put(bin, new LinkedList<>());
+            }
+            mapping.get(bin).add(val);
+        }
+        return mapping;
+    }
 }
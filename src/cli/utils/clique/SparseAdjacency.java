@@ -0,0 +1,75 @@
+package cli.utils.clique;
+
+import java.util.Arrays;
+
+/**
+ * Undirected graph in compressed sparse row (CSR) form.
+ * The neighbors of node i are neighbors[rowStarts[i]] ... neighbors[rowStarts[i + 1] - 1], sorted and without repeats.
+ */
+public class SparseAdjacency {
+
+    private final int numNodes;
+    private final int[] rowStarts;
+    private final int[] neighbors;
+
+    /**
+     * @param from     one end of each edge
+     * @param to       the other end of each edge; self edges are skipped
+     * @param numEdges number of entries of from and to that are used
+     */
+    public SparseAdjacency(int numNodes, int[] from, int[] to, int numEdges) {
+        this.numNodes = numNodes;
+        int[] degrees = new int[numNodes + 1];
+        for (int e = 0; e < numEdges; e++) {
+            if (from[e] != to[e]) {
+                degrees[from[e] + 1]++;
+                degrees[to[e] + 1]++;
+            }
+        }
+        for (int i = 0; i < numNodes; i++) {
+            degrees[i + 1] += degrees[i];
+        }
+
+        int[] next = Arrays.copyOf(degrees, numNodes);
+        int[] all = new int[degrees[numNodes]];
+        for (int e = 0; e < numEdges; e++) {
+            if (from[e] != to[e]) {
+                all[next[from[e]]++] = to[e];
+                all[next[to[e]]++] = from[e];
+            }
+        }
+
+        rowStarts = new int[numNodes + 1];
+        int size = 0;
+        for (int i = 0; i < numNodes; i++) {
+            Arrays.sort(all, degrees[i], degrees[i + 1]);
+            for (int k = degrees[i]; k < degrees[i + 1]; k++) {
+                if (k == degrees[i] || all[k] != all[k - 1]) {
+                    all[size++] = all[k];
+                }
+            }
+            rowStarts[i + 1] = size;
+        }
+        neighbors = Arrays.copyOf(all, size);
+    }
+
+    public int getNumNodes() {
+        return numNodes;
+    }
+
+    public int getStart(int node) {
+        return rowStarts[node];
+    }
+
+    public int getEnd(int node) {
+        return rowStarts[node + 1];
+    }
+
+    public int getNeighbor(int k) {
+        return neighbors[k];
+    }
+
+    public boolean hasNeighbors(int node) {
+        return rowStarts[node + 1] > rowStarts[node];
+    }
+}
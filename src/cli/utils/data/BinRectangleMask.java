@@ -0,0 +1,66 @@
+package cli.utils.data;
+
+import java.util.BitSet;
+
+/**
+ * Membership test for a union of inclusive bin rectangles.
+ * Rows are kept in a bitset, and each row points to the column intervals that cover it (CSR layout).
+ */
+public class BinRectangleMask {
+
+    private final BitSet rows = new BitSet();
+    private final int minRow;
+    private final int[] rowOffsets;
+    private final int[] colStarts;
+    private final int[] colEnds;
+
+    /**
+     * @param bounds rectangles as {rowStart, rowEnd, colStart, colEnd}, all inclusive
+     */
+    public BinRectangleMask(int[][] bounds) {
+        int min = Integer.MAX_VALUE;
+        int max = -1;
+        for (int[] rect : bounds) {
+            int r0 = Math.max(rect[0], 0);
+            if (rect[1] >= r0) {
+                min = Math.min(min, r0);
+                max = Math.max(max, rect[1]);
+                rows.set(r0, rect[1] + 1);
+            }
+        }
+        minRow = Math.max(min, 0);
+        int numRows = Math.max(max - minRow + 1, 0);
+
+        rowOffsets = new int[numRows + 1];
+        for (int[] rect : bounds) {
+            for (int r = Math.max(rect[0], 0); r <= rect[1]; r++) {
+                rowOffsets[r - minRow + 1]++;
+            }
+        }
+        for (int r = 0; r < numRows; r++) {
+            rowOffsets[r + 1] += rowOffsets[r];
+        }
+
+        colStarts = new int[rowOffsets[numRows]];
+        colEnds = new int[rowOffsets[numRows]];
+        int[] fill = new int[numRows];
+        for (int[] rect : bounds) {
+            for (int r = Math.max(rect[0], 0); r <= rect[1]; r++) {
+                int index = rowOffsets[r - minRow] + fill[r - minRow]++;
+                colStarts[index] = rect[2];
+                colEnds[index] = rect[3];
+            }
+        }
+    }
+
+    public boolean contains(int row, int col) {
+        if (row < 0 || !rows.get(row)) return false;
+        int r = row - minRow;
+        for (int k = rowOffsets[r]; k < rowOffsets[r + 1]; k++) {
+            if (col >= colStarts[k] && col <= colEnds[k]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,118 @@
+package cli.utils.data;
+
+import javastraw.feature2D.Feature2D;
+import javastraw.feature2D.Feature2DList;
+
+import java.util.*;
+
+/**
+ * Float attributes for every feature of a list, stored as one column per attribute id.
+ * Scores are kept as primitives while a command runs and only formatted as string attributes
+ * when writeAttributes() is called right before export.
+ * Columns must be registered before values are set from several threads; distinct rows can be set concurrently.
+ */
+public class FeatureAttributeTable {
+
+    private final Map<Feature2D, Integer> rows = new IdentityHashMap<>();
+    private final Feature2D[] features;
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<float[]> values = new ArrayList<>();
+    private final List<boolean[]> isSet = new ArrayList<>();
+
+    public FeatureAttributeTable(Feature2DList featureList) {
+        List<Feature2D> all = new ArrayList<>();
+        featureList.processLists((key, list) -> all.addAll(list));
+        features = all.toArray(new Feature2D[0]);
+        for (int r = 0; r < features.length; r++) {
+            rows.put(features[r], r);
+        }
+    }
+
+    /**
+     * Builds a table from the existing string attributes; each value is parsed once.
+     * Values that are missing or cannot be parsed are left unset.
+     */
+    public static FeatureAttributeTable fromAttributes(Feature2DList featureList, Collection<String> keys) {
+        FeatureAttributeTable table = new FeatureAttributeTable(featureList);
+        for (String key : keys) {
+            int id = table.register(key);
+            for (int r = 0; r < table.features.length; r++) {
+                Feature2D feature = table.features[r];
+                if (feature.hasAttributeKey(key)) {
+                    try {
+                        table.set(r, id, Float.parseFloat(feature.getAttribute(key)));
+                    } catch (Exception ignored) {
+                    }
+                }
+            }
+        }
+        return table;
+    }
+
+    public synchronized int register(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            ids.put(name, id);
+            float[] column = new float[features.length];
+            Arrays.fill(column, Float.NaN);
+            values.add(column);
+            isSet.add(new boolean[features.length]);
+        }
+        return id;
+    }
+
+    /**
+     * @return the attribute id, or -1 if no column with this name exists
+     */
+    public int getId(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public int getRow(Feature2D feature) {
+        Integer row = rows.get(feature);
+        return row == null ? -1 : row;
+    }
+
+    public void set(Feature2D feature, int id, float value) {
+        set(getRow(feature), id, value);
+    }
+
+    private void set(int row, int id, float value) {
+        values.get(id)[row] = value;
+        isSet.get(id)[row] = true;
+    }
+
+    public boolean has(Feature2D feature, int id) {
+        int row = getRow(feature);
+        return id > -1 && row > -1 && isSet.get(id)[row];
+    }
+
+    public float get(Feature2D feature, int id, float defaultValue) {
+        int row = getRow(feature);
+        if (id > -1 && row > -1 && isSet.get(id)[row]) {
+            return values.get(id)[row];
+        }
+        return defaultValue;
+    }
+
+    public int getNumFeatures() {
+        return features.length;
+    }
+
+    public void writeAttributes() {
+        for (int id = 0; id < names.size(); id++) {
+            String name = names.get(id);
+            float[] column = values.get(id);
+            boolean[] present = isSet.get(id);
+            for (int r = 0; r < features.length; r++) {
+                if (present[r]) {
+                    features[r].addStringAttribute(name, "" + column[r]);
+                }
+            }
+        }
+    }
+}
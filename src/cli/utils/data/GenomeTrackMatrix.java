@@ -0,0 +1,293 @@
+package cli.utils.data;
+
+import javastraw.reader.basics.Chromosome;
+import javastraw.reader.basics.ChromosomeHandler;
+import javastraw.tools.ParallelizationTools;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Binned genome tracks, each concatenated over all chromosomes into one contiguous float array
+ * (a column-major bins x tracks matrix), with a bitmask of the nonzero bins of every track.
+ * <p>
+ * Correlations follow the bedgraph-corr rule: a bin counts for a pair of tracks unless both values are
+ * zero (|v| < 1e-10), and a chromosome only counts if both tracks have it. Sums and sums of squares are
+ * kept per track and chromosome; only cross products and overlap counts are computed per pair, for a
+ * tile of track pairs at a time over each chunk of bins.
+ * <p>
+ * For Pearson, every track is shifted by the mean of its nonzero values before any sums are taken, and the
+ * pair's moments are combined from the shifted sums, so tracks with a large mean relative to their spread
+ * do not lose precision to cancellation.
+ */
+public class GenomeTrackMatrix {
+
+    private static final double ZERO = 1e-10;
+    private static final int TILE = 16;
+    private static final int CHUNK_WORDS = 64;
+
+    private final ChromosomeHandler handler;
+    private final Map<String, Integer> positions = new HashMap<>();
+    private final int[] chromOffsets;
+    private final int numBins, numWords;
+    private final float[][] tracks;
+    private final long[][] masks;
+    private final boolean[][] hasChromosome;
+    private final int[][] counts;
+    private final double[][] sumSquares;
+    private final double[] shifts;
+    private final double[][] shiftedSums, shiftedSumSquares;
+
+    public GenomeTrackMatrix(ChromosomeHandler handler, int resolution, int numTracks) {
+        this.handler = handler;
+        Chromosome[] chromosomes = handler.getChromosomeArrayWithoutAllByAll();
+        chromOffsets = new int[chromosomes.length + 1];
+        long total = 0;
+        for (int c = 0; c < chromosomes.length; c++) {
+            positions.put(chromosomes[c].getName(), c);
+            chromOffsets[c] = (int) total;
+            total += chromosomes[c].getLength() / resolution + 1;
+            if (total > Integer.MAX_VALUE - 64) {
+                throw new IllegalArgumentException("Too many bins for a genome track at resolution " + resolution);
+            }
+        }
+        chromOffsets[chromosomes.length] = (int) total;
+        numBins = (int) total;
+        numWords = (numBins + 63) / 64;
+
+        tracks = new float[numTracks][];
+        masks = new long[numTracks][];
+        hasChromosome = new boolean[numTracks][chromosomes.length];
+        counts = new int[numTracks][chromosomes.length];
+        sumSquares = new double[numTracks][chromosomes.length];
+        shifts = new double[numTracks];
+        shiftedSums = new double[numTracks][chromosomes.length];
+        shiftedSumSquares = new double[numTracks][chromosomes.length];
+    }
+
+    /**
+     * copies the nonzero values of a track, keyed by chromosome name; values below 1e-10 are stored as 0
+     */
+    public void addTrack(int track, Map<String, float[]> values) {
+        float[] data = new float[numBins];
+        long[] mask = new long[numWords];
+        double sum = 0;
+        long count = 0;
+        for (Map.Entry<String, float[]> entry : values.entrySet()) {
+            Chromosome chrom = handler.getChromosomeFromName(entry.getKey());
+            Integer c = chrom == null ? null : positions.get(chrom.getName());
+            if (c == null || entry.getValue() == null) continue;
+
+            hasChromosome[track][c] = true;
+            float[] chromValues = entry.getValue();
+            int offset = chromOffsets[c];
+            int length = Math.min(chromValues.length, chromOffsets[c + 1] - offset);
+            for (int i = 0; i < length; i++) {
+                float value = chromValues[i];
+                if (!(Math.abs(value) < ZERO)) {
+                    int bin = offset + i;
+                    data[bin] = value;
+                    mask[bin >> 6] |= 1L << bin;
+                    counts[track][c]++;
+                    sumSquares[track][c] += value * value;
+                    sum += value;
+                    count++;
+                }
+            }
+        }
+        tracks[track] = data;
+        masks[track] = mask;
+
+        double shift = count > 0 ? sum / count : 0;
+        shifts[track] = shift;
+        for (int c = 0; c < chromOffsets.length - 1; c++) {
+            for (int bin = chromOffsets[c]; bin < chromOffsets[c + 1]; bin++) {
+                if ((mask[bin >> 6] & (1L << bin)) != 0) {
+                    double delta = data[bin] - shift;
+                    shiftedSums[track][c] += delta;
+                    shiftedSumSquares[track][c] += delta * delta;
+                }
+            }
+        }
+    }
+
+    public int getNumTracks() {
+        return tracks.length;
+    }
+
+    /**
+     * all-pairs Pearson correlation (or cosine similarity), with 1 on the diagonal
+     */
+    public double[][] getCorrelations(boolean useCosine) {
+        int n = tracks.length;
+        double[] trackShifts = useCosine ? new double[n] : shifts;
+        double[][] dots = new double[n][n];
+        double[][] rowSums = new double[n][n];
+        double[][] colSums = new double[n][n];
+        long[][] overlaps = new long[n][n];
+
+        int numTiles = (n + TILE - 1) / TILE;
+        int numTilePairs = numTiles * (numTiles + 1) / 2;
+        AtomicInteger index = new AtomicInteger(0);
+        ParallelizationTools.launchParallelizedCode(() -> {
+            int k = index.getAndIncrement();
+            while (k < numTilePairs) {
+                int rowTile = 0;
+                int colTile = k;
+                while (colTile >= numTiles - rowTile) {
+                    colTile -= numTiles - rowTile;
+                    rowTile++;
+                }
+                addTilePair(rowTile * TILE, (rowTile + colTile) * TILE, useCosine, trackShifts, dots, rowSums, colSums,
+                        overlaps);
+                k = index.getAndIncrement();
+            }
+        });
+
+        double[][] result = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            result[i][i] = 1;
+            for (int j = i + 1; j < n; j++) {
+                if (useCosine) {
+                    result[i][j] = getCosineSimilarity(i, j, dots[i][j]);
+                } else {
+                    result[i][j] = getPearsonCorrelation(i, j, dots[i][j], rowSums[i][j], colSums[i][j],
+                            overlaps[i][j]);
+                }
+                result[j][i] = result[i][j];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * for tracks i in [rowStart, rowStart + TILE) and j in [colStart, colStart + TILE) with i < j, sums
+     * over the bins where both are nonzero of (x - shift_i)(y - shift_j), x - shift_i and y - shift_j, and
+     * the number of such bins; one chunk of bins at a time so both tiles stay in cache. For cosine the
+     * shifts are 0 and each product x * y is taken in float, as bedgraph-corr always has.
+     */
+    private void addTilePair(int rowStart, int colStart, boolean useCosine, double[] trackShifts, double[][] dots,
+                             double[][] rowSums, double[][] colSums, long[][] overlaps) {
+        int rowEnd = Math.min(rowStart + TILE, tracks.length);
+        int colEnd = Math.min(colStart + TILE, tracks.length);
+        double[][] tileDots = new double[TILE][TILE];
+        double[][] tileRowSums = new double[TILE][TILE];
+        double[][] tileColSums = new double[TILE][TILE];
+        long[][] tileOverlaps = new long[TILE][TILE];
+
+        for (int w0 = 0; w0 < numWords; w0 += CHUNK_WORDS) {
+            int w1 = Math.min(w0 + CHUNK_WORDS, numWords);
+            for (int i = rowStart; i < rowEnd; i++) {
+                float[] x = tracks[i];
+                long[] maskX = masks[i];
+                double shiftX = trackShifts[i];
+                for (int j = Math.max(colStart, i + 1); j < colEnd; j++) {
+                    float[] y = tracks[j];
+                    long[] maskY = masks[j];
+                    double shiftY = trackShifts[j];
+                    double dot = 0, sumX = 0, sumY = 0;
+                    long overlap = 0;
+                    for (int w = w0; w < w1; w++) {
+                        long both = maskX[w] & maskY[w];
+                        if (both == -1L) {
+                            overlap += 64;
+                            int start = w << 6;
+                            for (int bin = start; bin < start + 64; bin++) {
+                                if (useCosine) {
+                                    dot += x[bin] * y[bin];
+                                    continue;
+                                }
+                                double dx = x[bin] - shiftX;
+                                double dy = y[bin] - shiftY;
+                                dot += dx * dy;
+                                sumX += dx;
+                                sumY += dy;
+                            }
+                        } else if (both != 0) {
+                            overlap += Long.bitCount(both);
+                            int start = w << 6;
+                            while (both != 0) {
+                                int bin = start + Long.numberOfTrailingZeros(both);
+                                both &= both - 1;
+                                if (useCosine) {
+                                    dot += x[bin] * y[bin];
+                                    continue;
+                                }
+                                double dx = x[bin] - shiftX;
+                                double dy = y[bin] - shiftY;
+                                dot += dx * dy;
+                                sumX += dx;
+                                sumY += dy;
+                            }
+                        }
+                    }
+                    tileDots[i - rowStart][j - colStart] += dot;
+                    tileRowSums[i - rowStart][j - colStart] += sumX;
+                    tileColSums[i - rowStart][j - colStart] += sumY;
+                    tileOverlaps[i - rowStart][j - colStart] += overlap;
+                }
+            }
+        }
+
+        for (int i = rowStart; i < rowEnd; i++) {
+            for (int j = Math.max(colStart, i + 1); j < colEnd; j++) {
+                dots[i][j] = tileDots[i - rowStart][j - colStart];
+                rowSums[i][j] = tileRowSums[i - rowStart][j - colStart];
+                colSums[i][j] = tileColSums[i - rowStart][j - colStart];
+                overlaps[i][j] = tileOverlaps[i - rowStart][j - colStart];
+            }
+        }
+    }
+
+    private double getCosineSimilarity(int i, int j, double dot) {
+        double normX = 0, normY = 0;
+        for (int c = 0; c < chromOffsets.length - 1; c++) {
+            if (hasChromosome[i][c] && hasChromosome[j][c]) {
+                normX += sumSquares[i][c];
+                normY += sumSquares[j][c];
+            }
+        }
+        return dot / Math.sqrt(normX * normY);
+    }
+
+    /**
+     * Moments over the pair's bins of the shifted values x - a and y - b. On bins where only one track is
+     * nonzero the other contributes 0 - shift, so with S = sums over each track's own nonzero bins and
+     * P, Qx, Qy = sums over the shared bins:
+     * sum (x - a) = Sx - (nY - overlap) * a, sum (x - a)^2 = Sxx + (nY - overlap) * a^2,
+     * sum (x - a)(y - b) = P - b * (Sx - Qx) - a * (Sy - Qy).
+     */
+    private double getPearsonCorrelation(int i, int j, double sharedDot, double sharedSumX, double sharedSumY,
+                                         long overlap) {
+        long countX = 0, countY = 0;
+        double sumX = 0, sumY = 0, sumSqX = 0, sumSqY = 0;
+        for (int c = 0; c < chromOffsets.length - 1; c++) {
+            if (hasChromosome[i][c] && hasChromosome[j][c]) {
+                countX += counts[i][c];
+                countY += counts[j][c];
+                sumX += shiftedSums[i][c];
+                sumY += shiftedSums[j][c];
+                sumSqX += shiftedSumSquares[i][c];
+                sumSqY += shiftedSumSquares[j][c];
+            }
+        }
+
+        double a = shifts[i];
+        double b = shifts[j];
+        long onlyY = countY - overlap;
+        long onlyX = countX - overlap;
+        double count = countX + countY - overlap;
+
+        double totalX = sumX - onlyY * a;
+        double totalY = sumY - onlyX * b;
+        double totalSqX = sumSqX + onlyY * a * a;
+        double totalSqY = sumSqY + onlyX * b * b;
+        double dot = sharedDot - b * (sumX - sharedSumX) - a * (sumY - sharedSumY);
+
+        double covariance = dot - totalX * totalY / count;
+        double varX = totalSqX - totalX * totalX / count;
+        double varY = totalSqY - totalY * totalY / count;
+        return covariance / Math.sqrt(varX * varY);
+    }
+}
@@ -0,0 +1,168 @@
+package cli.utils.data;
+
+import javastraw.feature2D.Feature2D;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Spatial index over the APA windows of several loop lists at once.
+ * Windows are stored in flat arrays and bucketed on a square grid at least as wide as a window,
+ * so each window lands in at most four buckets; the buckets are kept in CSR form behind a small
+ * open-addressing table. Queries write the ids of matching windows into a caller-supplied buffer.
+ */
+public class LoopBucketIndex {
+
+    private static final long EMPTY = -1L;
+
+    private final int matrixWidth;
+    private final int shift;
+    private final int[] xStarts;
+    private final int[] yStarts;
+    private final int[] listIndices;
+    private final BitSet allRows = new BitSet();
+    private final BitSet allCols = new BitSet();
+
+    private final long[] bucketKeys;
+    private final int[] bucketOffsets;
+    private final int[] bucketSizes;
+    private final int[] bucketWindows;
+    private final int mask;
+    private int maxBucketSize = 0;
+
+    public LoopBucketIndex(List<List<Feature2D>> allLoops, int resolution, int window, int matrixWidth) {
+        this.matrixWidth = matrixWidth;
+        this.shift = 32 - Integer.numberOfLeadingZeros(Math.max(matrixWidth, 2) - 1);
+
+        int numWindows = 0;
+        for (List<Feature2D> loops : allLoops) {
+            if (loops != null) numWindows += loops.size();
+        }
+        xStarts = new int[numWindows];
+        yStarts = new int[numWindows];
+        listIndices = new int[numWindows];
+
+        int w = 0;
+        for (int i = 0; i < allLoops.size(); i++) {
+            List<Feature2D> loops = allLoops.get(i);
+            if (loops == null) continue;
+            for (Feature2D loop : loops) {
+                xStarts[w] = Math.max(0, (int) ((loop.getMidPt1() / resolution) - window));
+                yStarts[w] = Math.max(0, (int) ((loop.getMidPt2() / resolution) - window));
+                listIndices[w] = i;
+                allRows.set(xStarts[w], xStarts[w] + matrixWidth);
+                allCols.set(yStarts[w], yStarts[w] + matrixWidth);
+                w++;
+            }
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(16, numWindows * 8 - 1)) << 1;
+        bucketKeys = new long[capacity];
+        Arrays.fill(bucketKeys, EMPTY);
+        bucketOffsets = new int[capacity];
+        bucketSizes = new int[capacity];
+        mask = capacity - 1;
+
+        // first pass counts windows per bucket, second pass fills the CSR array
+        int total = 0;
+        for (int k = 0; k < numWindows; k++) {
+            total += forEachBucket(k, true);
+        }
+        int offset = 0;
+        for (int s = 0; s < capacity; s++) {
+            if (bucketKeys[s] != EMPTY) {
+                bucketOffsets[s] = offset;
+                offset += bucketSizes[s];
+                maxBucketSize = Math.max(maxBucketSize, bucketSizes[s]);
+                bucketSizes[s] = 0;
+            }
+        }
+        bucketWindows = new int[total];
+        for (int k = 0; k < numWindows; k++) {
+            forEachBucket(k, false);
+        }
+    }
+
+    private int forEachBucket(int k, boolean counting) {
+        int bx0 = xStarts[k] >> shift;
+        int bx1 = (xStarts[k] + matrixWidth - 1) >> shift;
+        int by0 = yStarts[k] >> shift;
+        int by1 = (yStarts[k] + matrixWidth - 1) >> shift;
+        int num = 0;
+        for (int bx = bx0; bx <= bx1; bx++) {
+            for (int by = by0; by <= by1; by++) {
+                int slot = slotFor(PackedContactStore.pack(bx, by));
+                if (counting) {
+                    bucketKeys[slot] = PackedContactStore.pack(bx, by);
+                } else {
+                    bucketWindows[bucketOffsets[slot] + bucketSizes[slot]] = k;
+                }
+                bucketSizes[slot]++;
+                num++;
+            }
+        }
+        return num;
+    }
+
+    private int slotFor(long key) {
+        int row = (int) (key >>> 32);
+        int slot = (row * 0x9E3779B9 + (int) key * 0x85EBCA6B) & mask;
+        while (bucketKeys[slot] != EMPTY && bucketKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Cheap rejection test; false means no window contains this pixel
+     */
+    public boolean probablyContains(int binX, int binY) {
+        return binX >= 0 && binY >= 0 && allRows.get(binX) && allCols.get(binY);
+    }
+
+    /**
+     * @return the buffer size needed for getHits
+     */
+    public int getMaxHits() {
+        return Math.max(1, maxBucketSize);
+    }
+
+    /**
+     * Writes the ids of all windows containing (binX, binY) into hits
+     *
+     * @return number of ids written
+     */
+    public int getHits(int binX, int binY, int[] hits) {
+        if (binX < 0 || binY < 0) return 0;
+        int slot = slotFor(PackedContactStore.pack(binX >> shift, binY >> shift));
+        if (bucketKeys[slot] == EMPTY) return 0;
+        int n = 0;
+        int end = bucketOffsets[slot] + bucketSizes[slot];
+        for (int p = bucketOffsets[slot]; p < end; p++) {
+            int k = bucketWindows[p];
+            int relX = binX - xStarts[k];
+            int relY = binY - yStarts[k];
+            if (relX >= 0 && relX < matrixWidth && relY >= 0 && relY < matrixWidth) {
+                hits[n++] = k;
+            }
+        }
+        return n;
+    }
+
+    public int getListIndex(int windowId) {
+        return listIndices[windowId];
+    }
+
+    public int getBinXStart(int windowId) {
+        return xStarts[windowId];
+    }
+
+    public int getBinYStart(int windowId) {
+        return yStarts[windowId];
+    }
+
+    public int getNumWindows() {
+        return xStarts.length;
+    }
+}
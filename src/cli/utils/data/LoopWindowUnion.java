@@ -0,0 +1,84 @@
+package cli.utils.data;
+
+import javastraw.reader.block.Block;
+import javastraw.reader.block.ContactRecord;
+import javastraw.reader.mzd.MatrixZoomData;
+import javastraw.reader.type.NormalizationType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Union of (possibly overlapping) loop windows on one chromosome pair.
+ * The windows are covered by disjoint query regions: rows are cut into bands of BAND_HEIGHT bins, and
+ * within a band, windows whose columns are within BAND_HEIGHT bins of each other share a region.
+ * Each region is read from a dataset once, so a pixel shared by several windows is read and added once.
+ */
+public class LoopWindowUnion {
+
+    private static final int BAND_HEIGHT = 1000;
+
+    private final BinRectangleMask mask;
+    private final List<int[]> regions = new ArrayList<>();
+
+    /**
+     * @param bounds windows as {rowStart, rowEnd, colStart, colEnd}, all inclusive
+     */
+    public LoopWindowUnion(int[][] bounds) {
+        mask = new BinRectangleMask(bounds);
+
+        // one entry per (band, window): {band, colStart, colEnd, rowStart, rowEnd}, rows clipped to the band
+        List<int[]> pieces = new ArrayList<>();
+        for (int[] rect : bounds) {
+            int r0 = Math.max(rect[0], 0);
+            int c0 = Math.max(rect[2], 0);
+            if (rect[1] < r0 || rect[3] < c0) continue;
+            for (int band = r0 / BAND_HEIGHT; band <= rect[1] / BAND_HEIGHT; band++) {
+                pieces.add(new int[]{band, c0, rect[3],
+                        Math.max(r0, band * BAND_HEIGHT), Math.min(rect[1], (band + 1) * BAND_HEIGHT - 1)});
+            }
+        }
+        pieces.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+
+        int[] current = null;
+        int currentBand = -1;
+        for (int[] piece : pieces) {
+            if (current != null && piece[0] == currentBand && piece[1] <= current[3] + BAND_HEIGHT) {
+                current[0] = Math.min(current[0], piece[3]);
+                current[1] = Math.max(current[1], piece[4]);
+                current[3] = Math.max(current[3], piece[2]);
+            } else {
+                current = new int[]{piece[3], piece[4], piece[1], piece[2]};
+                currentBand = piece[0];
+                regions.add(current);
+            }
+        }
+    }
+
+    public int getNumRegions() {
+        return regions.size();
+    }
+
+    /**
+     * adds every positive contact of zd inside the union of windows to the store
+     */
+    public void addTo(PackedContactStore store, MatrixZoomData zd, NormalizationType norm) {
+        for (int[] region : regions) {
+            List<Block> blocks = zd.getNormalizedBlocksOverlapping(region[0], region[2],
+                    region[1] + 1, region[3] + 1, norm, false);
+            if (blocks == null) continue;
+            for (Block b : blocks) {
+                if (b == null) continue;
+                for (ContactRecord rec : b.getContactRecords()) {
+                    int x = rec.getBinX();
+                    int y = rec.getBinY();
+                    if (rec.getCounts() > 0 && x >= region[0] && x <= region[1]
+                            && y >= region[2] && y <= region[3] && mask.contains(x, y)) {
+                        store.add(x, y, rec.getCounts());
+                    }
+                }
+            }
+            blocks.clear();
+        }
+    }
+}
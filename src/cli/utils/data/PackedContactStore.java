@@ -0,0 +1,193 @@
+package cli.utils.data;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from (binX, binY) to a float count.
+ * Keys are packed into a single long (binX << 32 | binY), so no Integer or ContactRecord objects are created.
+ * Bins are assumed to be non-negative.
+ */
+public class PackedContactStore {
+
+    private static final long EMPTY = -1L;
+    private static final int MIN_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private long[] keys;
+    private float[] values;
+    private int mask;
+    private int size = 0;
+
+    public PackedContactStore() {
+        this(MIN_CAPACITY);
+    }
+
+    public PackedContactStore(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        long needed = Math.max(MIN_CAPACITY, (long) Math.ceil(expectedSize / 0.75));
+        int capacity = Integer.highestOneBit((int) Math.min(needed, MAX_CAPACITY));
+        return capacity < needed && capacity < MAX_CAPACITY ? capacity << 1 : capacity;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new float[capacity];
+        mask = capacity - 1;
+    }
+
+    public static long pack(int binX, int binY) {
+        return ((long) binX << 32) | (binY & 0xFFFFFFFFL);
+    }
+
+    // rows are scattered, but neighbouring columns of a row land in neighbouring slots,
+    // so reading a local window stays mostly within a few cache lines
+    private static int hash(long key) {
+        int row = (int) (key >>> 32);
+        return row * 0x9E3779B9 + (int) key;
+    }
+
+    private int indexOf(long key) {
+        int index = hash(key) & mask;
+        while (keys[index] != EMPTY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    public void put(int binX, int binY, float value) {
+        long key = pack(binX, binY);
+        int index = indexOf(key);
+        if (keys[index] == EMPTY) {
+            keys[index] = key;
+            size++;
+        }
+        values[index] = value;
+        if (size * 4L > keys.length * 3L) {
+            grow();
+        }
+    }
+
+    public void add(int binX, int binY, float value) {
+        long key = pack(binX, binY);
+        int index = indexOf(key);
+        if (keys[index] == EMPTY) {
+            keys[index] = key;
+            values[index] = value;
+            size++;
+            if (size * 4L > keys.length * 3L) {
+                grow();
+            }
+        } else {
+            values[index] += value;
+        }
+    }
+
+    /**
+     * @return the packed keys in row-major order, i.e. sorted by binX and then binY
+     */
+    public long[] getSortedKeys() {
+        long[] sorted = new long[size];
+        int k = 0;
+        for (long key : keys) {
+            if (key != EMPTY) {
+                sorted[k++] = key;
+            }
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    public static int getBinX(long key) {
+        return (int) (key >>> 32);
+    }
+
+    public static int getBinY(long key) {
+        return (int) key;
+    }
+
+    public float get(int binX, int binY) {
+        if (binX < 0 || binY < 0) return 0;
+        int index = indexOf(pack(binX, binY));
+        return keys[index] == EMPTY ? 0 : values[index];
+    }
+
+    public boolean contains(int binX, int binY) {
+        if (binX < 0 || binY < 0) return false;
+        return keys[indexOf(pack(binX, binY))] != EMPTY;
+    }
+
+    /**
+     * doubles the table; at the largest power-of-two array size the table keeps filling past the
+     * load factor instead, and fails once a single free slot is left (probing needs one to stop)
+     */
+    private void grow() {
+        if (keys.length < MAX_CAPACITY) {
+            rehash(keys.length << 1);
+        } else if (size >= keys.length - 1) {
+            throw new IllegalStateException("PackedContactStore cannot hold more than " + (keys.length - 1) +
+                    " contacts");
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        float[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getMemoryInBytes() {
+        return (long) keys.length * (Long.BYTES + Float.BYTES);
+    }
+
+    public void clear() {
+        size = 0;
+        allocate(MIN_CAPACITY);
+    }
+
+    public float[][] getRegion(int binXStart, int binYStart, int binXEnd, int binYEnd) {
+        int numRows = binXEnd - binXStart;
+        int numCols = binYEnd - binYStart;
+        float[][] matrix = new float[numRows][numCols];
+        for (int i = 0; i < numRows; i++) {
+            for (int j = 0; j < numCols; j++) {
+                matrix[i][j] = get(i + binXStart, j + binYStart);
+            }
+        }
+        return matrix;
+    }
+
+    public void addLocalBoundedRegion(float[][] output, int binXStart, int binYStart, int matrixWidth) {
+        for (int r = 0; r < matrixWidth; r++) {
+            for (int c = 0; c < matrixWidth; c++) {
+                output[r][c] += get(r + binXStart, c + binYStart);
+            }
+        }
+    }
+
+    /**
+     * same as above, for a row-major matrixWidth x matrixWidth block of output starting at offset
+     */
+    public void addLocalBoundedRegion(float[] output, int offset, int binXStart, int binYStart, int matrixWidth) {
+        for (int r = 0; r < matrixWidth; r++) {
+            int rowOffset = offset + r * matrixWidth;
+            for (int c = 0; c < matrixWidth; c++) {
+                output[rowOffset + c] += get(r + binXStart, c + binYStart);
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package cli.utils.data;
+
+import javastraw.tools.ParallelizationTools;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compressed sparse row (CSR) storage of (binX, binY) -> (count, oe) for rows [0, numRows).
+ * Columns within a row are sorted, so a run of consecutive columns is a binary search followed by a
+ * contiguous scan. Missing entries read as count 0 and oe 1.
+ */
+public class RowSortedContactMatrix {
+
+    private final int numRows;
+    private int[] rowStarts;
+    private int[] cols;
+    private float[] counts;
+    private float[] oes;
+
+    private RowSortedContactMatrix(int numRows, int[] rowStarts, int[] cols, float[] counts, float[] oes) {
+        this.numRows = numRows;
+        this.rowStarts = rowStarts;
+        this.cols = cols;
+        this.counts = counts;
+        this.oes = oes;
+    }
+
+    public int getNumRows() {
+        return numRows;
+    }
+
+    public int getNumEntries() {
+        return rowStarts[numRows];
+    }
+
+    public float getCount(int binX, int binY) {
+        int k = find(binX, binY);
+        return k < 0 ? 0 : counts[k];
+    }
+
+    public float getOE(int binX, int binY) {
+        int k = find(binX, binY);
+        return k < 0 ? 1 : oes[k];
+    }
+
+    private int find(int binX, int binY) {
+        if (binX < 0 || binX >= numRows) return -1;
+        int k = Arrays.binarySearch(cols, rowStarts[binX], rowStarts[binX + 1], binY);
+        return k < 0 ? -1 : k;
+    }
+
+    /**
+     * fills countsOut[j] and oesOut[j] with the entry at (binX, colStart + j); either output may be null
+     */
+    public void fillRow(int binX, int colStart, float[] countsOut, float[] oesOut) {
+        int length = countsOut != null ? countsOut.length : oesOut.length;
+        if (countsOut != null) Arrays.fill(countsOut, 0);
+        if (oesOut != null) Arrays.fill(oesOut, 1);
+        if (binX < 0 || binX >= numRows) return;
+
+        int end = rowStarts[binX + 1];
+        for (int k = lowerBound(binX, colStart); k < end && cols[k] < colStart + length; k++) {
+            int j = cols[k] - colStart;
+            if (countsOut != null) countsOut[j] = counts[k];
+            if (oesOut != null) oesOut[j] = oes[k];
+        }
+    }
+
+    /**
+     * fills countsOut[c][i] and oesOut[c][i] with the entry at (rowStart + i, colStart + c),
+     * i.e. a few adjacent columns read down a run of rows; either output may be null
+     */
+    public void fillColumns(int rowStart, int colStart, float[][] countsOut, float[][] oesOut) {
+        float[][] reference = countsOut != null ? countsOut : oesOut;
+        int numCols = reference.length;
+        int length = reference[0].length;
+        for (int c = 0; c < numCols; c++) {
+            if (countsOut != null) Arrays.fill(countsOut[c], 0);
+            if (oesOut != null) Arrays.fill(oesOut[c], 1);
+        }
+
+        int first = Math.max(rowStart, 0);
+        int last = Math.min(rowStart + length, numRows);
+        for (int binX = first; binX < last; binX++) {
+            int i = binX - rowStart;
+            int end = rowStarts[binX + 1];
+            for (int k = lowerBound(binX, colStart); k < end && cols[k] < colStart + numCols; k++) {
+                int c = cols[k] - colStart;
+                if (countsOut != null) countsOut[c][i] = counts[k];
+                if (oesOut != null) oesOut[c][i] = oes[k];
+            }
+        }
+    }
+
+    private int lowerBound(int binX, int binY) {
+        int low = rowStarts[binX];
+        int high = rowStarts[binX + 1];
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cols[mid] < binY) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public void clear() {
+        rowStarts = new int[numRows + 1];
+        cols = new int[0];
+        counts = new float[0];
+        oes = new float[0];
+    }
+
+    /**
+     * Collects entries in any order; if a (binX, binY) is added more than once, the last one is kept.
+     */
+    public static class Builder {
+
+        private final int numRows;
+        private int[] binXs = new int[1024];
+        private int[] binYs = new int[1024];
+        private float[] counts = new float[1024];
+        private float[] oes = new float[1024];
+        private int size = 0;
+
+        public Builder(int numRows) {
+            this.numRows = numRows;
+        }
+
+        public void add(int binX, int binY, float count, float oe) {
+            if (binX < 0 || binX >= numRows) return;
+            if (size == binXs.length) {
+                int capacity = 2 * size;
+                binXs = Arrays.copyOf(binXs, capacity);
+                binYs = Arrays.copyOf(binYs, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+                oes = Arrays.copyOf(oes, capacity);
+            }
+            binXs[size] = binX;
+            binYs[size] = binY;
+            counts[size] = count;
+            oes[size] = oe;
+            size++;
+        }
+
+        public RowSortedContactMatrix build() {
+            // counting sort by row, keeping the insertion order within each row
+            int[] rowStarts = new int[numRows + 1];
+            for (int k = 0; k < size; k++) {
+                rowStarts[binXs[k] + 1]++;
+            }
+            for (int r = 0; r < numRows; r++) {
+                rowStarts[r + 1] += rowStarts[r];
+            }
+            int[] next = Arrays.copyOf(rowStarts, numRows);
+            long[] keys = new long[size];
+            for (int k = 0; k < size; k++) {
+                keys[next[binXs[k]]++] = ((long) binYs[k] << 32) | k;
+            }
+            binXs = null;
+
+            // sort and de-duplicate each row in parallel; rows are handed out in blocks
+            int[] rowSizes = new int[numRows];
+            int blockSize = 4096;
+            AtomicInteger block = new AtomicInteger(0);
+            ParallelizationTools.launchParallelizedCode(() -> {
+                int b = block.getAndIncrement();
+                while ((long) b * blockSize < numRows) {
+                    int end = Math.min(numRows, (b + 1) * blockSize);
+                    for (int r = b * blockSize; r < end; r++) {
+                        rowSizes[r] = sortRow(keys, rowStarts[r], rowStarts[r + 1]);
+                    }
+                    b = block.getAndIncrement();
+                }
+            });
+
+            int[] packedStarts = new int[numRows + 1];
+            for (int r = 0; r < numRows; r++) {
+                packedStarts[r + 1] = packedStarts[r] + rowSizes[r];
+            }
+            int total = packedStarts[numRows];
+            int[] outCols = new int[total];
+            float[] outCounts = new float[total];
+            float[] outOEs = new float[total];
+            for (int r = 0; r < numRows; r++) {
+                int from = rowStarts[r];
+                for (int k = 0; k < rowSizes[r]; k++) {
+                    long key = keys[from + k];
+                    int original = (int) key;
+                    outCols[packedStarts[r] + k] = (int) (key >> 32);
+                    outCounts[packedStarts[r] + k] = counts[original];
+                    outOEs[packedStarts[r] + k] = oes[original];
+                }
+            }
+            binYs = null;
+            counts = null;
+            oes = null;
+            return new RowSortedContactMatrix(numRows, packedStarts, outCols, outCounts, outOEs);
+        }
+
+        /**
+         * sorts keys[from, to) by column then insertion order, keeps the last entry of each column
+         * at the front of the range, and returns how many were kept
+         */
+        private static int sortRow(long[] keys, int from, int to) {
+            Arrays.sort(keys, from, to);
+            int kept = 0;
+            for (int k = from; k < to; k++) {
+                if (k + 1 < to && (keys[k + 1] >> 32) == (keys[k] >> 32)) continue;
+                keys[from + kept++] = keys[k];
+            }
+            return kept;
+        }
+    }
+}
@@ -6,47 +6,36 @@ import javastraw.reader.block.ContactRecord;
 import javastraw.reader.mzd.MatrixZoomData;
 import javastraw.reader.type.NormalizationType;
 
-import java.util.*;
+import java.util.Iterator;
+import java.util.List;
 
 public class SparseContactMatrixOfSpecificRegionsOnly extends SparseContactRecordStorage {
 
     public SparseContactMatrixOfSpecificRegionsOnly(MatrixZoomData zd, List<Feature2D> features, int resolution,
                                                     int genomeBuffer, NormalizationType norm) {
-        Map<Integer, Set<Integer>> exactMask = new HashMap<>();
-        populateAllBinsToTrack(features, resolution, genomeBuffer / resolution, exactMask);
+        BinRectangleMask exactMask = new BinRectangleMask(getAllBinsToTrack(features, resolution,
+                genomeBuffer / resolution));
 
         Iterator<ContactRecord> it = ExpectedUtils.getIterator(zd, norm);
         while (it.hasNext()) {
             ContactRecord cr = it.next();
             if (cr.getCounts() > 0) {
-                if (exactMask.containsKey(cr.getBinX()) && exactMask.get(cr.getBinX()).contains(cr.getBinY())) {
-                    if (!data.containsKey(cr.getBinX())) {
-                        data.put(cr.getBinX(), new HashMap<>());
-                    }
-                    data.get(cr.getBinX()).put(cr.getBinY(), cr);
+                if (exactMask.contains(cr.getBinX(), cr.getBinY())) {
+                    data.put(cr.getBinX(), cr.getBinY(), cr.getCounts());
                 }
             }
         }
-        exactMask.clear();
     }
 
 
-    private static void populateAllBinsToTrack(List<Feature2D> stripes,
-                                               int resolution, int buffer, Map<Integer, Set<Integer>> exactMask) {
+    private static int[][] getAllBinsToTrack(List<Feature2D> stripes, int resolution, int buffer) {
+        int[][] bounds = new int[stripes.size()][];
+        int k = 0;
         for (Feature2D loop : stripes) {
-            for (int gx = (int) (loop.getStart1() / resolution) - buffer;
-                 gx <= (int) (loop.getEnd1() / resolution) + buffer; gx++) {
-
-                if (!exactMask.containsKey(gx)) {
-                    exactMask.put(gx, new HashSet<>());
-                }
-
-                for (int gy = (int) (loop.getStart2() / resolution) - buffer;
-                     gy <= (int) (loop.getEnd2() / resolution) + buffer; gy++) {
-
-                    exactMask.get(gx).add(gy);
-                }
-            }
+            bounds[k++] = new int[]{
+                    (int) (loop.getStart1() / resolution) - buffer, (int) (loop.getEnd1() / resolution) + buffer,
+                    (int) (loop.getStart2() / resolution) - buffer, (int) (loop.getEnd2() / resolution) + buffer};
         }
+        return bounds;
     }
 }
@@ -6,23 +6,22 @@ import javastraw.reader.block.ContactRecord;
 import javastraw.reader.mzd.MatrixZoomData;
 import javastraw.reader.type.NormalizationType;
 
-import java.util.*;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
 
 public class SparseContactMatrixWithMasking extends SparseContactRecordStorage {
 
     public SparseContactMatrixWithMasking(MatrixZoomData zd, Collection<Feature2D> loops, int resolution,
                                           int window, int matrixWidth, NormalizationType norm) {
-        Set<Integer> allIndices = getIndices(loops, resolution, window, matrixWidth);
+        BitSet allIndices = getIndices(loops, resolution, window, matrixWidth);
 
         Iterator<ContactRecord> it = ExpectedUtils.getIterator(zd, norm);
         while (it.hasNext()) {
             ContactRecord cr = it.next();
             if (cr.getCounts() > 0) {
-                if (allIndices.contains(cr.getBinX()) && allIndices.contains(cr.getBinY())) {
-                    if (!data.containsKey(cr.getBinX())) {
-                        data.put(cr.getBinX(), new HashMap<>());
-                    }
-                    data.get(cr.getBinX()).put(cr.getBinY(), cr);
+                if (allIndices.get(cr.getBinX()) && allIndices.get(cr.getBinY())) {
+                    data.put(cr.getBinX(), cr.getBinY(), cr.getCounts());
                 }
             }
         }
@@ -30,17 +29,21 @@ public class SparseContactMatrixWithMasking extends SparseContactRecordStorage {
         allIndices.clear();
     }
 
-    private static Set<Integer> getIndices(Collection<Feature2D> loops, int resolution, int window, int matrixWidth) {
-        Set<Integer> indices = new HashSet<>();
+    private static BitSet getIndices(Collection<Feature2D> loops, int resolution, int window, int matrixWidth) {
+        BitSet indices = new BitSet();
         for (Feature2D loop : loops) {
             int binXStart = (int) ((loop.getMidPt1() / resolution) - window);
             int binYStart = (int) ((loop.getMidPt2() / resolution) - window);
-
-            for (int i = 0; i < matrixWidth; i++) {
-                indices.add(i + binXStart);
-                indices.add(i + binYStart);
-            }
+            setRange(indices, binXStart, binXStart + matrixWidth);
+            setRange(indices, binYStart, binYStart + matrixWidth);
         }
         return indices;
     }
+
+    private static void setRange(BitSet indices, int start, int end) {
+        start = Math.max(start, 0);
+        if (end > start) {
+            indices.set(start, end);
+        }
+    }
 }
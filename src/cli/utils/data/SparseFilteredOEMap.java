@@ -1,5 +1,6 @@
 package cli.utils.data;
 
+import cli.utils.expected.ExpectedModelCache;
 import cli.utils.general.ArrayTools;
 import cli.utils.general.VectorCleaner;
 import javastraw.expected.ExpectedUtils;
@@ -12,9 +13,7 @@ import javastraw.reader.type.HiCZoom;
 import javastraw.reader.type.NormalizationHandler;
 import javastraw.reader.type.NormalizationType;
 
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map;
 
 public class SparseFilteredOEMap {
 
@@ -22,12 +21,12 @@ public class SparseFilteredOEMap {
     private static final float Z_TOP_FIFTEEN = 1.04f;
     private static final float Z_1 = 1f;
 
-    private final Map<Integer, Map<Integer, FloatPair>> contactMap = new HashMap<>();
+    private final RowSortedContactMatrix contactMap;
     private final float[] upStreamLogSignal;
     private final float[] downStreamLogSignal;
 
 
-    public SparseFilteredOEMap(Dataset ds, MatrixZoomData zd, NormalizationType norm, Chromosome chrom, int resolution,
+    public SparseFilteredOEMap(Dataset ds, String hicPath, MatrixZoomData zd, NormalizationType norm, Chromosome chrom, int resolution,
                                int minPeakDist, int maxPeakDist, HiCZoom zoom) {
 
         int numEntries = (int) ((chrom.getLength() / resolution) + 1);
@@ -35,12 +34,13 @@ public class SparseFilteredOEMap {
         upStreamLogSignal = new float[numEntries];
         downStreamLogSignal = new float[numEntries];
 
-        LogExpectedZscoreSpline poly = new LogExpectedZscoreSpline(zd, norm, chrom, resolution);
+        LogExpectedZscoreSpline poly = ExpectedModelCache.getLogExpectedZscoreSpline(hicPath, zd, norm, chrom, resolution);
 
         double[] vector = ArrayTools.copy(ds.getNormalizationVector(chrom.getIndex(), zoom,
                 NormalizationHandler.VC).getData().getValues().get(0));
         VectorCleaner.inPlaceZscore(vector);
 
+        RowSortedContactMatrix.Builder builder = new RowSortedContactMatrix.Builder(numEntries);
         Iterator<ContactRecord> it = ExpectedUtils.getIterator(zd, norm);
         while (it.hasNext()) {
             ContactRecord cr = it.next();
@@ -55,7 +55,7 @@ public class SparseFilteredOEMap {
                         float oe = (float) ((cr.getCounts() + 1) / (poly.getExpectedFromUncompressedBin(dist) + 1));
                         float zscore = (float) poly.getZscoreForObservedUncompressedBin(dist, cr.getCounts());
                         if (oe > 1.5 || zscore > Z_1) { // oe > 2 || zscore > Z_TOP_TEN
-                            populateMap(cr, cr.getCounts());
+                            builder.add(cr.getBinX(), cr.getBinY(), cr.getCounts(), cr.getCounts());
                             //upStreamSignal[cr.getBinX()] *= oe;
                             //downStreamSignal[cr.getBinY()] *= oe;
                             upStreamLogSignal[cr.getBinX()] += Math.log(oe);
@@ -65,34 +65,22 @@ public class SparseFilteredOEMap {
                 }
             }
         }
-    }
-
-
-    public void populateMap(ContactRecord cr, float oe) {
-        if (!contactMap.containsKey(cr.getBinX())) {
-            contactMap.put(cr.getBinX(), new HashMap<>());
-        }
-        contactMap.get(cr.getBinX()).put(cr.getBinY(), new FloatPair(cr.getCounts(), oe));
+        contactMap = builder.build();
     }
 
     public float getOEValue(int binX, int binY) {
-        if (contactMap.containsKey(binX) && contactMap.get(binX).containsKey(binY)) {
-            return contactMap.get(binX).get(binY).oe;
-        }
-        return 1;
+        return contactMap.getOE(binX, binY);
     }
 
     public float getCountValue(int binX, int binY) {
-        if (contactMap.containsKey(binX) && contactMap.get(binX).containsKey(binY)) {
-            return contactMap.get(binX).get(binY).count;
-        }
-        return 0;
+        return contactMap.getCount(binX, binY);
+    }
+
+    public RowSortedContactMatrix getContactMatrix() {
+        return contactMap;
     }
 
     public void clear() {
-        for (Map<Integer, FloatPair> map : contactMap.values()) {
-            map.clear();
-        }
         contactMap.clear();
     }
 
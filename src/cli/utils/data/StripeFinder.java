@@ -77,8 +77,9 @@ public class StripeFinder {
     }
 
     private void complexHorizontalCall(int i, List<Feature2D> stripes) {
-        float[][] dataSlice = getHorizontalCountSlice(i);
-        float[][] dataOESlice = getHorizontalOESlice(i);
+        float[][] dataSlice = new float[5][maxPeakDist - minPeakDist];
+        float[][] dataOESlice = new float[5][maxPeakDist - minPeakDist];
+        fillHorizontalSlices(i, dataSlice, dataOESlice);
         List<int[]> stretches = StripeUtils.findContiguousStretches(dataSlice, dataOESlice, minLengthStripe);
 
         for (int[] stretch : StripeUtils.onlySignificantStretches(stretches, dataSlice, dataOESlice)) {
@@ -89,8 +90,9 @@ public class StripeFinder {
     }
 
     private void complexVerticalCall(int j, List<Feature2D> stripes) {
-        float[][] dataSlice = getVerticalCountSlice(j);
-        float[][] dataOESlice = getVerticalOESlice(j);
+        float[][] dataSlice = new float[5][maxPeakDist - minPeakDist];
+        float[][] dataOESlice = new float[5][maxPeakDist - minPeakDist];
+        fillVerticalSlices(j, dataSlice, dataOESlice);
         List<int[]> stretches = StripeUtils.findContiguousStretches(dataSlice, dataOESlice, minLengthStripe);
 
         for (int[] stretch : StripeUtils.onlySignificantStretches(stretches, dataSlice, dataOESlice)) {
@@ -100,43 +102,33 @@ public class StripeFinder {
         }
     }
 
-    private float[][] getHorizontalCountSlice(int i0) {
-        float[][] dataSlice = new float[5][maxPeakDist - minPeakDist];
+    /**
+     * rows i0-2..i0+2, columns i0+minPeakDist onwards; each row is one contiguous run of the CSR map
+     */
+    private void fillHorizontalSlices(int i0, float[][] counts, float[][] oes) {
+        RowSortedContactMatrix matrix = map.getContactMatrix();
         for (int ii = 0; ii < 5; ii++) {
-            for (int j = 0; j < maxPeakDist - minPeakDist; j++) {
-                dataSlice[ii][j] = map.getCountValue(i0 - 2 + ii, j + i0 + minPeakDist);
-            }
+            matrix.fillRow(i0 - 2 + ii, i0 + minPeakDist,
+                    counts == null ? null : counts[ii], oes == null ? null : oes[ii]);
         }
-        return dataSlice;
     }
 
-    private float[][] getVerticalCountSlice(int j) {
-        float[][] dataSlice = new float[5][maxPeakDist - minPeakDist];
-        for (int k = 0; k < 5; k++) {
-            for (int i = 0; i < maxPeakDist - minPeakDist; i++) {
-                dataSlice[k][i] = map.getCountValue(j - maxPeakDist + i, j - 2 + k);
-            }
-        }
-        return dataSlice;
+    /**
+     * columns j-2..j+2, rows j-maxPeakDist onwards
+     */
+    private void fillVerticalSlices(int j, float[][] counts, float[][] oes) {
+        map.getContactMatrix().fillColumns(j - maxPeakDist, j - 2, counts, oes);
     }
 
     public float[][] getHorizontalOESlice(int i0) {
         float[][] dataSlice = new float[5][maxPeakDist - minPeakDist];
-        for (int ii = 0; ii < 5; ii++) {
-            for (int j = 0; j < maxPeakDist - minPeakDist; j++) {
-                dataSlice[ii][j] = map.getOEValue(i0 - 2 + ii, j + i0 + minPeakDist);
-            }
-        }
+        fillHorizontalSlices(i0, null, dataSlice);
         return dataSlice;
     }
 
     public float[][] getVerticalOESlice(int j) {
         float[][] dataSlice = new float[5][maxPeakDist - minPeakDist];
-        for (int k = 0; k < 5; k++) {
-            for (int i = 0; i < maxPeakDist - minPeakDist; i++) {
-                dataSlice[k][i] = map.getOEValue(j - maxPeakDist + i, j - 2 + k);
-            }
-        }
+        fillVerticalSlices(j, null, dataSlice);
         return dataSlice;
     }
 
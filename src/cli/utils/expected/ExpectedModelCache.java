@@ -0,0 +1,104 @@
+package cli.utils.expected;
+
+import cli.Main;
+import javastraw.expected.ExpectedModel;
+import javastraw.expected.LogExpectedSpline;
+import javastraw.expected.LogExpectedZscoreSpline;
+import javastraw.reader.basics.Chromosome;
+import javastraw.reader.mzd.MatrixZoomData;
+import javastraw.reader.type.NormalizationType;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caches fitted expected models per (hic file, chromosome, resolution, norm) for the current run, so that
+ * commands asking for the same model more than once only fit it once. The most recently used models are
+ * kept in memory.
+ * <p>
+ * Models are not saved to disk: the javastraw models can only be built from a MatrixZoomData, so a saved
+ * copy could not be rebuilt into the same model.
+ */
+public class ExpectedModelCache {
+
+    private static final int MAX_MODELS_IN_MEMORY = 256;
+
+    private static final Map<String, ExpectedModel> memoryCache = Collections.synchronizedMap(
+            new LinkedHashMap<String, ExpectedModel>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ExpectedModel> eldest) {
+                    return size() > MAX_MODELS_IN_MEMORY;
+                }
+            });
+    private static final Map<String, Object> locks = new ConcurrentHashMap<>();
+    private static final AtomicInteger hits = new AtomicInteger(0);
+    private static final AtomicInteger misses = new AtomicInteger(0);
+
+    public static LogExpectedSpline getLogExpectedSpline(String hicPath, MatrixZoomData zd, NormalizationType norm,
+                                                         Chromosome chrom, int resolution) {
+        return (LogExpectedSpline) get(hicPath, "spline", norm, chrom, resolution,
+                () -> new LogExpectedSpline(zd, norm, chrom, resolution));
+    }
+
+    public static LogExpectedZscoreSpline getLogExpectedZscoreSpline(String hicPath, MatrixZoomData zd,
+                                                                     NormalizationType norm,
+                                                                     Chromosome chrom, int resolution) {
+        return (LogExpectedZscoreSpline) get(hicPath, "zspline", norm, chrom, resolution,
+                () -> new LogExpectedZscoreSpline(zd, norm, chrom, resolution));
+    }
+
+    private interface ModelBuilder {
+        ExpectedModel build();
+    }
+
+    private static ExpectedModel get(String hicPath, String type, NormalizationType norm, Chromosome chrom,
+                                     int resolution, ModelBuilder builder) {
+        String key = hicPath + "|" + chrom.getName() + "_" + resolution + "_" + norm.getLabel() + "_" + type;
+
+        ExpectedModel model = memoryCache.get(key);
+        if (model != null) {
+            hits.incrementAndGet();
+            return model;
+        }
+
+        // two threads asking for the same model should only fit it once
+        Object lock = locks.computeIfAbsent(key, k -> new Object());
+        synchronized (lock) {
+            try {
+                model = memoryCache.get(key);
+                if (model != null) {
+                    hits.incrementAndGet();
+                    return model;
+                }
+
+                misses.incrementAndGet();
+                model = builder.build();
+                memoryCache.put(key, model);
+                return model;
+            } finally {
+                locks.remove(key, lock);
+            }
+        }
+    }
+
+    public static int getNumHits() {
+        return hits.get();
+    }
+
+    public static int getNumMisses() {
+        return misses.get();
+    }
+
+    public static void printStats() {
+        if (Main.printVerboseComments) {
+            System.out.println("Expected model cache: " + hits.get() + " hits, " + misses.get() + " misses");
+        }
+    }
+
+    public static void clearMemoryCache() {
+        memoryCache.clear();
+    }
+}
@@ -24,8 +24,8 @@
 
 package cli.utils.flags;
 
+import cli.utils.general.NpyWriter;
 import javastraw.tools.HiCFileTools;
-import javastraw.tools.MatrixTools;
 
 import java.io.File;
 
@@ -46,9 +46,9 @@ public class FlagsDataStack {
 
     public void exportData() {
         FlagsRegionStatistics stats = new FlagsRegionStatistics(apaMatrix);
-        MatrixTools.saveMatrixTextNumpy((new File(dataDirectory, customPrefix + "apa.npy")).getAbsolutePath(),
+        NpyWriter.save((new File(dataDirectory, customPrefix + "apa.npy")).getAbsolutePath(),
                 apaMatrix);
-        MatrixTools.saveMatrixTextNumpy((new File(dataDirectory, customPrefix + "stats.npy")).getAbsolutePath(),
+        NpyWriter.save((new File(dataDirectory, customPrefix + "stats.npy")).getAbsolutePath(),
                 stats.getAllValues());
     }
 
@@ -3,7 +3,6 @@ package cli.utils.general;
 import cli.Main;
 import javastraw.expected.Welford;
 import javastraw.expected.Zscore;
-import javastraw.tools.MatrixTools;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -50,7 +49,7 @@ public class ArrayTools {
 
     public static void saveIfVerbose(String s, float[][] array) {
         if (Main.printVerboseComments) {
-            MatrixTools.saveMatrixTextNumpy(s, array);
+            NpyWriter.save(s, array);
         }
 
     }
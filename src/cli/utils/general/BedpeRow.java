@@ -0,0 +1,155 @@
+package cli.utils.general;
+
+import javastraw.feature2D.Feature2D;
+import javastraw.feature2D.Feature2DList;
+import javastraw.reader.basics.Chromosome;
+
+import java.awt.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One bedpe line as read by BedpeStream. Only the anchor columns are parsed; every other column is kept
+ * as a slice of the raw line, and attributes are looked up by their header position on demand.
+ */
+public class BedpeRow {
+
+    private final String line;
+    private final boolean tabDelimited;
+    private final int[] columnStarts, columnEnds;
+    private final BedpeStream.Header header;
+    private final Chromosome chr1, chr2;
+    private final long start1, end1, start2, end2;
+
+    BedpeRow(String line, boolean tabDelimited, int[] columnStarts, int[] columnEnds, BedpeStream.Header header,
+             Chromosome chr1, Chromosome chr2) {
+        this.line = line;
+        this.tabDelimited = tabDelimited;
+        this.columnStarts = columnStarts;
+        this.columnEnds = columnEnds;
+        this.header = header;
+        this.chr1 = chr1;
+        this.chr2 = chr2;
+        this.start1 = Long.parseLong(getColumn(1));
+        this.end1 = Long.parseLong(getColumn(2));
+        this.start2 = Long.parseLong(getColumn(4));
+        this.end2 = Long.parseLong(getColumn(5));
+    }
+
+    public Chromosome getChr1() {
+        return chr1;
+    }
+
+    public Chromosome getChr2() {
+        return chr2;
+    }
+
+    public String getKey() {
+        return Feature2DList.getKey(chr1, chr2);
+    }
+
+    public long getStart1() {
+        return start1;
+    }
+
+    public long getEnd1() {
+        return end1;
+    }
+
+    public long getStart2() {
+        return start2;
+    }
+
+    public long getEnd2() {
+        return end2;
+    }
+
+    public long getMidPt1() {
+        return (start1 + end1) / 2;
+    }
+
+    public long getMidPt2() {
+        return (start2 + end2) / 2;
+    }
+
+    public long getWidth1() {
+        return end1 - start1;
+    }
+
+    public long getWidth2() {
+        return end2 - start2;
+    }
+
+    public int getNumColumns() {
+        return columnStarts.length;
+    }
+
+    public String getColumn(int index) {
+        return line.substring(columnStarts[index], columnEnds[index]);
+    }
+
+    /**
+     * @return the raw text of columns [from, to), tab separated, or an empty string
+     */
+    public String getColumns(int from, int to) {
+        to = Math.min(to, columnStarts.length);
+        if (from >= to) return "";
+        if (tabDelimited) {
+            return line.substring(columnStarts[from], columnEnds[to - 1]);
+        }
+        StringBuilder columns = new StringBuilder(line.substring(columnStarts[from], columnEnds[from]));
+        for (int k = from + 1; k < to; k++) {
+            columns.append('\t').append(line, columnStarts[k], columnEnds[k]);
+        }
+        return columns.toString();
+    }
+
+    /**
+     * @return columns after the anchors (name, score, strands, color) without the attributes
+     */
+    public String getFixedColumns() {
+        return getColumns(6, header.getColorIndex() + 1);
+    }
+
+    /**
+     * @return columns after the anchors including the attributes
+     */
+    public String getAllColumns() {
+        return getColumns(6, columnStarts.length);
+    }
+
+    public String getAttribute(String key) {
+        int index = header.getAttributeIndex(key);
+        if (index < 0 || index >= columnStarts.length) return null;
+        return getColumn(index);
+    }
+
+    public Feature2D toFeature2D(boolean loadAttributes) {
+        Map<String, String> attributes = new HashMap<>();
+        if (loadAttributes) {
+            String[] keys = header.getAttributeKeys();
+            for (int k = 0; k < keys.length; k++) {
+                int index = header.getColorIndex() + 1 + k;
+                if (index < columnStarts.length) {
+                    attributes.put(keys[k], getColumn(index));
+                }
+            }
+        }
+        return new Feature2D(Feature2D.FeatureType.PEAK, chr1.getName(), start1, end1,
+                chr2.getName(), start2, end2, getColor(), attributes);
+    }
+
+    private Color getColor() {
+        int index = header.getColorIndex();
+        if (index < columnStarts.length) {
+            String[] rgb = getColumn(index).split(",");
+            if (rgb.length == 3) {
+                try {
+                    return new Color(Integer.parseInt(rgb[0]), Integer.parseInt(rgb[1]), Integer.parseInt(rgb[2]));
+                } catch (Exception ignored) {
+                }
+            }
+        }
+        return Color.BLACK;
+    }
+}
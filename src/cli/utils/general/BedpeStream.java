@@ -0,0 +1,227 @@
+package cli.utils.general;
+
+import javastraw.StrawGlobals;
+import javastraw.reader.basics.Chromosome;
+import javastraw.reader.basics.ChromosomeHandler;
+import org.broad.igv.util.ParsingUtils;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Reads a bedpe file one row at a time instead of loading a Feature2DList for the whole genome.
+ * Rows whose chromosomes are not in the genome, or whose anchor positions are not integers (such as a
+ * header line without a leading #), are skipped, as Feature2DParser does.
+ */
+public class BedpeStream implements Closeable {
+
+    public static final String GENERIC_HEADER = "#chr1\tx1\tx2\tchr2\ty1\ty2\tname\tscore\tstrand1\tstrand2\tcolor";
+    private static final int DEFAULT_COLOR_INDEX = 10;
+    private static final int MAX_OPEN_PARTITIONS = 64;
+
+    private final BufferedReader reader;
+    private final ChromosomeHandler handler;
+    private final Header header;
+    private String pendingLine;
+    private int errorCount = 0;
+
+    public BedpeStream(String path, ChromosomeHandler handler) throws IOException {
+        this.reader = new BufferedReader(new InputStreamReader(ParsingUtils.openInputStream(path)),
+                StrawGlobals.bufferSize);
+        this.handler = handler;
+
+        String headerLine = null;
+        String nextLine;
+        while ((nextLine = reader.readLine()) != null) {
+            if (nextLine.startsWith("#")) {
+                if (headerLine == null) headerLine = nextLine;
+            } else if (!nextLine.trim().isEmpty()) {
+                break;
+            }
+        }
+        pendingLine = nextLine;
+        header = new Header(headerLine);
+    }
+
+    public Header getHeader() {
+        return header;
+    }
+
+    /**
+     * @return the next row, or null at the end of the file
+     */
+    public BedpeRow next() throws IOException {
+        while (pendingLine != null) {
+            String line = pendingLine;
+            pendingLine = reader.readLine();
+            if (line.startsWith("#") || line.trim().isEmpty()) continue;
+
+            boolean tabDelimited = line.indexOf('\t') >= 0;
+            int[][] columns = findColumns(line, tabDelimited);
+            if (columns[0].length < 6) {
+                logSkipped(line);
+                continue;
+            }
+            Chromosome chr1 = handler.getChromosomeFromName(line.substring(columns[0][0], columns[1][0]));
+            Chromosome chr2 = handler.getChromosomeFromName(line.substring(columns[0][3], columns[1][3]));
+            if (chr1 == null || chr2 == null) {
+                logSkipped(line);
+                continue;
+            }
+            try {
+                return new BedpeRow(line, tabDelimited, columns[0], columns[1], header, chr1, chr2);
+            } catch (NumberFormatException e) {
+                logSkipped(line);
+            }
+        }
+        return null;
+    }
+
+    private void logSkipped(String line) {
+        if (errorCount < 10) {
+            System.err.println("Skipping line: " + line);
+        } else if (errorCount == 10) {
+            System.err.println("Maximum error count exceeded.  Further errors will not be logged");
+        }
+        errorCount++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * @return {column starts, column ends}; columns are split by tabs, or by runs of spaces if there are no tabs
+     */
+    private static int[][] findColumns(String line, boolean tabDelimited) {
+        int[] starts = new int[16];
+        int[] ends = new int[16];
+        int n = 0;
+        int i = 0;
+        int length = line.length();
+        while (i <= length) {
+            if (!tabDelimited) {
+                while (i < length && line.charAt(i) == ' ') i++;
+                if (i == length) break;
+            }
+            int end = i;
+            char delimiter = tabDelimited ? '\t' : ' ';
+            while (end < length && line.charAt(end) != delimiter) end++;
+            if (n == starts.length) {
+                starts = Arrays.copyOf(starts, 2 * n);
+                ends = Arrays.copyOf(ends, 2 * n);
+            }
+            starts[n] = i;
+            ends[n] = end;
+            n++;
+            i = end + 1;
+        }
+        return new int[][]{Arrays.copyOf(starts, n), Arrays.copyOf(ends, n)};
+    }
+
+    /**
+     * Splits the rows of each file by chromosome pair into temporary files (with the original header),
+     * so that each pair can then be loaded and processed on its own. At most 64 partition files are open
+     * at a time; the least recently written one is closed and reopened for appending when needed.
+     *
+     * @return for each chromosome pair key, in order of first appearance, one temporary file per input
+     * (null if that input has no rows for the key)
+     */
+    public static Map<String, File[]> partitionByChromosomes(String[] paths, ChromosomeHandler handler)
+            throws IOException {
+        Map<String, File[]> partitions = new LinkedHashMap<>();
+        for (int f = 0; f < paths.length; f++) {
+            Map<String, BufferedWriter> writers = new LinkedHashMap<>(16, 0.75f, true);
+            try (BedpeStream stream = new BedpeStream(paths[f], handler)) {
+                BedpeRow row;
+                while ((row = stream.next()) != null) {
+                    BufferedWriter writer = writers.get(row.getKey());
+                    if (writer == null) {
+                        if (writers.size() >= MAX_OPEN_PARTITIONS) {
+                            Iterator<BufferedWriter> eldest = writers.values().iterator();
+                            eldest.next().close();
+                            eldest.remove();
+                        }
+                        File[] files = partitions.computeIfAbsent(row.getKey(), k -> new File[paths.length]);
+                        if (files[f] == null) {
+                            files[f] = File.createTempFile("partition", ".bedpe");
+                            files[f].deleteOnExit();
+                            writer = new BufferedWriter(new FileWriter(files[f]));
+                            if (stream.getHeader().getLine() != null) {
+                                writer.write(stream.getHeader().getLine());
+                                writer.newLine();
+                            }
+                        } else {
+                            writer = new BufferedWriter(new FileWriter(files[f], true));
+                        }
+                        writers.put(row.getKey(), writer);
+                    }
+                    writer.write(row.getColumns(0, row.getNumColumns()));
+                    writer.newLine();
+                }
+            } finally {
+                for (BufferedWriter writer : writers.values()) {
+                    writer.close();
+                }
+            }
+        }
+        return partitions;
+    }
+
+    public static class Header {
+        private final String line;
+        private final String[] attributeKeys;
+        private final Map<String, Integer> attributeIndices = new HashMap<>();
+        private final int colorIndex;
+
+        Header(String line) {
+            this.line = line;
+            int color = DEFAULT_COLOR_INDEX;
+            String[] keys = new String[0];
+            if (line != null) {
+                String[] tokens = line.substring(1).trim().split("\\s+");
+                for (int k = 0; k < tokens.length; k++) {
+                    if (tokens[k].equalsIgnoreCase("color")) {
+                        color = k;
+                        break;
+                    }
+                }
+                if (color < tokens.length) {
+                    keys = Arrays.copyOfRange(tokens, color + 1, tokens.length);
+                }
+            }
+            colorIndex = color;
+            attributeKeys = keys;
+            for (int k = 0; k < keys.length; k++) {
+                attributeIndices.put(keys[k], colorIndex + 1 + k);
+            }
+        }
+
+        public String getLine() {
+            return line;
+        }
+
+        /**
+         * @return the header line for rows written with or without their attributes
+         */
+        public String getOutputLine(boolean keepAttributes) {
+            if (line == null) return GENERIC_HEADER;
+            if (keepAttributes) return line;
+            String[] tokens = line.substring(1).trim().split("\\s+");
+            return "#" + String.join("\t", Arrays.copyOf(tokens, Math.min(tokens.length, colorIndex + 1)));
+        }
+
+        public int getColorIndex() {
+            return colorIndex;
+        }
+
+        public String[] getAttributeKeys() {
+            return attributeKeys;
+        }
+
+        public int getAttributeIndex(String key) {
+            return attributeIndices.getOrDefault(key, -1);
+        }
+    }
+}
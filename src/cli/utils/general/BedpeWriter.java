@@ -0,0 +1,149 @@
+package cli.utils.general;
+
+import javastraw.feature2D.Feature2D;
+
+import java.awt.*;
+import java.io.*;
+import java.util.*;
+import java.util.List;
+
+/**
+ * Writes bedpe rows as they are produced. Rows from a BedpeStream are written with their raw columns,
+ * after a header from writeHeader.
+ * Feature2D rows are spooled to a temporary file until close, so that the attribute columns can be the
+ * sorted union of the keys of all features written, with NA where a feature lacks a key.
+ * A header is always written, even if there are no rows.
+ */
+public class BedpeWriter implements Closeable {
+
+    private final BufferedWriter writer;
+    private boolean headerWritten = false;
+    private File spoolFile = null;
+    private BufferedWriter spool = null;
+    private final Map<String, Integer> spoolKeys = new HashMap<>();
+
+    public BedpeWriter(String path) throws IOException {
+        writer = new BufferedWriter(new FileWriter(path), 1 << 16);
+    }
+
+    /**
+     * @param append if true, rows are added after those already in the file, which is assumed to have its
+     *               header already
+     */
+    public BedpeWriter(String path, boolean append) throws IOException {
+        writer = new BufferedWriter(new FileWriter(path, append), 1 << 16);
+        headerWritten = append;
+    }
+
+    public void writeHeader(String header) throws IOException {
+        if (spool != null) {
+            throw new IllegalStateException("Feature2D rows write their own header");
+        }
+        if (!headerWritten) {
+            writer.write(header);
+            writer.newLine();
+            headerWritten = true;
+        }
+    }
+
+    /**
+     * writes the row with new anchor bounds, followed by either all its other columns or only
+     * those up to the color column
+     */
+    public void write(BedpeRow row, long start1, long end1, long start2, long end2,
+                      boolean keepAttributes) throws IOException {
+        writer.write(getAnchors(row.getChr1().getName(), start1, end1, row.getChr2().getName(), start2, end2));
+        String columns = keepAttributes ? row.getAllColumns() : row.getFixedColumns();
+        if (columns.length() > 0) {
+            writer.write('\t');
+            writer.write(columns);
+        }
+        writer.newLine();
+    }
+
+    public void write(BedpeRow row, boolean keepAttributes) throws IOException {
+        write(row, row.getStart1(), row.getEnd1(), row.getStart2(), row.getEnd2(), keepAttributes);
+    }
+
+    /**
+     * spools the fixed columns, then each attribute as its key index and value
+     */
+    public void write(Feature2D feature) throws IOException {
+        if (spool == null) {
+            if (headerWritten) {
+                throw new IllegalStateException("Cannot write Feature2D rows after a custom header");
+            }
+            spoolFile = File.createTempFile("features", ".bedpe");
+            spoolFile.deleteOnExit();
+            spool = new BufferedWriter(new FileWriter(spoolFile), 1 << 16);
+        }
+
+        spool.write(getAnchors(feature.getChr1(), feature.getStart1(), feature.getEnd1(),
+                feature.getChr2(), feature.getStart2(), feature.getEnd2()));
+        Color color = feature.getColor() == null ? Color.BLACK : feature.getColor();
+        spool.write("\t.\t.\t.\t.\t" + color.getRed() + "," + color.getGreen() + "," + color.getBlue());
+        for (Map.Entry<String, String> attribute : feature.getAttributes().entrySet()) {
+            Integer index = spoolKeys.get(attribute.getKey());
+            if (index == null) {
+                index = spoolKeys.size();
+                spoolKeys.put(attribute.getKey(), index);
+            }
+            spool.write("\t" + index + "\t" + attribute.getValue());
+        }
+        spool.newLine();
+    }
+
+    private static String getAnchors(String chr1, long start1, long end1, String chr2, long start2, long end2) {
+        return chr1 + "\t" + start1 + "\t" + end1 + "\t" + chr2 + "\t" + start2 + "\t" + end2;
+    }
+
+    private void writeSpooledFeatures() throws IOException {
+        spool.close();
+        List<String> keys = new ArrayList<>(spoolKeys.keySet());
+        Collections.sort(keys);
+        int[] positions = new int[keys.size()];
+        for (int k = 0; k < keys.size(); k++) {
+            positions[spoolKeys.get(keys.get(k))] = k;
+        }
+
+        StringBuilder header = new StringBuilder(BedpeStream.GENERIC_HEADER);
+        for (String key : keys) {
+            header.append('\t').append(key);
+        }
+        writer.write(header.toString());
+        writer.newLine();
+
+        String[] values = new String[keys.size()];
+        try (BufferedReader reader = new BufferedReader(new FileReader(spoolFile), 1 << 16)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] tokens = line.split("\t", -1);
+                Arrays.fill(values, "NA");
+                for (int t = 11; t + 1 < tokens.length; t += 2) {
+                    values[positions[Integer.parseInt(tokens[t])]] = tokens[t + 1];
+                }
+                writer.write(String.join("\t", Arrays.copyOf(tokens, 11)));
+                for (String value : values) {
+                    writer.write('\t');
+                    writer.write(value);
+                }
+                writer.newLine();
+            }
+        }
+        spoolFile.delete();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (spool != null) {
+                writeSpooledFeatures();
+            } else if (!headerWritten) {
+                writer.write(BedpeStream.GENERIC_HEADER);
+                writer.newLine();
+            }
+        } finally {
+            writer.close();
+        }
+    }
+}
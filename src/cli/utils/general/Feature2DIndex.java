@@ -0,0 +1,146 @@
+package cli.utils.general;
+
+import javastraw.feature2D.Feature2D;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Static 2D overlap index over the anchors of a list of features.
+ * Features are sorted by start1 and laid out as an implicit balanced search tree; every node keeps the
+ * max end1 and the min start2 / max end2 of its subtree, so a query only descends into subtrees whose
+ * bounds can overlap the query box. Queries cost O(log n + k).
+ * Features are referred to by their position in the list given to the constructor, and removal is by
+ * tombstone, so results are returned in that original order.
+ */
+public class Feature2DIndex {
+
+    private final List<Feature2D> features;
+    private final int[] ids;
+    private final long[] start1, end1, start2, end2;
+    private final long[] maxEnd1, minStart2, maxEnd2;
+    private final boolean[] removed;
+
+    public Feature2DIndex(List<Feature2D> features) {
+        this.features = features;
+        int n = features.size();
+        Integer[] sorted = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, (a, b) -> {
+            int val = Long.compare(features.get(a).getStart1(), features.get(b).getStart1());
+            return val == 0 ? Integer.compare(a, b) : val;
+        });
+
+        ids = new int[n];
+        start1 = new long[n];
+        end1 = new long[n];
+        start2 = new long[n];
+        end2 = new long[n];
+        for (int k = 0; k < n; k++) {
+            Feature2D feature = features.get(sorted[k]);
+            ids[k] = sorted[k];
+            start1[k] = feature.getStart1();
+            end1[k] = feature.getEnd1();
+            start2[k] = feature.getStart2();
+            end2[k] = feature.getEnd2();
+        }
+        maxEnd1 = new long[n];
+        minStart2 = new long[n];
+        maxEnd2 = new long[n];
+        removed = new boolean[n];
+        build(0, n);
+    }
+
+    private void build(int lo, int hi) {
+        if (lo >= hi) return;
+        int mid = (lo + hi) >>> 1;
+        build(lo, mid);
+        build(mid + 1, hi);
+        maxEnd1[mid] = end1[mid];
+        minStart2[mid] = start2[mid];
+        maxEnd2[mid] = end2[mid];
+        if (lo < mid) {
+            merge(mid, (lo + mid) >>> 1);
+        }
+        if (mid + 1 < hi) {
+            merge(mid, (mid + 1 + hi) >>> 1);
+        }
+    }
+
+    private void merge(int node, int child) {
+        maxEnd1[node] = Math.max(maxEnd1[node], maxEnd1[child]);
+        minStart2[node] = Math.min(minStart2[node], minStart2[child]);
+        maxEnd2[node] = Math.max(maxEnd2[node], maxEnd2[child]);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public Feature2D get(int id) {
+        return features.get(id);
+    }
+
+    public void remove(int id) {
+        removed[id] = true;
+    }
+
+    public boolean isRemoved(int id) {
+        return removed[id];
+    }
+
+    /**
+     * @return ids, in ascending order, of remaining features whose anchors overlap
+     * [qStart1, qEnd1) and [qStart2, qEnd2) by a positive amount
+     */
+    public int[] query(long qStart1, long qEnd1, long qStart2, long qEnd2) {
+        IntBuffer hits = new IntBuffer();
+        query(0, ids.length, qStart1, qEnd1, qStart2, qEnd2, hits);
+        int[] result = Arrays.copyOf(hits.values, hits.size);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private void query(int lo, int hi, long qStart1, long qEnd1, long qStart2, long qEnd2, IntBuffer hits) {
+        if (lo >= hi) return;
+        int mid = (lo + hi) >>> 1;
+        if (maxEnd1[mid] <= qStart1 || maxEnd2[mid] <= qStart2 || minStart2[mid] >= qEnd2) return;
+        query(lo, mid, qStart1, qEnd1, qStart2, qEnd2, hits);
+        if (start1[mid] >= qEnd1) return;
+        if (!removed[ids[mid]] && end1[mid] > qStart1 && Math.max(start1[mid], qStart1) < Math.min(end1[mid], qEnd1)
+                && Math.max(start2[mid], qStart2) < Math.min(end2[mid], qEnd2)) {
+            hits.add(ids[mid]);
+        }
+        query(mid + 1, hi, qStart1, qEnd1, qStart2, qEnd2, hits);
+    }
+
+    /**
+     * Same matches as OverlapTools.getMatchesWithOverlap(pixel, remaining features, buffer),
+     * as ids in ascending order
+     */
+    public int[] getIdsWithOverlap(Feature2D pixel, int buffer) {
+        int[] candidates = query(pixel.getStart1() - buffer, pixel.getEnd1() + buffer,
+                pixel.getStart2() - buffer, pixel.getEnd2() + buffer);
+        int n = 0;
+        for (int id : candidates) {
+            if (OverlapTools.hasOverlap(features.get(id), pixel, buffer)) {
+                candidates[n++] = id;
+            }
+        }
+        return Arrays.copyOf(candidates, n);
+    }
+
+    private static class IntBuffer {
+        int[] values = new int[8];
+        int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            values[size++] = value;
+        }
+    }
+}
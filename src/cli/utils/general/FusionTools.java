@@ -11,9 +11,11 @@ import javastraw.tools.ParallelizationTools;
 
 import java.awt.*;
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 public class FusionTools {
 
@@ -31,6 +33,59 @@ public class FusionTools {
         list.exportFeatureList(new File(outFile), false, Feature2DList.ListFormat.NA);
     }
 
+    /**
+     * Same as coalesceFeatures, but only one chromosome pair is loaded at a time
+     */
+    public static void coalesceFeaturesByChromosome(String[] fileNames, String genomeID, String outFile,
+                                                    boolean useNMS, boolean noAttributes, boolean useExact,
+                                                    boolean addIDs, String[] attributes, int roundVal) {
+        processByChromosome(fileNames, genomeID, outFile, !noAttributes, addIDs, features -> {
+            if (attributes != null && attributes.length > 0) {
+                features = filterAttributes(features, attributes);
+            }
+            if (roundVal > 1) {
+                features = roundValues(features, roundVal);
+            }
+            return removeOverlappingPixels(features, useNMS, useExact);
+        });
+    }
+
+    /**
+     * Partitions the files by chromosome pair on disk, then loads each pair on its own, processes it, and
+     * appends the result to outFile.
+     */
+    public static void processByChromosome(String[] fileNames, String genomeID, String outFile,
+                                           boolean loadAttributes, boolean addIDs,
+                                           Function<List<Feature2D>, List<Feature2D>> process) {
+        ChromosomeHandler handler = ChromosomeTools.loadChromosomes(genomeID);
+        try (BedpeWriter writer = new BedpeWriter(outFile)) {
+            Map<String, File[]> partitions = BedpeStream.partitionByChromosomes(fileNames, handler);
+            for (File[] files : partitions.values()) {
+                List<Feature2D> features = new ArrayList<>();
+                for (int f = 0; f < files.length; f++) {
+                    if (files[f] == null) continue;
+                    Feature2DList loopList = Feature2DParser.loadFeatures(files[f].getAbsolutePath(), handler,
+                            loadAttributes, null, false);
+                    if (addIDs) {
+                        addIDToAllLoops(loopList, f, "LIST_UID");
+                    }
+                    loopList.processLists((key, list) -> {
+                        synchronized (features) {
+                            features.addAll(list);
+                        }
+                    });
+                    files[f].delete();
+                }
+                for (Feature2D feature : process.apply(features)) {
+                    writer.write(feature);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(6);
+        }
+    }
+
     private static List<Feature2D> roundValues(List<Feature2D> features, int value) {
         List<Feature2D> rounded = new ArrayList<>();
         for (Feature2D feature : features) {
@@ -67,7 +122,7 @@ public class FusionTools {
         return filteredAttributes;
     }
 
-    private static List<Feature2D> removeOverlappingPixels(List<Feature2D> features, boolean useNMS, boolean useExact) {
+    public static List<Feature2D> removeOverlappingPixels(List<Feature2D> features, boolean useNMS, boolean useExact) {
         if (useExact) {
             return new ArrayList<>(new HashSet<>(features));
         } else {
@@ -94,24 +149,26 @@ public class FusionTools {
 
     private static void processFeatures(Set<Feature2D> coalesced, List<Feature2D> featureLL, boolean useNMS) {
         sort(featureLL);
+        Feature2DIndex index = new Feature2DIndex(featureLL);
+
+        for (int id = 0; id < index.size(); id++) {
+            if (index.isRemoved(id)) continue;
+            Feature2D pixel = index.get(id);
+            index.remove(id);
+            int buffer = getBuffer(useNMS, pixel);
+
+            List<Feature2D> pixelList = new ArrayList<>();
+            for (int match : index.getIdsWithOverlap(pixel, buffer)) {
+                index.remove(match);
+                pixelList.add(index.get(match));
+            }
+            //pixel.addStringAttribute("NumCollapsed", String.valueOf(pixelList.size()));
 
-        while (!featureLL.isEmpty()) {
-            Feature2D pixel = featureLL.get(0);
-            if (pixel != null) {
-                featureLL.remove(pixel);
-                int buffer = getBuffer(useNMS, pixel);
-
-                List<Feature2D> pixelList = OverlapTools.getMatchesWithOverlap(pixel, featureLL, buffer);
-                featureLL.removeAll(pixelList);
-                //pixel.addStringAttribute("NumCollapsed", String.valueOf(pixelList.size()));
-
-                if (useNMS) {
-                    coalesced.add(pixel);
-                } else {
-                    pixelList.add(pixel);
-                    coalesced.add(getFeatureFromBounds(pixelList));
-                }
-                pixelList.clear();
+            if (useNMS) {
+                coalesced.add(pixel);
+            } else {
+                pixelList.add(pixel);
+                coalesced.add(getFeatureFromBounds(pixelList));
             }
         }
     }
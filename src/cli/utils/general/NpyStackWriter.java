@@ -0,0 +1,53 @@
+package cli.utils.general;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes a stack of equally sized float matrices as one binary little-endian float32 NPY file of shape
+ * (numRows, height, width). Every row has a fixed place in the file, so worker threads can write rows in
+ * any order; the header is completed on close, with numRows = highest row written + 1.
+ */
+public class NpyStackWriter implements Closeable {
+
+    private static final int HEADER_SIZE = 128;
+
+    private final FileChannel channel;
+    private final int height, width;
+    private final AtomicLong numRows = new AtomicLong(0);
+
+    public NpyStackWriter(File file, int height, int width) throws IOException {
+        this.height = height;
+        this.width = width;
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(0);
+        channel = raf.getChannel();
+    }
+
+    public void write(long row, float[][] matrix) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(height * width * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (float[] values : matrix) {
+            for (float value : values) {
+                buffer.putFloat(value);
+            }
+        }
+        buffer.flip();
+        long position = HEADER_SIZE + row * buffer.capacity();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        numRows.accumulateAndGet(row + 1, Math::max);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.write(ByteBuffer.wrap(NpyWriter.getHeader("<f4", new long[]{numRows.get(), height, width}, HEADER_SIZE)), 0);
+        channel.close();
+    }
+}
@@ -0,0 +1,226 @@
+package cli.utils.general;
+
+import javastraw.tools.MatrixTools;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Saves arrays as binary little-endian NumPy .npy files (float32, float64 or int32), streaming rows
+ * through a fixed buffer. The header is NPY 1.0, or 2.0 if it would not fit.
+ * When saveAsText is set (--text-npy), arrays are saved with the older text format instead.
+ */
+public class NpyWriter {
+
+    public static boolean saveAsText = false;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private interface ArrayWriter {
+        void write(WritableByteChannel channel) throws IOException;
+    }
+
+    public static void save(String path, float[][] matrix) {
+        if (saveAsText) {
+            MatrixTools.saveMatrixTextNumpy(path, matrix);
+        } else {
+            save(path, channel -> write(channel, matrix));
+        }
+    }
+
+    public static void save(String path, double[][] matrix) {
+        if (saveAsText) {
+            MatrixTools.saveMatrixTextNumpy(path, matrix);
+        } else {
+            save(path, channel -> write(channel, matrix));
+        }
+    }
+
+    public static void save(String path, int[][] matrix) {
+        if (saveAsText) {
+            MatrixTools.saveMatrixTextNumpy(path, matrix);
+        } else {
+            save(path, channel -> write(channel, matrix));
+        }
+    }
+
+    public static void save(String path, float[] array) {
+        if (saveAsText) {
+            MatrixTools.saveMatrixTextNumpy(path, array);
+        } else {
+            save(path, channel -> write(channel, array));
+        }
+    }
+
+    public static void save(String path, double[] array) {
+        if (saveAsText) {
+            MatrixTools.saveMatrixTextNumpy(path, array);
+        } else {
+            save(path, channel -> write(channel, array));
+        }
+    }
+
+    public static void save(String path, int[] array) {
+        if (saveAsText) {
+            MatrixTools.saveMatrixTextNumpy(path, array);
+        } else {
+            save(path, channel -> write(channel, array));
+        }
+    }
+
+    private static void save(String path, ArrayWriter writer) {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writer.write(channel);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println("Unable to save " + path);
+        }
+    }
+
+    public static void write(WritableByteChannel channel, float[][] matrix) throws IOException {
+        int numColumns = matrix.length > 0 ? matrix[0].length : 0;
+        RowBuffer out = new RowBuffer(channel, getHeader("<f4", matrix.length, numColumns),
+                (long) matrix.length * numColumns * Float.BYTES);
+        for (float[] row : matrix) {
+            for (float value : row) {
+                out.reserve(Float.BYTES).putFloat(value);
+            }
+        }
+        out.flush();
+    }
+
+    public static void write(WritableByteChannel channel, double[][] matrix) throws IOException {
+        int numColumns = matrix.length > 0 ? matrix[0].length : 0;
+        RowBuffer out = new RowBuffer(channel, getHeader("<f8", matrix.length, numColumns),
+                (long) matrix.length * numColumns * Double.BYTES);
+        for (double[] row : matrix) {
+            for (double value : row) {
+                out.reserve(Double.BYTES).putDouble(value);
+            }
+        }
+        out.flush();
+    }
+
+    public static void write(WritableByteChannel channel, int[][] matrix) throws IOException {
+        int numColumns = matrix.length > 0 ? matrix[0].length : 0;
+        RowBuffer out = new RowBuffer(channel, getHeader("<i4", matrix.length, numColumns),
+                (long) matrix.length * numColumns * Integer.BYTES);
+        for (int[] row : matrix) {
+            for (int value : row) {
+                out.reserve(Integer.BYTES).putInt(value);
+            }
+        }
+        out.flush();
+    }
+
+    public static void write(WritableByteChannel channel, float[] array) throws IOException {
+        RowBuffer out = new RowBuffer(channel, getHeader("<f4", array.length), (long) array.length * Float.BYTES);
+        for (float value : array) {
+            out.reserve(Float.BYTES).putFloat(value);
+        }
+        out.flush();
+    }
+
+    public static void write(WritableByteChannel channel, double[] array) throws IOException {
+        RowBuffer out = new RowBuffer(channel, getHeader("<f8", array.length), (long) array.length * Double.BYTES);
+        for (double value : array) {
+            out.reserve(Double.BYTES).putDouble(value);
+        }
+        out.flush();
+    }
+
+    public static void write(WritableByteChannel channel, int[] array) throws IOException {
+        RowBuffer out = new RowBuffer(channel, getHeader("<i4", array.length), (long) array.length * Integer.BYTES);
+        for (int value : array) {
+            out.reserve(Integer.BYTES).putInt(value);
+        }
+        out.flush();
+    }
+
+    /**
+     * preamble and header, padded so the data starts on a multiple of 64 bytes
+     */
+    public static byte[] getHeader(String descr, long... shape) {
+        String dict = getDictionary(descr, shape);
+        boolean useVersion2 = dict.length() + 10 > 0xFFFF;
+        int preamble = useVersion2 ? 12 : 10;
+        int length = (preamble + dict.length() + 1 + 63) / 64 * 64;
+        return getHeader(descr, shape, length);
+    }
+
+    /**
+     * preamble and header, padded with spaces to exactly length bytes (a multiple of 64)
+     */
+    public static byte[] getHeader(String descr, long[] shape, int length) {
+        String dict = getDictionary(descr, shape);
+        boolean useVersion2 = length - 10 > 0xFFFF;
+        int preamble = useVersion2 ? 12 : 10;
+        int headerLength = length - preamble;
+        if (dict.length() + 1 > headerLength) {
+            throw new IllegalArgumentException("NPY header does not fit in " + length + " bytes");
+        }
+
+        StringBuilder padded = new StringBuilder(dict);
+        while (padded.length() < headerLength - 1) {
+            padded.append(' ');
+        }
+        padded.append('\n');
+
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) 0x93).put("NUMPY".getBytes(StandardCharsets.US_ASCII));
+        if (useVersion2) {
+            buffer.put((byte) 2).put((byte) 0).putInt(headerLength);
+        } else {
+            buffer.put((byte) 1).put((byte) 0).putShort((short) headerLength);
+        }
+        buffer.put(padded.toString().getBytes(StandardCharsets.US_ASCII));
+        return buffer.array();
+    }
+
+    private static String getDictionary(String descr, long[] shape) {
+        StringBuilder dict = new StringBuilder("{'descr': '" + descr + "', 'fortran_order': False, 'shape': (");
+        for (int i = 0; i < shape.length; i++) {
+            if (i > 0) dict.append(", ");
+            dict.append(shape[i]);
+        }
+        if (shape.length == 1) dict.append(',');
+        return dict.append("), }").toString();
+    }
+
+    private static class RowBuffer {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer;
+
+        RowBuffer(WritableByteChannel channel, byte[] header, long numBytes) throws IOException {
+            this.channel = channel;
+            int capacity = (int) Math.max(Double.BYTES, Math.min(BUFFER_SIZE, numBytes));
+            buffer = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+            writeFully(ByteBuffer.wrap(header));
+        }
+
+        ByteBuffer reserve(int numBytes) throws IOException {
+            if (buffer.remaining() < numBytes) {
+                flush();
+            }
+            return buffer;
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+
+        private void writeFully(ByteBuffer data) throws IOException {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+    }
+}
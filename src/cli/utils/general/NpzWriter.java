@@ -0,0 +1,47 @@
+package cli.utils.general;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Bundles several arrays into one compressed NumPy .npz archive; each array becomes the binary
+ * "name.npy" entry that numpy.load exposes as archive["name"].
+ */
+public class NpzWriter implements Closeable {
+
+    private final ZipOutputStream zip;
+    private final WritableByteChannel channel;
+
+    public NpzWriter(String path) throws IOException {
+        zip = new ZipOutputStream(new FileOutputStream(path));
+        channel = Channels.newChannel(zip);
+    }
+
+    public void add(String name, float[][] matrix) throws IOException {
+        zip.putNextEntry(new ZipEntry(name + ".npy"));
+        NpyWriter.write(channel, matrix);
+        zip.closeEntry();
+    }
+
+    public void add(String name, double[][] matrix) throws IOException {
+        zip.putNextEntry(new ZipEntry(name + ".npy"));
+        NpyWriter.write(channel, matrix);
+        zip.closeEntry();
+    }
+
+    public void add(String name, double[] array) throws IOException {
+        zip.putNextEntry(new ZipEntry(name + ".npy"));
+        NpyWriter.write(channel, array);
+        zip.closeEntry();
+    }
+
+    @Override
+    public void close() throws IOException {
+        zip.close();
+    }
+}
@@ -36,7 +36,7 @@ public class OverlapTools {
                 && px.getEnd2() == px2.getEnd2();
     }
 
-    private static boolean hasOverlap(Feature2D px1, Feature2D original, int buffer) {
+    static boolean hasOverlap(Feature2D px1, Feature2D original, int buffer) {
         return getWidth(px1.getStart1(), px1.getEnd1(), original.getStart1() - buffer, original.getEnd1() + buffer) *
                 getWidth(px1.getStart2(), px1.getEnd2(), original.getStart2() - buffer, original.getEnd2() + buffer) > 0;
     }
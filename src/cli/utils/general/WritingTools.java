@@ -1,62 +1,30 @@
 package cli.utils.general;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.*;
 import java.util.List;
 
 public class WritingTools {
 
-    public static void writeToMND(float[][] matrix, int resolution,
-                                  String xChrom, String yChrom,
-                                  int xOrigin, int yOrigin, BufferedWriter bwMND) throws IOException {
-        for (int i = 0; i < matrix.length; i++) {
-            for (int j = 0; j < matrix[i].length; j++) {
-                int val = Math.round(matrix[i][j]);
-                if (val > 0) {
-                    long gx = (long) (i + xOrigin) * resolution;
-                    long gy = (long) (j + yOrigin) * resolution;
-                    bwMND.write(xChrom + " " + gx + " " + yChrom + " " + gy + " " + val);
-                    bwMND.newLine();
+    /**
+     * concatenates the parts in order into result and deletes them; gzip parts make a valid multi-member gzip file
+     */
+    public static void concatenateFiles(List<File> parts, File result) {
+        try (OutputStream output = new FileOutputStream(result)) {
+            byte[] buffer = new byte[1 << 16];
+            for (File part : parts) {
+                try (InputStream input = new FileInputStream(part)) {
+                    int numRead;
+                    while ((numRead = input.read(buffer)) > 0) {
+                        output.write(buffer, 0, numRead);
+                    }
                 }
+                part.delete();
             }
-        }
-    }
-
-    public static String buildCatScript(List<String> filePaths, String outFolder) {
-        filePaths.sort(String::compareTo);
-        String scriptPath = new File(outFolder, "cat_outputs.sh").getAbsolutePath();
-        String resultPath = new File(outFolder, "enhance.short.mnd.txt").getAbsolutePath();
-
-        try {
-            PrintWriter finalOutput = new PrintWriter(scriptPath);
-            StringBuilder catOutputLine = new StringBuilder();
-            StringBuilder removeLine = new StringBuilder();
-
-            catOutputLine.append("cat ").append(filePaths.get(0));
-            removeLine.append("rm ").append(filePaths.get(0));
-            for(int i = 1; i < filePaths.size(); i++){
-
-                catOutputLine.append(" ").append(filePaths.get(i));
-                removeLine.append(" ").append(filePaths.get(i));
-            }
-
-            catOutputLine.append(" ").append(" > ").append(resultPath).append("\n");
-            finalOutput.println(catOutputLine);
-            finalOutput.println(removeLine);
-            finalOutput.close();
-
-            System.out.println("Run the shell script at: " + scriptPath);
-            //ShellCommandRunner.runShellFile("sh", scriptPath);
-
-        } catch (Exception e) {
+        } catch (IOException e) {
             e.printStackTrace();
-            System.err.println("Unable to write to catOutputs.sh");
+            System.err.println("Unable to write " + result.getAbsolutePath());
             System.exit(70);
         }
-
-        return resultPath;
     }
 
     public static String getResolutionsToBuild(int highestResolution) {
@@ -0,0 +1,309 @@
+package cli.utils.hotspot;
+
+import cli.utils.data.PackedContactStore;
+import javastraw.reader.block.ContactRecord;
+import javastraw.tools.ParallelizationTools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Running mean/variance/min/max for every pixel, stored column-wise and keyed by packed (binX, binY).
+ * Pixels are split across shards with their own locks, so several datasets can be added concurrently
+ * through per-thread Appenders. Removed pixels keep their slot (counts set to 0) so probing is unaffected.
+ */
+public class ShardedWelfordMap {
+
+    private static final int NUM_SHARDS = 64;
+    private static final int BUFFER_SIZE = 1024;
+    private final Shard[] shards = new Shard[NUM_SHARDS];
+
+    public ShardedWelfordMap() {
+        for (int s = 0; s < NUM_SHARDS; s++) {
+            shards[s] = new Shard();
+        }
+    }
+
+    private static int getShardIndex(long key) {
+        long h = key * 0xC2B2AE3D27D4EB4FL;
+        return (int) (h >>> 58);
+    }
+
+    public Appender getAppender() {
+        return new Appender();
+    }
+
+    public long size() {
+        long total = 0;
+        for (Shard shard : shards) {
+            total += shard.numActive;
+        }
+        return total;
+    }
+
+    public boolean contains(int binX, int binY) {
+        return locate(binX, binY) >= 0;
+    }
+
+    public int getCounts(int binX, int binY) {
+        long loc = locate(binX, binY);
+        return loc < 0 ? 0 : getShard(loc).counts[getSlot(loc)];
+    }
+
+    public double getMin(int binX, int binY) {
+        long loc = locate(binX, binY);
+        return loc < 0 ? 0 : getShard(loc).min[getSlot(loc)];
+    }
+
+    public double getMax(int binX, int binY) {
+        long loc = locate(binX, binY);
+        return loc < 0 ? 0 : getShard(loc).max[getSlot(loc)];
+    }
+
+    public double getRange(int binX, int binY) {
+        long loc = locate(binX, binY);
+        if (loc < 0) return 0;
+        Shard shard = getShard(loc);
+        return (double) shard.max[getSlot(loc)] - shard.min[getSlot(loc)];
+    }
+
+    public double getMean(int binX, int binY) {
+        long loc = locate(binX, binY);
+        return loc < 0 ? 0 : getShard(loc).mean[getSlot(loc)];
+    }
+
+    public double getStdDev(int binX, int binY) {
+        long loc = locate(binX, binY);
+        if (loc < 0) return 0;
+        Shard shard = getShard(loc);
+        int i = getSlot(loc);
+        return Math.sqrt(shard.m2[i] / shard.counts[i]);
+    }
+
+    // lookups are only done after all appenders have been flushed, so they are not synchronized
+    private long locate(int binX, int binY) {
+        if (binX < 0 || binY < 0) return -1;
+        long key = PackedContactStore.pack(binX, binY);
+        int s = getShardIndex(key);
+        Shard shard = shards[s];
+        int index = shard.indexOf(key);
+        if (shard.keys[index] == Shard.EMPTY || shard.counts[index] == 0) return -1;
+        return ((long) s << 32) | index;
+    }
+
+    private Shard getShard(long location) {
+        return shards[(int) (location >>> 32)];
+    }
+
+    private static int getSlot(long location) {
+        return (int) location;
+    }
+
+    /**
+     * Removes pixels whose range or max is above the cutoffs, or that were seen fewer than minCounts times
+     */
+    public void removeIf(double maxRange, double maxValue, int minCounts) {
+        runOverShards(shard -> {
+            int[] counts = shard.counts;
+            float[] min = shard.min;
+            float[] max = shard.max;
+            int removed = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0 && ((double) max[i] - min[i] > maxRange || counts[i] < minCounts
+                        || max[i] > maxValue)) {
+                    counts[i] = 0;
+                    removed++;
+                }
+            }
+            shard.numActive -= removed;
+        });
+    }
+
+    /**
+     * @return pixels with range above the cutoff and min below it; counts are set to the max value
+     */
+    public List<ContactRecord> getVariableRecords(double cutoff) {
+        return collect(cutoff, true);
+    }
+
+    /**
+     * @return pixels with range below the cutoff and min above it; counts are set to the max value
+     */
+    public List<ContactRecord> getStableRecords(double cutoff) {
+        return collect(cutoff, false);
+    }
+
+    private List<ContactRecord> collect(double cutoff, boolean variable) {
+        final List<ContactRecord> records = new ArrayList<>();
+        runOverShards(shard -> {
+            List<ContactRecord> local = new ArrayList<>();
+            int[] counts = shard.counts;
+            float[] min = shard.min;
+            float[] max = shard.max;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    double range = (double) max[i] - min[i];
+                    boolean keep = variable ? (range > cutoff && min[i] < cutoff)
+                            : (range < cutoff && min[i] > cutoff);
+                    if (keep) {
+                        long key = shard.keys[i];
+                        local.add(new ContactRecord((int) (key >>> 32), (int) key, max[i]));
+                    }
+                }
+            }
+            synchronized (records) {
+                records.addAll(local);
+            }
+        });
+        return records;
+    }
+
+    private interface ShardTask {
+        void run(Shard shard);
+    }
+
+    private void runOverShards(ShardTask task) {
+        AtomicInteger sIndex = new AtomicInteger(0);
+        ParallelizationTools.launchParallelizedCode(() -> {
+            int s = sIndex.getAndIncrement();
+            while (s < NUM_SHARDS) {
+                task.run(shards[s]);
+                s = sIndex.getAndIncrement();
+            }
+        });
+    }
+
+    /**
+     * Buffers values per shard for one thread and adds them under the shard's lock in batches.
+     * flush() must be called once the thread is done adding.
+     */
+    public class Appender {
+        private final long[][] keys = new long[NUM_SHARDS][BUFFER_SIZE];
+        private final float[][] values = new float[NUM_SHARDS][BUFFER_SIZE];
+        private final int[] sizes = new int[NUM_SHARDS];
+
+        public void add(int binX, int binY, float value) {
+            long key = PackedContactStore.pack(binX, binY);
+            int s = getShardIndex(key);
+            keys[s][sizes[s]] = key;
+            values[s][sizes[s]] = value;
+            if (++sizes[s] == BUFFER_SIZE) {
+                flush(s);
+            }
+        }
+
+        private void flush(int s) {
+            Shard shard = shards[s];
+            synchronized (shard) {
+                for (int i = 0; i < sizes[s]; i++) {
+                    shard.add(keys[s][i], values[s][i]);
+                }
+            }
+            sizes[s] = 0;
+        }
+
+        public void flush() {
+            for (int s = 0; s < NUM_SHARDS; s++) {
+                if (sizes[s] > 0) {
+                    flush(s);
+                }
+            }
+        }
+    }
+
+    private static class Shard {
+        private static final long EMPTY = -1L;
+        private static final int MIN_CAPACITY = 1024;
+        private static final int MAX_CAPACITY = 1 << 30;
+
+        private long[] keys;
+        private int[] counts;
+        private double[] mean;
+        private double[] m2;
+        private float[] min;
+        private float[] max;
+        private int mask;
+        private int numSlotsUsed = 0;
+        private int numActive = 0;
+
+        Shard() {
+            allocate(MIN_CAPACITY);
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            counts = new int[capacity];
+            mean = new double[capacity];
+            m2 = new double[capacity];
+            min = new float[capacity];
+            max = new float[capacity];
+            mask = capacity - 1;
+        }
+
+        private int indexOf(long key) {
+            int row = (int) (key >>> 32);
+            int index = (row * 0x9E3779B9 + (int) key) & mask;
+            while (keys[index] != EMPTY && keys[index] != key) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+
+        void add(long key, float value) {
+            int i = indexOf(key);
+            if (keys[i] == EMPTY) {
+                keys[i] = key;
+                counts[i] = 1;
+                mean[i] = value;
+                m2[i] = 0;
+                min[i] = value;
+                max[i] = value;
+                numSlotsUsed++;
+                numActive++;
+                if (numSlotsUsed * 4L > keys.length * 3L) {
+                    grow();
+                }
+            } else if (counts[i] > 0) {
+                int n = ++counts[i];
+                double delta = value - mean[i];
+                mean[i] += delta / n;
+                m2[i] += delta * (value - mean[i]);
+                if (value < min[i]) min[i] = value;
+                if (value > max[i]) max[i] = value;
+            }
+        }
+
+        // past 2^30 slots the shard fills beyond the load factor, and fails once a single free slot is left
+        private void grow() {
+            if (keys.length < MAX_CAPACITY) {
+                rehash(keys.length << 1);
+            } else if (numSlotsUsed >= keys.length - 1) {
+                throw new IllegalStateException("Hotspot shard cannot hold more than " + (keys.length - 1) + " pixels");
+            }
+        }
+
+        private void rehash(int newCapacity) {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            double[] oldMean = mean;
+            double[] oldM2 = m2;
+            float[] oldMin = min;
+            float[] oldMax = max;
+            allocate(newCapacity);
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != EMPTY) {
+                    int i = indexOf(oldKeys[j]);
+                    keys[i] = oldKeys[j];
+                    counts[i] = oldCounts[j];
+                    mean[i] = oldMean[j];
+                    m2[i] = oldM2[j];
+                    min[i] = oldMin[j];
+                    max[i] = oldMax[j];
+                }
+            }
+        }
+    }
+}
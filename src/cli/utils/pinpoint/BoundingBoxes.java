@@ -11,12 +11,12 @@ import java.util.*;
 public class BoundingBoxes {
 
     public static List<int[]> getEnrichedRegions(List<ContactRecord> records, int binXStart, int binYStart,
-                                                 int matrixWidth, int scalar, String saveString, float[][] kernel) {
+                                                 int matrixWidth, int scalar, String saveString, int kernelWidth) {
         float[][] outputD10 = new float[matrixWidth / scalar][matrixWidth / scalar];
         Utils.fillInMatrixFromRecords(outputD10, records, binXStart, binYStart, scalar);
         ArrayTools.saveIfVerbose(saveString + ".raw.S10.npy", outputD10);
 
-        float[][] kde = Convolution2DTools.sparseConvolution(outputD10, kernel);
+        float[][] kde = ManhattanConvolution.convolve(outputD10, kernelWidth);
         ArrayTools.saveIfVerbose(saveString + ".kde.S10.npy", kde);
         outputD10 = null;
 
@@ -33,42 +33,25 @@ public class BoundingBoxes {
     public static List<int[]> getBoundingBoxes(List<Pixel> enrichedPixels, int radius, int scalar,
                                                int rowLimit, int colLimit) {
         List<Pixel> sortedPixels = new ArrayList<>(enrichedPixels);
+        sortedPixels.removeIf(Objects::isNull);
         sortedPixels.sort((o1, o2) -> Float.compare(o1.value, o2.value));
         Collections.reverse(sortedPixels);
         List<int[]> bounds = new ArrayList<>();
 
-        while (!sortedPixels.isEmpty()) {
-            Pixel pixel = sortedPixels.get(0);
-            if (pixel != null) {
-                int minR = pixel.row - radius;
-                int minC = pixel.col - radius;
-                int maxR = pixel.row + radius + 1;
-                int maxC = pixel.col + radius + 1;
+        PixelGrid grid = new PixelGrid(sortedPixels, radius);
+        for (int i = 0; i < grid.size(); i++) {
+            if (grid.isRemoved(i)) continue;
+            Pixel pixel = grid.get(i);
+            int[] box = new int[]{pixel.row - radius, pixel.col - radius,
+                    pixel.row + radius + 1, pixel.col + radius + 1};
+            grid.growAndRemove(box, radius);
 
-                Set<Pixel> toRemove = new HashSet<>();
-                toRemove.add(pixel);
+            int minR = Math.max(box[0], 0);
+            int minC = Math.max(box[1], 0);
+            int maxR = Math.min(box[2], rowLimit);
+            int maxC = Math.min(box[3], colLimit);
 
-                while (toRemove.size() > 0) {
-                    sortedPixels.removeAll(toRemove);
-                    toRemove.clear();
-                    for (Pixel px : sortedPixels) {
-                        if (Pixel.contains(px, minR, maxR, minC, maxC)) {
-                            toRemove.add(px);
-                            minR = Math.min(minR, px.row - radius);
-                            minC = Math.min(minC, px.col - radius);
-                            maxR = Math.max(maxR, px.row + radius + 1);
-                            maxC = Math.max(maxC, px.col + radius + 1);
-                        }
-                    }
-                }
-
-                minR = Math.max(minR, 0);
-                minC = Math.max(minC, 0);
-                maxR = Math.min(maxR, rowLimit);
-                maxC = Math.min(maxC, colLimit);
-
-                bounds.add(new int[]{minR * scalar, minC * scalar, maxR * scalar, maxC * scalar});
-            }
+            bounds.add(new int[]{minR * scalar, minC * scalar, maxR * scalar, maxC * scalar});
         }
         return bounds;
     }
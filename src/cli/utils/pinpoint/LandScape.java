@@ -42,10 +42,10 @@ public class LandScape {
     public static void extractMaxima(List<ContactRecord> records, int originalBinXStart, int originalBinYStart, long resolution,
                                      List<Feature2D> pinpointedLoops, List<Feature2D> pinpointedBounds,
                                      Feature2D loop, String saveString,
-                                     boolean onlyGetOne, int matrixWidth, float[][] kernel, float[][] compressedKernel) {
+                                     boolean onlyGetOne, int matrixWidth, int kernelWidth, int compressedKernelWidth) {
 
         List<int[]> bounds = BoundingBoxes.getEnrichedRegions(records, originalBinXStart, originalBinYStart, matrixWidth, 20,
-                saveString, compressedKernel);
+                saveString, compressedKernelWidth);
 
         int counter = 0;
         for (int[] bound : bounds) {
@@ -61,7 +61,7 @@ public class LandScape {
             float[] outputR = ArrayTools.getNormedRowSums(output);
             float[] outputC = ArrayTools.getNormedColSums(output);
 
-            float[][] kde = Convolution2DTools.sparseConvolution(output, kernel);
+            float[][] kde = ManhattanConvolution.convolve(output, kernelWidth);
             ArrayTools.saveIfVerbose(saveString + ".kde.c" + counter + ".npy", kde);
             float[] kdeR = ArrayTools.getNormedRowSums(kde);
             float[] kdeC = ArrayTools.getNormedColSums(kde);
@@ -91,34 +91,20 @@ public class LandScape {
                                                        float[] rowSignal, float[] colSignal) {
         Pixel pixel = Pixel.getMax(pixels, rowSignal, colSignal);
         if (pixel != null) {
-            int numCollapsed = 0;
-            int minR = pixel.row - radius;
-            int minC = pixel.col - radius;
-            int maxR = pixel.row + radius + 1;
-            int maxC = pixel.col + radius + 1;
-
-            Set<Pixel> toRemove = new HashSet<>();
-            toRemove.add(pixel);
-
-            while (toRemove.size() > 0) {
-                pixels.removeAll(toRemove);
-                numCollapsed += toRemove.size();
-                toRemove.clear();
-
-                for (Pixel px : pixels) {
-                    if (Pixel.contains(px, minR, maxR, minC, maxC)) {
-                        toRemove.add(px);
-
-                        minR = Math.min(minR, px.row - radius);
-                        minC = Math.min(minC, px.col - radius);
-                        maxR = Math.max(maxR, px.row + radius + 1);
-                        maxC = Math.max(maxC, px.col + radius + 1);
-                    }
+            int[] box = new int[]{pixel.row - radius, pixel.col - radius,
+                    pixel.row + radius + 1, pixel.col + radius + 1};
+
+            PixelGrid grid = new PixelGrid(pixels, radius);
+            int numCollapsed = grid.growAndRemove(box, radius);
+            pixels.clear();
+            for (int i = 0; i < grid.size(); i++) {
+                if (!grid.isRemoved(i)) {
+                    pixels.add(grid.get(i));
                 }
             }
 
             if (numCollapsed > MIN_ENRICHED_PIXELS) {
-                return new LocalMaxima(pixel, numCollapsed, minR, minC, maxR, maxC);
+                return new LocalMaxima(pixel, numCollapsed, box[0], box[1], box[2], box[3]);
             }
         }
         return null;
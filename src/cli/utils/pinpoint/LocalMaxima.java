@@ -3,9 +3,9 @@ package cli.utils.pinpoint;
 import cli.utils.general.Pixel;
 
 public class LocalMaxima {
-    final Pixel maxCoordinate;
-    final int area;
-    final int minR, minC, maxR, maxC;
+    public final Pixel maxCoordinate;
+    public final int area;
+    public final int minR, minC, maxR, maxC;
 
     public LocalMaxima(Pixel maxCoordinate, int area, int minR, int minC, int maxR, int maxC) {
         this.maxCoordinate = maxCoordinate;
@@ -0,0 +1,149 @@
+package cli.utils.pinpoint;
+
+import javastraw.tools.ParallelizationTools;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Same result as Convolution2DTools.sparseConvolution(image, getManhattanKernel(width)), but in O(1) per pixel.
+ * <p>
+ * With h = width / 2 the kernel is (h - |dr| - |dc|) / h inside the diamond |dr| + |dc| < h.
+ * Moving one column to the right, the weighted sum P changes by R - L, where R is the image sum over
+ * the right half-diamond of radius h and L over the left half-diamond of radius h - 1.
+ * R and L themselves change by one column segment and two diagonal segments per step,
+ * which are read from column, diagonal and anti-diagonal prefix sums.
+ * Only positive pixels contribute, as in sparseConvolution. Rows are independent once the prefix sums
+ * are built, so large images are swept in parallel.
+ */
+public class ManhattanConvolution {
+
+    private static final int PARALLEL_MIN_PIXELS = 1 << 20;
+
+    public static float[][] convolve(float[][] image, int kernelWidth) {
+        return convolve(image, kernelWidth, (long) image.length * image[0].length >= PARALLEL_MIN_PIXELS);
+    }
+
+    public static float[][] convolve(float[][] image, int kernelWidth, boolean runParallel) {
+        int h = kernelWidth / 2;
+        if (h < 1) {
+            return Convolution2DTools.sparseConvolution(image, Convolution2DTools.getManhattanKernel(kernelWidth));
+        }
+
+        PrefixSums sums = new PrefixSums(image);
+        float[][] result = new float[sums.rows][sums.cols];
+        if (runParallel) {
+            AtomicInteger currRow = new AtomicInteger(0);
+            ParallelizationTools.launchParallelizedCode(() -> {
+                int r = currRow.getAndIncrement();
+                while (r < sums.rows) {
+                    sweepRow(sums, result[r], r, h);
+                    r = currRow.getAndIncrement();
+                }
+            });
+        } else {
+            for (int r = 0; r < sums.rows; r++) {
+                sweepRow(sums, result[r], r, h);
+            }
+        }
+        return result;
+    }
+
+    private static void sweepRow(PrefixSums sums, float[] output, int r, int h) {
+        // start far enough left that the diamond and both half-diamonds are outside the image
+        double p = 0, right = 0, left = 0;
+        for (int c = -h - 1; c < sums.cols - 1; c++) {
+            p += right - left;
+            double column = sums.column(c + 1, r - h + 1, r + h - 1);
+            right += sums.diagonal(r - c - h - 1, r - h + 1, r)
+                    + sums.antiDiagonal(r + c + h + 1, r, r + h - 1)
+                    - sums.get(r, c + h + 1) - column;
+            left += column
+                    - sums.antiDiagonal(r + c - h + 1, r - h + 1, r)
+                    - sums.diagonal(r - c + h - 1, r, r + h - 1)
+                    + sums.get(r, c - h + 1);
+            if (c + 1 >= 0) {
+                output[c + 1] = p > sums.epsilon ? (float) (p / h) : 0;
+            }
+        }
+    }
+
+    private static class PrefixSums {
+        final int rows, cols;
+        final double epsilon;
+        private final float[][] image;
+        private final double[] columns;
+        private final double[] diagonals;
+        private final double[] antiDiagonals;
+
+        PrefixSums(float[][] image) {
+            this.image = image;
+            rows = image.length;
+            cols = image[0].length;
+            columns = new double[(rows + 1) * cols];
+            diagonals = new double[rows * cols];
+            antiDiagonals = new double[rows * cols];
+
+            double total = 0;
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    double val = get(i, j);
+                    total += val;
+                    int index = i * cols + j;
+                    columns[index + cols] = columns[index] + val;
+                    diagonals[index] = val;
+                    antiDiagonals[index] = val;
+                    if (i > 0) {
+                        if (j > 0) diagonals[index] += diagonals[index - cols - 1];
+                        if (j < cols - 1) antiDiagonals[index] += antiDiagonals[index - cols + 1];
+                    }
+                }
+            }
+            // running sums leave round-off where the true value is zero
+            epsilon = 1e-10 * total;
+        }
+
+        double get(int i, int j) {
+            if (i < 0 || i >= rows || j < 0 || j >= cols || image[i][j] <= 0) return 0;
+            return image[i][j];
+        }
+
+        /**
+         * sum of column j over rows [i0, i1]
+         */
+        double column(int j, int i0, int i1) {
+            if (j < 0 || j >= cols) return 0;
+            int lo = Math.max(i0, 0);
+            int hi = Math.min(i1, rows - 1);
+            if (lo > hi) return 0;
+            return columns[(hi + 1) * cols + j] - columns[lo * cols + j];
+        }
+
+        /**
+         * sum over i - j = k for rows [i0, i1]
+         */
+        double diagonal(int k, int i0, int i1) {
+            int lo = Math.max(i0, Math.max(0, k));
+            int hi = Math.min(i1, Math.min(rows - 1, cols - 1 + k));
+            if (lo > hi) return 0;
+            double sum = diagonals[hi * cols + hi - k];
+            if (lo > 0 && lo - 1 - k >= 0) {
+                sum -= diagonals[(lo - 1) * cols + lo - 1 - k];
+            }
+            return sum;
+        }
+
+        /**
+         * sum over i + j = s for rows [i0, i1]
+         */
+        double antiDiagonal(int s, int i0, int i1) {
+            int lo = Math.max(i0, Math.max(0, s - cols + 1));
+            int hi = Math.min(i1, Math.min(rows - 1, s));
+            if (lo > hi) return 0;
+            double sum = antiDiagonals[hi * cols + s - hi];
+            if (lo > 0 && s - lo + 1 < cols) {
+                sum -= antiDiagonals[(lo - 1) * cols + s - lo + 1];
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package cli.utils.pinpoint;
+
+import cli.utils.general.Pixel;
+
+import java.util.List;
+
+/**
+ * Bucket grid over pixel coordinates for the region growing in BoundingBoxes and LandScape.
+ * Each cell keeps the ids of its remaining pixels in a slice of one flat array; absorbed pixels are
+ * swapped out of their slice, so later queries never see them again.
+ */
+class PixelGrid {
+
+    private static final int MAX_CELLS_PER_SIDE = 1024;
+
+    private final Pixel[] pixels;
+    private final boolean[] removed;
+    private final int originR, originC, cellSize, numCellRows, numCellCols;
+    private final int[] cellStarts;
+    private final int[] cellCounts;
+    private final int[] ids;
+    private int[] found = new int[16];
+
+    PixelGrid(List<Pixel> pixelList, int radius) {
+        pixels = pixelList.toArray(new Pixel[0]);
+        removed = new boolean[pixels.length];
+
+        int minR = Integer.MAX_VALUE, minC = Integer.MAX_VALUE, maxR = Integer.MIN_VALUE, maxC = Integer.MIN_VALUE;
+        for (Pixel px : pixels) {
+            minR = Math.min(minR, px.row);
+            minC = Math.min(minC, px.col);
+            maxR = Math.max(maxR, px.row);
+            maxC = Math.max(maxC, px.col);
+        }
+        if (pixels.length == 0) {
+            minR = minC = maxR = maxC = 0;
+        }
+        originR = minR;
+        originC = minC;
+        long extent = Math.max((long) maxR - minR, (long) maxC - minC) + 1;
+        cellSize = (int) Math.max(2L * radius + 1, (extent + MAX_CELLS_PER_SIDE - 1) / MAX_CELLS_PER_SIDE);
+        numCellRows = (int) (((long) maxR - minR) / cellSize) + 1;
+        numCellCols = (int) (((long) maxC - minC) / cellSize) + 1;
+
+        cellStarts = new int[numCellRows * numCellCols + 1];
+        cellCounts = new int[numCellRows * numCellCols];
+        for (Pixel px : pixels) {
+            cellCounts[cellOf(px)]++;
+        }
+        for (int k = 0; k < cellCounts.length; k++) {
+            cellStarts[k + 1] = cellStarts[k] + cellCounts[k];
+            cellCounts[k] = 0;
+        }
+        ids = new int[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            int cell = cellOf(pixels[i]);
+            ids[cellStarts[cell] + cellCounts[cell]++] = i;
+        }
+    }
+
+    private int cellOf(Pixel px) {
+        return ((px.row - originR) / cellSize) * numCellCols + (px.col - originC) / cellSize;
+    }
+
+    int size() {
+        return pixels.length;
+    }
+
+    Pixel get(int id) {
+        return pixels[id];
+    }
+
+    boolean isRemoved(int id) {
+        return removed[id];
+    }
+
+    /**
+     * Grows box = {minR, minC, maxR, maxC} (max exclusive) until no remaining pixel lies inside it,
+     * extending it by radius around every pixel it absorbs. Absorbed pixels are removed from the grid.
+     *
+     * @return number of pixels absorbed
+     */
+    int growAndRemove(int[] box, int radius) {
+        int numAbsorbed = 0;
+        boolean first = true;
+        int pMinR = 0, pMinC = 0, pMaxR = 0, pMaxC = 0;
+        while (true) {
+            int numFound = 0;
+            if (first) {
+                numFound = collect(box[0], box[2], box[1], box[3], numFound);
+                first = false;
+            } else {
+                // everything inside the previous box is already gone, so only scan the new strips
+                numFound = collect(box[0], pMinR, box[1], box[3], numFound);
+                numFound = collect(pMaxR, box[2], box[1], box[3], numFound);
+                numFound = collect(pMinR, pMaxR, box[1], pMinC, numFound);
+                numFound = collect(pMinR, pMaxR, pMaxC, box[3], numFound);
+            }
+            pMinR = box[0];
+            pMinC = box[1];
+            pMaxR = box[2];
+            pMaxC = box[3];
+
+            for (int k = 0; k < numFound; k++) {
+                Pixel px = pixels[found[k]];
+                box[0] = Math.min(box[0], px.row - radius);
+                box[1] = Math.min(box[1], px.col - radius);
+                box[2] = Math.max(box[2], px.row + radius + 1);
+                box[3] = Math.max(box[3], px.col + radius + 1);
+            }
+            numAbsorbed += numFound;
+
+            if (box[0] == pMinR && box[1] == pMinC && box[2] == pMaxR && box[3] == pMaxC) {
+                return numAbsorbed;
+            }
+        }
+    }
+
+    private int collect(int r0, int r1, int c0, int c1, int numFound) {
+        if (r0 >= r1 || c0 >= c1 || pixels.length == 0) return numFound;
+        int cr0 = clampCell((long) r0 - originR, numCellRows);
+        int cr1 = clampCell((long) r1 - 1 - originR, numCellRows);
+        int cc0 = clampCell((long) c0 - originC, numCellCols);
+        int cc1 = clampCell((long) c1 - 1 - originC, numCellCols);
+        if (r1 - 1 < originR || c1 - 1 < originC) return numFound;
+
+        for (int cr = cr0; cr <= cr1; cr++) {
+            for (int cc = cc0; cc <= cc1; cc++) {
+                int cell = cr * numCellCols + cc;
+                int start = cellStarts[cell];
+                int p = start;
+                while (p < start + cellCounts[cell]) {
+                    int id = ids[p];
+                    Pixel px = pixels[id];
+                    if (px.row >= r0 && px.row < r1 && px.col >= c0 && px.col < c1) {
+                        if (numFound == found.length) {
+                            int[] bigger = new int[2 * found.length];
+                            System.arraycopy(found, 0, bigger, 0, numFound);
+                            found = bigger;
+                        }
+                        found[numFound++] = id;
+                        removed[id] = true;
+                        cellCounts[cell]--;
+                        ids[p] = ids[start + cellCounts[cell]];
+                    } else {
+                        p++;
+                    }
+                }
+            }
+        }
+        return numFound;
+    }
+
+    private int clampCell(long offset, int numCells) {
+        if (offset < 0) return 0;
+        return (int) Math.min(offset / cellSize, numCells - 1);
+    }
+}
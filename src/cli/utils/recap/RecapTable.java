@@ -0,0 +1,112 @@
+package cli.utils.recap;
+
+import javastraw.feature2D.Feature2D;
+
+import java.util.*;
+
+/**
+ * Recap results for every (category, dataset, loop), kept in primitive columns while datasets are processed.
+ * Scalar categories are stored as doubles; vector categories (row/col sums, decay) take a fixed number of floats.
+ * Different (dataset, loop) cells can be written concurrently.
+ */
+public class RecapTable {
+
+    private final List<String> categories;
+    private final Map<String, Integer> categoryIndex = new HashMap<>();
+    private final String[] names;
+    private final int numLoops;
+    private final int[] widths;
+    private final double[][] scalars;
+    private final float[][] vectors;
+    private final Map<Feature2D, Integer> rows = new IdentityHashMap<>();
+    private final Feature2D[] loops;
+
+    public RecapTable(List<String> categories, String[] names, List<Feature2D> allLoops, int window) {
+        this.categories = categories;
+        this.names = names;
+        this.numLoops = allLoops.size();
+        this.loops = allLoops.toArray(new Feature2D[0]);
+        for (int r = 0; r < loops.length; r++) {
+            rows.put(loops[r], r);
+        }
+
+        int numCategories = categories.size();
+        widths = new int[numCategories];
+        scalars = new double[numCategories][];
+        vectors = new float[numCategories][];
+        for (int k = 0; k < numCategories; k++) {
+            String category = categories.get(k);
+            categoryIndex.put(category, k);
+            widths[k] = getWidth(category, window);
+            if (widths[k] == 1) {
+                scalars[k] = new double[names.length * numLoops];
+            } else {
+                vectors[k] = new float[names.length * numLoops * widths[k]];
+            }
+        }
+    }
+
+    private static int getWidth(String category, int window) {
+        if (category.contains(RecapTools.FULL_DECAY)) {
+            return window + 1;
+        } else if (category.contains(RecapTools.ROW_SUM) || category.contains(RecapTools.COL_SUM)) {
+            return 2 * window + 1;
+        }
+        return 1;
+    }
+
+    public int getRow(Feature2D loop) {
+        return rows.get(loop);
+    }
+
+    public void set(String category, int dataset, int row, double value) {
+        scalars[categoryIndex.get(category)][dataset * numLoops + row] = value;
+    }
+
+    public void set(String category, int dataset, int row, float[] vector) {
+        int k = categoryIndex.get(category);
+        int width = widths[k];
+        System.arraycopy(vector, 0, vectors[k], (dataset * numLoops + row) * width, width);
+    }
+
+    /**
+     * @return for the given category, one row per loop and width columns per dataset
+     */
+    public float[][] getMatrix(int k, int[] rowOrder) {
+        int width = widths[k];
+        float[][] matrix = new float[rowOrder.length][names.length * width];
+        for (int i = 0; i < rowOrder.length; i++) {
+            for (int d = 0; d < names.length; d++) {
+                int cell = d * numLoops + rowOrder[i];
+                if (width == 1) {
+                    matrix[i][d] = (float) scalars[k][cell];
+                } else {
+                    System.arraycopy(vectors[k], cell * width, matrix[i], d * width, width);
+                }
+            }
+        }
+        return matrix;
+    }
+
+    public List<String> getCategories() {
+        return categories;
+    }
+
+    public void writeAttributes() {
+        for (int r = 0; r < numLoops; r++) {
+            for (int d = 0; d < names.length; d++) {
+                String prefix = names[d] + "_";
+                int cell = d * numLoops + r;
+                for (int k = 0; k < categories.size(); k++) {
+                    String value;
+                    if (widths[k] == 1) {
+                        value = String.valueOf(scalars[k][cell]);
+                    } else {
+                        value = RecapTools.convertVectorToString(vectors[k], cell * widths[k], widths[k]);
+                    }
+                    loops[r].addStringAttribute(prefix + categories.get(k), value);
+                }
+            }
+        }
+    }
+}
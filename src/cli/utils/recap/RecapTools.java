@@ -1,6 +1,7 @@
 package cli.utils.recap;
 
 import cli.utils.general.ManhattanDecay;
+import cli.utils.general.NpyWriter;
 import cli.utils.general.Utils;
 import javastraw.expected.ExpectedModel;
 import javastraw.feature2D.Feature2D;
@@ -8,7 +9,6 @@ import javastraw.feature2D.Feature2DList;
 import javastraw.reader.basics.Chromosome;
 import javastraw.reader.block.ContactRecord;
 import javastraw.reader.expected.ExpectedValueFunction;
-import javastraw.tools.MatrixTools;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.apache.commons.math3.stat.regression.SimpleRegression;
 
@@ -50,33 +50,33 @@ public class RecapTools {
         return categories;
     }
 
-    public static Map<String, String> getStats(float[][] obsMatrix,
-                                               int window, float pseudoCount,
-                                               boolean isDeepLoopAnalysis, ExpectedModel polynomial,
-                                               Feature2D loop, int resolution,
-                                               long binXStart, long binYStart) {
-
-        Map<String, String> attributes = new HashMap<>();
+    /**
+     * Computes the recap stats for one loop and stores them in the given dataset's row of the table.
+     * obsMatrix is modified; eMatrix and oeMatrix are scratch space of the same size.
+     */
+    public static void fillStats(RecapTable table, int dataset, int row,
+                                 float[][] obsMatrix, float[][] eMatrix, float[][] oeMatrix,
+                                 int window, float pseudoCount,
+                                 boolean isDeepLoopAnalysis, ExpectedModel polynomial,
+                                 Feature2D loop, int resolution,
+                                 long binXStart, long binYStart) {
 
         if (isDeepLoopAnalysis) {
-            addMatrixSums(obsMatrix, attributes, "OBS_");
+            addMatrixSums(obsMatrix, table, dataset, row, "OBS_");
             float[] manhattanDecay = ManhattanDecay.calculateDecay(obsMatrix, window, window, window);
-            addRegressionStats(manhattanDecay, attributes, "OBS_");
+            addRegressionStats(manhattanDecay, table, dataset, row, "OBS_");
 
-            float[][] eMatrix = new float[obsMatrix.length][obsMatrix.length];
             Utils.fillInExpectedMatrix(eMatrix, obsMatrix.length, polynomial, binXStart, binYStart);
 
-            float[][] oeMatrix = divide(obsMatrix, eMatrix, pseudoCount);
-            addMatrixSums(oeMatrix, attributes, "OE_");
+            divide(obsMatrix, eMatrix, pseudoCount, oeMatrix);
+            addMatrixSums(oeMatrix, table, dataset, row, "OE_");
             manhattanDecay = ManhattanDecay.calculateDecay(oeMatrix, window, window, window);
-            addRegressionStats(manhattanDecay, attributes, "OE_");
+            addRegressionStats(manhattanDecay, table, dataset, row, "OE_");
         } else {
             float obs = obsMatrix[window][window];
             double p = getPresenceFrom(polynomial, loop, resolution, obs);
-            attributes.put("PRESENCE", String.valueOf(p));
+            table.set("PRESENCE", dataset, row, p);
         }
-
-        return attributes;
     }
 
     private static double getPresenceFrom(ExpectedModel model, Feature2D loop, int resolution, float counts) {
@@ -100,7 +100,7 @@ public class RecapTools {
             attributes.put(stem + "MIN_ENRICHMENT", String.valueOf(val / stats.getMin()));
         */
 
-    private static void addMatrixSums(float[][] matrix, Map<String, String> attributes, String stem) {
+    private static void addMatrixSums(float[][] matrix, RecapTable table, int dataset, int row, String stem) {
 
         // initializes variables
         int numRows = matrix.length;
@@ -120,13 +120,13 @@ public class RecapTools {
         double spreadRow = getSpreadStdDev(normalizedRowSum);
         double spreadCol = getSpreadStdDev(normalizedColSum);
 
-        // adds these metrics to the attributes object
-        attributes.put(stem + ROW_SUM, convertVectorToString(rowSum));
-        attributes.put(stem + COL_SUM, convertVectorToString(colSum));
-        attributes.put(stem + AMP_ROW, String.valueOf(ampRow));
-        attributes.put(stem + AMP_COL, String.valueOf(ampCol));
-        attributes.put(stem + SPREAD_ROW, String.valueOf(spreadRow));
-        attributes.put(stem + SPREAD_COL, String.valueOf(spreadCol));
+        // adds these metrics to the table
+        table.set(stem + ROW_SUM, dataset, row, rowSum);
+        table.set(stem + COL_SUM, dataset, row, colSum);
+        table.set(stem + AMP_ROW, dataset, row, ampRow);
+        table.set(stem + AMP_COL, dataset, row, ampCol);
+        table.set(stem + SPREAD_ROW, dataset, row, spreadRow);
+        table.set(stem + SPREAD_COL, dataset, row, spreadCol);
     }
 
     private static double getAmplitudeStdDev(float[] sumVector) {
@@ -185,7 +185,7 @@ public class RecapTools {
         }
     }
 
-    private static void addRegressionStats(float[] decay, Map<String, String> attributes, String stem) {
+    private static void addRegressionStats(float[] decay, RecapTable table, int dataset, int row, String stem) {
         SimpleRegression regression = new SimpleRegression();
         for (int i = 0; i < decay.length; i++) {
             regression.addData(i, Math.log(decay[i]));
@@ -193,15 +193,15 @@ public class RecapTools {
         // y = Ae^(kx)  for each (xi, yi) --> wi = log(yi)
         // solve w = a + bx
         // e^a = A  ;  b = k
-        attributes.put(stem + DECAY_A, String.valueOf(Math.exp(regression.getIntercept())));
-        attributes.put(stem + DECAY_k, String.valueOf(regression.getSlope()));
-        attributes.put(stem + FULL_DECAY, convertVectorToString(decay));
+        table.set(stem + DECAY_A, dataset, row, Math.exp(regression.getIntercept()));
+        table.set(stem + DECAY_k, dataset, row, regression.getSlope());
+        table.set(stem + FULL_DECAY, dataset, row, decay);
     }
 
-    private static String convertVectorToString(float[] vector) {
+    static String convertVectorToString(float[] vector, int offset, int length) {
         StringJoiner joiner = new StringJoiner(",");
-        for (float val : vector) {
-            joiner.add("" + val);
+        for (int i = offset; i < offset + length; i++) {
+            joiner.add("" + vector[i]);
         }
         return joiner.toString();
     }
@@ -218,14 +218,12 @@ public class RecapTools {
         return stats;
     }
 
-    private static float[][] divide(float[][] obsMatrix, float[][] eMatrix, double pseudoCount) {
-        float[][] oeMatrix = new float[obsMatrix.length][obsMatrix[0].length];
+    private static void divide(float[][] obsMatrix, float[][] eMatrix, double pseudoCount, float[][] oeMatrix) {
         for (int i = 0; i < oeMatrix.length; i++) {
             for (int j = 0; j < oeMatrix[i].length; j++) {
                 oeMatrix[i][j] = (float) ((obsMatrix[i][j] + pseudoCount) / (eMatrix[i][j] + pseudoCount));
             }
         }
-        return oeMatrix;
     }
 
     private static double getExpected(ContactRecord rec, ExpectedValueFunction df, int chrIndex) {
@@ -235,63 +233,25 @@ public class RecapTools {
         return df.getExpectedValue(chrIndex, dist);
     }
 
-    public static void exportAllMatrices(Chromosome[] chromosomes, Feature2DList refinedLoops, String[] names,
-                                         File outFolder, boolean isDeepLoopAnalysis, int window) {
-        int n = refinedLoops.getNumTotalFeatures();
-        int m = names.length;
-
-        List<String> categories = getCategories(isDeepLoopAnalysis);
-
-        List<float[][]> outputs = new ArrayList<>();
-        for (String category : categories) {
-            if (category.contains(FULL_DECAY)) {
-                outputs.add(new float[n][m * (window + 1)]);
-            } else if (category.contains(ROW_SUM) || category.contains(COL_SUM)) {
-                outputs.add(new float[n][m * (2 * window + 1)]);
-            } else {
-                outputs.add(new float[n][m]);
-            }
-        }
-
-        int currIndex = 0;
+    public static void exportAllMatrices(Chromosome[] chromosomes, Feature2DList refinedLoops, RecapTable table,
+                                         File outFolder) {
+        List<Integer> rowOrder = new ArrayList<>();
         for (Chromosome chrom : chromosomes) {
             List<Feature2D> loops = refinedLoops.get(chrom.getIndex(), chrom.getIndex());
             Collections.sort(loops);
             for (Feature2D loop : loops) {
-                //int currIndex = loopIndex.getAndIncrement();
-                for (int k = 0; k < categories.size(); k++) {
-                    for (int w = 0; w < names.length; w++) {
-                        String key = names[w] + "_" + categories.get(k);
-                        if (categories.get(k).contains(FULL_DECAY)) {
-                            fillInVector(outputs.get(k), loop.getAttribute(key), currIndex, w, window + 1);
-                        } else if (categories.get(k).contains(ROW_SUM) || categories.get(k).contains(COL_SUM)) {
-                            fillInVector(outputs.get(k), loop.getAttribute(key), currIndex, w, 2 * window + 1);
-                        } else {
-                            try {
-                                outputs.get(k)[currIndex][w] = Float.parseFloat(loop.getAttribute(key));
-                            } catch (Exception e) {
-                                System.err.println("failed key " + key);
-                                e.printStackTrace();
-                            }
-                        }
-                    }
-                }
-                currIndex++;
+                rowOrder.add(table.getRow(loop));
             }
         }
-
-        for (int k = 0; k < categories.size(); k++) {
-            MatrixTools.saveMatrixTextNumpy((new File(outFolder, categories.get(k) + ".npy")).getAbsolutePath(),
-                    outputs.get(k));
+        int[] rows = new int[rowOrder.size()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = rowOrder.get(i);
         }
-        outputs.clear();
-    }
 
-    private static void fillInVector(float[][] matrix, String values, int r, int fileIndex, int vLength) {
-        String[] vals = values.split(",");
-        for (int z = 0; z < vLength; z++) {
-            int realColumn = z + (vLength * fileIndex);
-            matrix[r][realColumn] = Float.parseFloat(vals[z]);
+        List<String> categories = table.getCategories();
+        for (int k = 0; k < categories.size(); k++) {
+            NpyWriter.save((new File(outFolder, categories.get(k) + ".npy")).getAbsolutePath(),
+                    table.getMatrix(k, rows));
         }
     }
 }
@@ -0,0 +1,128 @@
+package cli.utils.sample;
+
+import cli.utils.data.GenomeTrackMatrix;
+import javastraw.reader.basics.Chromosome;
+import javastraw.reader.basics.ChromosomeHandler;
+import javastraw.reader.basics.ChromosomeTools;
+
+import java.util.*;
+
+/**
+ * Checks the blocked all-pairs correlations of GenomeTrackMatrix against the per-pair map walk that
+ * bedgraph-corr used before (kept here), on random sparse tracks where one track lacks a chromosome.
+ * Reports the largest difference and times both.
+ * <p>
+ * usage: BedGraphCorrCheck [genomeID] [num tracks] [resolution] [seed]
+ */
+public class BedGraphCorrCheck {
+
+    public static void main(String[] args) {
+        String genomeID = args.length > 0 ? args[0] : "hg38";
+        int numTracks = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+        int resolution = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        Random generator = new Random(args.length > 3 ? Long.parseLong(args[3]) : 0);
+
+        ChromosomeHandler handler = ChromosomeTools.loadChromosomes(genomeID);
+        Chromosome[] chromosomes = handler.getChromosomeArrayWithoutAllByAll();
+        List<Map<String, float[]>> files = new ArrayList<>();
+        for (int k = 0; k < numTracks; k++) {
+            double density = 0.05 + 0.9 * generator.nextDouble();
+            Map<String, float[]> file = new HashMap<>();
+            for (int c = 0; c < chromosomes.length; c++) {
+                if (k == 1 && c == chromosomes.length - 1) continue;
+                float[] values = new float[(int) (chromosomes[c].getLength() / resolution) + 1];
+                for (int i = 0; i < values.length; i++) {
+                    if (generator.nextDouble() < density) {
+                        values[i] = (float) (generator.nextDouble() * 10 + (k % 3) * (i % 7));
+                    }
+                }
+                file.put(chromosomes[c].getName(), values);
+            }
+            files.add(file);
+        }
+
+        for (boolean useCosine : new boolean[]{false, true}) {
+            long start = System.nanoTime();
+            GenomeTrackMatrix tracks = new GenomeTrackMatrix(handler, resolution, numTracks);
+            for (int k = 0; k < numTracks; k++) {
+                tracks.addTrack(k, files.get(k));
+            }
+            double[][] blocked = tracks.getCorrelations(useCosine);
+            long blockedNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            double maxDiff = 0;
+            for (int i = 0; i < numTracks; i++) {
+                for (int j = i + 1; j < numTracks; j++) {
+                    double legacy = legacyCorrelation(files.get(i), files.get(j), useCosine);
+                    maxDiff = Math.max(maxDiff, Math.abs(legacy - blocked[i][j]));
+                }
+            }
+            long legacyNanos = System.nanoTime() - start;
+
+            System.out.println((useCosine ? "cosine" : "pearson") + ": max difference " + maxDiff +
+                    ", blocked " + blockedNanos / 1000000 + " ms, per pair " + legacyNanos / 1000000 + " ms");
+        }
+    }
+
+    private static double legacyCorrelation(Map<String, float[]> file1, Map<String, float[]> file2,
+                                            boolean useCosine) {
+        if (useCosine) {
+            double dotProduct = 0.0, normX = 0, normY = 0;
+            for (String key : file1.keySet()) {
+                if (file2.containsKey(key)) {
+                    float[] x = file1.get(key);
+                    float[] y = file2.get(key);
+                    for (int i = 0; i < x.length; ++i) {
+                        if (isValidComparison(x[i], y[i])) {
+                            dotProduct += x[i] * y[i];
+                            normX += x[i] * x[i];
+                            normY += y[i] * y[i];
+                        }
+                    }
+                }
+            }
+            return dotProduct / Math.sqrt(normX * normY);
+        }
+
+        double sumX = 0.0, sumY = 0.0;
+        int count = 0;
+        for (String key : file1.keySet()) {
+            if (file2.containsKey(key)) {
+                float[] x = file1.get(key);
+                float[] y = file2.get(key);
+                for (int i = 0; i < x.length; ++i) {
+                    if (isValidComparison(x[i], y[i])) {
+                        sumX += x[i];
+                        sumY += y[i];
+                        count++;
+                    }
+                }
+            }
+        }
+
+        double muX = sumX / (double) count;
+        double muY = sumY / (double) count;
+        double dotProduct = 0.0, normX = 0.0, normY = 0.0;
+        for (String key : file1.keySet()) {
+            if (file2.containsKey(key)) {
+                float[] x = file1.get(key);
+                float[] y = file2.get(key);
+                for (int i = 0; i < x.length; ++i) {
+                    if (isValidComparison(x[i], y[i])) {
+                        double nX = x[i] - muX;
+                        double nY = y[i] - muY;
+                        dotProduct += nX * nY;
+                        normX += nX * nX;
+                        normY += nY * nY;
+                    }
+                }
+            }
+        }
+        return dotProduct / Math.sqrt(normX * normY);
+    }
+
+    private static boolean isValidComparison(float x, float v) {
+        return !(Math.abs(x) < 1e-10) || !(Math.abs(v) < 1e-10);
+    }
+}
@@ -0,0 +1,130 @@
+package cli.utils.sample;
+
+import cli.clt.bedpe.IntersectBedpe;
+import cli.utils.general.FusionTools;
+import cli.utils.general.OverlapTools;
+import cli.utils.general.QuickGrouping;
+import cli.utils.sift.SimpleLocation;
+import javastraw.feature2D.Feature2D;
+
+import java.util.*;
+
+/**
+ * Times intersect, subtract and fuse on the shared Feature2DIndex against the previous
+ * group-and-scan versions (kept here) on synthetic loop lists, and checks that outputs match.
+ * <p>
+ * usage: BedpeOverlapBenchmark [seed] [max loops] [num bins]
+ */
+public class BedpeOverlapBenchmark {
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 0;
+        int maxLoops = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+        int numBins = args.length > 2 ? Integer.parseInt(args[2]) : 50000;
+        int resolution = 5000;
+
+        System.out.println("loops\tmode\tlegacy_ms\tindex_ms\toutput");
+        for (int numLoops = 12500; numLoops <= maxLoops; numLoops *= 2) {
+            SyntheticContacts generator = new SyntheticContacts(seed);
+            List<Feature2D> listA = generator.loops("chr1", numLoops, resolution, numBins, 2000);
+            List<Feature2D> listB = generator.loops("chr1", numLoops, resolution, numBins, 2000);
+
+            for (int mode = 0; mode < 4; mode++) {
+                boolean doSubtraction = mode == 1;
+                boolean doBoundingBox = mode == 2;
+                int window = mode == 3 ? 2 * resolution : 0;
+                String name = new String[]{"intersect", "subtract", "bounding-box", "window"}[mode];
+
+                long start = System.nanoTime();
+                List<Feature2D> expected = legacyIntersect(listA, listB, doSubtraction, window, doBoundingBox);
+                long legacyNanos = System.nanoTime() - start;
+                start = System.nanoTime();
+                List<Feature2D> actual = IntersectBedpe.intersect(listA, listB, doSubtraction, false, window, doBoundingBox);
+                long indexNanos = System.nanoTime() - start;
+                report(numLoops, name, legacyNanos, indexNanos, expected, actual);
+            }
+
+            for (boolean useNMS : new boolean[]{true, false}) {
+                List<Feature2D> features = new ArrayList<>(listA);
+                features.addAll(listB);
+                long start = System.nanoTime();
+                List<Feature2D> expected = legacyRemoveOverlappingPixels(features, useNMS);
+                long legacyNanos = System.nanoTime() - start;
+                start = System.nanoTime();
+                List<Feature2D> actual = FusionTools.removeOverlappingPixels(features, useNMS, false);
+                long indexNanos = System.nanoTime() - start;
+                report(numLoops, useNMS ? "fuse-nms" : "fuse", legacyNanos, indexNanos, expected, actual);
+            }
+        }
+    }
+
+    private static void report(int numLoops, String name, long legacyNanos, long indexNanos,
+                               List<Feature2D> expected, List<Feature2D> actual) {
+        if (!toCodes(expected).equals(toCodes(actual))) {
+            System.err.println(name + " output differs for " + numLoops + " loops");
+        }
+        System.out.printf("%d\t%s\t%.1f\t%.1f\t%d%n", numLoops, name, legacyNanos * 1e-6, indexNanos * 1e-6,
+                actual.size());
+    }
+
+    private static List<String> toCodes(List<Feature2D> features) {
+        List<String> codes = new ArrayList<>();
+        for (Feature2D feature : features) {
+            codes.add(feature.getStart1() + "_" + feature.getEnd1() + "_" + feature.getStart2() + "_" + feature.getEnd2());
+        }
+        Collections.sort(codes);
+        return codes;
+    }
+
+    private static List<Feature2D> legacyIntersect(List<Feature2D> listA, List<Feature2D> listB,
+                                                   boolean doSubtraction, int window, boolean doBoundingBox) {
+        Map<SimpleLocation, List<Feature2D>> mapA = QuickGrouping.groupNearbyRecords(listA, 1000000);
+        Map<SimpleLocation, List<Feature2D>> mapB = QuickGrouping.groupNearbyRecordsWithOverlap(listB, 1000000);
+        Set<Feature2D> coalesced = new HashSet<>();
+        for (SimpleLocation location : mapA.keySet()) {
+            List<Feature2D> featuresB = mapB.getOrDefault(location, new ArrayList<>());
+            for (Feature2D pixelA : mapA.get(location)) {
+                List<Feature2D> pixelList = OverlapTools.getMatchesWithOverlap(pixelA, featuresB, window);
+                if (doSubtraction) {
+                    if (pixelList.isEmpty()) coalesced.add(pixelA);
+                } else if (pixelList.size() > 0) {
+                    if (doBoundingBox) {
+                        pixelList.add(pixelA);
+                        coalesced.add(FusionTools.getFeatureFromBounds(pixelList));
+                    } else {
+                        coalesced.add(pixelA);
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(coalesced);
+    }
+
+    private static List<Feature2D> legacyRemoveOverlappingPixels(List<Feature2D> features, boolean useNMS) {
+        Map<SimpleLocation, List<Feature2D>> map = QuickGrouping.groupNearbyRecords(features, 5000000);
+        Set<Feature2D> coalesced = new HashSet<>();
+        for (List<Feature2D> featureLL : map.values()) {
+            featureLL.sort((o1, o2) -> {
+                int val = Long.compare(o1.getWidth1(), o2.getWidth1());
+                if (val == 0) {
+                    return Long.compare(o1.getWidth2(), o2.getWidth2());
+                }
+                return val;
+            });
+            while (!featureLL.isEmpty()) {
+                Feature2D pixel = featureLL.get(0);
+                featureLL.remove(pixel);
+                int buffer = useNMS ? 0 : (int) Math.max(pixel.getWidth1(), pixel.getWidth2());
+                List<Feature2D> pixelList = OverlapTools.getMatchesWithOverlap(pixel, featureLL, buffer);
+                featureLL.removeAll(pixelList);
+                if (useNMS) {
+                    coalesced.add(pixel);
+                } else {
+                    pixelList.add(pixel);
+                    coalesced.add(FusionTools.getFeatureFromBounds(pixelList));
+                }
+            }
+        }
+        return new ArrayList<>(coalesced);
+    }
+}
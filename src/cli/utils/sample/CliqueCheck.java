@@ -0,0 +1,123 @@
+package cli.utils.sample;
+
+import cli.utils.clique.*;
+import javastraw.feature2D.Feature2D;
+
+import java.util.*;
+
+/**
+ * Checks the sparse clique engine against the dense version it replaced (kept here): the same nodes,
+ * and the same upper entries of A^3 > 0 for rescue. Times both.
+ * <p>
+ * usage: CliqueCheck [seed] [num loops] [num bins]
+ */
+public class CliqueCheck {
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 0;
+        int numLoops = args.length > 1 ? Integer.parseInt(args[1]) : 4000;
+        int numBins = args.length > 2 ? Integer.parseInt(args[2]) : 200000;
+        int resolution = 200;
+
+        List<Feature2D> loops = new SyntheticContacts(seed).loops("chr1", numLoops, resolution, numBins, 10000);
+
+        long start = System.nanoTime();
+        NetworkMatrix network = new NetworkMatrix(loops, resolution);
+        int[][] walks = MatrixUtils.getUpperWalksOfLengthThree(network.getAdjacency());
+        long sparseNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        List<Long> upStream = new ArrayList<>(), downStream = new ArrayList<>();
+        for (Feature2D loop : loops) {
+            upStream.add(loop.getMidPt1());
+            downStream.add(loop.getMidPt2());
+        }
+        int[] nodeCount = new int[1];
+        List<List<Long>> upNodes = legacyNodes(upStream, resolution, nodeCount);
+        List<List<Long>> downNodes = legacyNodes(downStream, resolution, nodeCount);
+        int maxN = nodeCount[0];
+        float[][] adjacency = new float[maxN][maxN];
+        int[][] edges = network.getLoopEdges();
+        for (int[] edge : edges) {
+            if (edge != null && edge[0] != edge[1]) {
+                adjacency[edge[0]][edge[1]] = 1;
+                adjacency[edge[1]][edge[0]] = 1;
+            }
+        }
+        float[][] a3 = multiply(adjacency, multiply(adjacency, adjacency));
+        long denseNanos = System.nanoTime() - start;
+
+        boolean sameNodes = maxN == network.getAdjacency().getNumNodes();
+        Map<Integer, Node> idToNode = network.getIDToNodeMapping();
+        int id = 0;
+        for (List<List<Long>> nodes : Arrays.asList(upNodes, downNodes)) {
+            for (List<Long> positions : nodes) {
+                Node node = idToNode.get(id++);
+                sameNodes &= node != null && node.getMinPosition() == positions.get(0)
+                        && node.getMaxPosition() == positions.get(positions.size() - 1);
+            }
+        }
+
+        boolean sameWalks = true;
+        for (int i = 0; i < maxN; i++) {
+            int k = 0;
+            for (int j = i + 1; j < maxN; j++) {
+                if (a3[i][j] > 0) {
+                    sameWalks &= k < walks[i].length && walks[i][k++] == j;
+                }
+            }
+            sameWalks &= k == walks[i].length;
+        }
+
+        System.out.printf("nodes %d, same nodes %b, same rescue %b%n", maxN, sameNodes, sameWalks);
+        System.out.printf("dense %d ms, sparse %d ms%n", denseNanos / 1000000, sparseNanos / 1000000);
+    }
+
+    private static List<List<Long>> legacyNodes(List<Long> genomePositions, int resolution, int[] nodeCount) {
+        Collections.sort(genomePositions);
+        int maxBin = (int) ((genomePositions.get(genomePositions.size() - 1) / resolution) + 1);
+        Map<Integer, List<Long>> counts = legacyBinToPositions(genomePositions, resolution);
+        List<List<Long>> nodes = new ArrayList<>();
+        List<Long> current = null;
+        for (int i = 0; i < maxBin; i++) {
+            if (counts.containsKey(i)) {
+                if (current == null) {
+                    current = new ArrayList<>(counts.get(i));
+                    nodes.add(current);
+                    nodeCount[0]++;
+                } else {
+                    current.addAll(counts.get(i));
+                }
+            } else {
+                current = null;
+            }
+        }
+        return nodes;
+    }
+
+    private static Map<Integer, List<Long>> legacyBinToPositions(List<Long> genomePositions, int resolution) {
+        Map<Integer, List<Long>> mapping = new HashMap<>();
+        for (long val : genomePositions) {
+            int bin = (int) (val / resolution);
+            if (!mapping.containsKey(bin)) {
+                mapping.put(bin, new LinkedList<>());
+            }
+            mapping.get(bin).add(val);
+        }
+        return mapping;
+    }
+
+    private static float[][] multiply(float[][] a, float[][] b) {
+        int n = a.length;
+        float[][] result = new float[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < n; k++) {
+                if (a[i][k] == 0) continue;
+                for (int j = 0; j < n; j++) {
+                    result[i][j] += a[i][k] * b[k][j];
+                }
+            }
+        }
+        return result;
+    }
+}
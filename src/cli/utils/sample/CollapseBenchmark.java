@@ -0,0 +1,194 @@
+package cli.utils.sample;
+
+import cli.clt.loops.Sift;
+import cli.utils.sift.ContactRecordBox;
+import cli.utils.sift.NMSUtils;
+import cli.utils.sift.PixelBuffer;
+import cli.utils.sift.SimpleLocation;
+import cli.utils.sift.collapse.CentroidCollapser;
+import cli.utils.sift.collapse.MultiResCentroidCollapser;
+import javastraw.reader.block.ContactRecord;
+
+import java.util.*;
+
+/**
+ * Times CentroidCollapser (on record sets and on a PixelBuffer) and MultiResCentroidCollapser against the previous list-scanning versions
+ * (kept here) on synthetic extreme pixels, and checks that both return the same records.
+ * <p>
+ * usage: CollapseBenchmark [seed] [max clusters] [num bins]
+ */
+public class CollapseBenchmark {
+
+    private static final int[] RESOLUTIONS = {100, 200, 500, 1000, 2000, 5000, 10000};
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 0;
+        int maxClusters = args.length > 1 ? Integer.parseInt(args[1]) : 8000;
+        int numBins = args.length > 2 ? Integer.parseInt(args[2]) : 20000;
+
+        System.out.println("records\tcentroid_legacy_ms\tcentroid_grid_ms\tcentroid_buffer_ms\tboxes\tmultires_legacy_ms\tmultires_grid_ms");
+        for (int numClusters = 500; numClusters <= maxClusters; numClusters *= 2) {
+            Set<ContactRecord> records = new SyntheticContacts(seed).clusteredRecords(numClusters, 40, numBins, 6);
+            long start = System.nanoTime();
+            Set<ContactRecord> expected = legacyCentroid(records, 2, 2);
+            long legacyNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            Set<ContactRecord> actual = CentroidCollapser.coalesce(records, 2, 2);
+            long gridNanos = System.nanoTime() - start;
+            if (!expected.equals(actual)) {
+                System.err.println("CentroidCollapser output differs for " + records.size() + " records");
+            }
+            PixelBuffer buffer = new PixelBuffer(records.size());
+            for (ContactRecord record : records) {
+                buffer.add(record.getBinX(), record.getBinY(), record.getCounts());
+            }
+            start = System.nanoTime();
+            Set<ContactRecord> fromBuffer = CentroidCollapser.coalesce(buffer, 2, 2);
+            long bufferNanos = System.nanoTime() - start;
+            if (!toLocations(expected).equals(toLocations(fromBuffer))) {
+                System.err.println("CentroidCollapser on PixelBuffer differs for " + records.size() + " records");
+            }
+
+            Set<ContactRecordBox> boxes = multiResBoxes(new Random(seed), numClusters);
+            start = System.nanoTime();
+            Set<ContactRecordBox> expectedBoxes = legacyMultiRes(boxes, 3);
+            long legacyMultiNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            Set<ContactRecordBox> actualBoxes = MultiResCentroidCollapser.coalesce(boxes, 3);
+            long gridMultiNanos = System.nanoTime() - start;
+            if (!expectedBoxes.equals(actualBoxes)) {
+                System.err.println("MultiResCentroidCollapser output differs for " + boxes.size() + " boxes");
+            }
+
+            System.out.printf("%d\t%.1f\t%.1f\t%.1f\t%d\t%.1f\t%.1f%n", records.size(), legacyNanos * 1e-6,
+                    gridNanos * 1e-6, bufferNanos * 1e-6, boxes.size(), legacyMultiNanos * 1e-6, gridMultiNanos * 1e-6);
+        }
+    }
+
+    private static Set<SimpleLocation> toLocations(Set<ContactRecord> records) {
+        Set<SimpleLocation> locations = new HashSet<>();
+        for (ContactRecord record : records) {
+            locations.add(new SimpleLocation(record));
+        }
+        return locations;
+    }
+
+    /**
+     * the same loci seen at several resolutions, with some jitter, plus isolated calls
+     */
+    private static Set<ContactRecordBox> multiResBoxes(Random generator, int numLoci) {
+        Set<ContactRecordBox> boxes = new HashSet<>();
+        for (int k = 0; k < numLoci; k++) {
+            int gx = 100000 + generator.nextInt(200000000);
+            int gy = gx + 20000 + generator.nextInt(2000000);
+            for (int res : RESOLUTIONS) {
+                if (generator.nextDouble() < 0.6) {
+                    int jitter = 2 * res;
+                    int bx = (gx + generator.nextInt(2 * jitter + 1) - jitter) / res;
+                    int by = (gy + generator.nextInt(2 * jitter + 1) - jitter) / res;
+                    boxes.add(new ContactRecordBox(new ContactRecord(bx, by, 10 + 100 * generator.nextFloat()), res));
+                }
+            }
+        }
+        return boxes;
+    }
+
+    private static Set<ContactRecord> legacyCentroid(Set<ContactRecord> regions, int buffer, int minNeighbors) {
+        Map<SimpleLocation, LinkedList<ContactRecord>> map = NMSUtils.groupNearbyRecords(regions, 250);
+        Set<ContactRecord> coalesced = new HashSet<>();
+        for (LinkedList<ContactRecord> records : map.values()) {
+            records.sort((o1, o2) -> Float.compare(-o1.getCounts(), -o2.getCounts()));
+            while (!records.isEmpty()) {
+                ContactRecord pixel = records.pollFirst();
+                records.remove(pixel);
+                int binX0 = pixel.getBinX() - buffer;
+                int binY0 = pixel.getBinY() - buffer;
+                int binX1 = pixel.getBinX() + buffer + 1;
+                int binY1 = pixel.getBinY() + buffer + 1;
+
+                int prevSize = 0;
+                Set<ContactRecord> pixelList = new HashSet<>();
+                pixelList.add(pixel);
+                while (prevSize != pixelList.size()) {
+                    prevSize = pixelList.size();
+                    for (ContactRecord px : records) {
+                        if (binX0 <= px.getBinX() && binX1 > px.getBinX() && binY0 <= px.getBinY() && binY1 > px.getBinY()) {
+                            pixelList.add(px);
+                            binX0 = Math.min(binX0, px.getBinX() - buffer);
+                            binY0 = Math.min(binY0, px.getBinY() - buffer);
+                            binX1 = Math.max(binX1, px.getBinX() + buffer + 1);
+                            binY1 = Math.max(binY1, px.getBinY() + buffer + 1);
+                        }
+                    }
+                    records.removeAll(pixelList);
+                }
+
+                if (pixelList.size() > minNeighbors) {
+                    float sumTotal = -pixel.getCounts();
+                    for (ContactRecord record : pixelList) {
+                        sumTotal += record.getCounts();
+                    }
+                    float average = sumTotal / (pixelList.size() - 1);
+                    if (pixel.getCounts() / average > Sift.ENRICHMENT_VS_NEIGHBORS) {
+                        coalesced.add(pixel);
+                    }
+                }
+            }
+        }
+        return coalesced;
+    }
+
+    private static Set<ContactRecordBox> legacyMultiRes(Set<ContactRecordBox> regions, int minResolutions) {
+        Map<SimpleLocation, LinkedList<ContactRecordBox>> map = new HashMap<>();
+        for (ContactRecordBox cr : regions) {
+            SimpleLocation region = new SimpleLocation(cr.getGenomeX1() / 5000000, cr.getGenomeY1() / 5000000);
+            map.computeIfAbsent(region, k -> new LinkedList<>()).add(cr);
+        }
+        Set<ContactRecordBox> coalesced = new HashSet<>();
+        for (LinkedList<ContactRecordBox> records : map.values()) {
+            records.sort((o1, o2) -> {
+                if (o1.getResolution() == o2.getResolution()) {
+                    return -Float.compare(o1.getCounts(), o2.getCounts());
+                } else {
+                    return Integer.compare(o1.getResolution(), o2.getResolution());
+                }
+            });
+            while (!records.isEmpty()) {
+                ContactRecordBox pixel = records.pollFirst();
+                records.remove(pixel);
+                int gX1 = pixel.getGenomeX1();
+                int gY1 = pixel.getGenomeY1();
+                int gX2 = pixel.getGenomeX2();
+                int gY2 = pixel.getGenomeY2();
+
+                int prevSize = 0;
+                Set<ContactRecordBox> pixelList = new HashSet<>();
+                pixelList.add(pixel);
+                while (prevSize != pixelList.size()) {
+                    prevSize = pixelList.size();
+                    for (ContactRecordBox px : records) {
+                        int w = Math.max(0, Math.min(px.getGenomeX2(), gX2) - Math.max(px.getGenomeX1(), gX1));
+                        int h = Math.max(0, Math.min(px.getGenomeY2(), gY2) - Math.max(px.getGenomeY1(), gY1));
+                        if (w * h > 0) {
+                            pixelList.add(px);
+                            gX1 = Math.min(gX1, px.getGenomeX1());
+                            gY1 = Math.min(gY1, px.getGenomeY1());
+                            gX2 = Math.max(gX2, px.getGenomeX2());
+                            gY2 = Math.max(gY2, px.getGenomeY2());
+                        }
+                    }
+                    records.removeAll(pixelList);
+                }
+
+                Set<Integer> resolutions = new HashSet<>();
+                for (ContactRecordBox box : pixelList) {
+                    resolutions.add(box.getResolution());
+                }
+                if (resolutions.size() >= minResolutions) {
+                    coalesced.add(pixel);
+                }
+            }
+        }
+        return coalesced;
+    }
+}
@@ -0,0 +1,146 @@
+package cli.utils.sample;
+
+import cli.utils.data.PackedContactStore;
+import javastraw.reader.block.ContactRecord;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares heap usage and throughput of the nested-map layout previously used by
+ * SparseContactRecordStorage against PackedContactStore on a synthetic chromosome
+ * with power-law distance decay.
+ * <p>
+ * usage: ContactStoreComparison [numBins] [maxDist] [seed]
+ */
+public class ContactStoreComparison {
+
+    public static void main(String[] args) {
+        int numBins = args.length > 0 ? Integer.parseInt(args[0]) : 250000;
+        int maxDist = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        int numQueries = 100000;
+        int width = 21;
+
+        int[][] contacts = generateContacts(numBins, maxDist, seed);
+        System.out.println("Synthetic chromosome: " + numBins + " bins, " + contacts[0].length + " contacts");
+
+        long before = usedMemory();
+        long start = System.nanoTime();
+        Map<Integer, Map<Integer, ContactRecord>> legacy = new HashMap<>();
+        for (int k = 0; k < contacts[0].length; k++) {
+            ContactRecord cr = new ContactRecord(contacts[0][k], contacts[1][k], contacts[2][k]);
+            legacy.computeIfAbsent(cr.getBinX(), x -> new HashMap<>()).put(cr.getBinY(), cr);
+        }
+        long legacyBuild = System.nanoTime() - start;
+        long legacyMemory = usedMemory() - before;
+        start = System.nanoTime();
+        double legacySum = queryLegacy(legacy, numBins, maxDist, numQueries, width, seed);
+        long legacyQuery = System.nanoTime() - start;
+        legacy.clear();
+        legacy = null;
+
+        before = usedMemory();
+        start = System.nanoTime();
+        PackedContactStore store = new PackedContactStore();
+        for (int k = 0; k < contacts[0].length; k++) {
+            store.put(contacts[0][k], contacts[1][k], contacts[2][k]);
+        }
+        long packedBuild = System.nanoTime() - start;
+        long packedMemory = usedMemory() - before;
+        start = System.nanoTime();
+        double packedSum = queryPacked(store, numBins, maxDist, numQueries, width, seed);
+        long packedQuery = System.nanoTime() - start;
+
+        report("nested map", legacyMemory, legacyBuild, legacyQuery, contacts[0].length, numQueries);
+        report("packed", packedMemory, packedBuild, packedQuery, contacts[0].length, numQueries);
+        if (Math.abs(legacySum - packedSum) > 1e-3 * Math.abs(legacySum)) {
+            System.err.println("Mismatch between stores: " + legacySum + " vs " + packedSum);
+        }
+    }
+
+    private static int[][] generateContacts(int numBins, int maxDist, long seed) {
+        Random generator = new Random(seed);
+        int capacity = 1024;
+        int[] xs = new int[capacity];
+        int[] ys = new int[capacity];
+        int[] counts = new int[capacity];
+        int n = 0;
+        for (int x = 0; x < numBins; x++) {
+            for (int d = 0; d < maxDist && x + d < numBins; d++) {
+                // contact probability and depth both decay roughly as 1/distance
+                double p = 1.0 / (1 + 0.05 * d);
+                if (generator.nextDouble() < p) {
+                    if (n == capacity) {
+                        capacity *= 2;
+                        xs = Arrays.copyOf(xs, capacity);
+                        ys = Arrays.copyOf(ys, capacity);
+                        counts = Arrays.copyOf(counts, capacity);
+                    }
+                    xs[n] = x;
+                    ys[n] = x + d;
+                    counts[n] = 1 + (int) (100 * p * generator.nextDouble());
+                    n++;
+                }
+            }
+        }
+        return new int[][]{Arrays.copyOf(xs, n), Arrays.copyOf(ys, n),
+                Arrays.copyOf(counts, n)};
+    }
+
+    private static double queryLegacy(Map<Integer, Map<Integer, ContactRecord>> data, int numBins, int maxDist,
+                                      int numQueries, int width, long seed) {
+        Random generator = new Random(seed + 1);
+        double total = 0;
+        for (int q = 0; q < numQueries; q++) {
+            int x0 = generator.nextInt(numBins - maxDist - width);
+            int y0 = x0 + generator.nextInt(maxDist);
+            for (int i = 0; i < width; i++) {
+                for (int j = 0; j < width; j++) {
+                    Map<Integer, ContactRecord> row = data.get(x0 + i);
+                    if (row != null && row.containsKey(y0 + j)) {
+                        total += row.get(y0 + j).getCounts();
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    private static double queryPacked(PackedContactStore store, int numBins, int maxDist,
+                                      int numQueries, int width, long seed) {
+        Random generator = new Random(seed + 1);
+        double total = 0;
+        float[][] output = new float[width][width];
+        for (int q = 0; q < numQueries; q++) {
+            int x0 = generator.nextInt(numBins - maxDist - width);
+            int y0 = x0 + generator.nextInt(maxDist);
+            for (float[] row : output) {
+                Arrays.fill(row, 0);
+            }
+            store.addLocalBoundedRegion(output, x0, y0, width);
+            for (float[] row : output) {
+                for (float val : row) {
+                    total += val;
+                }
+            }
+        }
+        return total;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void report(String name, long memory, long buildNanos, long queryNanos,
+                               int numContacts, int numQueries) {
+        System.out.printf("%-10s heap %8.1f MB  build %10.0f contacts/s  queries %10.0f windows/s%n", name,
+                memory / 1e6, numContacts / (buildNanos / 1e9), numQueries / (queryNanos / 1e9));
+    }
+}
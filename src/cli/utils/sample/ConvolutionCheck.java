@@ -0,0 +1,91 @@
+package cli.utils.sample;
+
+import cli.utils.pinpoint.Convolution2DTools;
+import cli.utils.pinpoint.ManhattanConvolution;
+
+import java.util.Random;
+
+/**
+ * Checks ManhattanConvolution against Convolution2DTools.sparseConvolution with a Manhattan kernel
+ * on random sparse, dense and signed images, serial and parallel, and prints the speedup.
+ * Exits with a non-zero code if any pixel differs by more than the tolerance (relative to the image maximum).
+ * <p>
+ * usage: ConvolutionCheck [seed] [tolerance]
+ */
+public class ConvolutionCheck {
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 0;
+        double tolerance = args.length > 1 ? Double.parseDouble(args[1]) : 1e-4;
+        Random generator = new Random(seed);
+
+        int[][] shapes = {{1, 1}, {1, 40}, {40, 1}, {7, 9}, {50, 50}, {64, 200}, {200, 64}, {300, 300}, {1000, 1000}};
+        int[] kernelWidths = {2, 3, 4, 5, 11, 21, 41, 101};
+        double[] densities = {0.01, 0.1, 1};
+
+        int numChecks = 0;
+        int numFailures = 0;
+        long sparseNanos = 0, fastNanos = 0;
+        for (int[] shape : shapes) {
+            for (int width : kernelWidths) {
+                for (double density : densities) {
+                    float[][] image = randomImage(generator, shape[0], shape[1], density);
+                    long start = System.nanoTime();
+                    float[][] expected = Convolution2DTools.sparseConvolution(image,
+                            Convolution2DTools.getManhattanKernel(width));
+                    sparseNanos += System.nanoTime() - start;
+                    start = System.nanoTime();
+                    float[][] actual = ManhattanConvolution.convolve(image, width, false);
+                    fastNanos += System.nanoTime() - start;
+                    float[][] parallel = ManhattanConvolution.convolve(image, width, true);
+
+                    for (float[][] result : new float[][][]{actual, parallel}) {
+                        numChecks++;
+                        double error = maxRelativeError(expected, result);
+                        if (error > tolerance) {
+                            numFailures++;
+                            System.err.println("Mismatch " + shape[0] + "x" + shape[1] + " kernel " + width
+                                    + " density " + density + ": max relative error " + error);
+                        }
+                    }
+                }
+            }
+        }
+
+        System.out.println(numChecks + " checks, " + numFailures + " failures");
+        System.out.printf("sparseConvolution %.1f ms, ManhattanConvolution %.1f ms%n",
+                sparseNanos * 1e-6, fastNanos * 1e-6);
+        if (numFailures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static float[][] randomImage(Random generator, int rows, int cols, double density) {
+        float[][] image = new float[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (generator.nextDouble() < density) {
+                    // some negative entries, which sparseConvolution skips
+                    image[i][j] = (float) (generator.nextDouble() < 0.1 ? -generator.nextDouble() : 100 * generator.nextDouble());
+                }
+            }
+        }
+        return image;
+    }
+
+    private static double maxRelativeError(float[][] expected, float[][] actual) {
+        double scale = 1e-6;
+        for (float[] row : expected) {
+            for (float val : row) {
+                scale = Math.max(scale, Math.abs(val));
+            }
+        }
+        double error = 0;
+        for (int i = 0; i < expected.length; i++) {
+            for (int j = 0; j < expected[i].length; j++) {
+                error = Math.max(error, Math.abs(expected[i][j] - actual[i][j]) / scale);
+            }
+        }
+        return error;
+    }
+}
@@ -0,0 +1,81 @@
+package cli.utils.sample;
+
+import cli.utils.data.LoopWindowUnion;
+import cli.utils.data.PackedContactStore;
+import cli.utils.general.Utils;
+import javastraw.feature2D.Feature2D;
+import javastraw.feature2D.Feature2DList;
+import javastraw.feature2D.Feature2DParser;
+import javastraw.reader.Dataset;
+import javastraw.reader.basics.Chromosome;
+import javastraw.reader.basics.ChromosomeHandler;
+import javastraw.reader.mzd.MatrixZoomData;
+import javastraw.reader.type.HiCZoom;
+import javastraw.reader.type.NormalizationHandler;
+import javastraw.tools.HiCFileTools;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks that reading the union of loop windows once (as Enhance does) gives every loop the same window
+ * as reading each loop's region separately, and times both.
+ * <p>
+ * usage: EnhanceWindowCheck <hic file> <loops.bedpe> [resolution]
+ */
+public class EnhanceWindowCheck {
+
+    public static void main(String[] args) {
+        Dataset ds = HiCFileTools.extractDatasetForCLT(args[0], false, true, true);
+        int resolution = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        HiCZoom zoom = new HiCZoom(HiCZoom.HiCUnit.BP, resolution);
+        ChromosomeHandler handler = ds.getChromosomeHandler();
+        Feature2DList loopList = Feature2DParser.loadFeatures(args[1], handler, false, null, false);
+
+        long legacyNanos = 0, unionNanos = 0;
+        int numLoops = 0, numMismatches = 0;
+        for (Chromosome chrom : handler.getChromosomeArrayWithoutAllByAll()) {
+            List<Feature2D> loops = loopList.get(chrom.getIndex(), chrom.getIndex());
+            MatrixZoomData zd = HiCFileTools.getMatrixZoomData(ds, chrom, chrom, zoom);
+            if (loops.isEmpty() || zd == null) continue;
+
+            int[][] windows = new int[loops.size()][];
+            for (int k = 0; k < loops.size(); k++) {
+                Feature2D loop = loops.get(k);
+                int window = (int) (Math.max(loop.getWidth1(), loop.getWidth2()) / resolution + 1);
+                window = Math.max(window, 10000 / resolution);
+                int binXStart = (int) ((loop.getMidPt1() / resolution) - window);
+                int binYStart = (int) ((loop.getMidPt2() / resolution) - window);
+                windows[k] = new int[]{binXStart, binXStart + 2 * window, binYStart, binYStart + 2 * window};
+            }
+
+            long start = System.nanoTime();
+            float[][][] legacy = new float[windows.length][][];
+            for (int k = 0; k < windows.length; k++) {
+                int matrixWidth = windows[k][1] - windows[k][0] + 1;
+                legacy[k] = new float[matrixWidth][matrixWidth];
+                Utils.addLocalBoundedRegion(legacy[k], zd, windows[k][0], windows[k][2], matrixWidth,
+                        NormalizationHandler.NONE);
+            }
+            legacyNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            PackedContactStore store = new PackedContactStore();
+            new LoopWindowUnion(windows).addTo(store, zd, NormalizationHandler.NONE);
+            unionNanos += System.nanoTime() - start;
+
+            for (int k = 0; k < windows.length; k++) {
+                int matrixWidth = windows[k][1] - windows[k][0] + 1;
+                float[][] output = new float[matrixWidth][matrixWidth];
+                store.addLocalBoundedRegion(output, windows[k][0], windows[k][2], matrixWidth);
+                if (!Arrays.deepEquals(output, legacy[k])) {
+                    numMismatches++;
+                }
+            }
+            numLoops += windows.length;
+            zd.clearCache();
+        }
+        System.out.printf("loops %d, mismatched windows %d, per-loop reads %d ms, union read %d ms%n",
+                numLoops, numMismatches, legacyNanos / 1000000, unionNanos / 1000000);
+    }
+}
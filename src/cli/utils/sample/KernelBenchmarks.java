@@ -0,0 +1,220 @@
+package cli.utils.sample;
+
+import cli.utils.general.*;
+import cli.utils.pinpoint.BoundingBoxes;
+import cli.utils.pinpoint.Convolution2DTools;
+import cli.utils.seer.CumulativeDistributionFunction;
+import cli.utils.sift.collapse.CentroidCollapser;
+import javastraw.feature2D.Feature2D;
+import javastraw.reader.block.Block;
+import javastraw.reader.block.ContactRecord;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Timing baseline for the hot kernels of clear-tools, run on seeded synthetic data from SyntheticContacts.
+ * Each kernel gets warmup iterations and then measured iterations of at least minTimeMs each;
+ * results (ns/op per iteration, mean, stdev, min, max) are written as JSON so runs can be diffed across commits.
+ * <p>
+ * usage: KernelBenchmarks [out.json|-] [label] [seed] [name filter] [warmup] [iterations] [minTimeMs]
+ */
+public class KernelBenchmarks {
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) throws IOException {
+        String outPath = args.length > 0 ? args[0] : "-";
+        String label = args.length > 1 ? args[1] : "";
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        String filter = args.length > 3 ? args[3] : "";
+        int warmup = args.length > 4 ? Integer.parseInt(args[4]) : 3;
+        int iterations = args.length > 5 ? Integer.parseInt(args[5]) : 5;
+        long minTimeMs = args.length > 6 ? Long.parseLong(args[6]) : 500;
+
+        List<Benchmark> benchmarks = createBenchmarks(seed);
+        List<String> results = new ArrayList<>();
+        for (Benchmark benchmark : benchmarks) {
+            if (benchmark.name.contains(filter)) {
+                System.err.println("Running " + benchmark.name + " " + benchmark.params);
+                double[] nsPerOp = measure(benchmark.kernel, warmup, iterations, minTimeMs);
+                results.add(toJson(benchmark, nsPerOp));
+            }
+        }
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"suite\": \"clear-tools-kernels\",\n");
+        json.append("  \"label\": \"").append(escape(label)).append("\",\n");
+        json.append("  \"timestamp\": ").append(System.currentTimeMillis()).append(",\n");
+        json.append("  \"java\": \"").append(escape(System.getProperty("java.version"))).append("\",\n");
+        json.append("  \"processors\": ").append(Runtime.getRuntime().availableProcessors()).append(",\n");
+        json.append("  \"seed\": ").append(seed).append(",\n");
+        json.append("  \"warmup\": ").append(warmup).append(",\n");
+        json.append("  \"iterations\": ").append(iterations).append(",\n");
+        json.append("  \"minTimeMs\": ").append(minTimeMs).append(",\n");
+        json.append("  \"benchmarks\": [\n");
+        json.append(String.join(",\n", results));
+        json.append("\n  ]\n}\n");
+
+        if (outPath.equals("-")) {
+            System.out.print(json);
+        } else {
+            try (FileWriter writer = new FileWriter(new File(outPath))) {
+                writer.write(json.toString());
+            }
+            System.err.println("Results written to " + outPath);
+        }
+    }
+
+    private static List<Benchmark> createBenchmarks(long seed) {
+        List<Benchmark> benchmarks = new ArrayList<>();
+
+        SyntheticContacts generator = new SyntheticContacts(seed);
+        int numBins = 20000;
+        List<ContactRecord> records = generator.decayRecords(500000, numBins, 2000);
+        List<Block> blocks = new ArrayList<>();
+        int blockSize = records.size() / 50;
+        for (int b = 0; b * blockSize < records.size(); b++) {
+            blocks.add(new Block(b, records.subList(b * blockSize,
+                    Math.min(records.size(), (b + 1) * blockSize)), "" + b));
+        }
+        benchmarks.add(new Benchmark("Utils.fillInMatrixFromBlocks",
+                "records=" + records.size() + ",blocks=" + blocks.size() + ",width=2000", () -> {
+            float[][] matrix = new float[2000][2000];
+            Utils.fillInMatrixFromBlocks(matrix, blocks, 5000, 5000);
+            return matrix;
+        }));
+
+        float[][] image = generator.decayMatrix(500, 40, 3);
+        float[][] kernel = Convolution2DTools.getManhattanKernel(5);
+        benchmarks.add(new Benchmark("Convolution2DTools.sparseConvolution",
+                "width=500,kernel=" + kernel.length,
+                () -> Convolution2DTools.sparseConvolution(image, kernel)));
+
+        Set<ContactRecord> candidates = generator.clusteredRecords(2000, 30, numBins, 4);
+        benchmarks.add(new Benchmark("CentroidCollapser.coalesce",
+                "records=" + candidates.size() + ",buffer=2,minNeighbors=2",
+                () -> CentroidCollapser.coalesce(candidates, 2, 2)));
+
+        List<Pixel> pixels = generator.clusteredPixels(300, 40, 1000, 5);
+        benchmarks.add(new Benchmark("BoundingBoxes.getBoundingBoxes",
+                "pixels=" + pixels.size() + ",radius=2",
+                () -> BoundingBoxes.getBoundingBoxes(pixels, 2, 10, 1000, 1000)));
+
+        float[][] region = generator.decayMatrix(200, 20, 2);
+        benchmarks.add(new Benchmark("ZscoreTools.getLocalWelford",
+                "width=200,window=10,calls=10000", () -> {
+            double total = 0;
+            for (int k = 0; k < 10000; k++) {
+                int x = 10 + (k * 7919) % 180;
+                int y = 10 + (k * 104729) % 180;
+                total += ZscoreTools.getLocalWelford(region, x, y, 10).getMean();
+            }
+            return total;
+        }));
+
+        List<Feature2D> loops = generator.loops("chr1", 50000, 5000, 50000, 2000);
+        benchmarks.add(new Benchmark("QuickGrouping.groupNearbyRecords",
+                "loops=" + loops.size() + ",scalar=5000000",
+                () -> QuickGrouping.groupNearbyRecords(loops, 5000000)));
+
+        List<Feature2D> nmsLoops = generator.loops("chr1", 20000, 5000, 50000, 2000);
+        benchmarks.add(new Benchmark("FusionTools.removeOverlappingPixels",
+                "loops=" + nmsLoops.size() + ",nms=true",
+                () -> FusionTools.removeOverlappingPixels(nmsLoops, true, false)));
+
+        List<ContactRecord> cdfRecords = generator.decayRecords(500000, numBins, 2000);
+        CumulativeDistributionFunction cdf = new CumulativeDistributionFunction(cdfRecords.iterator(),
+                2000 * 1000, 1000);
+        Random rand = new Random(seed);
+        benchmarks.add(new Benchmark("CumulativeDistributionFunction.createRandomPoint",
+                "records=" + cdfRecords.size() + ",calls=100000", () -> {
+            Object last = null;
+            for (int k = 0; k < 100000; k++) {
+                last = cdf.createRandomPoint(rand);
+            }
+            return last;
+        }));
+
+        return benchmarks;
+    }
+
+    private static double[] measure(Kernel kernel, int warmup, int iterations, long minTimeMs) {
+        for (int w = 0; w < warmup; w++) {
+            runFor(kernel, minTimeMs);
+        }
+        double[] nsPerOp = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            nsPerOp[i] = runFor(kernel, minTimeMs);
+        }
+        return nsPerOp;
+    }
+
+    private static double runFor(Kernel kernel, long minTimeMs) {
+        long minNanos = minTimeMs * 1000000L;
+        long ops = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            sink = kernel.run();
+            ops++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < minNanos);
+        return (double) elapsed / ops;
+    }
+
+    private static String toJson(Benchmark benchmark, double[] nsPerOp) {
+        double mean = 0, min = Double.MAX_VALUE, max = 0;
+        for (double val : nsPerOp) {
+            mean += val;
+            min = Math.min(min, val);
+            max = Math.max(max, val);
+        }
+        mean /= nsPerOp.length;
+        double var = 0;
+        for (double val : nsPerOp) {
+            var += (val - mean) * (val - mean);
+        }
+        double stdev = nsPerOp.length > 1 ? Math.sqrt(var / (nsPerOp.length - 1)) : 0;
+
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < nsPerOp.length; i++) {
+            if (i > 0) values.append(", ");
+            values.append(format(nsPerOp[i]));
+        }
+        return "    {\"name\": \"" + escape(benchmark.name) + "\", \"params\": \"" + escape(benchmark.params)
+                + "\", \"unit\": \"ns/op\", \"mean\": " + format(mean) + ", \"stdev\": " + format(stdev)
+                + ", \"min\": " + format(min) + ", \"max\": " + format(max)
+                + ", \"values\": [" + values + "]}";
+    }
+
+    private static String format(double val) {
+        return String.format(Locale.ROOT, "%.1f", val);
+    }
+
+    private static String escape(String s) {
+        return s == null ? "" : s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private interface Kernel {
+        Object run();
+    }
+
+    private static class Benchmark {
+        final String name;
+        final String params;
+        final Kernel kernel;
+
+        Benchmark(String name, String params, Kernel kernel) {
+            this.name = name;
+            this.params = params;
+            this.kernel = kernel;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package cli.utils.sample;
+
+import cli.utils.general.Pixel;
+import cli.utils.pinpoint.BoundingBoxes;
+import cli.utils.pinpoint.LandScape;
+import cli.utils.pinpoint.LocalMaxima;
+
+import java.util.*;
+
+/**
+ * Times BoundingBoxes.getBoundingBoxes and LandScape.coalesceAndRetainMaximum against the previous
+ * list-scanning versions (kept here) for a growing number of enriched pixels, and checks that outputs match.
+ * <p>
+ * usage: PixelMergeBenchmark [seed] [max pixels]
+ */
+public class PixelMergeBenchmark {
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 0;
+        int maxPixels = args.length > 1 ? Integer.parseInt(args[1]) : 40000;
+        int radius = 2;
+
+        System.out.println("pixels\tboxes\tlegacy_ms\tgrid_ms\tcoalesce_legacy_ms\tcoalesce_grid_ms");
+        for (int numPixels = 1250; numPixels <= maxPixels; numPixels *= 2) {
+            int width = (int) Math.sqrt(numPixels * 40.0);
+            List<Pixel> pixels = new SyntheticContacts(seed).clusteredPixels(numPixels / 40, 60, width, 6);
+
+            long start = System.nanoTime();
+            List<int[]> expected = legacyBoundingBoxes(pixels, radius, 10, width, width);
+            long legacyNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            List<int[]> actual = BoundingBoxes.getBoundingBoxes(pixels, radius, 10, width, width);
+            long gridNanos = System.nanoTime() - start;
+            if (!sameBounds(expected, actual)) {
+                System.err.println("Bounding boxes differ for " + pixels.size() + " pixels");
+            }
+
+            float[] rowSignal = peakSignal(width, width / 2);
+            float[] colSignal = peakSignal(width, width / 3);
+            List<Pixel> legacyPixels = new ArrayList<>(pixels);
+            legacyPixels.add(new Pixel(width / 2, width / 3, 100, 10));
+            List<Pixel> gridPixels = new ArrayList<>(legacyPixels);
+            start = System.nanoTime();
+            int[] expectedMaxima = legacyCoalesce(legacyPixels, 1, rowSignal, colSignal);
+            long legacyCoalesceNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            LocalMaxima maxima = LandScape.coalesceAndRetainMaximum(gridPixels, 1, rowSignal, colSignal);
+            long gridCoalesceNanos = System.nanoTime() - start;
+            if (!sameMaxima(expectedMaxima, maxima) || legacyPixels.size() != gridPixels.size()) {
+                System.err.println("Coalesced maxima differ for " + pixels.size() + " pixels");
+            }
+
+            System.out.printf("%d\t%d\t%.1f\t%.1f\t%.1f\t%.1f%n", pixels.size(), actual.size(),
+                    legacyNanos * 1e-6, gridNanos * 1e-6, legacyCoalesceNanos * 1e-6, gridCoalesceNanos * 1e-6);
+        }
+    }
+
+    private static float[] peakSignal(int width, int peak) {
+        float[] signal = new float[width];
+        for (int i = 0; i < width; i++) {
+            signal[i] = 0.01f;
+        }
+        signal[peak] = 1;
+        return signal;
+    }
+
+    private static boolean sameBounds(List<int[]> a, List<int[]> b) {
+        if (a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) {
+            if (!Arrays.equals(a.get(i), b.get(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean sameMaxima(int[] expected, LocalMaxima maxima) {
+        if (expected == null || maxima == null) return expected == null && maxima == null;
+        return expected[0] == maxima.area && expected[1] == maxima.minR && expected[2] == maxima.minC
+                && expected[3] == maxima.maxR && expected[4] == maxima.maxC;
+    }
+
+    private static List<int[]> legacyBoundingBoxes(List<Pixel> enrichedPixels, int radius, int scalar,
+                                                    int rowLimit, int colLimit) {
+        List<Pixel> sortedPixels = new ArrayList<>(enrichedPixels);
+        sortedPixels.sort((o1, o2) -> Float.compare(o1.value, o2.value));
+        Collections.reverse(sortedPixels);
+        List<int[]> bounds = new ArrayList<>();
+
+        while (!sortedPixels.isEmpty()) {
+            Pixel pixel = sortedPixels.get(0);
+            int minR = pixel.row - radius;
+            int minC = pixel.col - radius;
+            int maxR = pixel.row + radius + 1;
+            int maxC = pixel.col + radius + 1;
+
+            Set<Pixel> toRemove = new HashSet<>();
+            toRemove.add(pixel);
+            while (toRemove.size() > 0) {
+                sortedPixels.removeAll(toRemove);
+                toRemove.clear();
+                for (Pixel px : sortedPixels) {
+                    if (Pixel.contains(px, minR, maxR, minC, maxC)) {
+                        toRemove.add(px);
+                        minR = Math.min(minR, px.row - radius);
+                        minC = Math.min(minC, px.col - radius);
+                        maxR = Math.max(maxR, px.row + radius + 1);
+                        maxC = Math.max(maxC, px.col + radius + 1);
+                    }
+                }
+            }
+
+            bounds.add(new int[]{Math.max(minR, 0) * scalar, Math.max(minC, 0) * scalar,
+                    Math.min(maxR, rowLimit) * scalar, Math.min(maxC, colLimit) * scalar});
+        }
+        return bounds;
+    }
+
+    /**
+     * @return {area, minR, minC, maxR, maxC} or null
+     */
+    private static int[] legacyCoalesce(List<Pixel> pixels, int radius, float[] rowSignal, float[] colSignal) {
+        Pixel pixel = Pixel.getMax(pixels, rowSignal, colSignal);
+        if (pixel == null) return null;
+        int numCollapsed = 0;
+        int minR = pixel.row - radius;
+        int minC = pixel.col - radius;
+        int maxR = pixel.row + radius + 1;
+        int maxC = pixel.col + radius + 1;
+
+        Set<Pixel> toRemove = new HashSet<>();
+        toRemove.add(pixel);
+        while (toRemove.size() > 0) {
+            pixels.removeAll(toRemove);
+            numCollapsed += toRemove.size();
+            toRemove.clear();
+            for (Pixel px : pixels) {
+                if (Pixel.contains(px, minR, maxR, minC, maxC)) {
+                    toRemove.add(px);
+                    minR = Math.min(minR, px.row - radius);
+                    minC = Math.min(minC, px.col - radius);
+                    maxR = Math.max(maxR, px.row + radius + 1);
+                    maxC = Math.max(maxC, px.col + radius + 1);
+                }
+            }
+        }
+        if (numCollapsed > 4) {
+            return new int[]{numCollapsed, minR, minC, maxR, maxC};
+        }
+        return null;
+    }
+}
@@ -0,0 +1,212 @@
+package cli.utils.sample;
+
+import cli.utils.data.LoopBucketIndex;
+import cli.utils.data.Point2D;
+import javastraw.feature2D.Feature2D;
+import javastraw.reader.block.ContactRecord;
+
+import java.awt.*;
+import java.util.*;
+import java.util.List;
+
+/**
+ * Compares contacts/second of the per-list RegionsOfInterest lookups APA3 used before (kept here)
+ * against the shared LoopBucketIndex on synthetic loop lists and contacts.
+ * <p>
+ * usage: RegionIndexBenchmark [numLists] [loopsPerList] [numContacts] [seed]
+ */
+public class RegionIndexBenchmark {
+
+    public static void main(String[] args) {
+        int numLists = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int loopsPerList = args.length > 1 ? Integer.parseInt(args[1]) : 50000;
+        int numContacts = args.length > 2 ? Integer.parseInt(args[2]) : 20000000;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        int resolution = 1000;
+        int window = 10;
+        int matrixWidth = 2 * window + 1;
+        int numBins = 250000;
+        int maxDist = 2000;
+
+        Random generator = new Random(seed);
+        List<List<Feature2D>> allLoops = new ArrayList<>(numLists);
+        for (int i = 0; i < numLists; i++) {
+            List<Feature2D> loops = new ArrayList<>(loopsPerList);
+            for (int k = 0; k < loopsPerList; k++) {
+                long x = (long) generator.nextInt(numBins - maxDist) * resolution;
+                long y = x + (long) (20 + generator.nextInt(maxDist - 20)) * resolution;
+                loops.add(new Feature2D(Feature2D.FeatureType.PEAK, "1", x, x + resolution,
+                        "1", y, y + resolution, Color.BLACK, null));
+            }
+            allLoops.add(loops);
+        }
+
+        int[] xs = new int[numContacts];
+        int[] ys = new int[numContacts];
+        for (int k = 0; k < numContacts; k++) {
+            xs[k] = generator.nextInt(numBins - maxDist);
+            ys[k] = xs[k] + generator.nextInt(maxDist);
+        }
+        System.out.println(numLists + " lists x " + loopsPerList + " loops, " + numContacts + " contacts");
+
+        for (int rep = 0; rep < 3; rep++) {
+            List<float[][]> legacyOutputs = makeOutputs(numLists, matrixWidth);
+            long start = System.nanoTime();
+            RegionsOfInterest roi = new RegionsOfInterest(resolution, window, matrixWidth, allLoops);
+            long legacyBuild = System.nanoTime() - start;
+            start = System.nanoTime();
+            runLegacy(roi, xs, ys, legacyOutputs);
+            long legacyQuery = System.nanoTime() - start;
+            roi.clear();
+
+            List<float[][]> indexOutputs = makeOutputs(numLists, matrixWidth);
+            start = System.nanoTime();
+            LoopBucketIndex index = new LoopBucketIndex(allLoops, resolution, window, matrixWidth);
+            long indexBuild = System.nanoTime() - start;
+            start = System.nanoTime();
+            runIndex(index, xs, ys, indexOutputs);
+            long indexQuery = System.nanoTime() - start;
+
+            System.out.println("round " + (rep + 1));
+            report("RegionsOfInterest", legacyBuild, legacyQuery, numContacts);
+            report("LoopBucketIndex", indexBuild, indexQuery, numContacts);
+            if (!sameOutputs(legacyOutputs, indexOutputs)) {
+                System.err.println("Mismatch between aggregated matrices");
+            }
+        }
+    }
+
+    private static void runLegacy(RegionsOfInterest roi, int[] xs, int[] ys, List<float[][]> outputs) {
+        for (int k = 0; k < xs.length; k++) {
+            ContactRecord cr = new ContactRecord(xs[k], ys[k], 1);
+            if (roi.probablyContainsRecord(cr)) {
+                for (int i = 0; i < outputs.size(); i++) {
+                    if (roi.containsRecord(cr, i)) {
+                        for (int[] bound : roi.getBoundsInfo(cr, i)) {
+                            outputs.get(i)[cr.getBinX() - bound[0]][cr.getBinY() - bound[2]] += cr.getCounts();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void runIndex(LoopBucketIndex index, int[] xs, int[] ys, List<float[][]> outputs) {
+        int[] hits = new int[index.getMaxHits()];
+        for (int k = 0; k < xs.length; k++) {
+            ContactRecord cr = new ContactRecord(xs[k], ys[k], 1);
+            int binX = cr.getBinX();
+            int binY = cr.getBinY();
+            if (index.probablyContains(binX, binY)) {
+                int numHits = index.getHits(binX, binY, hits);
+                for (int h = 0; h < numHits; h++) {
+                    int w = hits[h];
+                    outputs.get(index.getListIndex(w))[binX - index.getBinXStart(w)][binY - index.getBinYStart(w)] += cr.getCounts();
+                }
+            }
+        }
+    }
+
+    private static List<float[][]> makeOutputs(int numLists, int matrixWidth) {
+        List<float[][]> outputs = new ArrayList<>(numLists);
+        for (int i = 0; i < numLists; i++) {
+            outputs.add(new float[matrixWidth][matrixWidth]);
+        }
+        return outputs;
+    }
+
+    private static boolean sameOutputs(List<float[][]> a, List<float[][]> b) {
+        for (int i = 0; i < a.size(); i++) {
+            for (int r = 0; r < a.get(i).length; r++) {
+                for (int c = 0; c < a.get(i)[r].length; c++) {
+                    if (a.get(i)[r][c] != b.get(i)[r][c]) return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void report(String name, long buildNanos, long queryNanos, int numContacts) {
+        System.out.printf("  %-18s build %7.1f ms   query %8.1f ms   %6.2f M contacts/s%n", name,
+                buildNanos * 1e-6, queryNanos * 1e-6, numContacts / (queryNanos * 1e-9) / 1e6);
+    }
+
+    /**
+     * the per-list lookup APA3 used before LoopBucketIndex: for each list, a map from 1000 x 1000 bin cells
+     * to the {binXStart, binXEnd, binYStart, binYEnd} windows overlapping the cell, plus the sets of all rows
+     * and columns covered by any window
+     */
+    private static class RegionsOfInterest {
+        private static final int COMPRESSION = 1000;
+        private final List<Map<Point2D, List<int[]>>> loopListsAsMaps = new ArrayList<>();
+        private final Set<Integer> allRowIndices = new HashSet<>();
+        private final Set<Integer> allColIndices = new HashSet<>();
+
+        RegionsOfInterest(int resolution, int window, int matrixWidthL, List<List<Feature2D>> allLoops) {
+            for (List<Feature2D> loops : allLoops) {
+                Map<Point2D, List<int[]>> loopListAsMap = new HashMap<>();
+                for (Feature2D loop : loops) {
+                    int binXStart = Math.max(0, (int) ((loop.getMidPt1() / resolution) - window));
+                    int binYStart = Math.max(0, (int) ((loop.getMidPt2() / resolution) - window));
+                    int binXEnd = Math.min(binXStart + matrixWidthL, Integer.MAX_VALUE);
+                    int binYEnd = Math.min(binYStart + matrixWidthL, Integer.MAX_VALUE);
+                    int[] bounds = new int[]{binXStart, binXEnd, binYStart, binYEnd};
+
+                    for (int r = binXStart / COMPRESSION; r <= binXEnd / COMPRESSION; r++) {
+                        for (int c = binYStart / COMPRESSION; c <= binYEnd / COMPRESSION; c++) {
+                            loopListAsMap.computeIfAbsent(new Point2D(r, c), k -> new LinkedList<>()).add(bounds);
+                        }
+                    }
+                    for (int r = binXStart; r < binXEnd; r++) {
+                        allRowIndices.add(r);
+                    }
+                    for (int c = binYStart; c < binYEnd; c++) {
+                        allColIndices.add(c);
+                    }
+                }
+                loopListsAsMaps.add(loopListAsMap);
+            }
+        }
+
+        boolean probablyContainsRecord(ContactRecord cr) {
+            return allRowIndices.contains(cr.getBinX()) && allColIndices.contains(cr.getBinY());
+        }
+
+        boolean containsRecord(ContactRecord cr, int i) {
+            List<int[]> boundsList = loopListsAsMaps.get(i).get(
+                    new Point2D(cr.getBinX() / COMPRESSION, cr.getBinY() / COMPRESSION));
+            if (boundsList != null) {
+                for (int[] bounds : boundsList) {
+                    if (contains(bounds, cr.getBinX(), cr.getBinY())) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        List<int[]> getBoundsInfo(ContactRecord cr, int i) {
+            List<int[]> result = new LinkedList<>();
+            List<int[]> boundsList = loopListsAsMaps.get(i).get(
+                    new Point2D(cr.getBinX() / COMPRESSION, cr.getBinY() / COMPRESSION));
+            if (boundsList != null) {
+                for (int[] bounds : boundsList) {
+                    if (contains(bounds, cr.getBinX(), cr.getBinY())) {
+                        result.add(bounds);
+                    }
+                }
+            }
+            return result;
+        }
+
+        private static boolean contains(int[] bounds, int binX, int binY) {
+            return binX >= bounds[0] && binX < bounds[1] && binY >= bounds[2] && binY < bounds[3];
+        }
+
+        void clear() {
+            loopListsAsMaps.clear();
+            allRowIndices.clear();
+            allColIndices.clear();
+        }
+    }
+}
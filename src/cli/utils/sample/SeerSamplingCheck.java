@@ -0,0 +1,137 @@
+package cli.utils.sample;
+
+import cli.utils.seer.AliasTable;
+import cli.utils.seer.MndWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Checks that AliasTable draws match their weights (whole table and per segment), times it against the
+ * CDF binary search it replaces in Seer (kept here), and checks MndWriter's text lines against string formatting.
+ * <p>
+ * usage: SeerSamplingCheck [seed] [num weights] [num draws]
+ */
+public class SeerSamplingCheck {
+
+    public static void main(String[] args) throws IOException {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 0;
+        int numWeights = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        int numDraws = args.length > 2 ? Integer.parseInt(args[2]) : 20000000;
+
+        Random generator = new Random(seed);
+        float[] weights = new float[numWeights];
+        int[] intWeights = new int[numWeights];
+        for (int i = 0; i < numWeights; i++) {
+            intWeights[i] = generator.nextInt(10) < 3 ? 0 : 1 + generator.nextInt(1000);
+            weights[i] = intWeights[i];
+        }
+
+        AliasTable table = new AliasTable(weights);
+        System.out.printf("whole table: total variation distance %.5f%n",
+                totalVariation(weights, 0, numWeights, draw(table, -1, numWeights, numDraws, seed)));
+
+        int window = 100;
+        AliasTable segments = new AliasTable(weights, window);
+        double worst = 0;
+        for (int segment = 0; segment < 20; segment++) {
+            long[] counts = draw(segments, segment, numWeights, numDraws / 100, seed + segment);
+            int start = segment * window;
+            worst = Math.max(worst, totalVariation(weights, start, Math.min(start + window, numWeights), counts));
+        }
+        System.out.printf("segments: worst total variation distance %.5f%n", worst);
+
+        double[] cdf = legacyConvertToCDF(intWeights);
+        Random random = new Random(seed);
+        long start = System.nanoTime();
+        long sum = 0;
+        for (int k = 0; k < numDraws; k++) {
+            sum += legacyBinarySearch(cdf, random.nextDouble(), 0, cdf.length - 1);
+        }
+        long searchNanos = System.nanoTime() - start;
+        SplittableRandom splittable = new SplittableRandom(seed);
+        start = System.nanoTime();
+        for (int k = 0; k < numDraws; k++) {
+            sum += table.sample(splittable.nextDouble());
+        }
+        long aliasNanos = System.nanoTime() - start;
+        System.out.printf("binary search %.1f ns/draw, alias %.1f ns/draw (%d)%n",
+                (double) searchNanos / numDraws, (double) aliasNanos / numDraws, sum % 10);
+
+        File file = File.createTempFile("seer", ".mnd.txt");
+        file.deleteOnExit();
+        StringBuilder expected = new StringBuilder();
+        try (MndWriter writer = new MndWriter(file, "chr10", MndWriter.Format.TEXT)) {
+            for (int k = 0; k < 100000; k++) {
+                int x = generator.nextInt(Integer.MAX_VALUE);
+                int y = k == 0 ? 0 : generator.nextInt(1000);
+                writer.write(x, y);
+                expected.append("chr10 ").append(x).append(" chr10 ").append(y).append('\n');
+            }
+        }
+        String actual = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        System.out.println("text output matches: " + actual.equals(expected.toString()));
+    }
+
+    private static long[] draw(AliasTable table, int segment, int n, int numDraws, long seed) {
+        long[] counts = new long[n];
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int k = 0; k < numDraws; k++) {
+            counts[segment < 0 ? table.sample(random.nextDouble()) : table.sample(segment, random.nextDouble())]++;
+        }
+        return counts;
+    }
+
+    private static double totalVariation(float[] weights, int start, int end, long[] counts) {
+        double total = 0, numDraws = 0;
+        for (int i = start; i < end; i++) {
+            total += weights[i];
+            numDraws += counts[i];
+        }
+        double distance = 0;
+        for (int i = start; i < end; i++) {
+            double expected = total > 0 ? weights[i] / total : 1.0 / (end - start);
+            distance += Math.abs(counts[i] / numDraws - expected);
+        }
+        return distance / 2;
+    }
+
+    private static double[] legacyConvertToCDF(int[] numbers) {
+        double[] cumSums = new double[numbers.length];
+        cumSums[0] = numbers[0];
+        for (int i = 1; i < numbers.length; i++) {
+            cumSums[i] = cumSums[i - 1] + numbers[i];
+        }
+        double sum = cumSums[cumSums.length - 1];
+        for (int i = 0; i < cumSums.length; i++) {
+            cumSums[i] /= sum;
+        }
+        return cumSums;
+    }
+
+    /**
+     * index i with sortedArray[i] < key <= sortedArray[i + 1], clamped to [low, high]
+     */
+    private static int legacyBinarySearch(double[] sortedArray, double key, int low, int high) {
+        if (key < sortedArray[low]) return low;
+        if (key >= sortedArray[high]) return high;
+        while (low <= high) {
+            if (low == high) {
+                return low;
+            }
+            int mid = low + ((high - low) / 2);
+            if (sortedArray[mid] < key && key <= sortedArray[mid + 1]) {
+                return mid;
+            } else if (sortedArray[mid + 1] < key) {
+                low = mid + 1;
+            } else if (sortedArray[mid] >= key) {
+                high = mid;
+            }
+        }
+        return -1;
+    }
+}
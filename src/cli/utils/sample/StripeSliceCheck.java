@@ -0,0 +1,89 @@
+package cli.utils.sample;
+
+import cli.utils.data.FloatPair;
+import cli.utils.data.RowSortedContactMatrix;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Checks that the CSR slices used by StripeFinder match per-cell lookups in the nested HashMap they
+ * replace (including repeated pixels, where the last one wins), and times both.
+ * <p>
+ * usage: StripeSliceCheck [seed] [num bins] [pixels per bin]
+ */
+public class StripeSliceCheck {
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 0;
+        int numBins = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        int pixelsPerBin = args.length > 2 ? Integer.parseInt(args[2]) : 40;
+        int minPeakDist = 2, maxPeakDist = 500;
+        int width = maxPeakDist - minPeakDist;
+
+        Random generator = new Random(seed);
+        Map<Integer, Map<Integer, FloatPair>> legacy = new HashMap<>();
+        RowSortedContactMatrix.Builder builder = new RowSortedContactMatrix.Builder(numBins);
+        long numPixels = (long) numBins * pixelsPerBin;
+        for (long p = 0; p < numPixels; p++) {
+            int x = generator.nextInt(numBins);
+            int y = Math.min(numBins - 1, x + minPeakDist + generator.nextInt(width));
+            float count = 1 + generator.nextInt(100);
+            float oe = generator.nextFloat() * 4;
+            legacy.computeIfAbsent(x, k -> new HashMap<>()).put(y, new FloatPair(count, oe));
+            builder.add(x, y, count, oe);
+        }
+        long start = System.nanoTime();
+        RowSortedContactMatrix matrix = builder.build();
+        System.out.printf("built %d entries in %d ms%n", matrix.getNumEntries(),
+                (System.nanoTime() - start) / 1000000);
+
+        int numPeaks = 20000;
+        int[] peaks = new int[numPeaks];
+        for (int k = 0; k < numPeaks; k++) {
+            peaks[k] = generator.nextInt(numBins);
+        }
+
+        float[][] counts = new float[5][width], oes = new float[5][width];
+        float[][] legacyCounts = new float[5][width], legacyOEs = new float[5][width];
+        boolean identical = true;
+        long legacyNanos = 0, csrNanos = 0;
+        for (int vertical = 0; vertical < 2; vertical++) {
+            for (int p : peaks) {
+                start = System.nanoTime();
+                for (int a = 0; a < 5; a++) {
+                    for (int b = 0; b < width; b++) {
+                        int x = vertical == 1 ? p - maxPeakDist + b : p - 2 + a;
+                        int y = vertical == 1 ? p - 2 + a : p + minPeakDist + b;
+                        legacyCounts[a][b] = lookup(legacy, x, y, true);
+                        legacyOEs[a][b] = lookup(legacy, x, y, false);
+                    }
+                }
+                legacyNanos += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                if (vertical == 1) {
+                    matrix.fillColumns(p - maxPeakDist, p - 2, counts, oes);
+                } else {
+                    for (int a = 0; a < 5; a++) {
+                        matrix.fillRow(p - 2 + a, p + minPeakDist, counts[a], oes[a]);
+                    }
+                }
+                csrNanos += System.nanoTime() - start;
+
+                identical &= Arrays.deepEquals(counts, legacyCounts) && Arrays.deepEquals(oes, legacyOEs);
+            }
+        }
+        System.out.printf("slices: hash map %d ms, csr %d ms, identical %b%n",
+                legacyNanos / 1000000, csrNanos / 1000000, identical);
+    }
+
+    private static float lookup(Map<Integer, Map<Integer, FloatPair>> map, int x, int y, boolean count) {
+        if (map.containsKey(x) && map.get(x).containsKey(y)) {
+            return count ? map.get(x).get(y).count : map.get(x).get(y).oe;
+        }
+        return count ? 0 : 1;
+    }
+}
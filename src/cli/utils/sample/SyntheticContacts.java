@@ -0,0 +1,149 @@
+package cli.utils.sample;
+
+import cli.utils.general.Pixel;
+import javastraw.feature2D.Feature2D;
+import javastraw.reader.block.ContactRecord;
+
+import java.awt.*;
+import java.util.List;
+import java.util.*;
+
+/**
+ * Seeded generators for contact records shaped like a Hi-C map: the distance from the diagonal
+ * follows a power-law decay (~ d^-1), counts shrink with distance, and a few loop-like foci are
+ * layered on top. Used by the sample benchmarks so runs are comparable across commits.
+ */
+public class SyntheticContacts {
+
+    private final Random generator;
+
+    public SyntheticContacts(long seed) {
+        this.generator = new Random(seed);
+    }
+
+    /**
+     * @return records in the upper triangle with 0 <= binY - binX < maxDist, sorted by row then column
+     */
+    public List<ContactRecord> decayRecords(int numRecords, int numBins, int maxDist) {
+        Map<Long, ContactRecord> records = new HashMap<>(2 * numRecords);
+        double logMax = Math.log(maxDist);
+        int attempts = 0;
+        while (records.size() < numRecords && attempts < 20 * numRecords) {
+            attempts++;
+            int dist = (int) Math.exp(generator.nextDouble() * logMax) - 1;
+            int binX = generator.nextInt(Math.max(1, numBins - dist));
+            int binY = binX + dist;
+            long key = ((long) binX << 32) | binY;
+            if (!records.containsKey(key)) {
+                records.put(key, new ContactRecord(binX, binY, decayCount(dist)));
+            }
+        }
+        List<ContactRecord> sorted = new ArrayList<>(records.values());
+        sorted.sort((o1, o2) -> {
+            int val = Integer.compare(o1.getBinX(), o2.getBinX());
+            if (val == 0) {
+                return Integer.compare(o1.getBinY(), o2.getBinY());
+            }
+            return val;
+        });
+        return sorted;
+    }
+
+    private float decayCount(int dist) {
+        double expected = 1000.0 / (1 + dist);
+        return (float) Math.max(1, expected * (0.5 + generator.nextDouble()));
+    }
+
+    /**
+     * @return a dense region near the diagonal with enriched square foci added at random positions
+     */
+    public float[][] decayMatrix(int width, int numFoci, int fociRadius) {
+        float[][] matrix = new float[width][width];
+        for (int i = 0; i < width; i++) {
+            for (int j = i; j < width; j++) {
+                if (generator.nextDouble() < 2.0 / (1 + j - i)) {
+                    matrix[i][j] = decayCount(j - i);
+                }
+            }
+        }
+        addFoci(matrix, numFoci, fociRadius);
+        return matrix;
+    }
+
+    private void addFoci(float[][] matrix, int numFoci, int radius) {
+        int width = matrix.length;
+        for (int f = 0; f < numFoci; f++) {
+            int r = generator.nextInt(width);
+            int c = Math.min(width - 1, r + generator.nextInt(width - r));
+            for (int i = Math.max(0, r - radius); i <= Math.min(width - 1, r + radius); i++) {
+                for (int j = Math.max(0, c - radius); j <= Math.min(width - 1, c + radius); j++) {
+                    matrix[i][j] += 50 * generator.nextFloat();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return pixels grouped in clusters, like the enriched pixels of a smoothed map
+     */
+    public List<Pixel> clusteredPixels(int numClusters, int pixelsPerCluster, int width, int spread) {
+        List<Pixel> pixels = new ArrayList<>(numClusters * pixelsPerCluster);
+        Set<Long> used = new HashSet<>();
+        for (int k = 0; k < numClusters; k++) {
+            int r0 = generator.nextInt(width);
+            int c0 = generator.nextInt(width);
+            for (int p = 0; p < pixelsPerCluster; p++) {
+                int r = clamp(r0 + generator.nextInt(2 * spread + 1) - spread, width);
+                int c = clamp(c0 + generator.nextInt(2 * spread + 1) - spread, width);
+                if (used.add(((long) r << 32) | c)) {
+                    pixels.add(new Pixel(r, c, 10 * generator.nextFloat(), 3 + generator.nextFloat()));
+                }
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * @return enriched records grouped in clusters, like the candidate pixels passed to the collapsers
+     */
+    public Set<ContactRecord> clusteredRecords(int numClusters, int recordsPerCluster, int numBins, int spread) {
+        Set<ContactRecord> records = new HashSet<>();
+        Set<Long> used = new HashSet<>();
+        for (int k = 0; k < numClusters; k++) {
+            int x0 = generator.nextInt(numBins);
+            int y0 = x0 + 5 + generator.nextInt(500);
+            for (int p = 0; p < recordsPerCluster; p++) {
+                int x = Math.max(0, x0 + generator.nextInt(2 * spread + 1) - spread);
+                int y = Math.max(x, y0 + generator.nextInt(2 * spread + 1) - spread);
+                if (used.add(((long) x << 32) | y)) {
+                    records.add(new ContactRecord(x, y, decayCount(y - x) + 20 * generator.nextFloat()));
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * @return loop calls with some near-duplicates (as from several callers or resolutions)
+     */
+    public List<Feature2D> loops(String chrom, int numLoops, int resolution, int numBins, int maxDist) {
+        List<Feature2D> loops = new ArrayList<>(numLoops);
+        while (loops.size() < numLoops) {
+            long x = (long) generator.nextInt(numBins - maxDist) * resolution;
+            long y = x + (long) (5 + generator.nextInt(maxDist - 5)) * resolution;
+            int copies = 1 + generator.nextInt(3);
+            for (int c = 0; c < copies && loops.size() < numLoops; c++) {
+                int width = resolution * (1 + generator.nextInt(3));
+                long dx = (long) (generator.nextInt(3) - 1) * resolution;
+                long dy = (long) (generator.nextInt(3) - 1) * resolution;
+                loops.add(new Feature2D(Feature2D.FeatureType.PEAK, chrom, x + dx, x + dx + width,
+                        chrom, y + dy, y + dy + width, Color.BLACK, new HashMap<>()));
+            }
+        }
+        return loops;
+    }
+
+    private static int clamp(int val, int width) {
+        return Math.max(0, Math.min(width - 1, val));
+    }
+}
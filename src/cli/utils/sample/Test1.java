@@ -1,5 +1,6 @@
 package cli.utils.sample;
 
+import cli.utils.general.NpyWriter;
 import javastraw.expected.ExpectedUtils;
 import javastraw.reader.Dataset;
 import javastraw.reader.basics.Chromosome;
@@ -8,7 +9,6 @@ import javastraw.reader.mzd.Matrix;
 import javastraw.reader.mzd.MatrixZoomData;
 import javastraw.reader.type.HiCZoom;
 import javastraw.tools.HiCFileTools;
-import javastraw.tools.MatrixTools;
 
 import java.util.BitSet;
 import java.util.Iterator;
@@ -37,8 +37,8 @@ public class Test1 {
                 System.out.println("Processing " + chrom.getName() + " " + res);
 
                 String stem = chrom.getName() + "_" + res + "_";
-                MatrixTools.saveMatrixTextNumpy(stem + "perc.npy", percentages);
-                MatrixTools.saveMatrixTextNumpy(stem + "x.npy", positions);
+                NpyWriter.save(stem + "perc.npy", percentages);
+                NpyWriter.save(stem + "x.npy", positions);
             }
             matrix.clearCache();
         }
@@ -0,0 +1,100 @@
+package cli.utils.seer;
+
+/**
+ * Walker/Vose alias tables for O(1) sampling from discrete weights.
+ * The weights can be cut into consecutive segments of segmentLength entries, each with its own table
+ * (e.g. the high-res bins inside each low-res bin); a segment with zero total weight is sampled uniformly.
+ * Each draw consumes a single uniform double.
+ */
+public class AliasTable {
+
+    private final float[] probability;
+    private final int[] alias;
+    private final int segmentLength;
+
+    public AliasTable(float[] weights) {
+        this(weights, Math.max(1, weights.length));
+    }
+
+    public AliasTable(float[] weights, int segmentLength) {
+        this.segmentLength = segmentLength;
+        probability = new float[weights.length];
+        alias = new int[weights.length];
+        int[] small = new int[Math.min(segmentLength, weights.length)];
+        int[] large = new int[small.length];
+        double[] scaled = new double[small.length];
+        for (int start = 0; start < weights.length; start += segmentLength) {
+            build(weights, start, Math.min(start + segmentLength, weights.length), small, large, scaled);
+        }
+    }
+
+    private void build(float[] weights, int start, int end, int[] small, int[] large, double[] scaled) {
+        int n = end - start;
+        double total = 0;
+        for (int i = start; i < end; i++) {
+            if (weights[i] > 0) total += weights[i];
+        }
+
+        int numSmall = 0, numLarge = 0;
+        for (int i = 0; i < n; i++) {
+            double weight = weights[start + i] > 0 ? weights[start + i] : 0;
+            scaled[i] = total > 0 ? weight * n / total : 1;
+            if (scaled[i] < 1) {
+                small[numSmall++] = i;
+            } else {
+                large[numLarge++] = i;
+            }
+        }
+
+        while (numSmall > 0 && numLarge > 0) {
+            int less = small[--numSmall];
+            int more = large[--numLarge];
+            probability[start + less] = (float) scaled[less];
+            alias[start + less] = start + more;
+            scaled[more] = (scaled[more] + scaled[less]) - 1;
+            if (scaled[more] < 1) {
+                small[numSmall++] = more;
+            } else {
+                large[numLarge++] = more;
+            }
+        }
+        // leftovers are 1 up to rounding error
+        while (numLarge > 0) {
+            int more = large[--numLarge];
+            probability[start + more] = 1;
+            alias[start + more] = start + more;
+        }
+        while (numSmall > 0) {
+            int less = small[--numSmall];
+            probability[start + less] = 1;
+            alias[start + less] = start + less;
+        }
+    }
+
+    public int size() {
+        return probability.length;
+    }
+
+    /**
+     * @param u uniform in [0, 1)
+     * @return index into the weights
+     */
+    public int sample(double u) {
+        return sample(0, u);
+    }
+
+    /**
+     * @param segment index of the segment, i.e. entries [segment * segmentLength, (segment + 1) * segmentLength)
+     * @param u       uniform in [0, 1)
+     * @return index into the weights
+     */
+    public int sample(int segment, double u) {
+        int start = segment * segmentLength;
+        int n = Math.min(segmentLength, probability.length - start);
+        double scaled = u * n;
+        int k = (int) scaled;
+        if (k >= n) k = n - 1;
+        int i = start + k;
+        return scaled - k < probability[i] ? i : alias[i];
+    }
+}
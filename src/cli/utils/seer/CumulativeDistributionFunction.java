@@ -4,59 +4,135 @@ import cli.utils.sift.SimpleLocation;
 import javastraw.expected.ExpectedUtils;
 import javastraw.reader.block.ContactRecord;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
 
 public class CumulativeDistributionFunction {
 
+    // pixels are stored in chunks so a chromosome can hold more than Integer.MAX_VALUE of them
+    private static final int CHUNK_SIZE = 1 << 24;
+
     private final int resolution;
-    private final double[] cdf;
-    private final SimpleLocation[] genomeLocations;
+    private final List<Chunk> chunks = new ArrayList<>();
+    private double[] cumulativeChunkWeights;
 
     public CumulativeDistributionFunction(Iterator<ContactRecord> normalizedIterator, int maxGenomeDist, int resolution) {
         this.resolution = resolution;
-        List<ContactRecord> toSave = extractTheRecordsWeWantToSave(normalizedIterator, maxGenomeDist / resolution);
-        cdf = new double[toSave.size()];
-        genomeLocations = new SimpleLocation[toSave.size()];
-        populateCDFandLocations(cdf, genomeLocations, toSave);
-        toSave.clear();
+        saveTheRecordsWeWant(normalizedIterator, maxGenomeDist / resolution);
     }
 
-    private List<ContactRecord> extractTheRecordsWeWantToSave(Iterator<ContactRecord> normalizedIterator, int maxDist) {
-        List<ContactRecord> toSave = new LinkedList<>();
+    /**
+     * single pass over the iterator; each full chunk is turned into an alias table right away
+     */
+    private void saveTheRecordsWeWant(Iterator<ContactRecord> normalizedIterator, int maxDist) {
+        Chunk chunk = new Chunk();
         // get only counts within a certain range
         while (normalizedIterator.hasNext()) {
             ContactRecord record = normalizedIterator.next();
             if (record.getCounts() > 0 & ExpectedUtils.getDist(record) < maxDist) {
-                toSave.add(record);
+                if (chunk.size == CHUNK_SIZE) {
+                    chunks.add(chunk.finish());
+                    chunk = new Chunk();
+                }
+                chunk.add(record.getBinX(), record.getBinY(), record.getCounts());
             }
         }
-        return toSave;
-    }
+        if (chunk.size > 0 || chunks.isEmpty()) {
+            chunks.add(chunk.finish());
+        }
 
-    private void populateCDFandLocations(double[] cdf, SimpleLocation[] genomeLocations, List<ContactRecord> toSave) {
+        cumulativeChunkWeights = new double[chunks.size()];
         double total = 0;
-        int index = 0;
+        for (int c = 0; c < chunks.size(); c++) {
+            total += chunks.get(c).totalWeight;
+            cumulativeChunkWeights[c] = total;
+        }
+        for (int c = 0; c < cumulativeChunkWeights.length; c++) {
+            cumulativeChunkWeights[c] /= total;
+        }
+    }
 
-        // fills in the cdf and genome locations
-        for (ContactRecord record : toSave) {
-            total += record.getCounts();
-            cdf[index] = total;
-            genomeLocations[index] = new SimpleLocation(record, resolution);
-            index++;
+    public long size() {
+        long size = 0;
+        for (Chunk chunk : chunks) {
+            size += chunk.size;
         }
+        return size;
+    }
 
-        // normalizes cdf
-        for (int i = 0; i < cdf.length; i++) {
-            cdf[i] /= total;
+    /**
+     * @param u uniform in [0, 1)
+     * @return index of a pixel drawn with probability proportional to its counts
+     */
+    public long sampleIndex(double u) {
+        if (chunks.size() == 1) {
+            return chunks.get(0).sampler.sample(u);
         }
+        // first chunk whose cumulative weight is above u; chunks only hold positive counts, so the
+        // cumulative weights are strictly increasing
+        int c = Arrays.binarySearch(cumulativeChunkWeights, u);
+        c = Math.min(c < 0 ? -c - 1 : c + 1, cumulativeChunkWeights.length - 1);
+        double previous = c > 0 ? cumulativeChunkWeights[c - 1] : 0;
+        double withinChunk = (u - previous) / (cumulativeChunkWeights[c] - previous);
+        withinChunk = Math.min(Math.max(withinChunk, 0), Math.nextDown(1.0));
+        return (long) c * CHUNK_SIZE + chunks.get(c).sampler.sample(withinChunk);
+    }
+
+    public int getGenomeX(long index) {
+        return chunks.get((int) (index / CHUNK_SIZE)).binXs[(int) (index % CHUNK_SIZE)] * resolution;
+    }
+
+    public int getGenomeY(long index) {
+        return chunks.get((int) (index / CHUNK_SIZE)).binYs[(int) (index % CHUNK_SIZE)] * resolution;
     }
 
     public SimpleLocation createRandomPoint(Random rand) {
-        double target = rand.nextDouble();
-        int index = BinarySearch.runBinarySearchIteratively(cdf, target, 0, cdf.length - 1);
-        return genomeLocations[index];
+        return createRandomPoint(rand.nextDouble());
+    }
+
+    /**
+     * @param u uniform in [0, 1)
+     * @return a location drawn with probability proportional to its counts
+     */
+    public SimpleLocation createRandomPoint(double u) {
+        long index = sampleIndex(u);
+        return new SimpleLocation(getGenomeX(index), getGenomeY(index));
+    }
+
+    /**
+     * bins and counts of up to CHUNK_SIZE pixels; once finished, only the bins and the alias table are kept
+     */
+    private class Chunk {
+        int[] binXs = new int[1024];
+        int[] binYs = new int[1024];
+        float[] weights = new float[1024];
+        int size = 0;
+        double totalWeight = 0;
+        AliasTable sampler;
+
+        void add(int binX, int binY, float counts) {
+            if (size == binXs.length) {
+                int capacity = (int) Math.min(CHUNK_SIZE, 2L * size);
+                binXs = Arrays.copyOf(binXs, capacity);
+                binYs = Arrays.copyOf(binYs, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+            }
+            binXs[size] = binX;
+            binYs[size] = binY;
+            weights[size] = counts;
+            totalWeight += counts;
+            size++;
+        }
+
+        Chunk finish() {
+            binXs = Arrays.copyOf(binXs, size);
+            binYs = Arrays.copyOf(binYs, size);
+            sampler = new AliasTable(Arrays.copyOf(weights, size));
+            weights = null;
+            return this;
+        }
     }
 }
@@ -0,0 +1,131 @@
+package cli.utils.seer;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes contacts without building a String per line.
+ * TEXT and GZIP write short-format lines "chr x chr y"; BINARY writes each contact as two big-endian
+ * int32 positions (x, y), with the chromosome given by the file name.
+ * Contacts written with a count ("chr1 x chr2 y count") may span several chromosome pairs; in BINARY
+ * each is five big-endian int32 values (chr1 index, x, chr2 index, y, count).
+ */
+public class MndWriter implements Closeable {
+
+    public enum Format {TEXT, GZIP, BINARY}
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final OutputStream stream;
+    private final Format format;
+    private byte[] name1;
+    private byte[] name2;
+    private int index1, index2;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final byte[] digits = new byte[11];
+    private int position = 0;
+
+    public MndWriter(File file, String chromosomeName, Format format) throws IOException {
+        this(file, format);
+        setChromosomes(chromosomeName, 0, chromosomeName, 0);
+    }
+
+    public MndWriter(File file, Format format) throws IOException {
+        this.format = format;
+        OutputStream fileStream = new FileOutputStream(file);
+        stream = format == Format.GZIP ? new GZIPOutputStream(fileStream, BUFFER_SIZE) : fileStream;
+    }
+
+    public void setChromosomes(String chr1Name, int chr1Index, String chr2Name, int chr2Index) {
+        name1 = (chr1Name + " ").getBytes(StandardCharsets.UTF_8);
+        name2 = (chr2Name + " ").getBytes(StandardCharsets.UTF_8);
+        index1 = chr1Index;
+        index2 = chr2Index;
+    }
+
+    public static String getExtension(Format format) {
+        switch (format) {
+            case GZIP:
+                return ".mnd.txt.gz";
+            case BINARY:
+                return ".mnd.bin";
+            default:
+                return ".mnd.txt";
+        }
+    }
+
+    public void write(int x, int y) throws IOException {
+        if (position + name1.length + name2.length + 24 > buffer.length) {
+            flushBuffer();
+        }
+        if (format == Format.BINARY) {
+            putInt(x);
+            putInt(y);
+        } else {
+            putPosition(name1, x);
+            buffer[position++] = ' ';
+            putPosition(name2, y);
+            buffer[position++] = '\n';
+        }
+    }
+
+    public void write(int x, int y, int count) throws IOException {
+        if (position + name1.length + name2.length + 36 > buffer.length) {
+            flushBuffer();
+        }
+        if (format == Format.BINARY) {
+            putInt(index1);
+            putInt(x);
+            putInt(index2);
+            putInt(y);
+            putInt(count);
+        } else {
+            putPosition(name1, x);
+            buffer[position++] = ' ';
+            putPosition(name2, y);
+            buffer[position++] = ' ';
+            putDigits(count);
+            buffer[position++] = '\n';
+        }
+    }
+
+    private void putPosition(byte[] name, int value) {
+        System.arraycopy(name, 0, buffer, position, name.length);
+        position += name.length;
+        putDigits(value);
+    }
+
+    private void putDigits(int value) {
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int n = 0;
+        do {
+            digits[n++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        while (n > 0) {
+            buffer[position++] = digits[--n];
+        }
+    }
+
+    private void putInt(int value) {
+        buffer[position++] = (byte) (value >>> 24);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    private void flushBuffer() throws IOException {
+        stream.write(buffer, 0, position);
+        position = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushBuffer();
+        stream.close();
+    }
+}
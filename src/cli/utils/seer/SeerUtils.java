@@ -2,7 +2,6 @@ package cli.utils.seer;
 
 import cli.utils.general.MapNMS;
 import cli.utils.general.function.NormalizationFunction;
-import cli.utils.sift.SimpleLocation;
 import javastraw.reader.basics.Chromosome;
 import javastraw.reader.block.ContactRecord;
 
@@ -12,7 +11,6 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.Random;
 
 public class SeerUtils {
 
@@ -148,53 +146,32 @@ public class SeerUtils {
         return rowSums;
     }
 
-    public static SimpleLocation updateToHigherResPosition(SimpleLocation genomePosition, double[] hiResCDF,
-                                                           int lowResolution, int highResolution, Random rand) {
-        int window = lowResolution / highResolution; // e.g. 100
-        int startBinX = genomePosition.getBinX() / highResolution;
-        int startBinY = genomePosition.getBinY() / highResolution;
-
-        int genomeX = getHigherQualityIndex(startBinX, window, hiResCDF, rand) * highResolution;
-        int genomeY = getHigherQualityIndex(startBinY, window, hiResCDF, rand) * highResolution;
-
-        return new SimpleLocation(genomeX, genomeY);
-    }
-
-    private static int getHigherQualityIndex(int startBin, int window, double[] hiResCDF, Random rand) {
-        double r = rand.nextDouble();
-
-        int realStartBin = startBin;
-        int realEndBin = startBin + window;
-
-        if (realEndBin >= hiResCDF.length) {
-            realEndBin = hiResCDF.length - 1;
+    /**
+     * @return alias tables over the high-res row sums, one per low-res bin
+     */
+    public static AliasTable createRowSampler(int[] rowSums, int lowResolution, int highResolution) {
+        float[] weights = new float[rowSums.length];
+        for (int i = 0; i < rowSums.length; i++) {
+            weights[i] = rowSums[i];
         }
+        return new AliasTable(weights, getWindow(lowResolution, highResolution));
+    }
 
-        if (startBin > 0) {
-            realStartBin = startBin - 1;
-        }
-
-        double x0 = hiResCDF[realStartBin];
-        double xF = hiResCDF[realEndBin];
-
-        double range = xF - x0;
-        double target = r * range + x0;
-
-        return BinarySearch.runBinarySearchIteratively(hiResCDF, target, realStartBin, realEndBin);
+    /**
+     * picks a high-res bin inside the low-res bin at lowResGenomePosition, proportional to the row sums
+     *
+     * @param u uniform in [0, 1)
+     * @return the genome position of the high-res bin
+     */
+    public static int getHigherResPosition(int lowResGenomePosition, AliasTable rowSampler, int lowResolution,
+                                           int highResolution, double u) {
+        int window = getWindow(lowResolution, highResolution);
+        int segment = (lowResGenomePosition / highResolution) / window;
+        segment = Math.min(segment, (rowSampler.size() - 1) / window);
+        return rowSampler.sample(segment, u) * highResolution;
     }
 
-    public static double[] convertToCDF(int[] numbers) {
-        double[] cumSums = new double[numbers.length];
-        // matrix of cumulative sums of the first array
-        cumSums[0] = numbers[0];
-        for (int i = 1; i < numbers.length; i++) {
-            cumSums[i] = cumSums[i - 1] + numbers[i];
-        }
-        double sum = cumSums[cumSums.length - 1];
-        // normalizes every term by having last value = 1
-        for (int i = 0; i < cumSums.length; i++) {
-            cumSums[i] /= sum;
-        }
-        return cumSums;
+    private static int getWindow(int lowResolution, int highResolution) {
+        return Math.max(1, lowResolution / highResolution); // e.g. 100
     }
 }
@@ -11,7 +11,6 @@ import javastraw.reader.mzd.MatrixZoomData;
 import javastraw.reader.type.HiCZoom;
 import javastraw.reader.type.NormalizationType;
 
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
@@ -20,15 +19,15 @@ public class ExtremePixels {
     public static Set<ContactRecord> getExtremePixelsForResolution(Dataset ds, MatrixZoomData zd, Chromosome chrom,
                                                                    int res, NormalizationType norm,
                                                                    int maxBin, int minBin, ExpectedModel poly) {
-        Set<ContactRecord> enrichedRegions = ExtremePixels.getExtremeLocations(ds, chrom, res,
+        PixelBuffer enrichedRegions = ExtremePixels.getExtremeLocations(ds, chrom, res,
                 zd, maxBin, minBin, norm, poly);
         int radius = Math.max(Sift.MIN_RADIUS_0 / res, 2);
         return CentroidCollapser.coalesce(enrichedRegions, radius, radius);
     }
 
-    public static Set<ContactRecord> getExtremeLocations(Dataset ds, Chromosome chromosome, int resolution,
-                                                         MatrixZoomData zd, int maxBin, int minBin,
-                                                         NormalizationType norm, ExpectedModel poly) {
+    public static PixelBuffer getExtremeLocations(Dataset ds, Chromosome chromosome, int resolution,
+                                                  MatrixZoomData zd, int maxBin, int minBin,
+                                                  NormalizationType norm, ExpectedModel poly) {
         int chrIdx = chromosome.getIndex();
         double[] nv;
         try {
@@ -36,12 +35,12 @@ public class ExtremePixels {
         } catch (Exception e) {
             System.err.println("No norm vector found for " + chromosome.getName() + " resolution " + resolution);
             System.exit(8);
-            return new HashSet<>();
+            return new PixelBuffer(0);
         }
 
         int minVal = 1;
 
-        Set<ContactRecord> extremes = new HashSet<>();
+        PixelBuffer extremes = new PixelBuffer(1024);
         Iterator<ContactRecord> it = ExpectedUtils.getIterator(zd, norm);
         while (it.hasNext()) {
             ContactRecord cr = it.next();
@@ -50,13 +49,13 @@ public class ExtremePixels {
                 if (dist > minBin && dist < maxBin) {
                     if (poly.isReasonableEnrichment(cr, Sift.ENRICMENT_VS_EXPECTED)
                             && poly.isReasonablePercentContact(cr, Sift.MIN_PC, Sift.MAX_PC)) {
-                        extremes.add(cr);
+                        extremes.add(cr.getBinX(), cr.getBinY(), cr.getCounts());
                     }
                 }
             }
         }
 
-        System.out.println(resolution + " - num extremes: " + extremes.size());
+        System.out.println(chromosome.getName() + " " + resolution + " - num extremes: " + extremes.size());
         return extremes;
     }
 
@@ -43,6 +43,81 @@ public class NMSUtils {
         return locationMap;
     }
 
+    /**
+     * Reorders the pixels tile by tile (scalar x scalar bins, as in groupNearbyRecords); within a tile,
+     * by counts descending and then by position. Uses two counting sorts over tile coordinates,
+     * then sorts packed (counts, offset) keys within each tile, so no per-pixel objects are created.
+     * The scalar must be below 65536.
+     *
+     * @return start offset of each tile in the buffer, followed by the buffer size
+     */
+    public static int[] sortIntoTiles(PixelBuffer pixels, int scalar) {
+        int n = pixels.size();
+        int maxTileX = 0, maxTileY = 0;
+        for (int i = 0; i < n; i++) {
+            maxTileX = Math.max(maxTileX, pixels.binXs[i] / scalar);
+            maxTileY = Math.max(maxTileY, pixels.binYs[i] / scalar);
+        }
+        int[] byTileY = countingSort(pixels.binYs, null, n, scalar, maxTileY);
+        int[] order = countingSort(pixels.binXs, byTileY, n, scalar, maxTileX);
+
+        int[] newBinXs = new int[n];
+        int[] newBinYs = new int[n];
+        float[] newCounts = new float[n];
+        int[] tileStarts = new int[n + 1];
+        int numTiles = 0;
+        int start = 0;
+        while (start < n) {
+            int tileX = pixels.binXs[order[start]] / scalar;
+            int tileY = pixels.binYs[order[start]] / scalar;
+            int end = start + 1;
+            while (end < n && pixels.binXs[order[end]] / scalar == tileX
+                    && pixels.binYs[order[end]] / scalar == tileY) {
+                end++;
+            }
+
+            long[] keys = new long[end - start];
+            for (int k = start; k < end; k++) {
+                int i = order[k];
+                int bits = Float.floatToIntBits(pixels.counts[i]);
+                int descending = ~(bits ^ ((bits >> 31) & 0x7FFFFFFF));
+                int offset = ((pixels.binXs[i] - tileX * scalar) << 16) | (pixels.binYs[i] - tileY * scalar);
+                keys[k - start] = ((long) descending << 32) | (offset & 0xFFFFFFFFL);
+            }
+            Arrays.sort(keys);
+            for (int k = start; k < end; k++) {
+                long key = keys[k - start];
+                int sortable = ~(int) (key >> 32);
+                int offset = (int) key;
+                newBinXs[k] = tileX * scalar + (offset >>> 16);
+                newBinYs[k] = tileY * scalar + (offset & 0xFFFF);
+                newCounts[k] = Float.intBitsToFloat(sortable ^ ((sortable >> 31) & 0x7FFFFFFF));
+            }
+
+            tileStarts[numTiles++] = start;
+            start = end;
+        }
+        tileStarts[numTiles] = n;
+        pixels.replace(newBinXs, newBinYs, newCounts);
+        return Arrays.copyOf(tileStarts, numTiles + 1);
+    }
+
+    private static int[] countingSort(int[] bins, int[] input, int n, int scalar, int maxTile) {
+        int[] offsets = new int[maxTile + 2];
+        for (int k = 0; k < n; k++) {
+            offsets[bins[input == null ? k : input[k]] / scalar + 1]++;
+        }
+        for (int t = 0; t <= maxTile; t++) {
+            offsets[t + 1] += offsets[t];
+        }
+        int[] output = new int[n];
+        for (int k = 0; k < n; k++) {
+            int i = input == null ? k : input[k];
+            output[offsets[bins[i] / scalar]++] = i;
+        }
+        return output;
+    }
+
     public static void nonMaxSuppressionInGroup(Set<ContactRecord> initialPoints, Set<ContactRecord> toRemove, Map<SimpleLocation, List<ContactRecord>> locationMap) {
         for (List<ContactRecord> overlaps : locationMap.values()) {
             if (overlaps.size() > 1) {
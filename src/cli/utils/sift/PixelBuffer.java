@@ -0,0 +1,58 @@
+package cli.utils.sift;
+
+import java.util.Arrays;
+
+/**
+ * Growable primitive storage for candidate pixels (binX, binY, counts): 12 bytes per pixel
+ * instead of a ContactRecord object plus a HashSet entry.
+ */
+public class PixelBuffer {
+
+    int[] binXs;
+    int[] binYs;
+    float[] counts;
+    private int size = 0;
+
+    public PixelBuffer(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        binXs = new int[capacity];
+        binYs = new int[capacity];
+        counts = new float[capacity];
+    }
+
+    public void add(int binX, int binY, float count) {
+        if (size == binXs.length) {
+            int capacity = binXs.length + (binXs.length >> 1);
+            binXs = Arrays.copyOf(binXs, capacity);
+            binYs = Arrays.copyOf(binYs, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        binXs[size] = binX;
+        binYs[size] = binY;
+        counts[size] = count;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getBinX(int i) {
+        return binXs[i];
+    }
+
+    public int getBinY(int i) {
+        return binYs[i];
+    }
+
+    public float getCounts(int i) {
+        return counts[i];
+    }
+
+    void replace(int[] newBinXs, int[] newBinYs, float[] newCounts) {
+        binXs = newBinXs;
+        binYs = newBinYs;
+        counts = newCounts;
+        size = newBinXs.length;
+    }
+}
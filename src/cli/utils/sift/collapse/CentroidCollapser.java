@@ -2,6 +2,7 @@ package cli.utils.sift.collapse;
 
 import cli.clt.loops.Sift;
 import cli.utils.sift.NMSUtils;
+import cli.utils.sift.PixelBuffer;
 import cli.utils.sift.SimpleLocation;
 import javastraw.reader.block.ContactRecord;
 
@@ -14,54 +15,88 @@ public class CentroidCollapser {
 
     public static Set<ContactRecord> coalesce(Set<ContactRecord> regions, int buffer, int minNeighbors) {
         // HashSet intermediate for removing duplicates
-        // LinkedList used so that we can pop out highest obs values
+        // sorted so that we can pop out highest obs values
         Map<SimpleLocation, LinkedList<ContactRecord>> map = NMSUtils.groupNearbyRecords(regions, 250);
         Set<ContactRecord> coalesced = new HashSet<>();
 
-        for (LinkedList<ContactRecord> records : map.values()) {
-            sortInPlace(records);
-
-            while (!records.isEmpty()) {
-                ContactRecord pixel = records.pollFirst();
-                if (pixel != null) {
-                    records.remove(pixel);
-
-                    int binX0 = pixel.getBinX() - buffer;
-                    int binY0 = pixel.getBinY() - buffer;
-                    int binX1 = pixel.getBinX() + buffer + 1;
-                    int binY1 = pixel.getBinY() + buffer + 1;
-
-                    int prevSize = 0;
-                    Set<ContactRecord> pixelList = new HashSet<>();
-                    pixelList.add(pixel);
-
-                    while (prevSize != pixelList.size()) {
-                        prevSize = pixelList.size();
-                        for (ContactRecord px : records) {
-                            if (contains(px, binX0, binY0, binX1, binY1)) {
-                                pixelList.add(px);
-                                binX0 = Math.min(binX0, px.getBinX() - buffer);
-                                binY0 = Math.min(binY0, px.getBinY() - buffer);
-                                binX1 = Math.max(binX1, px.getBinX() + buffer + 1);
-                                binY1 = Math.max(binY1, px.getBinY() + buffer + 1);
-                            }
-                        }
-                        records.removeAll(pixelList);
-                    }
+        for (LinkedList<ContactRecord> group : map.values()) {
+            sortInPlace(group);
+            ContactRecord[] records = group.toArray(new ContactRecord[0]);
+            int n = records.length;
+            int[] x1 = new int[n], y1 = new int[n], x2 = new int[n], y2 = new int[n];
+            for (int k = 0; k < n; k++) {
+                x1[k] = records[k].getBinX();
+                y1[k] = records[k].getBinY();
+                x2[k] = x1[k] + 1;
+                y2[k] = y1[k] + 1;
+            }
+            CollapseGrid grid = new CollapseGrid(x1, y1, x2, y2, buffer);
+
+            for (int k = 0; k < n; k++) {
+                if (grid.isRemoved(k)) continue;
+                ContactRecord pixel = records[k];
+                grid.remove(k);
 
-                    assessNeighbors(coalesced, pixel, pixelList, minNeighbors);
+                int[] box = new int[]{pixel.getBinX() - buffer, pixel.getBinY() - buffer,
+                        pixel.getBinX() + buffer + 1, pixel.getBinY() + buffer + 1};
+                int numAbsorbed = grid.growAndRemove(box, buffer);
+
+                Set<ContactRecord> pixelList = new HashSet<>();
+                pixelList.add(pixel);
+                for (int a = 0; a < numAbsorbed; a++) {
+                    pixelList.add(records[grid.getAbsorbed(a)]);
                 }
+
+                assessNeighbors(coalesced, pixel, pixelList, minNeighbors);
             }
         }
         return coalesced;
     }
 
-    private static void sortInPlace(LinkedList<ContactRecord> records) {
-        records.sort((o1, o2) -> Float.compare(-o1.getCounts(), -o2.getCounts()));
+    /**
+     * Same collapse as above, run tile by tile straight off a primitive pixel buffer.
+     * Within a tile, seeds are taken by counts and then by position, so ties are resolved deterministically.
+     */
+    public static Set<ContactRecord> coalesce(PixelBuffer pixels, int buffer, int minNeighbors) {
+        int[] tileStarts = NMSUtils.sortIntoTiles(pixels, 250);
+        Set<ContactRecord> coalesced = new HashSet<>();
+
+        for (int t = 0; t < tileStarts.length - 1; t++) {
+            int start = tileStarts[t];
+            int n = tileStarts[t + 1] - start;
+            int[] x1 = new int[n], y1 = new int[n], x2 = new int[n], y2 = new int[n];
+            for (int k = 0; k < n; k++) {
+                x1[k] = pixels.getBinX(start + k);
+                y1[k] = pixels.getBinY(start + k);
+                x2[k] = x1[k] + 1;
+                y2[k] = y1[k] + 1;
+            }
+            CollapseGrid grid = new CollapseGrid(x1, y1, x2, y2, buffer);
+
+            for (int k = 0; k < n; k++) {
+                if (grid.isRemoved(k)) continue;
+                grid.remove(k);
+
+                int[] box = new int[]{x1[k] - buffer, y1[k] - buffer, x1[k] + buffer + 1, y1[k] + buffer + 1};
+                int numAbsorbed = grid.growAndRemove(box, buffer);
+                if (numAbsorbed + 1 > minNeighbors) {
+                    float counts = pixels.getCounts(start + k);
+                    float sumTotal = counts;
+                    for (int a = 0; a < numAbsorbed; a++) {
+                        sumTotal += pixels.getCounts(start + grid.getAbsorbed(a));
+                    }
+                    float average = (sumTotal - counts) / numAbsorbed;
+                    if (counts / average > Sift.ENRICHMENT_VS_NEIGHBORS) {
+                        coalesced.add(new ContactRecord(x1[k], y1[k], counts));
+                    }
+                }
+            }
+        }
+        return coalesced;
     }
 
-    private static boolean contains(ContactRecord px, int binX0, int binY0, int binX1, int binY1) {
-        return binX0 <= px.getBinX() && binX1 > px.getBinX() && binY0 <= px.getBinY() && binY1 > px.getBinY();
+    private static void sortInPlace(LinkedList<ContactRecord> records) {
+        records.sort((o1, o2) -> Float.compare(-o1.getCounts(), -o2.getCounts()));
     }
 
     private static void assessNeighbors(Set<ContactRecord> coalesced, ContactRecord pixel, Set<ContactRecord> pixelList, int minNeighbors) {
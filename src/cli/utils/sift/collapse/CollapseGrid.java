@@ -0,0 +1,185 @@
+package cli.utils.sift.collapse;
+
+import cli.utils.data.PackedContactStore;
+
+import java.util.Arrays;
+
+/**
+ * Coarse grid over the rectangles [x1, x2) x [y1, y2) of one group of candidates, used to grow
+ * a collapse region without rescanning every remaining candidate.
+ * Each rectangle is listed in every cell it touches; cells are kept in CSR form behind an
+ * open-addressing table keyed by the packed cell coordinates. Absorbed candidates are tombstoned
+ * and dropped from a cell's slice the next time that cell is visited.
+ */
+class CollapseGrid {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final int[] x1, y1, x2, y2;
+    private final boolean[] removed;
+    private final int cellSize;
+    private final long[] cellKeys;
+    private final int[] cellOffsets;
+    private final int[] cellSizes;
+    private final int[] cellItems;
+    private final int mask;
+    private int[] found = new int[16];
+    private int numFound = 0;
+
+    /**
+     * Candidates should be given in the order they are to be used as seeds
+     */
+    CollapseGrid(int[] x1, int[] y1, int[] x2, int[] y2, int cellSize) {
+        this.x1 = x1;
+        this.y1 = y1;
+        this.x2 = x2;
+        this.y2 = y2;
+        this.cellSize = Math.max(1, cellSize);
+        removed = new boolean[x1.length];
+
+        int capacity = Integer.highestOneBit(Math.max(16, x1.length * 8 - 1)) << 1;
+        cellKeys = new long[capacity];
+        Arrays.fill(cellKeys, EMPTY);
+        cellOffsets = new int[capacity];
+        cellSizes = new int[capacity];
+        mask = capacity - 1;
+
+        int total = 0;
+        for (int k = 0; k < x1.length; k++) {
+            total += forEachCell(k, true);
+        }
+        int offset = 0;
+        for (int s = 0; s < capacity; s++) {
+            if (cellKeys[s] != EMPTY) {
+                cellOffsets[s] = offset;
+                offset += cellSizes[s];
+                cellSizes[s] = 0;
+            }
+        }
+        cellItems = new int[total];
+        for (int k = 0; k < x1.length; k++) {
+            forEachCell(k, false);
+        }
+    }
+
+    private int forEachCell(int k, boolean counting) {
+        int num = 0;
+        for (int cx = cell(x1[k]); cx <= cell(x2[k] - 1); cx++) {
+            for (int cy = cell(y1[k]); cy <= cell(y2[k] - 1); cy++) {
+                long key = PackedContactStore.pack(cx, cy);
+                int slot = slotFor(key);
+                if (counting) {
+                    cellKeys[slot] = key;
+                } else {
+                    cellItems[cellOffsets[slot] + cellSizes[slot]] = k;
+                }
+                cellSizes[slot]++;
+                num++;
+            }
+        }
+        return num;
+    }
+
+    private int cell(int coordinate) {
+        return Math.floorDiv(coordinate, cellSize);
+    }
+
+    private int slotFor(long key) {
+        int row = (int) (key >>> 32);
+        int slot = (row * 0x9E3779B9 + (int) key * 0x85EBCA6B) & mask;
+        while (cellKeys[slot] != EMPTY && cellKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    int size() {
+        return x1.length;
+    }
+
+    boolean isRemoved(int id) {
+        return removed[id];
+    }
+
+    void remove(int id) {
+        removed[id] = true;
+    }
+
+    /**
+     * Grows box = {x1, y1, x2, y2} until no remaining candidate overlaps it (with positive area).
+     * Each absorbed candidate extends the box to cover its rectangle padded by pad; absorbed candidates
+     * are removed and their ids can be read with getAbsorbed.
+     *
+     * @return number of candidates absorbed
+     */
+    int growAndRemove(int[] box, int pad) {
+        numFound = 0;
+        int px1 = box[0], py1 = box[1], px2 = box[0], py2 = box[1];
+        int numChecked = 0;
+        while (true) {
+            // candidates overlapping the previous box were absorbed already,
+            // so only cells under the newly added strips need to be visited
+            collect(box, box[0], box[1], px1, box[3]);
+            collect(box, px2, box[1], box[2], box[3]);
+            collect(box, px1, box[1], px2, py1);
+            collect(box, px1, py2, px2, box[3]);
+            px1 = box[0];
+            py1 = box[1];
+            px2 = box[2];
+            py2 = box[3];
+
+            for (int k = numChecked; k < numFound; k++) {
+                int id = found[k];
+                box[0] = Math.min(box[0], x1[id] - pad);
+                box[1] = Math.min(box[1], y1[id] - pad);
+                box[2] = Math.max(box[2], x2[id] + pad);
+                box[3] = Math.max(box[3], y2[id] + pad);
+            }
+            numChecked = numFound;
+
+            if (box[0] == px1 && box[1] == py1 && box[2] == px2 && box[3] == py2) {
+                return numFound;
+            }
+        }
+    }
+
+    int getAbsorbed(int k) {
+        return found[k];
+    }
+
+    /**
+     * visits the cells under region [rx1, rx2) x [ry1, ry2) and absorbs candidates overlapping box
+     */
+    private void collect(int[] box, int rx1, int ry1, int rx2, int ry2) {
+        if (rx1 >= rx2 || ry1 >= ry2) return;
+        for (int cx = cell(rx1); cx <= cell(rx2 - 1); cx++) {
+            for (int cy = cell(ry1); cy <= cell(ry2 - 1); cy++) {
+                int slot = slotFor(PackedContactStore.pack(cx, cy));
+                if (cellKeys[slot] == EMPTY) continue;
+                int start = cellOffsets[slot];
+                int p = start;
+                while (p < start + cellSizes[slot]) {
+                    int id = cellItems[p];
+                    if (!removed[id] && overlaps(id, box)) {
+                        removed[id] = true;
+                        if (numFound == found.length) {
+                            found = Arrays.copyOf(found, 2 * found.length);
+                        }
+                        found[numFound++] = id;
+                    }
+                    if (removed[id]) {
+                        cellSizes[slot]--;
+                        cellItems[p] = cellItems[start + cellSizes[slot]];
+                    } else {
+                        p++;
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean overlaps(int id, int[] box) {
+        return Math.max(x1[id], box[0]) < Math.min(x2[id], box[2])
+                && Math.max(y1[id], box[1]) < Math.min(y2[id], box[3]);
+    }
+}
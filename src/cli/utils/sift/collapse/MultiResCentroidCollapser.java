@@ -11,43 +11,40 @@ public class MultiResCentroidCollapser {
 
     public static Set<ContactRecordBox> coalesce(Set<ContactRecordBox> regions, int minResolutions) {
         // HashSet intermediate for removing duplicates
-        // LinkedList used so that we can pop out highest obs values
+        // sorted so that we can pop out highest obs values
         Map<SimpleLocation, LinkedList<ContactRecordBox>> map = groupNearbyRecords(regions, 5000000);
         Set<ContactRecordBox> coalesced = new HashSet<>();
 
-        for (LinkedList<ContactRecordBox> records : map.values()) {
-            sortInPlace(records);
-
-            while (!records.isEmpty()) {
-                ContactRecordBox pixel = records.pollFirst();
-                if (pixel != null) {
-                    records.remove(pixel);
-
-                    int gX1 = pixel.getGenomeX1();
-                    int gY1 = pixel.getGenomeY1();
-                    int gX2 = pixel.getGenomeX2();
-                    int gY2 = pixel.getGenomeY2();
+        for (LinkedList<ContactRecordBox> group : map.values()) {
+            sortInPlace(group);
+            ContactRecordBox[] records = group.toArray(new ContactRecordBox[0]);
+            int n = records.length;
+            int[] x1 = new int[n], y1 = new int[n], x2 = new int[n], y2 = new int[n];
+            int maxWidth = 1;
+            for (int k = 0; k < n; k++) {
+                x1[k] = records[k].getGenomeX1();
+                y1[k] = records[k].getGenomeY1();
+                x2[k] = records[k].getGenomeX2();
+                y2[k] = records[k].getGenomeY2();
+                maxWidth = Math.max(maxWidth, Math.max(x2[k] - x1[k], y2[k] - y1[k]));
+            }
+            CollapseGrid grid = new CollapseGrid(x1, y1, x2, y2, maxWidth);
 
-                    int prevSize = 0;
-                    Set<ContactRecordBox> pixelList = new HashSet<>();
-                    pixelList.add(pixel);
+            for (int k = 0; k < n; k++) {
+                if (grid.isRemoved(k)) continue;
+                ContactRecordBox pixel = records[k];
+                grid.remove(k);
 
-                    while (prevSize != pixelList.size()) {
-                        prevSize = pixelList.size();
-                        for (ContactRecordBox px : records) {
-                            if (hasOverlapWith(px, gX1, gY1, gX2, gY2)) {
-                                pixelList.add(px);
-                                gX1 = Math.min(gX1, px.getGenomeX1());
-                                gY1 = Math.min(gY1, px.getGenomeY1());
-                                gX2 = Math.max(gX2, px.getGenomeX2());
-                                gY2 = Math.max(gY2, px.getGenomeY2());
-                            }
-                        }
-                        records.removeAll(pixelList);
-                    }
+                int[] box = new int[]{x1[k], y1[k], x2[k], y2[k]};
+                int numAbsorbed = grid.growAndRemove(box, 0);
 
-                    assessNeighbors(coalesced, pixel, pixelList, minResolutions);
+                Set<ContactRecordBox> pixelList = new HashSet<>();
+                pixelList.add(pixel);
+                for (int a = 0; a < numAbsorbed; a++) {
+                    pixelList.add(records[grid.getAbsorbed(a)]);
                 }
+
+                assessNeighbors(coalesced, pixel, pixelList, minResolutions);
             }
         }
         return coalesced;
@@ -78,17 +75,6 @@ public class MultiResCentroidCollapser {
         return locationMap;
     }
 
-    private static boolean hasOverlapWith(ContactRecordBox px, int gX1, int gY1, int gX2, int gY2) {
-        return getWidth(px.getGenomeX1(), px.getGenomeX2(), gX1, gX2) *
-                getWidth(px.getGenomeY1(), px.getGenomeY2(), gY1, gY2) > 0;
-    }
-
-    private static int getWidth(int boxG1, int boxG2, int g1, int g2) {
-        int start = Math.max(boxG1, g1);
-        int end = Math.min(boxG2, g2);
-        return Math.max(0, end - start);
-    }
-
     private static void assessNeighbors(Set<ContactRecordBox> coalesced, ContactRecordBox pixel, Set<ContactRecordBox> pixelList, int minResolutions) {
         Set<Integer> resolutions = new HashSet<>();
         for (ContactRecordBox box : pixelList) {